@@ -0,0 +1,199 @@
+package es.udc.ws.app.bench;
+
+import es.udc.ws.app.model.survey.SurveyStatus;
+import es.udc.ws.app.model.util.ModelConstants;
+import es.udc.ws.util.sql.DataSourceLocator;
+import es.udc.ws.util.sql.SimpleDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Datos sobre los que se ejecutan los benchmarks: surveys encuestas (la mitad
+ * finalizadas) y dos encuestas abiertas, una con responses respuestas para
+ * getResponses y otra vacía para los votos. Todas las preguntas empiezan por
+ * {@link #QUESTION_PREFIX}, así que se pueden borrar al terminar, incluidas las
+ * que creen los propios benchmarks.
+ */
+class BenchmarkDataset {
+
+    static final String QUESTION_PREFIX = "Bench survey";
+
+    // Las preguntas incluyen "topicN", con N entre 0 y TOPICS - 1
+    static final int TOPICS = 1000;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+    private final long firstSurveyId;
+    private final long lastSurveyId;
+    private final long responsesSurveyId;
+    private final long votesSurveyId;
+
+    private BenchmarkDataset(DataSource dataSource, long firstSurveyId, long lastSurveyId,
+            long responsesSurveyId, long votesSurveyId) {
+        this.dataSource = dataSource;
+        this.firstSurveyId = firstSurveyId;
+        this.lastSurveyId = lastSurveyId;
+        this.responsesSurveyId = responsesSurveyId;
+        this.votesSurveyId = votesSurveyId;
+    }
+
+    /**
+     * Registra la fuente de datos de la aplicación (SimpleDataSource.properties)
+     * y carga los datos con sentencias por lotes.
+     */
+    static BenchmarkDataset create(int surveys, int responses) {
+
+        DataSource dataSource = new SimpleDataSource();
+        DataSourceLocator.addDataSource(ModelConstants.APP_DATA_SOURCE, dataSource);
+
+        try (Connection connection = dataSource.getConnection()) {
+
+            connection.setAutoCommit(false);
+            LocalDateTime now = LocalDateTime.now().withNano(0);
+
+            long firstSurveyId = 0;
+            long lastSurveyId = 0;
+
+            String surveySql = "INSERT INTO Survey (question, creationDate, endDate, status, canceled,"
+                    + " positiveResponses, negativeResponses) VALUES (?, ?, ?, ?, 0, 0, 0)";
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement(surveySql,
+                    Statement.RETURN_GENERATED_KEYS)) {
+
+                for (int i = 0; i < surveys; i++) {
+                    preparedStatement.setString(1, QUESTION_PREFIX + " " + i + " about topic" + (i % TOPICS));
+                    preparedStatement.setTimestamp(2, Timestamp.valueOf(now.minusMinutes(surveys - i)));
+                    preparedStatement.setTimestamp(3, Timestamp.valueOf(i % 2 == 0 ? now.plusYears(1) : now.minusDays(1)));
+                    preparedStatement.setString(4, (i % 2 == 0 ? SurveyStatus.OPEN : SurveyStatus.FINISHED).name());
+                    preparedStatement.addBatch();
+
+                    if ((i + 1) % BATCH_SIZE == 0 || i == surveys - 1) {
+                        preparedStatement.executeBatch();
+                        try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+                            while (keys.next()) {
+                                if (firstSurveyId == 0) {
+                                    firstSurveyId = keys.getLong(1);
+                                }
+                                lastSurveyId = keys.getLong(1);
+                            }
+                        }
+                        // Como con las respuestas, para cargar millones de encuestas
+                        connection.commit();
+                    }
+                }
+
+                long responsesSurveyId = insertOpenSurvey(preparedStatement, now, "with responses");
+                long votesSurveyId = insertOpenSurvey(preparedStatement, now, "for votes");
+
+                insertResponses(connection, responsesSurveyId, responses, now);
+                connection.commit();
+
+                return new BenchmarkDataset(dataSource, firstSurveyId, lastSurveyId, responsesSurveyId,
+                        votesSurveyId);
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long insertOpenSurvey(PreparedStatement preparedStatement, LocalDateTime now,
+            String description) throws SQLException {
+
+        preparedStatement.setString(1, QUESTION_PREFIX + " " + description);
+        preparedStatement.setTimestamp(2, Timestamp.valueOf(now));
+        preparedStatement.setTimestamp(3, Timestamp.valueOf(now.plusYears(1)));
+        preparedStatement.setString(4, SurveyStatus.OPEN.name());
+        preparedStatement.executeUpdate();
+
+        try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+            keys.next();
+            return keys.getLong(1);
+        }
+    }
+
+    private static void insertResponses(Connection connection, long surveyId, int responses, LocalDateTime now)
+            throws SQLException {
+
+        // Los empleados no se borran con las encuestas: los de ejecuciones
+        // anteriores se reutilizan
+        String employeeSql = "INSERT IGNORE INTO Employee (email) VALUES (?)";
+        String responseSql = "INSERT INTO Response (surveyId, employeeId, response, responseDate)"
+                + " SELECT ?, employeeId, ?, ? FROM Employee WHERE email = ?";
+        long positiveResponses = 0;
+
+        try (PreparedStatement employeeStatement = connection.prepareStatement(employeeSql);
+             PreparedStatement preparedStatement = connection.prepareStatement(responseSql)) {
+            for (int i = 0; i < responses; i++) {
+                String email = "employee" + i + "@bench.techfic.com";
+                boolean response = i % 3 != 0;
+                employeeStatement.setString(1, email);
+                employeeStatement.addBatch();
+                preparedStatement.setLong(1, surveyId);
+                preparedStatement.setBoolean(2, response);
+                preparedStatement.setTimestamp(3, Timestamp.valueOf(now.minusSeconds(i)));
+                preparedStatement.setString(4, email);
+                preparedStatement.addBatch();
+                positiveResponses += response ? 1 : 0;
+
+                // Se confirma cada lote: con millones de filas, una única
+                // transacción haría crecer mucho el registro de deshacer
+                if ((i + 1) % BATCH_SIZE == 0 || i == responses - 1) {
+                    employeeStatement.executeBatch();
+                    preparedStatement.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                "UPDATE Survey SET positiveResponses = ?, negativeResponses = ? WHERE surveyId = ?")) {
+            preparedStatement.setLong(1, positiveResponses);
+            preparedStatement.setLong(2, responses - positiveResponses);
+            preparedStatement.setLong(3, surveyId);
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * Borra todas las encuestas del benchmark (y sus respuestas, en cascada).
+     */
+    void remove() {
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     "DELETE FROM Survey WHERE question LIKE ?")) {
+
+            connection.setAutoCommit(true);
+            preparedStatement.setString(1, QUESTION_PREFIX + "%");
+            preparedStatement.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    long getFirstSurveyId() {
+        return firstSurveyId;
+    }
+
+    long getLastSurveyId() {
+        return lastSurveyId;
+    }
+
+    long getResponsesSurveyId() {
+        return responsesSurveyId;
+    }
+
+    long getVotesSurveyId() {
+        return votesSurveyId;
+    }
+}
@@ -0,0 +1,139 @@
+package es.udc.ws.app.bench;
+
+import es.udc.ws.app.model.response.Jdbc3SqlResponseDao;
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.response.ResponseUpsertResult;
+import es.udc.ws.app.model.response.SqlResponseDao;
+import es.udc.ws.app.model.survey.Jdbc3SqlSurveyDao;
+import es.udc.ws.app.model.survey.SqlSurveyDao;
+import es.udc.ws.app.model.survey.Survey;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.dbcp2.BasicDataSourceFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compara el pool de conexiones con la configuración por defecto de DBCP y con
+ * la de jetty-env.xml (ConnectionPool.properties), repitiendo lo que hace
+ * SurveyServiceImpl con cada conexión: una lectura, y la transacción de un voto.
+ * <pre>
+ *   java -jar ws-app-bench/target/benchmarks.jar ConnectionPoolBenchmark -t 16
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConnectionPoolBenchmark {
+
+    @Param({"default", "tuned"})
+    public String pool;
+
+    @Param("1000")
+    public int surveys;
+
+    private BenchmarkDataset dataset;
+    private BasicDataSource dataSource;
+    private final SqlSurveyDao surveyDao = new Jdbc3SqlSurveyDao();
+    private final SqlResponseDao responseDao = new Jdbc3SqlResponseDao();
+
+    @State(Scope.Thread)
+    public static class Voter {
+
+        private static final AtomicLong nextVoter = new AtomicLong();
+
+        private final String employeeEmail = "pool" + nextVoter.getAndIncrement() + "@bench.techfic.com";
+        private boolean response = true;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        dataset = BenchmarkDataset.create(surveys, 0);
+
+        Properties properties = new Properties();
+        try (InputStream in = ConnectionPoolBenchmark.class.getClassLoader()
+                .getResourceAsStream("ConnectionPool.properties")) {
+            properties.load(in);
+        }
+
+        if (pool.equals("tuned")) {
+            dataSource = BasicDataSourceFactory.createDataSource(properties);
+        } else {
+            // Sólo lo que tenía jetty-env.xml: URL (sin opciones del driver), usuario y contraseña
+            dataSource = new BasicDataSource();
+            dataSource.setUrl(properties.getProperty("url").replaceAll("&useLocalSessionState.*$", ""));
+            dataSource.setUsername(properties.getProperty("username"));
+            dataSource.setPassword(properties.getProperty("password"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        dataSource.close();
+        dataset.remove();
+    }
+
+    /**
+     * Como findSurvey: pedir conexión, una consulta y devolverla.
+     */
+    @Benchmark
+    public Survey findSurvey() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            return surveyDao.find(connection, ThreadLocalRandom.current().nextLong(
+                    dataset.getFirstSurveyId(), dataset.getLastSurveyId() + 1));
+        }
+    }
+
+    /**
+     * Como respondToSurvey: READ COMMITTED, sin autocommit, upsert de la
+     * respuesta, incremento de contadores y commit.
+     */
+    @Benchmark
+    public boolean respondToSurvey(Voter voter) throws Exception {
+
+        voter.response = !voter.response;
+        LocalDateTime now = LocalDateTime.now();
+
+        try (Connection connection = dataSource.getConnection()) {
+
+            connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            connection.setAutoCommit(false);
+
+            try {
+                ResponseUpsertResult result = responseDao.upsert(connection, new Response(
+                        dataset.getVotesSurveyId(), voter.employeeEmail, voter.response, now.withNano(0)));
+                long delta = result == ResponseUpsertResult.CHANGED ? -1 : 0;
+                int shard = surveyDao.updateCounters(connection, dataset.getVotesSurveyId(),
+                        voter.employeeEmail.hashCode(), voter.response ? 1 : delta, voter.response ? delta : 1);
+                connection.commit();
+                return shard >= 0;
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+}
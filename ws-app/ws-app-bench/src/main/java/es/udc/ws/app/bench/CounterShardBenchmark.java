@@ -0,0 +1,79 @@
+package es.udc.ws.app.bench;
+
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.surveyservice.SurveyService;
+import es.udc.ws.app.model.surveyservice.SurveyServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Votos por segundo a una única encuesta muy votada según el número de filas
+ * entre las que reparte sus contadores (SurveyService.setCounterShards). Con
+ * una fila todos los votos esperan por el bloqueo de la misma fila de Survey
+ * hasta el commit; con más, sólo los que caen en la misma fila.
+ * <pre>
+ *   java -jar ws-app-bench/target/benchmarks.jar CounterShardBenchmark -t 32
+ *   java -jar ws-app-bench/target/benchmarks.jar CounterShardBenchmark -p counterShards=1,64 -t 64
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class CounterShardBenchmark {
+
+    @Param({"1", "4", "16", "64"})
+    public int counterShards;
+
+    private BenchmarkDataset dataset;
+    private SurveyService surveyService;
+
+    /**
+     * Cada hilo vota con su propio empleado, cambiando el voto cada vez: cada
+     * invocación modifica los contadores.
+     */
+    @State(Scope.Thread)
+    public static class Voter {
+
+        private static final AtomicLong nextVoter = new AtomicLong();
+
+        private final String employeeEmail = "shard" + nextVoter.getAndIncrement() + "@bench.techfic.com";
+        private boolean response = true;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataset = BenchmarkDataset.create(0, 0);
+        surveyService = SurveyServiceImpl.getInstance();
+        surveyService.setCounterShards(dataset.getVotesSurveyId(), counterShards);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataset.remove();
+    }
+
+    @Benchmark
+    public Response respondToHotSurvey(Voter voter) throws Exception {
+        voter.response = !voter.response;
+        return surveyService.respondToSurvey(dataset.getVotesSurveyId(), voter.employeeEmail, voter.response);
+    }
+}
@@ -0,0 +1,106 @@
+package es.udc.ws.app.bench;
+
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.surveyservice.SurveyCommand;
+import es.udc.ws.app.model.surveyservice.SurveyService;
+import es.udc.ws.app.model.surveyservice.SurveyServiceImpl;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creación de encuestas en lotes de batchSize: createSurveys (una transacción
+ * con inserciones de varias filas) frente a createSurvey para cada una (una
+ * transacción y un INSERT por encuesta). El contador surveys da las encuestas
+ * creadas por segundo.
+ * <pre>
+ *   java -jar ws-app-bench/target/benchmarks.jar CreateSurveysBenchmark
+ *   java -jar ws-app-bench/target/benchmarks.jar CreateSurveysBenchmark -p batchSize=10000
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class CreateSurveysBenchmark {
+
+    // Encuestas ya existentes, para que los índices no estén vacíos
+    @Param("10000")
+    public int surveys;
+
+    @Param({"10", "100", "1000"})
+    public int batchSize;
+
+    private BenchmarkDataset dataset;
+    private SurveyService surveyService;
+    private List<SurveyCommand> batch;
+
+    /**
+     * Encuestas creadas, que JMH informa por segundo.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Surveys {
+
+        public long surveys;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            surveys = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        dataset = BenchmarkDataset.create(surveys, 0);
+        surveyService = SurveyServiceImpl.getInstance();
+
+        LocalDateTime endDate = LocalDateTime.now().plusYears(1);
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new SurveyCommand(BenchmarkDataset.QUESTION_PREFIX + " imported topic"
+                    + i % BenchmarkDataset.TOPICS, endDate));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataset.remove();
+    }
+
+    @Benchmark
+    public List<Survey> createSurveys(Surveys created) throws Exception {
+        List<Survey> createdSurveys = surveyService.createSurveys(batch);
+        created.surveys += createdSurveys.size();
+        return createdSurveys;
+    }
+
+    @Benchmark
+    public List<Survey> createSurveyOneByOne(Surveys created) throws Exception {
+        List<Survey> createdSurveys = new ArrayList<>(batch.size());
+        for (SurveyCommand survey : batch) {
+            createdSurveys.add(surveyService.createSurvey(survey.getQuestion(), survey.getEndDate()));
+        }
+        created.surveys += createdSurveys.size();
+        return createdSurveys;
+    }
+}
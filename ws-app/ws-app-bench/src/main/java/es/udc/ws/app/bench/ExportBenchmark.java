@@ -0,0 +1,139 @@
+package es.udc.ws.app.bench;
+
+import es.udc.ws.app.model.surveyservice.SurveyService;
+import es.udc.ws.app.model.surveyservice.SurveyServiceImpl;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exportación de respuestas (SurveyService.exportResponses) frente a
+ * getResponses, que carga la lista completa. El contador rows da las filas
+ * por segundo; al final de cada iteración se imprime el pico de heap de las
+ * invocaciones medidas (incluye basura aún no recogida: para comprobar que la
+ * exportación no depende del número de filas, conviene limitar el heap).
+ * <pre>
+ *   java -jar ws-app-bench/target/benchmarks.jar ExportBenchmark
+ *   java -jar ws-app-bench/target/benchmarks.jar ExportBenchmark.export -jvmArgs -Xmx256m -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param("1000")
+    public int surveys;
+
+    // Respuestas de la encuesta que se exporta
+    @Param("10000000")
+    public int responses;
+
+    private BenchmarkDataset dataset;
+    private SurveyService surveyService;
+    private Path exportFile;
+    private long peakHeapBytes;
+
+    /**
+     * Filas exportadas, que JMH informa por segundo.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataset = BenchmarkDataset.create(surveys, responses);
+        surveyService = SurveyServiceImpl.getInstance();
+        exportFile = Files.createTempFile("responses", ".arrow");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dataset.remove();
+        Files.deleteIfExists(exportFile);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void recordPeakHeap() {
+        long heapBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        peakHeapBytes = Math.max(peakHeapBytes, heapBytes);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printPeakHeap() {
+        System.out.printf("%npeak heap: %d MB%n", peakHeapBytes >> 20);
+        peakHeapBytes = 0;
+    }
+
+    @Benchmark
+    public long exportSurvey(Rows rows) throws Exception {
+        try (OutputStream out = Files.newOutputStream(exportFile)) {
+            long exported = surveyService.exportResponses(dataset.getResponsesSurveyId(), out);
+            rows.rows += exported;
+            return exported;
+        }
+    }
+
+    @Benchmark
+    public long exportAll(Rows rows) throws Exception {
+        try (OutputStream out = Files.newOutputStream(exportFile)) {
+            long exported = surveyService.exportResponses(null, out);
+            rows.rows += exported;
+            return exported;
+        }
+    }
+
+    @Benchmark
+    public int getResponses(Rows rows) throws Exception {
+        int count = surveyService.getResponses(dataset.getResponsesSurveyId(), false).size();
+        rows.rows += count;
+        return count;
+    }
+}
@@ -0,0 +1,100 @@
+package es.udc.ws.app.bench;
+
+import es.udc.ws.app.model.survey.Jdbc3SqlSurveyDao;
+import es.udc.ws.app.model.survey.KeywordIndexSqlSurveyDao;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.util.ModelConstants;
+import es.udc.ws.util.sql.DataSourceLocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda por palabra clave sobre surveys encuestas: el LIKE '%palabra%' de
+ * Jdbc3SqlSurveyDao, que recorre toda la tabla, frente a KeywordIndexSqlSurveyDao,
+ * que consulta en la BD sólo las candidatas del índice de trigramas y las
+ * creadas desde su marca. El índice se carga en el setUp, fuera de la medida,
+ * y se recarga cada refreshSeconds como en producción. Las palabras por
+ * defecto encuentran 1000 encuestas (topic123) y 111 (survey 4242).
+ * <pre>
+ *   java -jar ws-app-bench/target/benchmarks.jar KeywordSearchBenchmark
+ *   java -jar ws-app-bench/target/benchmarks.jar KeywordSearchBenchmark -p surveys=100000
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class KeywordSearchBenchmark {
+
+    @Param("1000000")
+    public int surveys;
+
+    @Param({"topic123", "survey 4242"})
+    public String keyword;
+
+    @Param("10000")
+    public int maxCandidates;
+
+    @Param("10")
+    public long refreshSeconds;
+
+    private BenchmarkDataset dataset;
+    private DataSource dataSource;
+    private Jdbc3SqlSurveyDao likeDao;
+    private KeywordIndexSqlSurveyDao indexDao;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+
+        dataset = BenchmarkDataset.create(surveys, 0);
+        dataSource = DataSourceLocator.getDataSource(ModelConstants.APP_DATA_SOURCE);
+        likeDao = new Jdbc3SqlSurveyDao();
+        indexDao = new KeywordIndexSqlSurveyDao(likeDao, maxCandidates, refreshSeconds, 60);
+
+        // La primera búsqueda indexa toda la tabla
+        try (Connection connection = dataSource.getConnection()) {
+            long start = System.nanoTime();
+            indexDao.findByKeyword(connection, keyword, false);
+            System.out.printf("%nindexed %d surveys in %d ms%n", indexDao.getIndexedCount(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataset.remove();
+    }
+
+    @Benchmark
+    public List<Survey> like() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return likeDao.findByKeyword(connection, keyword, false);
+        }
+    }
+
+    @Benchmark
+    public List<Survey> trigramIndex() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return indexDao.findByKeyword(connection, keyword, false);
+        }
+    }
+}
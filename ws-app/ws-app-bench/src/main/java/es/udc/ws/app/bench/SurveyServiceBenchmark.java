@@ -0,0 +1,210 @@
+package es.udc.ws.app.bench;
+
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.surveyservice.SurveyService;
+import es.udc.ws.app.model.surveyservice.SurveyServiceImpl;
+import es.udc.ws.app.model.util.Page;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks de las operaciones de {@link SurveyService} contra una BD MySQL
+ * local (ver SimpleDataSource.properties).
+ * <p>
+ * Tamaño de los datos e hilos se eligen al ejecutar, p.ej.:
+ * <pre>
+ *   java -jar ws-app-bench/target/benchmarks.jar -p surveys=100000 -p responses=200000 -t 8
+ *   java -jar ws-app-bench/target/benchmarks.jar "respondToSurvey.*" -t 16 -bm thrpt
+ * </pre>
+ * respondToSurveyAsyncNewVote usa su propia instancia del servicio con la cola
+ * de votos activada (SurveyService.asyncVotes.*): cada hilo espera a que su
+ * voto sea persistente, así que con varios hilos se compara el commit en grupo
+ * con un commit por voto (respondToSurveyNewVote):
+ * <pre>
+ *   java -jar ws-app-bench/target/benchmarks.jar "respondToSurvey(Async)?NewVote" -t 64 -bm thrpt
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SurveyServiceBenchmark {
+
+    @Param("10000")
+    public int surveys;
+
+    // Respuestas de la encuesta que se usa en getResponses
+    @Param("10000")
+    public int responses;
+
+    @Param("topic42")
+    public String keyword;
+
+    @Param("100")
+    public int pageSize;
+
+    private BenchmarkDataset dataset;
+    private SurveyService surveyService;
+    private final AtomicLong nextEmployee = new AtomicLong();
+
+    /**
+     * Cada hilo vota siempre con el mismo empleado, para medir votos que cambian
+     * y votos que se repiten.
+     */
+    @State(Scope.Thread)
+    public static class Voter {
+
+        private static final AtomicLong nextVoter = new AtomicLong();
+
+        private final String employeeEmail = "voter" + nextVoter.getAndIncrement() + "@bench.techfic.com";
+        private boolean response = true;
+    }
+
+    /**
+     * Servicio con la cola de votos asíncronos, sólo para los benchmarks que lo usan.
+     */
+    @State(Scope.Benchmark)
+    public static class AsyncVotes {
+
+        private SurveyService surveyService;
+
+        // Recibe el benchmark para crearse después de él, que registra la fuente de datos
+        @Setup(Level.Trial)
+        public void setUp(SurveyServiceBenchmark benchmark) {
+            surveyService = new SurveyServiceImpl(true);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            // Escribe los votos pendientes
+            surveyService.shutdown();
+        }
+    }
+
+    /**
+     * Encuesta abierta nueva para cada invocación de cancelSurvey. Su creación
+     * no forma parte de la medida.
+     */
+    @State(Scope.Thread)
+    public static class OpenSurvey {
+
+        private Long surveyId;
+
+        @Setup(Level.Invocation)
+        public void setUp(SurveyServiceBenchmark benchmark) throws Exception {
+            surveyId = benchmark.surveyService.createSurvey(BenchmarkDataset.QUESTION_PREFIX + " to cancel",
+                    LocalDateTime.now().plusDays(1)).getSurveyId();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = BenchmarkDataset.create(surveys, responses);
+        surveyService = SurveyServiceImpl.getInstance();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataset.remove();
+    }
+
+    @Benchmark
+    public Survey createSurvey() throws Exception {
+        return surveyService.createSurvey(BenchmarkDataset.QUESTION_PREFIX + " created",
+                LocalDateTime.now().plusDays(1));
+    }
+
+    @Benchmark
+    public List<Survey> findSurveysAll() {
+        return surveyService.findSurveys("", false);
+    }
+
+    @Benchmark
+    public List<Survey> findSurveysOnlyFuture() {
+        return surveyService.findSurveys("", true);
+    }
+
+    @Benchmark
+    public List<Survey> findSurveysByKeyword() {
+        return surveyService.findSurveys(keyword, false);
+    }
+
+    @Benchmark
+    public List<Survey> findSurveysByKeywordOnlyFuture() {
+        return surveyService.findSurveys(keyword, true);
+    }
+
+    @Benchmark
+    public Page<Survey> findSurveysFirstPage() throws Exception {
+        return surveyService.findSurveys("", false, null, pageSize);
+    }
+
+    @Benchmark
+    public Survey findSurvey() throws Exception {
+        return surveyService.findSurvey(ThreadLocalRandom.current().nextLong(
+                dataset.getFirstSurveyId(), dataset.getLastSurveyId() + 1));
+    }
+
+    @Benchmark
+    public Response respondToSurveyNewVote() throws Exception {
+        return surveyService.respondToSurvey(dataset.getVotesSurveyId(),
+                "employee" + nextEmployee.getAndIncrement() + "@bench.techfic.com", true);
+    }
+
+    @Benchmark
+    public Response respondToSurveyAsyncNewVote(AsyncVotes asyncVotes) throws Exception {
+        return asyncVotes.surveyService.respondToSurveyAsync(dataset.getVotesSurveyId(),
+                "employee" + nextEmployee.getAndIncrement() + "@bench.techfic.com", true).get();
+    }
+
+    @Benchmark
+    public Response respondToSurveyChangedVote(Voter voter) throws Exception {
+        voter.response = !voter.response;
+        return surveyService.respondToSurvey(dataset.getVotesSurveyId(), voter.employeeEmail, voter.response);
+    }
+
+    @Benchmark
+    public Response respondToSurveySameVote(Voter voter) throws Exception {
+        return surveyService.respondToSurvey(dataset.getVotesSurveyId(), voter.employeeEmail, voter.response);
+    }
+
+    @Benchmark
+    public Survey cancelSurvey(OpenSurvey openSurvey) throws Exception {
+        return surveyService.cancelSurvey(openSurvey.surveyId);
+    }
+
+    @Benchmark
+    public List<Response> getResponses() throws Exception {
+        return surveyService.getResponses(dataset.getResponsesSurveyId(), false);
+    }
+
+    @Benchmark
+    public List<Response> getResponsesOnlyPositive() throws Exception {
+        return surveyService.getResponses(dataset.getResponsesSurveyId(), true);
+    }
+
+    @Benchmark
+    public Page<Response> getResponsesFirstPage() throws Exception {
+        return surveyService.getResponses(dataset.getResponsesSurveyId(), false, null, pageSize);
+    }
+}
@@ -0,0 +1,138 @@
+package es.udc.ws.app.bench;
+
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.surveyservice.SurveyService;
+import es.udc.ws.app.model.surveyservice.SurveyServiceImpl;
+import es.udc.ws.app.model.surveyservice.VoteCommand;
+import es.udc.ws.app.model.surveyservice.VoteResult;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Importación de votos (p. ej. de quioscos o formularios sin conexión):
+ * respondToSurveyBatch, en lotes de batchSize votos, frente a respondToSurvey
+ * para cada voto (una transacción por voto). Cada invocación importa votes
+ * votos nuevos repartidos entre surveysPerImport encuestas recién creadas (su
+ * creación no forma parte de la medida). El contador votes da los votos
+ * importados por segundo; una invocación puede durar más que la iteración.
+ * <pre>
+ *   java -jar ws-app-bench/target/benchmarks.jar VoteImportBenchmark
+ *   java -jar ws-app-bench/target/benchmarks.jar VoteImportBenchmark -p votes=50000 -p batchSize=50000
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class VoteImportBenchmark {
+
+    // Encuestas ya existentes, para que los índices no estén vacíos
+    @Param("10000")
+    public int surveys;
+
+    @Param("50000")
+    public int votes;
+
+    @Param("10")
+    public int surveysPerImport;
+
+    // Votos por llamada a respondToSurveyBatch (no afecta a respondToSurveyOneByOne)
+    @Param("1000")
+    public int batchSize;
+
+    private BenchmarkDataset dataset;
+    private SurveyService surveyService;
+
+    /**
+     * Votos importados, que JMH informa por segundo.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Votes {
+
+        public long votes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            votes = 0;
+        }
+    }
+
+    /**
+     * Votos de una importación, a encuestas abiertas nuevas: todos crean una
+     * respuesta.
+     */
+    @State(Scope.Thread)
+    public static class VoteImport {
+
+        private final List<VoteCommand> votes = new ArrayList<>();
+
+        @Setup(Level.Invocation)
+        public void setUp(VoteImportBenchmark benchmark) throws Exception {
+
+            List<Long> surveyIds = new ArrayList<>();
+            for (int i = 0; i < benchmark.surveysPerImport; i++) {
+                surveyIds.add(benchmark.surveyService.createSurvey(BenchmarkDataset.QUESTION_PREFIX
+                        + " imported votes", LocalDateTime.now().plusDays(1)).getSurveyId());
+            }
+
+            votes.clear();
+            for (int i = 0; i < benchmark.votes; i++) {
+                votes.add(new VoteCommand(surveyIds.get(i % surveyIds.size()),
+                        "import" + i / surveyIds.size() + "@bench.techfic.com", i % 3 != 0));
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = BenchmarkDataset.create(surveys, 0);
+        surveyService = SurveyServiceImpl.getInstance();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataset.remove();
+    }
+
+    @Benchmark
+    public List<VoteResult> respondToSurveyBatch(VoteImport voteImport, Votes imported) {
+        List<VoteResult> results = new ArrayList<>(voteImport.votes.size());
+        for (int start = 0; start < voteImport.votes.size(); start += batchSize) {
+            results.addAll(surveyService.respondToSurveyBatch(voteImport.votes.subList(start,
+                    Math.min(start + batchSize, voteImport.votes.size()))));
+        }
+        imported.votes += results.size();
+        return results;
+    }
+
+    @Benchmark
+    public List<Response> respondToSurveyOneByOne(VoteImport voteImport, Votes imported) throws Exception {
+        List<Response> responses = new ArrayList<>(voteImport.votes.size());
+        for (VoteCommand vote : voteImport.votes) {
+            responses.add(surveyService.respondToSurvey(vote.getSurveyId(), vote.getEmployeeEmail(),
+                    vote.getResponse()));
+        }
+        imported.votes += responses.size();
+        return responses;
+    }
+}
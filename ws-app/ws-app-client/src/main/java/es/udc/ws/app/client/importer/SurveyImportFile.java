@@ -0,0 +1,272 @@
+package es.udc.ws.app.client.importer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import es.udc.ws.app.client.service.dto.ClientSurveyDto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Encuestas de un fichero de importación, validadas todas antes de enviar
+ * ninguna. Según la extensión, el fichero es:
+ * <ul>
+ * <li>.csv: una encuesta por registro, con los campos question y endDate
+ * (RFC 4180: los campos entre comillas pueden contener comas, saltos de línea
+ * y comillas dobladas). La cabecera "question,endDate" es opcional.</li>
+ * <li>.json: un array de objetos {"question": "...", "endDate": "..."}, como
+ * el cuerpo de POST /surveys/batch.</li>
+ * </ul>
+ * Las fechas de fin van en formato ISO-8601 (2030-01-01T00:00:00). Cada
+ * encuesta conserva la línea en que empieza, para los mensajes de error.
+ */
+public class SurveyImportFile {
+
+    private final List<ClientSurveyDto> surveys = new ArrayList<>();
+    private final List<Integer> lines = new ArrayList<>();
+    private final List<String> errors = new ArrayList<>();
+
+    private SurveyImportFile() {
+    }
+
+    /**
+     * @throws IllegalArgumentException si la extensión no es .csv ni .json.
+     */
+    public static SurveyImportFile read(Path file) throws IOException {
+
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        SurveyImportFile importFile = new SurveyImportFile();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (name.endsWith(".csv")) {
+                importFile.readCsv(reader);
+            } else if (name.endsWith(".json")) {
+                importFile.readJson(reader);
+            } else {
+                throw new IllegalArgumentException("Unsupported file type (expected .csv or .json): " + file);
+            }
+        }
+
+        return importFile;
+    }
+
+    /**
+     * Encuestas válidas del fichero, en orden.
+     */
+    public List<ClientSurveyDto> getSurveys() {
+        return surveys;
+    }
+
+    /**
+     * Línea del fichero en que empieza la encuesta de la posición indicada.
+     */
+    public int getLine(int index) {
+        return lines.get(index);
+    }
+
+    /**
+     * Errores de formato o de validación, con su línea; si hay alguno, no
+     * debe importarse el fichero.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    private void readCsv(BufferedReader reader) throws IOException {
+
+        // Las hojas de cálculo suelen guardar el UTF-8 con BOM
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+
+        CsvRecordReader records = new CsvRecordReader(reader);
+        boolean first = true;
+
+        for (List<String> record = records.next(); record != null; record = records.next()) {
+
+            int line = records.getRecordLine();
+
+            if (records.isInsideQuotes()) {
+                errors.add("line " + line + ": unterminated quoted field");
+                break;
+            }
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            if (first && record.size() == 2 && record.get(0).trim().equalsIgnoreCase("question")
+                    && record.get(1).trim().equalsIgnoreCase("endDate")) {
+                first = false;
+                continue;
+            }
+            first = false;
+
+            if (record.size() != 2) {
+                errors.add("line " + line + ": expected 2 fields (question,endDate), found " + record.size());
+                continue;
+            }
+            add(line, record.get(0), record.get(1).trim());
+        }
+    }
+
+    private void readJson(Reader reader) throws IOException {
+
+        try (JsonParser parser = new JsonFactory().createParser(reader)) {
+
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                errors.add("line 1: expected a JSON array of surveys");
+                return;
+            }
+
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+
+                int line = parser.currentTokenLocation().getLineNr();
+                String question = null;
+                String endDate = null;
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case "question" -> question = parser.getValueAsString();
+                        case "endDate" -> endDate = parser.getValueAsString();
+                        default -> parser.skipChildren();
+                    }
+                }
+                add(line, question, endDate);
+            }
+
+            if (token != JsonToken.END_ARRAY) {
+                errors.add("line " + parser.currentTokenLocation().getLineNr() + ": expected a survey object");
+            }
+
+        } catch (JsonParseException e) {
+            errors.add("line " + e.getLocation().getLineNr() + ": " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Valida la encuesta como lo hará el servicio, para no importar a medias
+     * un fichero con errores.
+     */
+    private void add(int line, String question, String endDate) {
+
+        if (question == null || question.isBlank()) {
+            errors.add("line " + line + ": question cannot be empty");
+            return;
+        }
+        if (endDate == null || endDate.isEmpty()) {
+            errors.add("line " + line + ": endDate cannot be empty");
+            return;
+        }
+
+        LocalDateTime date;
+        try {
+            date = LocalDateTime.parse(endDate);
+        } catch (DateTimeParseException e) {
+            errors.add("line " + line + ": invalid endDate '" + endDate + "' (expected 2030-01-01T00:00:00)");
+            return;
+        }
+        if (date.isBefore(LocalDateTime.now())) {
+            errors.add("line " + line + ": endDate " + endDate + " is not a future date");
+            return;
+        }
+
+        surveys.add(new ClientSurveyDto(null, question, null, date, false, 0, 0));
+        lines.add(line);
+    }
+
+    /**
+     * Lee los registros de un CSV (RFC 4180), carácter a carácter.
+     */
+    private static class CsvRecordReader {
+
+        private final BufferedReader reader;
+        private int line = 1;
+        private int recordLine = 1;
+        private boolean insideQuotes = false;
+        private boolean eof = false;
+
+        private CsvRecordReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return los campos del siguiente registro, o null al final del
+         * fichero. Si el fichero termina dentro de un campo entre comillas,
+         * devuelve lo leído e {@link #isInsideQuotes()} es true.
+         */
+        private List<String> next() throws IOException {
+
+            if (eof) {
+                return null;
+            }
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            recordLine = line;
+
+            while (true) {
+
+                int c = reader.read();
+
+                if (c == -1) {
+                    eof = true;
+                    if (fields.isEmpty() && field.isEmpty()) {
+                        return null;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                }
+
+                if (insideQuotes) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            reader.reset();
+                            insideQuotes = false;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    insideQuotes = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    line++;
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+        }
+
+        private int getRecordLine() {
+            return recordLine;
+        }
+
+        private boolean isInsideQuotes() {
+            return insideQuotes;
+        }
+    }
+}
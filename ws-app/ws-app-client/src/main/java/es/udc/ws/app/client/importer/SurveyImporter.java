@@ -0,0 +1,65 @@
+package es.udc.ws.app.client.importer;
+
+import es.udc.ws.app.client.service.ClientSurveyService;
+import es.udc.ws.app.client.service.dto.ClientSurveyDto;
+import es.udc.ws.util.exceptions.InputValidationException;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Crea las encuestas de un {@link SurveyImportFile} con createSurveys, en
+ * lotes de batchSize encuestas: cada lote es una llamada al servicio y una
+ * transacción, con inserciones de varias filas.
+ */
+public class SurveyImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    // Límite de encuestas por petición del servicio
+    public static final int MAX_BATCH_SIZE = 10000;
+
+    private final ClientSurveyService clientSurveyService;
+    private final int batchSize;
+
+    public SurveyImporter(ClientSurveyService clientSurveyService, int batchSize) {
+
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("batchSize must be between 1 and " + MAX_BATCH_SIZE);
+        }
+
+        this.clientSurveyService = clientSurveyService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Crea las encuestas del fichero, en orden, y escribe en out una línea
+     * "line,surveyId" por cada una según se crean.
+     * @return el número de encuestas creadas.
+     * @throws InputValidationException si el servicio rechaza un lote; las de
+     * los lotes anteriores ya están creadas (y escritas en out).
+     */
+    public int importSurveys(SurveyImportFile file, PrintStream out) throws InputValidationException {
+
+        List<ClientSurveyDto> surveys = file.getSurveys();
+
+        for (int from = 0; from < surveys.size(); from += batchSize) {
+
+            int to = Math.min(from + batchSize, surveys.size());
+            List<ClientSurveyDto> createdSurveys;
+
+            try {
+                createdSurveys = clientSurveyService.createSurveys(surveys.subList(from, to));
+            } catch (InputValidationException e) {
+                throw new InputValidationException("Surveys at lines " + file.getLine(from) + "-"
+                        + file.getLine(to - 1) + " rejected (" + from + " surveys already imported): "
+                        + e.getMessage());
+            }
+
+            for (int i = 0; i < createdSurveys.size(); i++) {
+                out.println(file.getLine(from + i) + "," + createdSurveys.get(i).getSurveyId());
+            }
+        }
+
+        return surveys.size();
+    }
+}
@@ -0,0 +1,227 @@
+package es.udc.ws.app.client.load;
+
+import es.udc.ws.app.client.service.ClientSurveyService;
+import es.udc.ws.app.client.service.dto.ClientSurveyDto;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lanza contra un ClientSurveyService la mezcla de operaciones configurada y
+ * mide la latencia de cada una.
+ * <ul>
+ * <li>Bucle cerrado (rps=0): concurrency hilos virtuales encadenan peticiones
+ * sin pausa; mide la capacidad máxima del servicio.</li>
+ * <li>Bucle abierto (rps &gt; 0): las peticiones salen a ritmo fijo, cada una en
+ * su hilo virtual. La latencia se mide desde el instante en que la petición
+ * debía salir, así que los retrasos del propio generador cuando el servicio se
+ * satura también cuentan (corrección de "coordinated omission").</li>
+ * </ul>
+ * Las operaciones que terminan durante el calentamiento se descartan.
+ */
+public class LoadGenerator {
+
+    // Latencias en microsegundos, hasta una hora, con 3 cifras significativas
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private static final int EMPLOYEES = 100_000;
+
+    private final ClientSurveyService service;
+    private final LoadTestConfig config;
+
+    private final LoadOperation[] operationTable;
+    private final Map<LoadOperation, Recorder> recorders = new EnumMap<>(LoadOperation.class);
+    private final Map<LoadOperation, LongAdder> errors = new EnumMap<>(LoadOperation.class);
+
+    // Encuestas sin cancelar creadas por la prueba, sobre las que se vota
+    private final List<Long> openSurveys = new ArrayList<>();
+    private final AtomicLong createdSurveys = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public LoadGenerator(ClientSurveyService service, LoadTestConfig config) {
+
+        this.service = service;
+        this.config = config;
+        this.operationTable = buildOperationTable(config.getMix());
+
+        for (LoadOperation operation : LoadOperation.values()) {
+            recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public LoadReport run() throws Exception {
+
+        for (int i = 0; i < config.getInitialSurveys(); i++) {
+            createSurvey();
+        }
+
+        long startNanos = System.nanoTime();
+        long warmupEndNanos = startNanos + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        long endNanos = warmupEndNanos + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+
+        Map<LoadOperation, Histogram> histograms = new EnumMap<>(LoadOperation.class);
+        Map<LoadOperation, Long> errorCounts = new EnumMap<>(LoadOperation.class);
+        long measuredNanos;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            if (config.isOpenLoop()) {
+                executor.submit(() -> runOpenLoop(executor, startNanos));
+            } else {
+                SplittableRandom seeds = new SplittableRandom(config.getSeed());
+                for (int i = 0; i < config.getConcurrency(); i++) {
+                    SplittableRandom random = seeds.split();
+                    executor.submit(() -> runClosedLoop(random));
+                }
+            }
+
+            sleepUntil(warmupEndNanos);
+            long measureStartNanos = System.nanoTime();
+            for (LoadOperation operation : LoadOperation.values()) {
+                recorders.get(operation).reset();
+                errors.get(operation).reset();
+            }
+
+            sleepUntil(endNanos);
+            for (LoadOperation operation : LoadOperation.values()) {
+                histograms.put(operation, recorders.get(operation).getIntervalHistogram());
+                errorCounts.put(operation, errors.get(operation).sum());
+            }
+            measuredNanos = System.nanoTime() - measureStartNanos;
+
+            // Las peticiones en curso terminan, pero ya no se miden
+            running = false;
+        }
+
+        return new LoadReport(config, histograms, errorCounts, measuredNanos);
+    }
+
+    private void runClosedLoop(SplittableRandom random) {
+        while (running) {
+            LoadOperation operation = nextOperation(random);
+            long startNanos = System.nanoTime();
+            execute(operation, random, startNanos);
+        }
+    }
+
+    private void runOpenLoop(ExecutorService executor, long startNanos) {
+
+        SplittableRandom random = new SplittableRandom(config.getSeed());
+        Semaphore inFlight = new Semaphore(config.getConcurrency());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / config.getTargetRps();
+        long intendedStartNanos = startNanos;
+
+        while (running) {
+
+            sleepUntil(intendedStartNanos);
+            try {
+                // Si ya hay demasiadas peticiones en curso se espera; la espera
+                // cuenta en la latencia porque se mide desde intendedStartNanos
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            LoadOperation operation = nextOperation(random);
+            SplittableRandom operationRandom = random.split();
+            long operationStartNanos = intendedStartNanos;
+            executor.submit(() -> {
+                try {
+                    execute(operation, operationRandom, operationStartNanos);
+                } finally {
+                    inFlight.release();
+                }
+            });
+
+            intendedStartNanos += intervalNanos;
+        }
+    }
+
+    private void execute(LoadOperation operation, SplittableRandom random, long startNanos) {
+
+        try {
+            switch (operation) {
+                case CREATE -> createSurvey();
+                case FIND -> service.findSurveys(config.getKeyword(), true);
+                case VOTE -> service.respondToSurvey(pickSurvey(random, false),
+                        "employee" + random.nextInt(EMPLOYEES) + "@load.test", random.nextBoolean());
+                case CANCEL -> service.cancelSurvey(pickSurvey(random, true));
+            }
+        } catch (Exception e) {
+            errors.get(operation).increment();
+        }
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        recorders.get(operation).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+    }
+
+    private void createSurvey() throws Exception {
+        ClientSurveyDto survey = service.createSurvey(
+                config.getKeyword() + " survey " + createdSurveys.incrementAndGet(),
+                LocalDateTime.now().plusDays(1));
+        synchronized (openSurveys) {
+            openSurveys.add(survey.getSurveyId());
+        }
+    }
+
+    /**
+     * Elige una encuesta abierta al azar. Si es para cancelarla, la quita de la
+     * lista para que no se vote más en ella.
+     */
+    private Long pickSurvey(SplittableRandom random, boolean remove) {
+        synchronized (openSurveys) {
+            if (openSurveys.isEmpty()) {
+                throw new IllegalStateException("No open surveys left");
+            }
+            int index = random.nextInt(openSurveys.size());
+            if (!remove) {
+                return openSurveys.get(index);
+            }
+            Long surveyId = openSurveys.get(index);
+            openSurveys.set(index, openSurveys.get(openSurveys.size() - 1));
+            openSurveys.remove(openSurveys.size() - 1);
+            return surveyId;
+        }
+    }
+
+    private LoadOperation nextOperation(SplittableRandom random) {
+        return operationTable[random.nextInt(operationTable.length)];
+    }
+
+    /**
+     * Tabla con cada operación repetida tantas veces como su peso, para
+     * elegirlas con un único número aleatorio.
+     */
+    private static LoadOperation[] buildOperationTable(Map<LoadOperation, Integer> mix) {
+        List<LoadOperation> table = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                table.add(operation);
+            }
+        });
+        return table.toArray(new LoadOperation[0]);
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
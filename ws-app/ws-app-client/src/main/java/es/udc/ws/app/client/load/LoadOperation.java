@@ -0,0 +1,15 @@
+package es.udc.ws.app.client.load;
+
+/**
+ * Operaciones que puede lanzar el generador de carga.
+ */
+public enum LoadOperation {
+    /** [FUNC-1] Crea una encuesta que termina al día siguiente. */
+    CREATE,
+    /** [FUNC-2] Busca las encuestas futuras por la palabra clave de la prueba. */
+    FIND,
+    /** [FUNC-4] Vota en una encuesta abierta con un empleado aleatorio. */
+    VOTE,
+    /** [FUNC-5] Cancela una encuesta abierta, que deja de recibir votos. */
+    CANCEL
+}
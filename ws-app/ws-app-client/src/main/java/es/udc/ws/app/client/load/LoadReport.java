@@ -0,0 +1,79 @@
+package es.udc.ws.app.client.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resultados de una prueba de carga: por cada operación, el número de
+ * peticiones, los errores, el throughput y los percentiles de latencia del
+ * periodo medido.
+ */
+public class LoadReport {
+
+    private final LoadTestConfig config;
+    private final Map<LoadOperation, Histogram> histograms;
+    private final Map<LoadOperation, Long> errors;
+    private final long measuredNanos;
+
+    LoadReport(LoadTestConfig config, Map<LoadOperation, Histogram> histograms,
+               Map<LoadOperation, Long> errors, long measuredNanos) {
+        this.config = config;
+        this.histograms = histograms;
+        this.errors = errors;
+        this.measuredNanos = measuredNanos;
+    }
+
+    public Histogram getHistogram(LoadOperation operation) {
+        return histograms.get(operation);
+    }
+
+    public long getErrors(LoadOperation operation) {
+        return errors.get(operation);
+    }
+
+    public double getThroughput(LoadOperation operation) {
+        return histograms.get(operation).getTotalCount() / (measuredNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public void print(PrintStream out) {
+
+        out.println("Load test: " + config);
+        out.printf(Locale.ROOT, "%-8s %10s %8s %10s %10s %10s %10s %10s%n",
+                "op", "count", "errors", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+        Histogram total = null;
+        long totalErrors = 0;
+        for (LoadOperation operation : LoadOperation.values()) {
+            Histogram histogram = histograms.get(operation);
+            if (histogram.getTotalCount() == 0 && errors.get(operation) == 0) {
+                continue;
+            }
+            printRow(out, operation.name(), histogram, errors.get(operation));
+            if (total == null) {
+                total = new Histogram(histogram.getHighestTrackableValue(),
+                        histogram.getNumberOfSignificantValueDigits());
+            }
+            total.add(histogram);
+            totalErrors += errors.get(operation);
+        }
+        if (total != null) {
+            printRow(out, "TOTAL", total, totalErrors);
+        }
+    }
+
+    private void printRow(PrintStream out, String name, Histogram histogram, long errorCount) {
+        double seconds = measuredNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        out.printf(Locale.ROOT, "%-8s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                name, histogram.getTotalCount(), errorCount, histogram.getTotalCount() / seconds,
+                toMillis(histogram.getValueAtPercentile(50)), toMillis(histogram.getValueAtPercentile(99)),
+                toMillis(histogram.getValueAtPercentile(99.9)), toMillis(histogram.getMaxValue()));
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+}
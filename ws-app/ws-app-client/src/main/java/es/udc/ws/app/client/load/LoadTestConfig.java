@@ -0,0 +1,135 @@
+package es.udc.ws.app.client.load;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parámetros de una prueba de carga, leídos de argumentos clave=valor:
+ * <pre>
+ * mix=create:1,find:10,vote:88,cancel:1  peso relativo de cada operación
+ * rps=0                  peticiones por segundo (0 = bucle cerrado)
+ * concurrency=64         hilos en bucle cerrado, o peticiones en curso como
+ *                        máximo con rps &gt; 0
+ * warmup=10              segundos de calentamiento (no se miden)
+ * duration=60            segundos medidos
+ * surveys=100            encuestas que se crean antes de empezar
+ * keyword=LoadTest       prefijo de las encuestas creadas y palabra de búsqueda
+ * seed=1                 semilla, para repetir la misma secuencia de operaciones
+ * </pre>
+ */
+public class LoadTestConfig {
+
+    private final Map<LoadOperation, Integer> mix = new EnumMap<>(LoadOperation.class);
+    private int targetRps = 0;
+    private int concurrency = 64;
+    private int warmupSeconds = 10;
+    private int durationSeconds = 60;
+    private int initialSurveys = 100;
+    private String keyword = "LoadTest";
+    private long seed = 1;
+
+    public LoadTestConfig() {
+        mix.put(LoadOperation.CREATE, 1);
+        mix.put(LoadOperation.FIND, 10);
+        mix.put(LoadOperation.VOTE, 88);
+        mix.put(LoadOperation.CANCEL, 1);
+    }
+
+    /**
+     * @throws IllegalArgumentException si algún argumento no es válido.
+     */
+    public static LoadTestConfig parse(String[] args, int from) {
+
+        LoadTestConfig config = new LoadTestConfig();
+
+        for (int i = from; i < args.length; i++) {
+            int separator = args[i].indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got '" + args[i] + "'");
+            }
+            String key = args[i].substring(0, separator);
+            String value = args[i].substring(separator + 1);
+            switch (key) {
+                case "mix" -> config.parseMix(value);
+                case "rps" -> config.targetRps = parseInt(key, value, 0);
+                case "concurrency" -> config.concurrency = parseInt(key, value, 1);
+                case "warmup" -> config.warmupSeconds = parseInt(key, value, 0);
+                case "duration" -> config.durationSeconds = parseInt(key, value, 1);
+                case "surveys" -> config.initialSurveys = parseInt(key, value, 1);
+                case "keyword" -> config.keyword = value;
+                case "seed" -> config.seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown parameter '" + key + "'");
+            }
+        }
+
+        return config;
+    }
+
+    private void parseMix(String value) {
+
+        mix.clear();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight in mix, got '" + entry + "'");
+            }
+            LoadOperation operation = LoadOperation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+            mix.put(operation, parseInt("mix", parts[1].trim(), 0));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("At least one operation must have a positive weight");
+        }
+    }
+
+    private static int parseInt(String key, String value, int min) {
+        int result = Integer.parseInt(value);
+        if (result < min) {
+            throw new IllegalArgumentException(key + " must be at least " + min);
+        }
+        return result;
+    }
+
+    public Map<LoadOperation, Integer> getMix() {
+        return mix;
+    }
+
+    public int getTargetRps() {
+        return targetRps;
+    }
+
+    public boolean isOpenLoop() {
+        return targetRps > 0;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getInitialSurveys() {
+        return initialSurveys;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        return "mix=" + mix + ", " + (isOpenLoop() ? "rps=" + targetRps + ", maxInFlight=" : "concurrency=")
+                + concurrency + ", warmup=" + warmupSeconds + "s, duration=" + durationSeconds
+                + "s, surveys=" + initialSurveys + ", keyword=" + keyword + ", seed=" + seed;
+    }
+}
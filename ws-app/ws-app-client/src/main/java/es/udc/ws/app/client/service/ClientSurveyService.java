@@ -0,0 +1,70 @@
+package es.udc.ws.app.client.service;
+
+import es.udc.ws.app.client.service.dto.ClientResponseDto;
+import es.udc.ws.app.client.service.dto.ClientSurveyDto;
+import es.udc.ws.app.client.service.dto.ClientVoteDto;
+import es.udc.ws.app.client.service.dto.ClientVoteResultDto;
+import es.udc.ws.app.client.service.exceptions.ClientSurveyAlreadyCanceledException;
+import es.udc.ws.app.client.service.exceptions.ClientSurveyCanceledException;
+import es.udc.ws.app.client.service.exceptions.ClientSurveyFinishedException;
+import es.udc.ws.util.exceptions.InputValidationException;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ClientSurveyService {
+
+    /**
+     * [FUNC-1] Crear una nueva encuesta.
+     */
+    public ClientSurveyDto createSurvey(String question, LocalDateTime endDate)
+            throws InputValidationException;
+
+    /**
+     * [FUNC-1] Crear un lote de encuestas en una sola llamada (sólo se usan la
+     * pregunta y la fecha de fin de cada una). Si alguna no es válida, no se
+     * crea ninguna.
+     * @return las encuestas creadas, en el mismo orden que la lista recibida.
+     */
+    public List<ClientSurveyDto> createSurveys(List<ClientSurveyDto> surveys)
+            throws InputValidationException;
+
+    /**
+     * [FUNC-2] Buscar encuestas por palabra clave.
+     */
+    public List<ClientSurveyDto> findSurveys(String keyword, boolean onlyFuture);
+
+    /**
+     * [FUNC-3] Encontrar una encuesta por su ID.
+     */
+    public ClientSurveyDto findSurvey(Long surveyId)
+            throws InstanceNotFoundException;
+
+    /**
+     * [FUNC-4] Responder a una encuesta.
+     */
+    public ClientResponseDto respondToSurvey(Long surveyId, String employeeEmail, boolean response)
+            throws InstanceNotFoundException, InputValidationException,
+            ClientSurveyFinishedException, ClientSurveyCanceledException;
+
+    /**
+     * [FUNC-4] Registrar un lote de votos en una sola llamada.
+     * @return el resultado de cada voto, en el mismo orden que la lista recibida.
+     */
+    public List<ClientVoteResultDto> respondToSurveyBatch(List<ClientVoteDto> votes)
+            throws InputValidationException;
+
+    /**
+     * [FUNC-5] Cancelar una encuesta.
+     */
+    public ClientSurveyDto cancelSurvey(Long surveyId)
+            throws InstanceNotFoundException, ClientSurveyFinishedException,
+            ClientSurveyAlreadyCanceledException;
+
+    /**
+     * [FUNC-6] Obtener las respuestas de una encuesta.
+     */
+    public List<ClientResponseDto> getResponses(Long surveyId, boolean onlyPositive)
+            throws InstanceNotFoundException;
+}
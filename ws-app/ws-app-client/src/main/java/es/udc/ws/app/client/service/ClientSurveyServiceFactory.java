@@ -0,0 +1,35 @@
+package es.udc.ws.app.client.service;
+
+import es.udc.ws.util.configuration.ConfigurationParametersManager;
+
+public class ClientSurveyServiceFactory {
+
+    private final static String CLASS_NAME_PARAMETER = "ClientSurveyServiceFactory.service.className";
+    private static Class<ClientSurveyService> serviceClass = null;
+
+    private ClientSurveyServiceFactory() {
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized static Class<ClientSurveyService> getServiceClass() {
+
+        if (serviceClass == null) {
+            try {
+                String serviceClassName = ConfigurationParametersManager.getParameter(CLASS_NAME_PARAMETER);
+                serviceClass = (Class<ClientSurveyService>) Class.forName(serviceClassName);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return serviceClass;
+    }
+
+    public static ClientSurveyService getService() {
+
+        try {
+            return getServiceClass().getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
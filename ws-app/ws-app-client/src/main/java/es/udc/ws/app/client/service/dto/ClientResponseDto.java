@@ -0,0 +1,52 @@
+package es.udc.ws.app.client.service.dto;
+
+import java.time.LocalDateTime;
+
+public class ClientResponseDto {
+
+    private Long responseId;
+    private Long surveyId;
+    private String employeeEmail;
+    private boolean response;
+    private LocalDateTime responseDate;
+
+    public ClientResponseDto(Long responseId, Long surveyId, String employeeEmail,
+                             boolean response, LocalDateTime responseDate) {
+        this.responseId = responseId;
+        this.surveyId = surveyId;
+        this.employeeEmail = employeeEmail;
+        this.response = response;
+        this.responseDate = responseDate;
+    }
+
+    public Long getResponseId() {
+        return responseId;
+    }
+
+    public Long getSurveyId() {
+        return surveyId;
+    }
+
+    public String getEmployeeEmail() {
+        return employeeEmail;
+    }
+
+    public boolean getResponse() {
+        return response;
+    }
+
+    public LocalDateTime getResponseDate() {
+        return responseDate;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientResponseDto{" +
+                "responseId=" + responseId +
+                ", surveyId=" + surveyId +
+                ", employeeEmail='" + employeeEmail + '\'' +
+                ", response=" + response +
+                ", responseDate=" + responseDate +
+                '}';
+    }
+}
@@ -0,0 +1,67 @@
+package es.udc.ws.app.client.service.dto;
+
+import java.time.LocalDateTime;
+
+public class ClientSurveyDto {
+
+    private Long surveyId;
+    private String question;
+    private LocalDateTime creationDate;
+    private LocalDateTime endDate;
+    private boolean canceled;
+    private long positiveResponses;
+    private long negativeResponses;
+
+    public ClientSurveyDto(Long surveyId, String question, LocalDateTime creationDate,
+                           LocalDateTime endDate, boolean canceled,
+                           long positiveResponses, long negativeResponses) {
+        this.surveyId = surveyId;
+        this.question = question;
+        this.creationDate = creationDate;
+        this.endDate = endDate;
+        this.canceled = canceled;
+        this.positiveResponses = positiveResponses;
+        this.negativeResponses = negativeResponses;
+    }
+
+    public Long getSurveyId() {
+        return surveyId;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public LocalDateTime getEndDate() {
+        return endDate;
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    public long getPositiveResponses() {
+        return positiveResponses;
+    }
+
+    public long getNegativeResponses() {
+        return negativeResponses;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientSurveyDto{" +
+                "surveyId=" + surveyId +
+                ", question='" + question + '\'' +
+                ", creationDate=" + creationDate +
+                ", endDate=" + endDate +
+                ", canceled=" + canceled +
+                ", positiveResponses=" + positiveResponses +
+                ", negativeResponses=" + negativeResponses +
+                '}';
+    }
+}
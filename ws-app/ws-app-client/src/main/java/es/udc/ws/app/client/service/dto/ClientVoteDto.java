@@ -0,0 +1,26 @@
+package es.udc.ws.app.client.service.dto;
+
+public class ClientVoteDto {
+
+    private Long surveyId;
+    private String employeeEmail;
+    private boolean response;
+
+    public ClientVoteDto(Long surveyId, String employeeEmail, boolean response) {
+        this.surveyId = surveyId;
+        this.employeeEmail = employeeEmail;
+        this.response = response;
+    }
+
+    public Long getSurveyId() {
+        return surveyId;
+    }
+
+    public String getEmployeeEmail() {
+        return employeeEmail;
+    }
+
+    public boolean getResponse() {
+        return response;
+    }
+}
@@ -0,0 +1,40 @@
+package es.udc.ws.app.client.service.dto;
+
+/**
+ * Resultado de un voto enviado en un lote. El estado es uno de ACCEPTED,
+ * UPDATED, REJECTED_INVALID, REJECTED_NOT_FOUND, REJECTED_FINISHED o
+ * REJECTED_CANCELED.
+ */
+public class ClientVoteResultDto {
+
+    private String status;
+    private ClientResponseDto savedResponse;
+
+    public ClientVoteResultDto(String status, ClientResponseDto savedResponse) {
+        this.status = status;
+        this.savedResponse = savedResponse;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public boolean isAccepted() {
+        return "ACCEPTED".equals(status) || "UPDATED".equals(status);
+    }
+
+    /**
+     * Respuesta guardada tras aplicar el lote, o null si el voto fue rechazado.
+     */
+    public ClientResponseDto getSavedResponse() {
+        return savedResponse;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientVoteResultDto{" +
+                "status='" + status + '\'' +
+                ", savedResponse=" + savedResponse +
+                '}';
+    }
+}
@@ -0,0 +1,11 @@
+package es.udc.ws.app.client.service.exceptions;
+
+/**
+ * Se intentó cancelar una encuesta que ya estaba cancelada.
+ */
+public class ClientSurveyAlreadyCanceledException extends Exception {
+
+    public ClientSurveyAlreadyCanceledException(String message) {
+        super(message);
+    }
+}
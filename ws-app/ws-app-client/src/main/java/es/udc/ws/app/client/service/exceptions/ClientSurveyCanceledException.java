@@ -0,0 +1,11 @@
+package es.udc.ws.app.client.service.exceptions;
+
+/**
+ * La encuesta está cancelada y no admite respuestas.
+ */
+public class ClientSurveyCanceledException extends Exception {
+
+    public ClientSurveyCanceledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package es.udc.ws.app.client.service.exceptions;
+
+/**
+ * La encuesta ya ha finalizado y no admite la operación.
+ */
+public class ClientSurveyFinishedException extends Exception {
+
+    public ClientSurveyFinishedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,252 @@
+package es.udc.ws.app.client.service.rest;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import es.udc.ws.app.client.service.ClientSurveyService;
+import es.udc.ws.app.client.service.dto.ClientResponseDto;
+import es.udc.ws.app.client.service.dto.ClientSurveyDto;
+import es.udc.ws.app.client.service.dto.ClientVoteDto;
+import es.udc.ws.app.client.service.dto.ClientVoteResultDto;
+import es.udc.ws.app.client.service.exceptions.ClientSurveyAlreadyCanceledException;
+import es.udc.ws.app.client.service.exceptions.ClientSurveyCanceledException;
+import es.udc.ws.app.client.service.exceptions.ClientSurveyFinishedException;
+import es.udc.ws.app.client.service.rest.json.JsonToClientExceptionConversor;
+import es.udc.ws.app.client.service.rest.json.JsonToClientResponseDtoConversor;
+import es.udc.ws.app.client.service.rest.json.JsonToClientSurveyDtoConversor;
+import es.udc.ws.util.configuration.ConfigurationParametersManager;
+import es.udc.ws.util.exceptions.InputValidationException;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+import org.apache.hc.client5.http.fluent.Request;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Cliente del servicio REST (SurveysServlet y VotesServlet). Las peticiones
+ * usan el cliente HTTP compartido de la API fluida, que mantiene un pool de
+ * conexiones persistentes y es seguro entre hilos.
+ */
+public class RestClientSurveyService implements ClientSurveyService {
+
+    private final static String ENDPOINT_ADDRESS_PARAMETER =
+            "RestClientSurveyService.endpointAddress";
+
+    private final static String endpointAddress =
+            ConfigurationParametersManager.getParameter(ENDPOINT_ADDRESS_PARAMETER);
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Escribe el cuerpo de una petición.
+     */
+    @FunctionalInterface
+    private interface JsonWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    /**
+     * Lee el cuerpo de una respuesta correcta.
+     */
+    @FunctionalInterface
+    private interface JsonReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    @Override
+    public ClientSurveyDto createSurvey(String question, LocalDateTime endDate)
+            throws InputValidationException {
+
+        if (endDate == null) {
+            throw new InputValidationException("End date is required");
+        }
+
+        try {
+
+            ClassicHttpResponse response = post("surveys",
+                    generator -> JsonToClientSurveyDtoConversor.writeSurvey(generator, question, endDate));
+
+            return read(response, HttpStatus.SC_CREATED, JsonToClientSurveyDtoConversor::toClientSurveyDto);
+
+        } catch (InputValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<ClientSurveyDto> createSurveys(List<ClientSurveyDto> surveys) throws InputValidationException {
+
+        for (ClientSurveyDto survey : surveys) {
+            if (survey.getEndDate() == null) {
+                throw new InputValidationException("End date is required");
+            }
+        }
+
+        try {
+
+            ClassicHttpResponse response = post("surveys/batch",
+                    generator -> JsonToClientSurveyDtoConversor.writeSurveys(generator, surveys));
+
+            return read(response, HttpStatus.SC_CREATED, JsonToClientSurveyDtoConversor::toClientSurveyDtos);
+
+        } catch (InputValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<ClientSurveyDto> findSurveys(String keyword, boolean onlyFuture) {
+
+        try {
+
+            String query = "surveys?onlyFuture=" + onlyFuture
+                    + (keyword != null ? "&keyword=" + URLEncoder.encode(keyword, StandardCharsets.UTF_8) : "");
+
+            return read(get(query), HttpStatus.SC_OK, JsonToClientSurveyDtoConversor::toClientSurveyDtos);
+
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public ClientSurveyDto findSurvey(Long surveyId) throws InstanceNotFoundException {
+
+        try {
+
+            return read(get("surveys/" + surveyId), HttpStatus.SC_OK,
+                    JsonToClientSurveyDtoConversor::toClientSurveyDto);
+
+        } catch (InstanceNotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public ClientResponseDto respondToSurvey(Long surveyId, String employeeEmail, boolean response)
+            throws InstanceNotFoundException, InputValidationException,
+            ClientSurveyFinishedException, ClientSurveyCanceledException {
+
+        try {
+
+            ClassicHttpResponse httpResponse = post("surveys/" + surveyId + "/responses",
+                    generator -> JsonToClientResponseDtoConversor.writeVote(generator, employeeEmail, response));
+
+            return read(httpResponse, HttpStatus.SC_OK, JsonToClientResponseDtoConversor::toClientResponseDto);
+
+        } catch (InstanceNotFoundException | InputValidationException | ClientSurveyFinishedException
+                 | ClientSurveyCanceledException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<ClientVoteResultDto> respondToSurveyBatch(List<ClientVoteDto> votes)
+            throws InputValidationException {
+
+        try {
+
+            ClassicHttpResponse response = post("votes",
+                    generator -> JsonToClientResponseDtoConversor.writeVotes(generator, votes));
+
+            return read(response, HttpStatus.SC_OK, JsonToClientResponseDtoConversor::toClientVoteResultDtos);
+
+        } catch (InputValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public ClientSurveyDto cancelSurvey(Long surveyId) throws InstanceNotFoundException,
+            ClientSurveyFinishedException, ClientSurveyAlreadyCanceledException {
+
+        try {
+
+            ClassicHttpResponse response = post("surveys/" + surveyId + "/cancel", null);
+
+            return read(response, HttpStatus.SC_OK, JsonToClientSurveyDtoConversor::toClientSurveyDto);
+
+        } catch (InstanceNotFoundException | ClientSurveyFinishedException
+                 | ClientSurveyAlreadyCanceledException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<ClientResponseDto> getResponses(Long surveyId, boolean onlyPositive)
+            throws InstanceNotFoundException {
+
+        try {
+
+            return read(get("surveys/" + surveyId + "/responses?onlyPositive=" + onlyPositive),
+                    HttpStatus.SC_OK, JsonToClientResponseDtoConversor::toClientResponseDtos);
+
+        } catch (InstanceNotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static ClassicHttpResponse get(String path) throws IOException {
+        return (ClassicHttpResponse) Request.get(endpointAddress + path).execute().returnResponse();
+    }
+
+    /**
+     * @param body el cuerpo JSON, o null para enviar la petición sin cuerpo.
+     */
+    private static ClassicHttpResponse post(String path, JsonWriter body) throws IOException {
+
+        Request request = Request.post(endpointAddress + path);
+
+        if (body != null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+                body.write(generator);
+            }
+            request.bodyByteArray(out.toByteArray(), ContentType.APPLICATION_JSON);
+        }
+
+        return (ClassicHttpResponse) request.execute().returnResponse();
+    }
+
+    /**
+     * Lee el cuerpo si el código de estado es el esperado; si no, lanza la
+     * excepción que corresponde al error.
+     */
+    private static <T> T read(ClassicHttpResponse response, int expectedStatusCode, JsonReader<T> reader)
+            throws Exception {
+
+        if (response.getEntity() == null) {
+            // P. ej. 503 cuando el servicio está deteniéndose
+            throw new RuntimeException("HTTP error; status code = " + response.getCode());
+        }
+
+        try (JsonParser parser = jsonFactory.createParser(response.getEntity().getContent())) {
+            if (response.getCode() != expectedStatusCode) {
+                throw JsonToClientExceptionConversor.toException(response.getCode(), parser);
+            }
+            return reader.read(parser);
+        }
+    }
+}
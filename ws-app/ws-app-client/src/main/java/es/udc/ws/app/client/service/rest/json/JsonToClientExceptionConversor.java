@@ -0,0 +1,66 @@
+package es.udc.ws.app.client.service.rest.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import es.udc.ws.app.client.service.exceptions.ClientSurveyAlreadyCanceledException;
+import es.udc.ws.app.client.service.exceptions.ClientSurveyCanceledException;
+import es.udc.ws.app.client.service.exceptions.ClientSurveyFinishedException;
+import es.udc.ws.util.exceptions.InputValidationException;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+import org.apache.hc.core5.http.HttpStatus;
+
+import java.io.IOException;
+
+/**
+ * Reconstruye la excepción de un error del servicio REST a partir de su código
+ * de estado y del cuerpo {"errorType": ..., "message": ...} que escribe
+ * AppExceptionToJsonConversor.
+ */
+public class JsonToClientExceptionConversor {
+
+    private JsonToClientExceptionConversor() {
+    }
+
+    public static Exception toException(int statusCode, JsonParser parser) throws IOException {
+
+        String errorType = null;
+        String message = null;
+        String instanceId = null;
+        String instanceType = null;
+
+        if (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "errorType" -> errorType = parser.getValueAsString();
+                    case "message" -> message = parser.getValueAsString();
+                    case "instanceId" -> instanceId = parser.getValueAsString();
+                    case "instanceType" -> instanceType = parser.getValueAsString();
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        return switch (statusCode) {
+            case HttpStatus.SC_BAD_REQUEST -> new InputValidationException(message);
+            case HttpStatus.SC_NOT_FOUND -> "InstanceNotFound".equals(errorType)
+                    ? new InstanceNotFoundException(toInstanceId(instanceId), instanceType)
+                    : new RuntimeException("HTTP error; status code = " + statusCode + ": " + message);
+            case HttpStatus.SC_GONE -> "SurveyCanceled".equals(errorType)
+                    ? new ClientSurveyCanceledException(message)
+                    : new ClientSurveyFinishedException(message);
+            case HttpStatus.SC_CONFLICT -> new ClientSurveyAlreadyCanceledException(message);
+            default -> new RuntimeException("HTTP error; status code = " + statusCode
+                    + (errorType != null ? " (" + errorType + ")" : ""));
+        };
+    }
+
+    private static Object toInstanceId(String instanceId) {
+        try {
+            return Long.valueOf(instanceId);
+        } catch (NumberFormatException e) {
+            return instanceId;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package es.udc.ws.app.client.service.rest.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import es.udc.ws.app.client.service.dto.ClientResponseDto;
+import es.udc.ws.app.client.service.dto.ClientVoteDto;
+import es.udc.ws.app.client.service.dto.ClientVoteResultDto;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Convierte respuestas y votos entre los DTO del cliente y el JSON de
+ * SurveysServlet y VotesServlet.
+ */
+public class JsonToClientResponseDtoConversor {
+
+    private JsonToClientResponseDtoConversor() {
+    }
+
+    /**
+     * {"employeeEmail": "...", "response": true}, para la encuesta de la URL.
+     */
+    public static void writeVote(JsonGenerator generator, String employeeEmail, boolean response)
+            throws IOException {
+
+        generator.writeStartObject();
+        generator.writeStringField("employeeEmail", employeeEmail);
+        generator.writeBooleanField("response", response);
+        generator.writeEndObject();
+    }
+
+    /**
+     * [{"surveyId": 1, "employeeEmail": "...", "response": true}, ...]
+     */
+    public static void writeVotes(JsonGenerator generator, List<ClientVoteDto> votes) throws IOException {
+
+        generator.writeStartArray();
+        for (ClientVoteDto vote : votes) {
+            generator.writeStartObject();
+            generator.writeNumberField("surveyId", vote.getSurveyId());
+            generator.writeStringField("employeeEmail", vote.getEmployeeEmail());
+            generator.writeBooleanField("response", vote.getResponse());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    public static ClientResponseDto toClientResponseDto(JsonParser parser) throws IOException {
+        JsonToClientSurveyDtoConversor.expect(parser.nextToken(), JsonToken.START_OBJECT);
+        return readResponse(parser);
+    }
+
+    public static List<ClientResponseDto> toClientResponseDtos(JsonParser parser) throws IOException {
+
+        List<ClientResponseDto> responses = new ArrayList<>();
+
+        JsonToClientSurveyDtoConversor.expect(parser.nextToken(), JsonToken.START_ARRAY);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            responses.add(readResponse(parser));
+        }
+
+        return responses;
+    }
+
+    /**
+     * [{"status": "ACCEPTED", "savedResponse": {...}}, ...]
+     */
+    public static List<ClientVoteResultDto> toClientVoteResultDtos(JsonParser parser) throws IOException {
+
+        List<ClientVoteResultDto> results = new ArrayList<>();
+
+        JsonToClientSurveyDtoConversor.expect(parser.nextToken(), JsonToken.START_ARRAY);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String status = null;
+            ClientResponseDto savedResponse = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "status" -> status = parser.getValueAsString();
+                    case "savedResponse" -> savedResponse = value == JsonToken.START_OBJECT
+                            ? readResponse(parser) : null;
+                    default -> parser.skipChildren();
+                }
+            }
+            results.add(new ClientVoteResultDto(status, savedResponse));
+        }
+
+        return results;
+    }
+
+    private static ClientResponseDto readResponse(JsonParser parser) throws IOException {
+
+        Long responseId = null;
+        Long surveyId = null;
+        String employeeEmail = null;
+        boolean response = false;
+        LocalDateTime responseDate = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "responseId" -> responseId = parser.getLongValue();
+                case "surveyId" -> surveyId = parser.getLongValue();
+                case "employeeEmail" -> employeeEmail = parser.getValueAsString();
+                case "response" -> response = parser.getBooleanValue();
+                case "responseDate" -> responseDate = LocalDateTime.parse(parser.getValueAsString());
+                default -> parser.skipChildren();
+            }
+        }
+
+        return new ClientResponseDto(responseId, surveyId, employeeEmail, response, responseDate);
+    }
+}
@@ -0,0 +1,98 @@
+package es.udc.ws.app.client.service.rest.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import es.udc.ws.app.client.service.dto.ClientSurveyDto;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Convierte encuestas entre ClientSurveyDto y el JSON de SurveysServlet, con
+ * el parser y el generador en streaming.
+ */
+public class JsonToClientSurveyDtoConversor {
+
+    private JsonToClientSurveyDtoConversor() {
+    }
+
+    /**
+     * {"question": "...", "endDate": "2030-01-01T00:00:00"}
+     */
+    public static void writeSurvey(JsonGenerator generator, String question, LocalDateTime endDate)
+            throws IOException {
+
+        generator.writeStartObject();
+        generator.writeStringField("question", question);
+        generator.writeStringField("endDate", endDate.toString());
+        generator.writeEndObject();
+    }
+
+    /**
+     * Encuestas que se quieren crear: el servicio sólo lee la pregunta y la
+     * fecha de fin.
+     */
+    public static void writeSurveys(JsonGenerator generator, List<ClientSurveyDto> surveys) throws IOException {
+
+        generator.writeStartArray();
+        for (ClientSurveyDto survey : surveys) {
+            writeSurvey(generator, survey.getQuestion(), survey.getEndDate());
+        }
+        generator.writeEndArray();
+    }
+
+    public static ClientSurveyDto toClientSurveyDto(JsonParser parser) throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        return readSurvey(parser);
+    }
+
+    public static List<ClientSurveyDto> toClientSurveyDtos(JsonParser parser) throws IOException {
+
+        List<ClientSurveyDto> surveys = new ArrayList<>();
+
+        expect(parser.nextToken(), JsonToken.START_ARRAY);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            surveys.add(readSurvey(parser));
+        }
+
+        return surveys;
+    }
+
+    private static ClientSurveyDto readSurvey(JsonParser parser) throws IOException {
+
+        Long surveyId = null;
+        String question = null;
+        LocalDateTime creationDate = null;
+        LocalDateTime endDate = null;
+        boolean canceled = false;
+        long positiveResponses = 0;
+        long negativeResponses = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "surveyId" -> surveyId = parser.getLongValue();
+                case "question" -> question = parser.getValueAsString();
+                case "creationDate" -> creationDate = LocalDateTime.parse(parser.getValueAsString());
+                case "endDate" -> endDate = LocalDateTime.parse(parser.getValueAsString());
+                case "canceled" -> canceled = parser.getBooleanValue();
+                case "positiveResponses" -> positiveResponses = parser.getLongValue();
+                case "negativeResponses" -> negativeResponses = parser.getLongValue();
+                default -> parser.skipChildren();
+            }
+        }
+
+        return new ClientSurveyDto(surveyId, question, creationDate, endDate, canceled,
+                positiveResponses, negativeResponses);
+    }
+
+    static void expect(JsonToken token, JsonToken expected) throws IOException {
+        if (token != expected) {
+            throw new IOException("Invalid JSON response: expected " + expected + " but was " + token);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package es.udc.ws.app.client.service.thrift;
+
+import es.udc.ws.app.client.service.dto.ClientResponseDto;
+import es.udc.ws.app.client.service.dto.ClientVoteDto;
+import es.udc.ws.app.client.service.dto.ClientVoteResultDto;
+import es.udc.ws.app.thrift.ThriftResponseDto;
+import es.udc.ws.app.thrift.ThriftVoteDto;
+import es.udc.ws.app.thrift.ThriftVoteResultDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ThriftClientResponseDtoConversor {
+
+    private ThriftClientResponseDtoConversor() {
+    }
+
+    public static ClientResponseDto toClientResponseDto(ThriftResponseDto response) {
+        return new ClientResponseDto(response.getResponseId(), response.getSurveyId(),
+                response.getEmployeeEmail(), response.isResponse(),
+                ThriftClientSurveyDtoConversor.toLocalDateTime(response.getResponseDate()));
+    }
+
+    public static List<ClientResponseDto> toClientResponseDtos(List<ThriftResponseDto> responses) {
+        List<ClientResponseDto> dtos = new ArrayList<>(responses.size());
+        for (ThriftResponseDto response : responses) {
+            dtos.add(toClientResponseDto(response));
+        }
+        return dtos;
+    }
+
+    public static List<ThriftVoteDto> toThriftVoteDtos(List<ClientVoteDto> votes) {
+        List<ThriftVoteDto> dtos = new ArrayList<>(votes.size());
+        for (ClientVoteDto vote : votes) {
+            dtos.add(new ThriftVoteDto(vote.getSurveyId(), vote.getEmployeeEmail(), vote.getResponse()));
+        }
+        return dtos;
+    }
+
+    public static List<ClientVoteResultDto> toClientVoteResultDtos(List<ThriftVoteResultDto> results) {
+        List<ClientVoteResultDto> dtos = new ArrayList<>(results.size());
+        for (ThriftVoteResultDto result : results) {
+            ClientResponseDto savedResponse = result.isSetSavedResponse()
+                    ? toClientResponseDto(result.getSavedResponse()) : null;
+            dtos.add(new ClientVoteResultDto(result.getStatus().name(), savedResponse));
+        }
+        return dtos;
+    }
+}
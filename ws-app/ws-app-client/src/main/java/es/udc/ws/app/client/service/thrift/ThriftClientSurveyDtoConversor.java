@@ -0,0 +1,57 @@
+package es.udc.ws.app.client.service.thrift;
+
+import es.udc.ws.app.client.service.dto.ClientSurveyDto;
+import es.udc.ws.app.thrift.ThriftSurveyDto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ThriftClientSurveyDtoConversor {
+
+    private ThriftClientSurveyDtoConversor() {
+    }
+
+    public static ClientSurveyDto toClientSurveyDto(ThriftSurveyDto survey) {
+        return new ClientSurveyDto(survey.getSurveyId(), survey.getQuestion(),
+                toLocalDateTime(survey.getCreationDate()), toLocalDateTime(survey.getEndDate()),
+                survey.isCanceled(), survey.getPositiveResponses(), survey.getNegativeResponses());
+    }
+
+    public static List<ClientSurveyDto> toClientSurveyDtos(List<ThriftSurveyDto> surveys) {
+        List<ClientSurveyDto> dtos = new ArrayList<>(surveys.size());
+        for (ThriftSurveyDto survey : surveys) {
+            dtos.add(toClientSurveyDto(survey));
+        }
+        return dtos;
+    }
+
+    /**
+     * Encuestas que se quieren crear: el servicio sólo lee la pregunta y la
+     * fecha de fin.
+     */
+    public static List<ThriftSurveyDto> toThriftSurveyDtos(List<ClientSurveyDto> surveys) {
+        List<ThriftSurveyDto> dtos = new ArrayList<>(surveys.size());
+        for (ClientSurveyDto survey : surveys) {
+            ThriftSurveyDto dto = new ThriftSurveyDto();
+            dto.setQuestion(survey.getQuestion());
+            dto.setEndDate(toEpochMillis(survey.getEndDate()));
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    /**
+     * Las fechas se intercambian como milisegundos desde epoch, interpretando
+     * la fecha local en UTC (ver ThriftSurveyService.thrift).
+     */
+    static long toEpochMillis(LocalDateTime date) {
+        return date.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000),
+                Math.floorMod(epochMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,229 @@
+package es.udc.ws.app.client.service.thrift;
+
+import es.udc.ws.app.client.service.ClientSurveyService;
+import es.udc.ws.app.client.service.dto.ClientResponseDto;
+import es.udc.ws.app.client.service.dto.ClientSurveyDto;
+import es.udc.ws.app.client.service.dto.ClientVoteDto;
+import es.udc.ws.app.client.service.dto.ClientVoteResultDto;
+import es.udc.ws.app.client.service.exceptions.ClientSurveyAlreadyCanceledException;
+import es.udc.ws.app.client.service.exceptions.ClientSurveyCanceledException;
+import es.udc.ws.app.client.service.exceptions.ClientSurveyFinishedException;
+import es.udc.ws.app.thrift.ThriftInputValidationException;
+import es.udc.ws.app.thrift.ThriftInstanceNotFoundException;
+import es.udc.ws.app.thrift.ThriftSurveyAlreadyCanceledException;
+import es.udc.ws.app.thrift.ThriftSurveyCanceledException;
+import es.udc.ws.app.thrift.ThriftSurveyFinishedException;
+import es.udc.ws.app.thrift.ThriftSurveyService;
+import es.udc.ws.util.configuration.ConfigurationParametersManager;
+import es.udc.ws.util.exceptions.InputValidationException;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.THttpClient;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Cliente Thrift (protocolo compacto) de ThriftSurveyServiceServlet. Cada llamada
+ * usa su propio transporte, porque THttpClient no es seguro entre hilos; las
+ * conexiones HTTP subyacentes las reutiliza la JVM (keep-alive).
+ */
+public class ThriftClientSurveyService implements ClientSurveyService {
+
+    private final static String ENDPOINT_ADDRESS_PARAMETER =
+            "ThriftClientSurveyService.endpointAddress";
+
+    private final static String endpointAddress =
+            ConfigurationParametersManager.getParameter(ENDPOINT_ADDRESS_PARAMETER);
+
+    @Override
+    public ClientSurveyDto createSurvey(String question, LocalDateTime endDate)
+            throws InputValidationException {
+
+        if (endDate == null) {
+            throw new InputValidationException("End date is required");
+        }
+
+        ThriftSurveyService.Client client = getClient();
+
+        try (TTransport transport = client.getInputProtocol().getTransport()) {
+
+            transport.open();
+
+            return ThriftClientSurveyDtoConversor.toClientSurveyDto(
+                    client.createSurvey(question, ThriftClientSurveyDtoConversor.toEpochMillis(endDate)));
+
+        } catch (ThriftInputValidationException e) {
+            throw new InputValidationException(e.getMessage());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<ClientSurveyDto> createSurveys(List<ClientSurveyDto> surveys) throws InputValidationException {
+
+        for (ClientSurveyDto survey : surveys) {
+            if (survey.getEndDate() == null) {
+                throw new InputValidationException("End date is required");
+            }
+        }
+
+        ThriftSurveyService.Client client = getClient();
+
+        try (TTransport transport = client.getInputProtocol().getTransport()) {
+
+            transport.open();
+
+            return ThriftClientSurveyDtoConversor.toClientSurveyDtos(
+                    client.createSurveys(ThriftClientSurveyDtoConversor.toThriftSurveyDtos(surveys)));
+
+        } catch (ThriftInputValidationException e) {
+            throw new InputValidationException(e.getMessage());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<ClientSurveyDto> findSurveys(String keyword, boolean onlyFuture) {
+
+        ThriftSurveyService.Client client = getClient();
+
+        try (TTransport transport = client.getInputProtocol().getTransport()) {
+
+            transport.open();
+
+            return ThriftClientSurveyDtoConversor.toClientSurveyDtos(client.findSurveys(keyword, onlyFuture));
+
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public ClientSurveyDto findSurvey(Long surveyId) throws InstanceNotFoundException {
+
+        ThriftSurveyService.Client client = getClient();
+
+        try (TTransport transport = client.getInputProtocol().getTransport()) {
+
+            transport.open();
+
+            return ThriftClientSurveyDtoConversor.toClientSurveyDto(client.findSurvey(surveyId));
+
+        } catch (ThriftInstanceNotFoundException e) {
+            throw new InstanceNotFoundException(e.getInstanceId(), e.getInstanceType());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public ClientResponseDto respondToSurvey(Long surveyId, String employeeEmail, boolean response)
+            throws InstanceNotFoundException, InputValidationException,
+            ClientSurveyFinishedException, ClientSurveyCanceledException {
+
+        ThriftSurveyService.Client client = getClient();
+
+        try (TTransport transport = client.getInputProtocol().getTransport()) {
+
+            transport.open();
+
+            return ThriftClientResponseDtoConversor.toClientResponseDto(
+                    client.respondToSurvey(surveyId, employeeEmail, response));
+
+        } catch (ThriftInstanceNotFoundException e) {
+            throw new InstanceNotFoundException(e.getInstanceId(), e.getInstanceType());
+        } catch (ThriftInputValidationException e) {
+            throw new InputValidationException(e.getMessage());
+        } catch (ThriftSurveyFinishedException e) {
+            throw new ClientSurveyFinishedException(e.getMessage());
+        } catch (ThriftSurveyCanceledException e) {
+            throw new ClientSurveyCanceledException(e.getMessage());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<ClientVoteResultDto> respondToSurveyBatch(List<ClientVoteDto> votes)
+            throws InputValidationException {
+
+        ThriftSurveyService.Client client = getClient();
+
+        try (TTransport transport = client.getInputProtocol().getTransport()) {
+
+            transport.open();
+
+            return ThriftClientResponseDtoConversor.toClientVoteResultDtos(
+                    client.respondToSurveyBatch(ThriftClientResponseDtoConversor.toThriftVoteDtos(votes)));
+
+        } catch (ThriftInputValidationException e) {
+            throw new InputValidationException(e.getMessage());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public ClientSurveyDto cancelSurvey(Long surveyId) throws InstanceNotFoundException,
+            ClientSurveyFinishedException, ClientSurveyAlreadyCanceledException {
+
+        ThriftSurveyService.Client client = getClient();
+
+        try (TTransport transport = client.getInputProtocol().getTransport()) {
+
+            transport.open();
+
+            return ThriftClientSurveyDtoConversor.toClientSurveyDto(client.cancelSurvey(surveyId));
+
+        } catch (ThriftInstanceNotFoundException e) {
+            throw new InstanceNotFoundException(e.getInstanceId(), e.getInstanceType());
+        } catch (ThriftSurveyFinishedException e) {
+            throw new ClientSurveyFinishedException(e.getMessage());
+        } catch (ThriftSurveyAlreadyCanceledException e) {
+            throw new ClientSurveyAlreadyCanceledException(e.getMessage());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<ClientResponseDto> getResponses(Long surveyId, boolean onlyPositive)
+            throws InstanceNotFoundException {
+
+        ThriftSurveyService.Client client = getClient();
+
+        try (TTransport transport = client.getInputProtocol().getTransport()) {
+
+            transport.open();
+
+            return ThriftClientResponseDtoConversor.toClientResponseDtos(
+                    client.getResponses(surveyId, onlyPositive));
+
+        } catch (ThriftInstanceNotFoundException e) {
+            throw new InstanceNotFoundException(e.getInstanceId(), e.getInstanceType());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private ThriftSurveyService.Client getClient() {
+
+        try {
+
+            TTransport transport = new THttpClient(endpointAddress);
+            TProtocol protocol = new TCompactProtocol(transport);
+
+            return new ThriftSurveyService.Client(protocol);
+
+        } catch (TTransportException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
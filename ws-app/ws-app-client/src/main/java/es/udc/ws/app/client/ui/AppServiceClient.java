@@ -1,8 +1,108 @@
 package es.udc.ws.app.client.ui;
 
+import es.udc.ws.app.client.importer.SurveyImportFile;
+import es.udc.ws.app.client.importer.SurveyImporter;
+import es.udc.ws.app.client.load.LoadGenerator;
+import es.udc.ws.app.client.load.LoadReport;
+import es.udc.ws.app.client.load.LoadTestConfig;
+import es.udc.ws.app.client.service.ClientSurveyService;
+import es.udc.ws.app.client.service.ClientSurveyServiceFactory;
+import es.udc.ws.util.exceptions.InputValidationException;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
 public class AppServiceClient {
     public static void main(String[] args) {
-        // TODO
 
+        if (args.length == 0) {
+            printUsageAndExit();
+        }
+
+        ClientSurveyService clientSurveyService = ClientSurveyServiceFactory.getService();
+
+        if ("-load".equalsIgnoreCase(args[0])) {
+
+            LoadTestConfig config;
+            try {
+                config = LoadTestConfig.parse(args, 1);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                printUsageAndExit();
+                return;
+            }
+
+            try {
+                LoadReport report = new LoadGenerator(clientSurveyService, config).run();
+                report.print(System.out);
+            } catch (Exception ex) {
+                ex.printStackTrace(System.err);
+            }
+
+        } else if ("-import".equalsIgnoreCase(args[0])) {
+
+            if (args.length < 2 || args.length > 3) {
+                printUsageAndExit();
+            }
+
+            SurveyImporter importer;
+            try {
+                int batchSize = SurveyImporter.DEFAULT_BATCH_SIZE;
+                if (args.length == 3) {
+                    if (!args[2].startsWith("batchSize=")) {
+                        throw new IllegalArgumentException("Unknown argument: " + args[2]);
+                    }
+                    batchSize = Integer.parseInt(args[2].substring("batchSize=".length()));
+                }
+                importer = new SurveyImporter(clientSurveyService, batchSize);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                printUsageAndExit();
+                return;
+            }
+
+            try {
+                // Se valida todo el fichero antes de crear ninguna encuesta
+                SurveyImportFile file = SurveyImportFile.read(Path.of(args[1]));
+                if (!file.getErrors().isEmpty()) {
+                    file.getErrors().forEach(System.err::println);
+                    System.err.println(file.getErrors().size() + " invalid surveys, nothing imported");
+                    System.exit(-1);
+                }
+
+                long start = System.nanoTime();
+                System.out.println("line,surveyId");
+                int imported = importer.importSurveys(file, System.out);
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                System.err.printf(Locale.ROOT, "Imported %d surveys in %.1f s (%.0f surveys/s)%n",
+                        imported, seconds, imported / seconds);
+            } catch (InputValidationException e) {
+                System.err.println(e.getMessage());
+                System.exit(-1);
+            } catch (Exception ex) {
+                ex.printStackTrace(System.err);
+            }
+
+        } else {
+            printUsageAndExit();
+        }
+    }
+
+    public static void printUsageAndExit() {
+        printUsage();
+        System.exit(-1);
+    }
+
+    public static void printUsage() {
+        System.err.println("Usage:\n" +
+                "    [load]   AppServiceClient -load [mix=create:1,find:10,vote:88,cancel:1] [rps=0]\n" +
+                "                 [concurrency=64] [warmup=10] [duration=60] [surveys=100]\n" +
+                "                 [keyword=LoadTest] [seed=1]\n" +
+                "             rps=0 runs a closed loop with 'concurrency' virtual threads; rps>0 sends\n" +
+                "             requests at that rate with at most 'concurrency' in flight\n" +
+                "    [import] AppServiceClient -import <surveys.csv|surveys.json> [batchSize=1000]\n" +
+                "             creates the surveys of the file (question,endDate) in batches of\n" +
+                "             'batchSize' and prints the id of each one next to its line\n");
     }
-}
\ No newline at end of file
+}
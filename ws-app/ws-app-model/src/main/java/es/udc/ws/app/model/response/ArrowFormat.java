@@ -0,0 +1,396 @@
+package es.udc.ws.app.model.response;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Lo necesario del formato de fichero IPC de Apache Arrow
+ * (https://arrow.apache.org/docs/format/Columnar.html#ipc-file-format) para
+ * escribir y leer las exportaciones de respuestas sin depender de la
+ * biblioteca de Arrow: las constantes de Schema.fbs, Message.fbs y File.fbs
+ * que se usan y un constructor y un lector mínimos de FlatBuffers.
+ */
+final class ArrowFormat {
+
+    // "ARROW1" al principio (con dos bytes de relleno) y al final del fichero
+    static final byte[] MAGIC = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+    static final int CONTINUATION = 0xFFFFFFFF;
+    static final int ALIGNMENT = 8;
+
+    static final short METADATA_VERSION_V5 = 4;
+
+    // Union MessageHeader
+    static final byte HEADER_SCHEMA = 1;
+    static final byte HEADER_RECORD_BATCH = 3;
+
+    // Union Type
+    static final byte TYPE_INT = 2;
+    static final byte TYPE_UTF8 = 5;
+    static final byte TYPE_BOOL = 6;
+    static final byte TYPE_TIMESTAMP = 10;
+
+    static final short TIME_UNIT_SECOND = 0;
+
+    // Campos de las tablas, en el orden de los .fbs
+    static final int MESSAGE_VERSION = 0;
+    static final int MESSAGE_HEADER_TYPE = 1;
+    static final int MESSAGE_HEADER = 2;
+    static final int MESSAGE_BODY_LENGTH = 3;
+    static final int MESSAGE_FIELDS = 5;
+
+    static final int SCHEMA_FIELDS = 1;
+    static final int SCHEMA_FIELD_COUNT = 4;
+
+    static final int FIELD_NAME = 0;
+    static final int FIELD_NULLABLE = 1;
+    static final int FIELD_TYPE_TYPE = 2;
+    static final int FIELD_TYPE = 3;
+    static final int FIELD_CHILDREN = 5;
+    static final int FIELD_FIELDS = 7;
+
+    static final int INT_BIT_WIDTH = 0;
+    static final int INT_IS_SIGNED = 1;
+    static final int TIMESTAMP_UNIT = 0;
+
+    static final int RECORD_BATCH_LENGTH = 0;
+    static final int RECORD_BATCH_NODES = 1;
+    static final int RECORD_BATCH_BUFFERS = 2;
+    static final int RECORD_BATCH_FIELDS = 5;
+
+    static final int FOOTER_VERSION = 0;
+    static final int FOOTER_SCHEMA = 1;
+    static final int FOOTER_DICTIONARIES = 2;
+    static final int FOOTER_RECORD_BATCHES = 3;
+    static final int FOOTER_FIELDS = 5;
+
+    // Structs Buffer (dos long) y Block (long, int, relleno, long)
+    static final int BUFFER_SIZE = 16;
+    static final int BLOCK_SIZE = 24;
+
+    private ArrowFormat() {
+    }
+
+    static int padding(long length) {
+        return (int) (-length & (ALIGNMENT - 1));
+    }
+
+    /**
+     * Constructor de FlatBuffers: como el de la biblioteca oficial, escribe
+     * desde el final del array hacia el principio, de modo que cada objeto se
+     * escribe antes que los que lo referencian (los offsets sólo apuntan
+     * hacia delante). Los offsets que devuelve son la distancia al final.
+     */
+    static final class Builder {
+
+        private byte[] buffer = new byte[1024];
+        private int space = buffer.length;
+        private int minAlign = 1;
+
+        private int[] vtable;
+        private int objectStart;
+
+        int offset() {
+            return buffer.length - space;
+        }
+
+        /**
+         * Alinea a size bytes lo que se escriba después de additional bytes.
+         */
+        private void prep(int size, int additional) {
+
+            minAlign = Math.max(minAlign, size);
+            int alignSize = -(offset() + additional) & (size - 1);
+
+            int needed = alignSize + size + additional;
+            if (space < needed) {
+                int length = Math.max(buffer.length * 2, buffer.length + needed);
+                byte[] grown = new byte[length];
+                System.arraycopy(buffer, space, grown, length - offset(), offset());
+                space += length - buffer.length;
+                buffer = grown;
+            }
+
+            space -= alignSize;
+            Arrays.fill(buffer, space, space + alignSize, (byte) 0);
+        }
+
+        private void putByte(int value) {
+            buffer[--space] = (byte) value;
+        }
+
+        private void putShort(int value) {
+            putByte(value >> 8);
+            putByte(value);
+        }
+
+        private void putInt(int value) {
+            putShort(value >> 16);
+            putShort(value);
+        }
+
+        private void putLong(long value) {
+            putInt((int) (value >> 32));
+            putInt((int) value);
+        }
+
+        private void addOffset(int offset) {
+            prep(4, 0);
+            putInt(offset() - offset + 4);
+        }
+
+        int createString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            prep(4, bytes.length + 1);
+            putByte(0);
+            space -= bytes.length;
+            System.arraycopy(bytes, 0, buffer, space, bytes.length);
+            putInt(bytes.length);
+            return offset();
+        }
+
+        int createOffsetVector(int... offsets) {
+            prep(4, 4 * offsets.length);
+            for (int i = offsets.length - 1; i >= 0; i--) {
+                addOffset(offsets[i]);
+            }
+            putInt(offsets.length);
+            return offset();
+        }
+
+        /**
+         * Vector de structs de dos long (FieldNode o Buffer), a partir de los
+         * pares {primero, segundo} consecutivos de values.
+         */
+        int createLongPairVector(long[] values) {
+            int count = values.length / 2;
+            prep(4, 16 * count);
+            prep(8, 16 * count);
+            for (int i = count - 1; i >= 0; i--) {
+                putLong(values[2 * i + 1]);
+                putLong(values[2 * i]);
+            }
+            putInt(count);
+            return offset();
+        }
+
+        /**
+         * Vector de structs Block, a partir de los tríos {offset,
+         * metaDataLength, bodyLength} consecutivos de values.
+         */
+        int createBlockVector(long[] values) {
+            int count = values.length / 3;
+            prep(4, BLOCK_SIZE * count);
+            prep(8, BLOCK_SIZE * count);
+            for (int i = count - 1; i >= 0; i--) {
+                putLong(values[3 * i + 2]);
+                putInt(0);
+                putInt((int) values[3 * i + 1]);
+                putLong(values[3 * i]);
+            }
+            putInt(count);
+            return offset();
+        }
+
+        void startTable(int fields) {
+            vtable = new int[fields];
+            objectStart = offset();
+        }
+
+        void addByte(int field, int value) {
+            prep(1, 0);
+            putByte(value);
+            vtable[field] = offset();
+        }
+
+        void addShort(int field, int value) {
+            prep(2, 0);
+            putShort(value);
+            vtable[field] = offset();
+        }
+
+        void addInt(int field, int value) {
+            prep(4, 0);
+            putInt(value);
+            vtable[field] = offset();
+        }
+
+        void addLong(int field, long value) {
+            prep(8, 0);
+            putLong(value);
+            vtable[field] = offset();
+        }
+
+        void addOffset(int field, int offset) {
+            addOffset(offset);
+            vtable[field] = offset();
+        }
+
+        int endTable() {
+
+            // Offset (con signo) de la tabla a su vtable, que se escribe justo antes
+            prep(4, 0);
+            putInt(0);
+            int objectOffset = offset();
+
+            int fields = vtable.length;
+            while (fields > 0 && vtable[fields - 1] == 0) {
+                fields--;
+            }
+            for (int i = fields - 1; i >= 0; i--) {
+                putShort(vtable[i] != 0 ? objectOffset - vtable[i] : 0);
+            }
+            putShort(objectOffset - objectStart);
+            putShort((fields + 2) * 2);
+
+            int tablePosition = buffer.length - objectOffset;
+            int vtableToTable = offset() - objectOffset;
+            for (int i = 0; i < 4; i++) {
+                buffer[tablePosition + i] = (byte) (vtableToTable >> 8 * i);
+            }
+
+            vtable = null;
+            return objectOffset;
+        }
+
+        /**
+         * Termina el buffer con la tabla raíz y devuelve sus bytes; la
+         * longitud es múltiplo de 8 para que los structs queden alineados.
+         */
+        byte[] finish(int root) {
+            prep(Math.max(minAlign, ALIGNMENT), 4);
+            addOffset(root);
+            return Arrays.copyOfRange(buffer, space, buffer.length);
+        }
+    }
+
+    /**
+     * Acceso a las tablas y vectores de un buffer de FlatBuffers, con
+     * comprobación de límites: un fichero dañado produce IOException.
+     */
+    static final class Table {
+
+        private final ByteBuffer buffer;
+        private final int position;
+
+        private Table(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        static Table root(byte[] bytes) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            return new Table(buffer, indirect(buffer, 0));
+        }
+
+        /**
+         * Posición del campo dentro del buffer, o -1 si la tabla no lo tiene.
+         */
+        private int field(int field) throws IOException {
+            int vtable = position - getInt(buffer, position);
+            int vtableSize = getShort(buffer, vtable);
+            int entry = 4 + 2 * field;
+            if (entry + 2 > vtableSize) {
+                return -1;
+            }
+            int fieldOffset = getShort(buffer, vtable + entry);
+            return fieldOffset == 0 ? -1 : position + fieldOffset;
+        }
+
+        byte getByte(int field, int defaultValue) throws IOException {
+            int fieldPosition = field(field);
+            if (fieldPosition < 0) {
+                return (byte) defaultValue;
+            }
+            check(buffer, fieldPosition, 1);
+            return buffer.get(fieldPosition);
+        }
+
+        long getLong(int field, long defaultValue) throws IOException {
+            int fieldPosition = field(field);
+            if (fieldPosition < 0) {
+                return defaultValue;
+            }
+            check(buffer, fieldPosition, 8);
+            return buffer.getLong(fieldPosition);
+        }
+
+        /**
+         * Tabla referenciada por el campo, o null si no está.
+         */
+        Table getTable(int field) throws IOException {
+            int fieldPosition = field(field);
+            return fieldPosition < 0 ? null : new Table(buffer, indirect(buffer, fieldPosition));
+        }
+
+        String getString(int field) throws IOException {
+            int fieldPosition = field(field);
+            if (fieldPosition < 0) {
+                return null;
+            }
+            int start = indirect(buffer, fieldPosition);
+            int length = getInt(buffer, start);
+            check(buffer, start + 4, length);
+            return new String(buffer.array(), start + 4, length, StandardCharsets.UTF_8);
+        }
+
+        int getVectorLength(int field) throws IOException {
+            int fieldPosition = field(field);
+            return fieldPosition < 0 ? 0 : getInt(buffer, indirect(buffer, fieldPosition));
+        }
+
+        /**
+         * Elemento i de un vector de tablas.
+         */
+        Table getTable(int field, int i) throws IOException {
+            int elementPosition = vectorElement(field, i, 4);
+            return new Table(buffer, indirect(buffer, elementPosition));
+        }
+
+        /**
+         * Campo long (a partir de offset) del struct i de un vector de structs
+         * de structSize bytes.
+         */
+        long getStructLong(int field, int i, int structSize, int offset) throws IOException {
+            int elementPosition = vectorElement(field, i, structSize) + offset;
+            check(buffer, elementPosition, 8);
+            return buffer.getLong(elementPosition);
+        }
+
+        private int vectorElement(int field, int i, int elementSize) throws IOException {
+            int fieldPosition = field(field);
+            if (fieldPosition < 0) {
+                throw new IOException("Missing Arrow metadata vector");
+            }
+            int vector = indirect(buffer, fieldPosition);
+            if (i < 0 || i >= getInt(buffer, vector)) {
+                throw new IOException("Arrow metadata vector index out of range");
+            }
+            int elementPosition = vector + 4 + i * elementSize;
+            check(buffer, elementPosition, elementSize);
+            return elementPosition;
+        }
+
+        private static int indirect(ByteBuffer buffer, int position) throws IOException {
+            return position + getInt(buffer, position);
+        }
+
+        private static int getShort(ByteBuffer buffer, int position) throws IOException {
+            check(buffer, position, 2);
+            return Short.toUnsignedInt(buffer.getShort(position));
+        }
+
+        private static int getInt(ByteBuffer buffer, int position) throws IOException {
+            check(buffer, position, 4);
+            return buffer.getInt(position);
+        }
+
+        private static void check(ByteBuffer buffer, int position, int length) throws IOException {
+            if (position < 0 || length < 0 || position + (long) length > buffer.limit()) {
+                throw new IOException("Corrupted Arrow metadata");
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package es.udc.ws.app.model.response;
+
+import es.udc.ws.app.model.util.TransactionTemplate;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import es.udc.ws.util.configuration.ConfigurationParametersManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diccionario de empleados de {@link Jdbc3SqlResponseDao}: la tabla Employee
+ * asigna a cada email un identificador, que es lo que guardan las filas de
+ * Response y su índice EmployeeSurveyUnique. Una caché en memoria resuelve
+ * email e identificador en ambos sentidos sin ir a la BD, y hace que todas las
+ * respuestas de un empleado compartan la misma cadena del email.
+ * <p>
+ * Los empleados nuevos se insertan en la transacción del voto, así que sólo se
+ * añaden a la caché cuando ésta se confirma: con TransactionTemplate, al
+ * terminar; en modo autocommit, en el momento. Con otras transacciones, lo que
+ * se lee de la BD no se guarda en la caché, porque podría ser una fila propia
+ * que aún no se ha confirmado. Los empleados no se borran nunca, así que lo
+ * que está en la caché no caduca; cuando llega a maxCachedEmployees entradas,
+ * se vacía.
+ */
+public class EmployeeDirectory {
+
+    /**
+     * Empleados insertados por una transacción, que pasan a la caché si se
+     * confirma.
+     */
+    private class InsertedEmployees implements TransactionTemplate.TransactionResource {
+
+        private final Map<String, Long> idsByEmail = new HashMap<>();
+
+        @Override
+        public void prepare() {
+        }
+
+        @Override
+        public void complete(boolean committed) {
+            if (committed) {
+                idsByEmail.forEach(EmployeeDirectory.this::cache);
+            }
+        }
+
+        @Override
+        public void savepoint(Savepoint savepoint) {
+        }
+
+        @Override
+        public void rollbackTo(Savepoint savepoint) {
+            // Una fila deshecha con el savepoint no debe llegar a la caché; se
+            // pierden también las anteriores, que se volverán a leer de la BD
+            idsByEmail.clear();
+        }
+    }
+
+    private final static String MAX_CACHED_EMPLOYEES_PARAMETER = "EmployeeDirectory.maxCachedEmployees";
+
+    // Máximo de emails por consulta IN, para no generar sentencias enormes
+    private static final int MAX_EMAILS_PER_QUERY = 1000;
+
+    private static EmployeeDirectory instance = null;
+
+    private final int maxCachedEmployees;
+    private final Map<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final Map<Long, String> emailsById = new ConcurrentHashMap<>();
+
+    private final LongAdder hitsCounter;
+    private final LongAdder missesCounter;
+
+    public EmployeeDirectory(int maxCachedEmployees, MetricsRegistry registry) {
+        this.maxCachedEmployees = maxCachedEmployees;
+        hitsCounter = registry.counter("employee_cache_hits");
+        missesCounter = registry.counter("employee_cache_misses");
+    }
+
+    /**
+     * Instancia compartida, configurada con EmployeeDirectory.maxCachedEmployees.
+     */
+    public synchronized static EmployeeDirectory getInstance() {
+        if (instance == null) {
+            instance = new EmployeeDirectory(Integer.parseInt(
+                    ConfigurationParametersManager.getParameter(MAX_CACHED_EMPLOYEES_PARAMETER)),
+                    MetricsRegistry.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Identificadores de los empleados ya registrados; los emails que no lo
+     * están no aparecen en el resultado.
+     */
+    public Map<String, Long> findIds(Connection connection, Collection<String> emails) throws SQLException {
+
+        InsertedEmployees insertedEmployees = insertedEmployees(connection);
+        Map<String, Long> ids = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String email : new LinkedHashSet<>(emails)) {
+            Long employeeId = insertedEmployees != null ? insertedEmployees.idsByEmail.get(email) : null;
+            if (employeeId == null) {
+                employeeId = idsByEmail.get(email);
+            }
+            if (employeeId != null) {
+                ids.put(email, employeeId);
+            } else {
+                missing.add(email);
+            }
+        }
+
+        hitsCounter.add(ids.size());
+        missesCounter.add(missing.size());
+
+        for (int from = 0; from < missing.size(); from += MAX_EMAILS_PER_QUERY) {
+
+            List<String> chunk = missing.subList(from, Math.min(from + MAX_EMAILS_PER_QUERY, missing.size()));
+            String queryString = "SELECT employeeId, email FROM Employee WHERE email IN ("
+                    + "?, ".repeat(chunk.size() - 1) + "?)";
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+                int i = 1;
+                for (String email : chunk) {
+                    preparedStatement.setString(i++, email);
+                }
+
+                ResultSet resultSet = preparedStatement.executeQuery();
+
+                while (resultSet.next()) {
+                    long employeeId = resultSet.getLong(1);
+                    String email = resultSet.getString(2);
+                    ids.put(email, employeeId);
+                    learn(connection, employeeId, email);
+                }
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Identificador del empleado, o null si no está registrado.
+     */
+    public Long findId(Connection connection, String email) throws SQLException {
+        return findIds(connection, List.of(email)).get(email);
+    }
+
+    /**
+     * Identificadores de los empleados, registrando en la transacción de la
+     * conexión los que aún no lo estén.
+     */
+    public Map<String, Long> register(Connection connection, Collection<String> emails) throws SQLException {
+
+        Map<String, Long> ids = findIds(connection, emails);
+
+        for (String email : emails) {
+            if (!ids.containsKey(email)) {
+                ids.put(email, insert(connection, email));
+            }
+        }
+
+        return ids;
+    }
+
+    public long register(Connection connection, String email) throws SQLException {
+        return register(connection, List.of(email)).get(email);
+    }
+
+    /**
+     * Email del empleado leído de la BD, sustituido por la cadena de la caché
+     * si ya estaba en ella.
+     */
+    public String intern(Connection connection, long employeeId, String email) {
+
+        String cachedEmail = emailsById.get(employeeId);
+
+        if (cachedEmail != null) {
+            return cachedEmail;
+        }
+
+        learn(connection, employeeId, email);
+        return email;
+    }
+
+    /**
+     * Inserta el empleado o, si otra transacción lo ha registrado a la vez,
+     * devuelve el identificador de su fila: LAST_INSERT_ID(employeeId) hace que
+     * la clave generada sea la de la fila existente. Si esa fila aún no está
+     * confirmada, la sentencia espera a que lo esté.
+     */
+    private long insert(Connection connection, String email) throws SQLException {
+
+        String queryString = "INSERT INTO Employee (email) VALUES (?)"
+                + " ON DUPLICATE KEY UPDATE employeeId = LAST_INSERT_ID(employeeId)";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                queryString, Statement.RETURN_GENERATED_KEYS)) {
+
+            preparedStatement.setString(1, email);
+            preparedStatement.executeUpdate();
+
+            ResultSet resultSet = preparedStatement.getGeneratedKeys();
+
+            if (!resultSet.next()) {
+                throw new SQLException("JDBC driver did not return generated key.");
+            }
+            long employeeId = resultSet.getLong(1);
+
+            InsertedEmployees insertedEmployees = insertedEmployees(connection);
+            if (insertedEmployees != null) {
+                insertedEmployees.idsByEmail.put(email, employeeId);
+            } else if (connection.getAutoCommit()) {
+                cache(email, employeeId);
+            }
+            return employeeId;
+        }
+    }
+
+    private InsertedEmployees insertedEmployees(Connection connection) {
+        return TransactionTemplate.resource(connection, this, InsertedEmployees::new);
+    }
+
+    /**
+     * Guarda en la caché un empleado leído de la BD, si se sabe que su fila
+     * está confirmada.
+     */
+    private void learn(Connection connection, long employeeId, String email) {
+        try {
+            InsertedEmployees insertedEmployees = insertedEmployees(connection);
+            if (insertedEmployees != null ? !insertedEmployees.idsByEmail.containsKey(email)
+                    : connection.getAutoCommit()) {
+                cache(email, employeeId);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void cache(String email, long employeeId) {
+        if (idsByEmail.size() >= maxCachedEmployees) {
+            idsByEmail.clear();
+            emailsById.clear();
+        }
+        idsByEmail.put(email, employeeId);
+        emailsById.put(employeeId, email);
+    }
+}
@@ -0,0 +1,373 @@
+package es.udc.ws.app.model.response;
+
+import es.udc.ws.app.model.survey.InMemorySurveyStore;
+import es.udc.ws.app.model.survey.InMemorySurveyStore.SurveyRecord;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.util.KeysetCursor;
+import es.udc.ws.app.model.util.memory.InMemoryTransaction;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+
+import java.sql.Connection;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Implementación de {@link SqlResponseDao} sobre {@link InMemorySurveyStore}, sin
+ * BD. Las conexiones deben ser de InMemoryDataSource.
+ * <p>
+ * Las respuestas se guardan en su encuesta, indexadas por email, así que la
+ * restricción EmployeeSurveyUnique es la propia clave del mapa. Cada operación
+ * bloquea la encuesta de las respuestas que modifica hasta el final de la
+ * transacción, lo que también sustituye a las lecturas FOR UPDATE.
+ */
+public class InMemorySqlResponseDao implements SqlResponseDao {
+
+    // Mismos errores que MySQL para las restricciones de la tabla Response
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+    private static final int MYSQL_NO_REFERENCED_ROW = 1452;
+
+    // Orden de findBySurveyId: responseDate y responseId descendentes
+    private static final Comparator<Response> NEWEST_FIRST = Comparator.comparing(Response::getResponseDate)
+            .thenComparing(Response::getResponseId).reversed();
+
+    private final InMemorySurveyStore store;
+
+    public InMemorySqlResponseDao() {
+        this(InMemorySurveyStore.getInstance());
+    }
+
+    public InMemorySqlResponseDao(InMemorySurveyStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Response create(Connection connection, Response response) {
+        return InMemoryTransaction.of(connection).statement(transaction -> {
+            insert(transaction, lockSurvey(transaction, response.getSurveyId()), response);
+            return response;
+        });
+    }
+
+    @Override
+    public void createBatch(Connection connection, List<Response> responses) {
+        InMemoryTransaction.of(connection).statement(transaction -> {
+            for (Response response : responses) {
+                insert(transaction, lockSurvey(transaction, response.getSurveyId()), response);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void update(Connection connection, Response response) throws InstanceNotFoundException {
+        InMemoryTransaction.of(connection).<Void, InstanceNotFoundException>statement(transaction -> {
+            replace(transaction, response);
+            return null;
+        });
+    }
+
+    @Override
+    public void updateBatch(Connection connection, Collection<Response> responses)
+            throws InstanceNotFoundException {
+        InMemoryTransaction.of(connection).<Void, InstanceNotFoundException>statement(transaction -> {
+            for (Response response : responses) {
+                replace(transaction, response);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public ResponseUpsertResult upsert(Connection connection, Response response)
+            throws InstanceNotFoundException {
+        return InMemoryTransaction.of(connection).<ResponseUpsertResult, InstanceNotFoundException>statement(
+                transaction -> {
+
+            SurveyRecord record = store.lockForUpdate(transaction, response.getSurveyId());
+
+            if (record == null) {
+                throw new InstanceNotFoundException(response.getSurveyId(), Survey.class.getName());
+            }
+
+            Response current = record.getResponses().get(response.getEmployeeEmail());
+
+            if (current == null) {
+                insert(transaction, record, response);
+                return ResponseUpsertResult.CREATED;
+            }
+
+            // Como en Jdbc3SqlResponseDao, la fecha se actualiza aunque el valor no cambie
+            Response updated = new Response(current.getResponseId(), current.getSurveyId(),
+                    current.getEmployeeEmail(), response.getResponse(), response.getResponseDate());
+            put(transaction, record, updated);
+
+            if (current.getResponse() == response.getResponse()) {
+                return ResponseUpsertResult.UNCHANGED;
+            }
+            response.setResponseId(current.getResponseId());
+            return ResponseUpsertResult.CHANGED;
+        });
+    }
+
+    @Override
+    public Response find(Connection connection, Long responseId) throws InstanceNotFoundException {
+
+        Response indexed = store.findResponse(responseId);
+        Response response = indexed == null ? null : store.read(InMemoryTransaction.of(connection),
+                indexed.getSurveyId(), record -> findCurrent(record, indexed));
+
+        if (response == null) {
+            throw new InstanceNotFoundException(responseId, Response.class.getName());
+        }
+
+        return copyOf(response);
+    }
+
+    @Override
+    public Optional<Response> findBySurveyAndEmployee(Connection connection, Long surveyId, String employeeEmail) {
+        return Optional.ofNullable(store.read(InMemoryTransaction.of(connection), surveyId,
+                record -> record == null ? null : record.getResponses().get(employeeEmail))).map(
+                InMemorySqlResponseDao::copyOf);
+    }
+
+    @Override
+    public List<Response> findBySurveyAndEmployees(Connection connection, Long surveyId,
+            Collection<String> employeeEmails) {
+        return InMemoryTransaction.of(connection).statement(transaction -> {
+
+            // Equivale a FOR UPDATE: la encuesta queda bloqueada hasta el commit
+            SurveyRecord record = store.lockForUpdate(transaction, surveyId);
+            List<Response> responses = new ArrayList<>();
+
+            if (record != null) {
+                for (String employeeEmail : employeeEmails) {
+                    Response response = record.getResponses().get(employeeEmail);
+                    if (response != null) {
+                        responses.add(copyOf(response));
+                    }
+                }
+            }
+
+            return responses;
+        });
+    }
+
+    @Override
+    public List<Response> findBySurveyId(Connection connection, Long surveyId, boolean onlyPositive) {
+        return findBySurveyId(connection, surveyId, onlyPositive, null, 0);
+    }
+
+    @Override
+    public List<Response> findBySurveyId(Connection connection, Long surveyId, boolean onlyPositive,
+            KeysetCursor after, int count) {
+
+        List<Response> responses = new ArrayList<>();
+
+        for (Response response : readSorted(connection, surveyId)) {
+            if (count > 0 && responses.size() >= count) {
+                break;
+            }
+            if ((!onlyPositive || response.getResponse()) && isAfter(response, after)) {
+                responses.add(copyOf(response));
+            }
+        }
+
+        return responses;
+    }
+
+    @Override
+    public void streamBySurveyId(Connection connection, Long surveyId, boolean onlyPositive,
+            Consumer<Response> consumer) {
+
+        // El consumidor recibe las respuestas ya fuera del cerrojo de la encuesta
+        for (Response response : readSorted(connection, surveyId)) {
+            if (!onlyPositive || response.getResponse()) {
+                consumer.accept(copyOf(response));
+            }
+        }
+    }
+
+    @Override
+    public void streamAll(Connection connection, Consumer<Response> consumer) {
+
+        // Encuesta a encuesta, para no bloquearlas todas a la vez
+        for (long surveyId = 1; surveyId <= store.getLastSurveyId(); surveyId++) {
+            for (Response response : readSorted(connection, surveyId)) {
+                consumer.accept(copyOf(response));
+            }
+        }
+    }
+
+    @Override
+    public List<ResponseCounts> countBySurveyIdRange(Connection connection, Long firstSurveyId,
+            Long lastSurveyId) {
+
+        InMemoryTransaction transaction = InMemoryTransaction.of(connection);
+        List<ResponseCounts> counts = new ArrayList<>();
+
+        for (long surveyId = firstSurveyId; surveyId <= lastSurveyId; surveyId++) {
+
+            long surveyIdToCount = surveyId;
+            ResponseCounts surveyCounts = store.read(transaction, surveyId, record -> {
+                if (record == null || record.getResponses().isEmpty()) {
+                    return null;
+                }
+                long positiveResponses = 0;
+                for (Response response : record.getResponses().values()) {
+                    if (response.getResponse()) {
+                        positiveResponses++;
+                    }
+                }
+                return new ResponseCounts(surveyIdToCount, positiveResponses,
+                        record.getResponses().size() - positiveResponses);
+            });
+
+            if (surveyCounts != null) {
+                counts.add(surveyCounts);
+            }
+        }
+
+        return counts;
+    }
+
+    @Override
+    public void remove(Connection connection, Long responseId) throws InstanceNotFoundException {
+        InMemoryTransaction.of(connection).<Void, InstanceNotFoundException>statement(transaction -> {
+
+            Response indexed = store.findResponse(responseId);
+            SurveyRecord record = indexed == null ? null : store.lockForUpdate(transaction, indexed.getSurveyId());
+            Response current = findCurrent(record, indexed);
+
+            if (current == null) {
+                throw new InstanceNotFoundException(responseId, Response.class.getName());
+            }
+
+            Map<String, Response> responses = record.getResponses();
+            transaction.onRollback(() -> responses.put(current.getEmployeeEmail(), current));
+            responses.remove(current.getEmployeeEmail());
+            store.unindexResponse(transaction, current);
+            return null;
+        });
+    }
+
+    /**
+     * Bloquea la encuesta de una respuesta nueva, que debe existir (clave ajena).
+     */
+    private SurveyRecord lockSurvey(InMemoryTransaction transaction, Long surveyId) {
+
+        SurveyRecord record = store.lockForUpdate(transaction, surveyId);
+
+        if (record == null) {
+            throw new RuntimeException(new SQLIntegrityConstraintViolationException(
+                    "Cannot add or update a child row: a foreign key constraint fails (ResponseSurveyFK)",
+                    "23000", MYSQL_NO_REFERENCED_ROW));
+        }
+
+        return record;
+    }
+
+    /**
+     * Añade una respuesta nueva a la encuesta bloqueada y le asigna identificador.
+     */
+    private void insert(InMemoryTransaction transaction, SurveyRecord record, Response response) {
+
+        if (record.getResponses().containsKey(response.getEmployeeEmail())) {
+            throw new RuntimeException(new SQLIntegrityConstraintViolationException(
+                    "Duplicate entry for key 'EmployeeSurveyUnique'", "23000", MYSQL_DUPLICATE_ENTRY));
+        }
+
+        Response created = copyOf(response);
+        created.setResponseId(store.nextResponseId());
+
+        put(transaction, record, created);
+        store.indexResponse(transaction, created);
+        response.setResponseId(created.getResponseId());
+    }
+
+    /**
+     * Sustituye el valor y la fecha de una respuesta existente.
+     */
+    private void replace(InMemoryTransaction transaction, Response response) throws InstanceNotFoundException {
+
+        Response indexed = store.findResponse(response.getResponseId());
+        SurveyRecord record = indexed == null ? null : store.lockForUpdate(transaction, indexed.getSurveyId());
+        Response current = findCurrent(record, indexed);
+
+        if (current == null) {
+            throw new InstanceNotFoundException(response.getResponseId(), Response.class.getName());
+        }
+
+        put(transaction, record, new Response(current.getResponseId(), current.getSurveyId(),
+                current.getEmployeeEmail(), response.getResponse(), response.getResponseDate()));
+    }
+
+    private static void put(InMemoryTransaction transaction, SurveyRecord record, Response response) {
+
+        Map<String, Response> responses = record.getResponses();
+        Response previous = responses.get(response.getEmployeeEmail());
+
+        transaction.onRollback(() -> {
+            if (previous == null) {
+                responses.remove(response.getEmployeeEmail());
+            } else {
+                responses.put(response.getEmployeeEmail(), previous);
+            }
+        });
+        responses.put(response.getEmployeeEmail(), response);
+    }
+
+    /**
+     * Respuesta actual de la encuesta con el identificador de la del índice, o
+     * null si la encuesta o la respuesta ya no existen.
+     */
+    private static Response findCurrent(SurveyRecord record, Response indexed) {
+
+        if (record == null) {
+            return null;
+        }
+
+        Response current = record.getResponses().get(indexed.getEmployeeEmail());
+        return current != null && current.getResponseId().equals(indexed.getResponseId()) ? current : null;
+    }
+
+    /**
+     * Respuestas de la encuesta en orden de responseDate y responseId
+     * descendentes, leídas bajo el cerrojo de la encuesta.
+     */
+    private List<Response> readSorted(Connection connection, Long surveyId) {
+
+        List<Response> responses = store.read(InMemoryTransaction.of(connection), surveyId,
+                record -> record == null ? new ArrayList<>() : new ArrayList<>(record.getResponses().values()));
+
+        responses.sort(NEWEST_FIRST);
+        return responses;
+    }
+
+    /**
+     * Equivale a (responseDate, responseId) < (after.date, after.id).
+     */
+    private static boolean isAfter(Response response, KeysetCursor after) {
+
+        if (after == null) {
+            return true;
+        }
+
+        int comparison = response.getResponseDate().compareTo(after.getDate());
+        return comparison < 0 || comparison == 0 && response.getResponseId() < after.getId();
+    }
+
+    /**
+     * Las respuestas del almacén no se comparten con quien llama: se guardan y
+     * devuelven copias.
+     */
+    private static Response copyOf(Response response) {
+        return new Response(response.getResponseId(), response.getSurveyId(), response.getEmployeeEmail(),
+                response.getResponse(), response.getResponseDate());
+    }
+}
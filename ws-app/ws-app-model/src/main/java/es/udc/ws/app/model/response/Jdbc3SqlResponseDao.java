@@ -1,19 +1,51 @@
 package es.udc.ws.app.model.response;
 
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.util.KeysetCursor;
 import es.udc.ws.util.exceptions.InstanceNotFoundException;
 
 import java.sql.*;
 import java.util.ArrayList; // [FUNC-6] Necesario añadir este import
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+/**
+ * Las filas de Response guardan el identificador del empleado en la tabla
+ * Employee, que resuelve {@link EmployeeDirectory}; las lecturas lo unen con
+ * Employee para devolver el email.
+ */
 public class Jdbc3SqlResponseDao extends AbstractSqlResponseDao {
 
+    // Máximo de emails por consulta IN, para no generar sentencias enormes
+    private static final int MAX_EMAILS_PER_QUERY = 1000;
+
+    // Columnas de getResponseFromResultSet, más employeeId para la caché de emails.
+    // STRAIGHT_JOIN recorre primero Response, en el orden de sus índices, aunque
+    // Employee sea pequeña
+    private static final String RESPONSE_COLUMNS = "r.responseId, r.surveyId, e.email, r.response,"
+            + " r.responseDate, r.employeeId FROM Response r STRAIGHT_JOIN Employee e"
+            + " ON e.employeeId = r.employeeId";
+
+    private final EmployeeDirectory employeeDirectory;
+
+    public Jdbc3SqlResponseDao() {
+        this(EmployeeDirectory.getInstance());
+    }
+
+    public Jdbc3SqlResponseDao(EmployeeDirectory employeeDirectory) {
+        this.employeeDirectory = employeeDirectory;
+    }
+
     @Override
     public Response create(Connection connection, Response response) {
 
         String queryString = "INSERT INTO Response"
-                + " (surveyId, employeeEmail, response, responseDate)"
+                + " (surveyId, employeeId, response, responseDate)"
                 + " VALUES (?, ?, ?, ?)";
 
         try (PreparedStatement preparedStatement = connection.prepareStatement(
@@ -21,7 +53,7 @@ public class Jdbc3SqlResponseDao extends AbstractSqlResponseDao {
 
             int i = 1;
             preparedStatement.setLong(i++, response.getSurveyId());
-            preparedStatement.setString(i++, response.getEmployeeEmail());
+            preparedStatement.setLong(i++, employeeDirectory.register(connection, response.getEmployeeEmail()));
             preparedStatement.setBoolean(i++, response.getResponse());
             preparedStatement.setTimestamp(i++, Timestamp.valueOf(response.getResponseDate()));
 
@@ -42,6 +74,82 @@ public class Jdbc3SqlResponseDao extends AbstractSqlResponseDao {
         }
     }
 
+    @Override
+    public void createBatch(Connection connection, List<Response> responses) {
+
+        String queryString = "INSERT INTO Response"
+                + " (surveyId, employeeId, response, responseDate)"
+                + " VALUES (?, ?, ?, ?)";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                queryString, Statement.RETURN_GENERATED_KEYS)) {
+
+            List<String> emails = new ArrayList<>();
+            for (Response response : responses) {
+                emails.add(response.getEmployeeEmail());
+            }
+            Map<String, Long> employeeIds = employeeDirectory.register(connection, emails);
+
+            for (Response response : responses) {
+                int i = 1;
+                preparedStatement.setLong(i++, response.getSurveyId());
+                preparedStatement.setLong(i++, employeeIds.get(response.getEmployeeEmail()));
+                preparedStatement.setBoolean(i++, response.getResponse());
+                preparedStatement.setTimestamp(i++, Timestamp.valueOf(response.getResponseDate()));
+                preparedStatement.addBatch();
+            }
+
+            preparedStatement.executeBatch();
+
+            // Las claves generadas llegan en el mismo orden que las inserciones
+            ResultSet resultSet = preparedStatement.getGeneratedKeys();
+
+            for (Response response : responses) {
+                if (!resultSet.next()) {
+                    throw new SQLException("JDBC driver did not return generated key.");
+                }
+                response.setResponseId(resultSet.getLong(1));
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void updateBatch(Connection connection, Collection<Response> responses)
+            throws InstanceNotFoundException {
+
+        String queryString = "UPDATE Response"
+                + " SET response = ?, responseDate = ?"
+                + " WHERE responseId = ?";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            for (Response response : responses) {
+                int i = 1;
+                preparedStatement.setBoolean(i++, response.getResponse());
+                preparedStatement.setTimestamp(i++, Timestamp.valueOf(response.getResponseDate()));
+                preparedStatement.setLong(i++, response.getResponseId());
+                preparedStatement.addBatch();
+            }
+
+            int[] updatedRows = preparedStatement.executeBatch();
+
+            Iterator<Response> responseIterator = responses.iterator();
+            for (int updated : updatedRows) {
+                Response response = responseIterator.next();
+                if (updated == 0) {
+                    throw new InstanceNotFoundException(response.getResponseId(),
+                            Response.class.getName());
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public void update(Connection connection, Response response) throws InstanceNotFoundException {
 
@@ -68,10 +176,61 @@ public class Jdbc3SqlResponseDao extends AbstractSqlResponseDao {
         }
     }
 
+    @Override
+    public ResponseUpsertResult upsert(Connection connection, Response response)
+            throws InstanceNotFoundException {
+
+        /*
+         * [FUNC-4] La restricción EmployeeSurveyUnique convierte el INSERT en un UPDATE
+         * si el empleado ya había respondido. Las asignaciones se evalúan en orden,
+         * por lo que la de responseId todavía ve el valor anterior de la respuesta:
+         * si cambia, LAST_INSERT_ID devuelve el identificador de la fila; si no,
+         * devuelve 0 y el driver no informa de ninguna clave generada.
+         */
+        String queryString = "INSERT INTO Response"
+                + " (surveyId, employeeId, response, responseDate)"
+                + " VALUES (?, ?, ?, ?)"
+                + " ON DUPLICATE KEY UPDATE"
+                + " responseId = IF(response <> VALUES(response),"
+                + " LAST_INSERT_ID(responseId), responseId + LAST_INSERT_ID(0)),"
+                + " responseDate = VALUES(responseDate),"
+                + " response = VALUES(response)";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                queryString, Statement.RETURN_GENERATED_KEYS)) {
+
+            int i = 1;
+            preparedStatement.setLong(i++, response.getSurveyId());
+            preparedStatement.setLong(i++, employeeDirectory.register(connection, response.getEmployeeEmail()));
+            preparedStatement.setBoolean(i++, response.getResponse());
+            preparedStatement.setTimestamp(i++, Timestamp.valueOf(response.getResponseDate()));
+
+            int affectedRows = preparedStatement.executeUpdate();
+
+            // MySQL devuelve 1 fila afectada si se insertó y 2 si se actualizó
+            ResultSet resultSet = preparedStatement.getGeneratedKeys();
+
+            if (!resultSet.next() || resultSet.getLong(1) == 0) {
+                return ResponseUpsertResult.UNCHANGED;
+            }
+            response.setResponseId(resultSet.getLong(1));
+
+            return affectedRows == 1 ? ResponseUpsertResult.CREATED : ResponseUpsertResult.CHANGED;
+
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // ER_NO_REFERENCED_ROW_2: la encuesta referenciada no existe
+            if (e.getErrorCode() == 1452) {
+                throw new InstanceNotFoundException(response.getSurveyId(), Survey.class.getName());
+            }
+            throw new RuntimeException(e);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public Response find(Connection connection, Long responseId) throws InstanceNotFoundException {
-        String queryString = "SELECT responseId, surveyId, employeeEmail, response, responseDate "
-                + "FROM Response WHERE responseId = ?";
+        String queryString = "SELECT " + RESPONSE_COLUMNS + " WHERE r.responseId = ?";
 
         try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
 
@@ -83,7 +242,7 @@ public class Jdbc3SqlResponseDao extends AbstractSqlResponseDao {
                 throw new InstanceNotFoundException(responseId, Response.class.getName());
             }
 
-            return getResponseFromResultSet(resultSet);
+            return getResponseFromResultSet(connection, resultSet);
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -93,13 +252,19 @@ public class Jdbc3SqlResponseDao extends AbstractSqlResponseDao {
     @Override
     public Optional<Response> findBySurveyAndEmployee(Connection connection, Long surveyId, String employeeEmail) {
 
-        String queryString = "SELECT responseId, surveyId, employeeEmail, response, responseDate "
-                + "FROM Response WHERE surveyId = ? AND employeeEmail = ?";
+        String queryString = "SELECT responseId, surveyId, employeeId, response, responseDate "
+                + "FROM Response WHERE surveyId = ? AND employeeId = ?";
 
         try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
 
+            Long employeeId = employeeDirectory.findId(connection, employeeEmail);
+
+            if (employeeId == null) {
+                return Optional.empty();
+            }
+
             preparedStatement.setLong(1, surveyId);
-            preparedStatement.setString(2, employeeEmail);
+            preparedStatement.setLong(2, employeeId);
 
             ResultSet resultSet = preparedStatement.executeQuery();
 
@@ -107,30 +272,163 @@ public class Jdbc3SqlResponseDao extends AbstractSqlResponseDao {
                 return Optional.empty();
             }
 
-            return Optional.of(getResponseFromResultSet(resultSet));
+            return Optional.of(getResponseFromResultSet(resultSet, employeeEmail));
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public List<Response> findBySurveyAndEmployees(Connection connection, Long surveyId,
+            Collection<String> employeeEmails) {
+
+        List<Response> responses = new ArrayList<>();
+        Map<String, Long> employeeIds;
+        Map<Long, String> emailsById = new HashMap<>();
+
+        try {
+            // Sin unir con Employee ni bloquear sus filas, que no cambian nunca. Con
+            // READ COMMITTED no hay bloqueos de hueco: la primera respuesta de un
+            // empleado insertada a la vez se detecta como clave duplicada
+            employeeIds = employeeDirectory.findIds(connection, employeeEmails);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        employeeIds.forEach((email, employeeId) -> emailsById.put(employeeId, email));
+        List<Long> ids = new ArrayList<>(emailsById.keySet());
+
+        for (int from = 0; from < ids.size(); from += MAX_EMAILS_PER_QUERY) {
+
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_EMAILS_PER_QUERY, ids.size()));
+
+            String queryString = "SELECT responseId, surveyId, employeeId, response, responseDate "
+                    + "FROM Response WHERE surveyId = ? AND employeeId IN ("
+                    + "?, ".repeat(chunk.size() - 1) + "?) FOR UPDATE";
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+                int i = 1;
+                preparedStatement.setLong(i++, surveyId);
+                for (Long employeeId : chunk) {
+                    preparedStatement.setLong(i++, employeeId);
+                }
+
+                ResultSet resultSet = preparedStatement.executeQuery();
+
+                while (resultSet.next()) {
+                    responses.add(getResponseFromResultSet(resultSet, emailsById.get(resultSet.getLong(3))));
+                }
+
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        return responses;
+    }
+
     @Override
     public List<Response> findBySurveyId(Connection connection, Long surveyId, boolean onlyPositive) {
+        return findBySurveyId(connection, surveyId, onlyPositive, null, 0);
+    }
+
+    @Override
+    public List<Response> findBySurveyId(Connection connection, Long surveyId, boolean onlyPositive,
+            KeysetCursor after, int count) {
+
+        try (PreparedStatement preparedStatement = prepareFindBySurveyId(connection, surveyId, onlyPositive,
+                after, count)) {
+
+            ResultSet resultSet = preparedStatement.executeQuery();
+            List<Response> responses = new ArrayList<>();
+
+            while (resultSet.next()) {
+                responses.add(getResponseFromResultSet(connection, resultSet));
+            }
+
+            return responses;
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void streamBySurveyId(Connection connection, Long surveyId, boolean onlyPositive,
+            Consumer<Response> consumer) {
+
+        try (PreparedStatement preparedStatement = prepareFindBySurveyId(connection, surveyId, onlyPositive,
+                null, 0)) {
+
+            stream(connection, preparedStatement, consumer);
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void streamAll(Connection connection, Consumer<Response> consumer) {
+
+        // Recorre la tabla en el orden de su clave primaria, sin ordenar nada
+        String queryString = "SELECT " + RESPONSE_COLUMNS;
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            stream(connection, preparedStatement, consumer);
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void stream(Connection connection, PreparedStatement preparedStatement, Consumer<Response> consumer)
+            throws SQLException {
+
+        // Con Connector/J, Integer.MIN_VALUE hace que las filas se lean de la red
+        // según se recorren, en lugar de cargar todo el resultado en memoria
+        preparedStatement.setFetchSize(Integer.MIN_VALUE);
+
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                consumer.accept(getResponseFromResultSet(connection, resultSet));
+            }
+        } finally {
+            // Si el pool reutiliza la sentencia, las búsquedas normales no deben leer en streaming
+            preparedStatement.setFetchSize(0);
+        }
+    }
+
+    /**
+     * [FUNC-6] Construye la búsqueda de respuestas de una encuesta, paginada si count > 0.
+     */
+    private PreparedStatement prepareFindBySurveyId(Connection connection, Long surveyId, boolean onlyPositive,
+            KeysetCursor after, int count) throws SQLException {
 
-        // [FUNC-6] Implementación de la búsqueda de respuestas
-        String queryString = "SELECT responseId, surveyId, employeeEmail, response, responseDate "
-                + "FROM Response WHERE surveyId = ?";
+        String queryString = "SELECT " + RESPONSE_COLUMNS + " WHERE r.surveyId = ?";
 
         // Si se solicitan sólo positivas, añadimos la condición
         if (onlyPositive) {
-            queryString += " AND response = ?";
+            queryString += " AND r.response = ?";
         }
 
-        // Ordenamos por fecha de respuesta descendente (las más recientes primero)
-        queryString += " ORDER BY responseDate DESC";
+        // Continuar justo después de la última fila de la página anterior
+        if (after != null) {
+            queryString += " AND (r.responseDate, r.responseId) < (?, ?)";
+        }
 
-        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+        // Ordenamos por fecha de respuesta descendente (las más recientes primero);
+        // el identificador desempata para que la paginación sea estable
+        queryString += " ORDER BY r.responseDate DESC, r.responseId DESC";
+
+        if (count > 0) {
+            queryString += " LIMIT ?";
+        }
+
+        PreparedStatement preparedStatement = connection.prepareStatement(queryString);
 
+        try {
             int i = 1;
             preparedStatement.setLong(i++, surveyId);
 
@@ -138,15 +436,66 @@ public class Jdbc3SqlResponseDao extends AbstractSqlResponseDao {
                 // true representa una respuesta positiva en la BD
                 preparedStatement.setBoolean(i++, true);
             }
+            if (after != null) {
+                preparedStatement.setTimestamp(i++, Timestamp.valueOf(after.getDate()));
+                preparedStatement.setLong(i++, after.getId());
+            }
+            if (count > 0) {
+                preparedStatement.setInt(i++, count);
+            }
+            return preparedStatement;
+
+        } catch (SQLException e) {
+            preparedStatement.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Respuesta de una fila con las columnas de RESPONSE_COLUMNS, con el email
+     * compartido de la caché de empleados.
+     */
+    private Response getResponseFromResultSet(Connection connection, ResultSet resultSet) throws SQLException {
+
+        Response response = getResponseFromResultSet(resultSet);
+
+        response.setEmployeeEmail(employeeDirectory.intern(connection, resultSet.getLong(6),
+                response.getEmployeeEmail()));
+        return response;
+    }
+
+    /**
+     * Respuesta de una fila de Response sin unir con Employee, cuyo email ya se
+     * conoce.
+     */
+    private static Response getResponseFromResultSet(ResultSet resultSet, String employeeEmail)
+            throws SQLException {
+        return new Response(resultSet.getLong(1), resultSet.getLong(2), employeeEmail, resultSet.getBoolean(4),
+                resultSet.getTimestamp(5).toLocalDateTime());
+    }
+
+    @Override
+    public List<ResponseCounts> countBySurveyIdRange(Connection connection, Long firstSurveyId,
+            Long lastSurveyId) {
+
+        // Se resuelve sólo con el índice (surveyId, response, responseDate), sin leer las filas
+        String queryString = "SELECT surveyId, SUM(response = 1), SUM(response = 0)"
+                + " FROM Response WHERE surveyId BETWEEN ? AND ?"
+                + " GROUP BY surveyId";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            preparedStatement.setLong(1, firstSurveyId);
+            preparedStatement.setLong(2, lastSurveyId);
 
             ResultSet resultSet = preparedStatement.executeQuery();
-            List<Response> responses = new ArrayList<>();
+            List<ResponseCounts> counts = new ArrayList<>();
 
             while (resultSet.next()) {
-                responses.add(getResponseFromResultSet(resultSet));
+                counts.add(new ResponseCounts(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3)));
             }
 
-            return responses;
+            return counts;
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
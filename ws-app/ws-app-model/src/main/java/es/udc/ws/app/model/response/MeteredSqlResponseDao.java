@@ -0,0 +1,245 @@
+package es.udc.ws.app.model.response;
+
+import es.udc.ws.app.model.util.KeysetCursor;
+import es.udc.ws.app.model.util.metrics.MethodMetrics;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+
+import java.sql.Connection;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Decorador de {@link SqlResponseDao} que mide la latencia y las excepciones de
+ * cada método en {@link MetricsRegistry}, bajo el componente "SqlResponseDao".
+ */
+public class MeteredSqlResponseDao implements SqlResponseDao {
+
+    private final static String DELEGATE_CLASS_NAME_PARAMETER = "MeteredSqlResponseDao.delegateClassName";
+    private final static String COMPONENT = "SqlResponseDao";
+
+    private final SqlResponseDao delegate;
+
+    private final MethodMetrics create;
+    private final MethodMetrics update;
+    private final MethodMetrics createBatch;
+    private final MethodMetrics updateBatch;
+    private final MethodMetrics upsert;
+    private final MethodMetrics find;
+    private final MethodMetrics findBySurveyAndEmployee;
+    private final MethodMetrics findBySurveyAndEmployees;
+    private final MethodMetrics findBySurveyId;
+    private final MethodMetrics findBySurveyIdPage;
+    private final MethodMetrics streamBySurveyId;
+    private final MethodMetrics streamAll;
+    private final MethodMetrics countBySurveyIdRange;
+    private final MethodMetrics remove;
+
+    public MeteredSqlResponseDao() {
+        this(SqlResponseDaoFactory.getInstance(DELEGATE_CLASS_NAME_PARAMETER), MetricsRegistry.getInstance());
+    }
+
+    public MeteredSqlResponseDao(SqlResponseDao delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        create = registry.method(COMPONENT, "create");
+        update = registry.method(COMPONENT, "update");
+        createBatch = registry.method(COMPONENT, "createBatch");
+        updateBatch = registry.method(COMPONENT, "updateBatch");
+        upsert = registry.method(COMPONENT, "upsert");
+        find = registry.method(COMPONENT, "find");
+        findBySurveyAndEmployee = registry.method(COMPONENT, "findBySurveyAndEmployee");
+        findBySurveyAndEmployees = registry.method(COMPONENT, "findBySurveyAndEmployees");
+        findBySurveyId = registry.method(COMPONENT, "findBySurveyId");
+        findBySurveyIdPage = registry.method(COMPONENT, "findBySurveyIdPage");
+        streamBySurveyId = registry.method(COMPONENT, "streamBySurveyId");
+        streamAll = registry.method(COMPONENT, "streamAll");
+        countBySurveyIdRange = registry.method(COMPONENT, "countBySurveyIdRange");
+        remove = registry.method(COMPONENT, "remove");
+    }
+
+    @Override
+    public Response create(Connection connection, Response response) {
+        long start = System.nanoTime();
+        try {
+            Response result = delegate.create(connection, response);
+            create.success(start);
+            return result;
+        } catch (Throwable e) {
+            create.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void update(Connection connection, Response response) throws InstanceNotFoundException {
+        long start = System.nanoTime();
+        try {
+            delegate.update(connection, response);
+            update.success(start);
+        } catch (Throwable e) {
+            update.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void createBatch(Connection connection, List<Response> responses) {
+        long start = System.nanoTime();
+        try {
+            delegate.createBatch(connection, responses);
+            createBatch.success(start);
+        } catch (Throwable e) {
+            createBatch.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void updateBatch(Connection connection, Collection<Response> responses)
+            throws InstanceNotFoundException {
+        long start = System.nanoTime();
+        try {
+            delegate.updateBatch(connection, responses);
+            updateBatch.success(start);
+        } catch (Throwable e) {
+            updateBatch.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public ResponseUpsertResult upsert(Connection connection, Response response)
+            throws InstanceNotFoundException {
+        long start = System.nanoTime();
+        try {
+            ResponseUpsertResult result = delegate.upsert(connection, response);
+            upsert.success(start);
+            return result;
+        } catch (Throwable e) {
+            upsert.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Response find(Connection connection, Long responseId) throws InstanceNotFoundException {
+        long start = System.nanoTime();
+        try {
+            Response result = delegate.find(connection, responseId);
+            find.success(start);
+            return result;
+        } catch (Throwable e) {
+            find.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Response> findBySurveyAndEmployee(Connection connection, Long surveyId, String employeeEmail) {
+        long start = System.nanoTime();
+        try {
+            Optional<Response> result = delegate.findBySurveyAndEmployee(connection, surveyId, employeeEmail);
+            findBySurveyAndEmployee.success(start);
+            return result;
+        } catch (Throwable e) {
+            findBySurveyAndEmployee.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Response> findBySurveyAndEmployees(Connection connection, Long surveyId,
+            Collection<String> employeeEmails) {
+        long start = System.nanoTime();
+        try {
+            List<Response> result = delegate.findBySurveyAndEmployees(connection, surveyId, employeeEmails);
+            findBySurveyAndEmployees.success(start);
+            return result;
+        } catch (Throwable e) {
+            findBySurveyAndEmployees.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Response> findBySurveyId(Connection connection, Long surveyId, boolean onlyPositive) {
+        long start = System.nanoTime();
+        try {
+            List<Response> result = delegate.findBySurveyId(connection, surveyId, onlyPositive);
+            findBySurveyId.success(start);
+            return result;
+        } catch (Throwable e) {
+            findBySurveyId.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Response> findBySurveyId(Connection connection, Long surveyId, boolean onlyPositive,
+            KeysetCursor after, int count) {
+        long start = System.nanoTime();
+        try {
+            List<Response> result = delegate.findBySurveyId(connection, surveyId, onlyPositive, after, count);
+            findBySurveyIdPage.success(start);
+            return result;
+        } catch (Throwable e) {
+            findBySurveyIdPage.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void streamBySurveyId(Connection connection, Long surveyId, boolean onlyPositive,
+            Consumer<Response> consumer) {
+        // Incluye el tiempo que tarda el consumidor
+        long start = System.nanoTime();
+        try {
+            delegate.streamBySurveyId(connection, surveyId, onlyPositive, consumer);
+            streamBySurveyId.success(start);
+        } catch (Throwable e) {
+            streamBySurveyId.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void streamAll(Connection connection, Consumer<Response> consumer) {
+        // Incluye el tiempo que tarda el consumidor
+        long start = System.nanoTime();
+        try {
+            delegate.streamAll(connection, consumer);
+            streamAll.success(start);
+        } catch (Throwable e) {
+            streamAll.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<ResponseCounts> countBySurveyIdRange(Connection connection, Long firstSurveyId,
+            Long lastSurveyId) {
+        long start = System.nanoTime();
+        try {
+            List<ResponseCounts> result = delegate.countBySurveyIdRange(connection, firstSurveyId, lastSurveyId);
+            countBySurveyIdRange.success(start);
+            return result;
+        } catch (Throwable e) {
+            countBySurveyIdRange.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void remove(Connection connection, Long responseId) throws InstanceNotFoundException {
+        long start = System.nanoTime();
+        try {
+            delegate.remove(connection, responseId);
+            remove.success(start);
+        } catch (Throwable e) {
+            remove.failure(start, e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package es.udc.ws.app.model.response;
+
+/**
+ * Número de respuestas positivas y negativas de una encuesta, contadas sobre
+ * la tabla Response (ver {@link SqlResponseDao#countBySurveyIdRange}).
+ */
+public class ResponseCounts {
+
+    private final Long surveyId;
+    private final long positiveResponses;
+    private final long negativeResponses;
+
+    public ResponseCounts(Long surveyId, long positiveResponses, long negativeResponses) {
+        this.surveyId = surveyId;
+        this.positiveResponses = positiveResponses;
+        this.negativeResponses = negativeResponses;
+    }
+
+    public Long getSurveyId() {
+        return surveyId;
+    }
+
+    public long getPositiveResponses() {
+        return positiveResponses;
+    }
+
+    public long getNegativeResponses() {
+        return negativeResponses;
+    }
+}
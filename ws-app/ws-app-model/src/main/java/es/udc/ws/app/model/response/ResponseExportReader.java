@@ -0,0 +1,183 @@
+package es.udc.ws.app.model.response;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Lee los ficheros de {@link ResponseExportWriter}, record batch a record
+ * batch. Lee el fichero en orden, como un flujo de mensajes de Arrow, y
+ * comprueba al final que el pie coincide con lo leído.
+ */
+public class ResponseExportReader implements Closeable {
+
+    private final DataInputStream in;
+    private long position = 0;
+
+    public ResponseExportReader(InputStream in) throws IOException {
+
+        this.in = new DataInputStream(new BufferedInputStream(in));
+
+        byte[] magic = readBytes(ArrowFormat.MAGIC.length + ArrowFormat.padding(ArrowFormat.MAGIC.length));
+        if (!Arrays.equals(magic, 0, ArrowFormat.MAGIC.length, ArrowFormat.MAGIC, 0, ArrowFormat.MAGIC.length)) {
+            throw new IOException("Not a response export file");
+        }
+
+        ArrowFormat.Table message = readMessage();
+        if (message == null || message.getByte(ArrowFormat.MESSAGE_HEADER_TYPE, 0) != ArrowFormat.HEADER_SCHEMA) {
+            throw new IOException("Missing response export schema");
+        }
+        checkSchema(message.getTable(ArrowFormat.MESSAGE_HEADER));
+    }
+
+    /**
+     * Entrega al consumidor las respuestas del fichero, en el orden en que se
+     * escribieron.
+     * @return el número de respuestas leídas.
+     * @throws IOException si el fichero está incompleto o dañado.
+     */
+    public long read(Consumer<Response> consumer) throws IOException {
+
+        long rowCount = 0;
+        int batchCount = 0;
+
+        for (ArrowFormat.Table message = readMessage(); message != null; message = readMessage()) {
+
+            if (message.getByte(ArrowFormat.MESSAGE_HEADER_TYPE, 0) != ArrowFormat.HEADER_RECORD_BATCH) {
+                throw new IOException("Unexpected message in response export");
+            }
+            ArrowFormat.Table recordBatch = message.getTable(ArrowFormat.MESSAGE_HEADER);
+            long bodyLength = message.getLong(ArrowFormat.MESSAGE_BODY_LENGTH, 0);
+            if (recordBatch == null || bodyLength < 0 || bodyLength > Integer.MAX_VALUE) {
+                throw new IOException("Corrupted response export record batch");
+            }
+            ByteBuffer body = ByteBuffer.wrap(readBytes((int) bodyLength)).order(ByteOrder.LITTLE_ENDIAN);
+
+            rowCount += readRecordBatch(recordBatch, body, consumer);
+            batchCount++;
+        }
+
+        // Pie: metadatos, su longitud y "ARROW1"
+        byte[] trailer = in.readAllBytes();
+        int footerLength = trailer.length - 4 - ArrowFormat.MAGIC.length;
+        if (footerLength <= 0
+                || !Arrays.equals(trailer, footerLength + 4, trailer.length,
+                        ArrowFormat.MAGIC, 0, ArrowFormat.MAGIC.length)
+                || ByteBuffer.wrap(trailer).order(ByteOrder.LITTLE_ENDIAN).getInt(footerLength) != footerLength
+                || ArrowFormat.Table.root(Arrays.copyOf(trailer, footerLength))
+                        .getVectorLength(ArrowFormat.FOOTER_RECORD_BATCHES) != batchCount) {
+            throw new IOException("Corrupted response export trailer");
+        }
+
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private static void checkSchema(ArrowFormat.Table schema) throws IOException {
+
+        String[] columns = ResponseExportWriter.COLUMNS;
+
+        if (schema == null || schema.getVectorLength(ArrowFormat.SCHEMA_FIELDS) != columns.length) {
+            throw new IOException("Unexpected response export schema");
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (!columns[i].equals(schema.getTable(ArrowFormat.SCHEMA_FIELDS, i).getString(ArrowFormat.FIELD_NAME))) {
+                throw new IOException("Unexpected response export column: " + i);
+            }
+        }
+    }
+
+    /**
+     * Lee los metadatos del siguiente mensaje.
+     * @return el mensaje, o null si es la marca de fin del flujo.
+     */
+    private ArrowFormat.Table readMessage() throws IOException {
+
+        if (readInt() != ArrowFormat.CONTINUATION) {
+            throw new IOException("Corrupted response export message");
+        }
+        int length = readInt();
+        if (length == 0) {
+            return null;
+        }
+        if (length < 0 || (position + length) % ArrowFormat.ALIGNMENT != 0) {
+            throw new IOException("Corrupted response export message");
+        }
+
+        return ArrowFormat.Table.root(readBytes(length));
+    }
+
+    private static long readRecordBatch(ArrowFormat.Table recordBatch, ByteBuffer body, Consumer<Response> consumer)
+            throws IOException {
+
+        long length = recordBatch.getLong(ArrowFormat.RECORD_BATCH_LENGTH, 0);
+        if (length < 0 || length > Integer.MAX_VALUE / 8
+                || recordBatch.getVectorLength(ArrowFormat.RECORD_BATCH_BUFFERS) != ResponseExportWriter.BUFFERS) {
+            throw new IOException("Corrupted response export record batch");
+        }
+        int rows = (int) length;
+
+        ByteBuffer responseIds = buffer(recordBatch, body, 1, 8L * rows);
+        ByteBuffer surveyIds = buffer(recordBatch, body, 3, 8L * rows);
+        ByteBuffer emailOffsets = buffer(recordBatch, body, 5, 4L * (rows + 1));
+        ByteBuffer emails = buffer(recordBatch, body, 6, 0);
+        ByteBuffer responses = buffer(recordBatch, body, 8, (rows + 7) / 8);
+        ByteBuffer responseDates = buffer(recordBatch, body, 10, 8L * rows);
+
+        for (int i = 0; i < rows; i++) {
+
+            int emailStart = emailOffsets.getInt(4 * i);
+            int emailEnd = emailOffsets.getInt(4 * i + 4);
+            if (emailStart < 0 || emailEnd < emailStart || emailEnd > emails.limit()) {
+                throw new IOException("Corrupted response export column: employeeEmail");
+            }
+            String email = new String(emails.array(), emails.arrayOffset() + emailStart, emailEnd - emailStart,
+                    StandardCharsets.UTF_8);
+            boolean response = (responses.get(i >> 3) & 1 << (i & 7)) != 0;
+
+            consumer.accept(new Response(responseIds.getLong(8 * i), surveyIds.getLong(8 * i), email, response,
+                    LocalDateTime.ofEpochSecond(responseDates.getLong(8 * i), 0, ZoneOffset.UTC)));
+        }
+
+        return rows;
+    }
+
+    /**
+     * Buffer i del record batch, dentro del cuerpo del mensaje.
+     */
+    private static ByteBuffer buffer(ArrowFormat.Table recordBatch, ByteBuffer body, int i, long minLength)
+            throws IOException {
+
+        long offset = recordBatch.getStructLong(ArrowFormat.RECORD_BATCH_BUFFERS, i, ArrowFormat.BUFFER_SIZE, 0);
+        long length = recordBatch.getStructLong(ArrowFormat.RECORD_BATCH_BUFFERS, i, ArrowFormat.BUFFER_SIZE, 8);
+        if (offset < 0 || length < minLength || offset + length > body.limit()) {
+            throw new IOException("Corrupted response export buffer: " + i);
+        }
+
+        return body.slice((int) offset, (int) length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private int readInt() throws IOException {
+        return ByteBuffer.wrap(readBytes(4)).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        position += length;
+        return bytes;
+    }
+}
@@ -0,0 +1,335 @@
+package es.udc.ws.app.model.response;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Escribe respuestas en un fichero IPC de Apache Arrow (el formato "Feather
+ * v2"), para el análisis de los datos fuera de la aplicación: lo leen
+ * directamente pyarrow, DuckDB, Polars o la biblioteca de Arrow para Java.
+ * Recibe las respuestas una a una (como consumidor de los recorridos en
+ * streaming de {@link SqlResponseDao}) y sólo guarda en memoria el bloque que
+ * está formando, que escribe como un record batch.
+ * <p>
+ * Columnas, todas sin nulos:
+ * <ol>
+ * <li>responseId: int64.</li>
+ * <li>surveyId: int64.</li>
+ * <li>employeeEmail: utf8.</li>
+ * <li>response: bool.</li>
+ * <li>responseDate: timestamp en segundos sin zona horaria (como en la BD).</li>
+ * </ol>
+ * Los record batches no se comprimen: Arrow sólo admite LZ4 y ZSTD, que no
+ * están en el JDK. {@link ResponseExportReader} lee estos ficheros.
+ */
+public class ResponseExportWriter implements Consumer<Response>, Closeable {
+
+    static final String[] COLUMNS = {"responseId", "surveyId", "employeeEmail", "response", "responseDate"};
+    // Validez (vacío, porque no hay nulos) y datos de cada columna, más los offsets de employeeEmail
+    static final int BUFFERS = 11;
+
+    public static final int DEFAULT_CHUNK_ROWS = 65536;
+
+    private final OutputStream out;
+    private final int chunkRows;
+    private long position = 0;
+
+    // Bloque en formación
+    private final long[] responseIds;
+    private final long[] surveyIds;
+    private final int[] emailOffsets;
+    private byte[] emailBytes;
+    private final byte[] responses;
+    private final long[] responseDates;
+    private int rows = 0;
+
+    private final ByteBuffer column;
+    // {offset, metaDataLength, bodyLength} de cada record batch, para el pie del fichero
+    private long[] blocks = new long[3 * 16];
+    private int blockCount = 0;
+    private long rowCount = 0;
+    private boolean finished = false;
+
+    public ResponseExportWriter(OutputStream out) throws IOException {
+        this(out, DEFAULT_CHUNK_ROWS);
+    }
+
+    public ResponseExportWriter(OutputStream out, int chunkRows) throws IOException {
+
+        if (chunkRows < 1) {
+            throw new IllegalArgumentException("chunkRows must be at least 1");
+        }
+
+        this.out = new BufferedOutputStream(out);
+        this.chunkRows = chunkRows;
+        responseIds = new long[chunkRows];
+        surveyIds = new long[chunkRows];
+        emailOffsets = new int[chunkRows + 1];
+        emailBytes = new byte[chunkRows * 16];
+        responses = new byte[(chunkRows + 7) / 8];
+        responseDates = new long[chunkRows];
+        column = ByteBuffer.allocate(chunkRows * 8 + 8).order(ByteOrder.LITTLE_ENDIAN);
+
+        write(ArrowFormat.MAGIC);
+        writePadding(ArrowFormat.MAGIC.length);
+
+        ArrowFormat.Builder builder = new ArrowFormat.Builder();
+        int schema = addSchema(builder);
+        writeMessage(builder, ArrowFormat.HEADER_SCHEMA, schema, 0);
+    }
+
+    /**
+     * Añade la respuesta al bloque en formación, y lo escribe si está lleno.
+     * @throws UncheckedIOException si falla la escritura.
+     */
+    @Override
+    public void accept(Response response) {
+
+        if (finished) {
+            throw new IllegalStateException("Export already finished");
+        }
+
+        byte[] email = response.getEmployeeEmail().getBytes(StandardCharsets.UTF_8);
+        int emailEnd = emailOffsets[rows] + email.length;
+        if (emailEnd > emailBytes.length) {
+            emailBytes = Arrays.copyOf(emailBytes, Math.max(emailBytes.length * 2, emailEnd));
+        }
+        System.arraycopy(email, 0, emailBytes, emailOffsets[rows], email.length);
+
+        responseIds[rows] = response.getResponseId();
+        surveyIds[rows] = response.getSurveyId();
+        emailOffsets[rows + 1] = emailEnd;
+        if (response.getResponse()) {
+            responses[rows >> 3] |= (byte) (1 << (rows & 7));
+        }
+        responseDates[rows] = response.getResponseDate().toEpochSecond(ZoneOffset.UTC);
+        rows++;
+        rowCount++;
+
+        if (rows == chunkRows) {
+            try {
+                writeChunk();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Filas recibidas hasta ahora.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Escribe el último bloque y el final del fichero (marca de fin del flujo
+     * de mensajes y pie con el esquema y la posición de cada record batch),
+     * sin cerrar el flujo de salida.
+     */
+    public void finish() throws IOException {
+
+        if (finished) {
+            return;
+        }
+
+        if (rows > 0) {
+            writeChunk();
+        }
+        writeInt(ArrowFormat.CONTINUATION);
+        writeInt(0);
+
+        ArrowFormat.Builder builder = new ArrowFormat.Builder();
+        int schema = addSchema(builder);
+        int dictionaries = builder.createBlockVector(new long[0]);
+        int recordBatches = builder.createBlockVector(Arrays.copyOf(blocks, 3 * blockCount));
+        builder.startTable(ArrowFormat.FOOTER_FIELDS);
+        builder.addOffset(ArrowFormat.FOOTER_RECORD_BATCHES, recordBatches);
+        builder.addOffset(ArrowFormat.FOOTER_DICTIONARIES, dictionaries);
+        builder.addOffset(ArrowFormat.FOOTER_SCHEMA, schema);
+        builder.addShort(ArrowFormat.FOOTER_VERSION, ArrowFormat.METADATA_VERSION_V5);
+        byte[] footer = builder.finish(builder.endTable());
+
+        write(footer);
+        writeInt(footer.length);
+        write(ArrowFormat.MAGIC);
+        out.flush();
+
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private static int addSchema(ArrowFormat.Builder builder) {
+
+        int[] fields = new int[COLUMNS.length];
+
+        for (int i = 0; i < COLUMNS.length; i++) {
+
+            int name = builder.createString(COLUMNS[i]);
+            byte typeType;
+            builder.startTable(2);
+            switch (COLUMNS[i]) {
+                case "responseId", "surveyId" -> {
+                    typeType = ArrowFormat.TYPE_INT;
+                    builder.addInt(ArrowFormat.INT_BIT_WIDTH, 64);
+                    builder.addByte(ArrowFormat.INT_IS_SIGNED, 1);
+                }
+                case "employeeEmail" -> typeType = ArrowFormat.TYPE_UTF8;
+                case "response" -> typeType = ArrowFormat.TYPE_BOOL;
+                default -> {
+                    typeType = ArrowFormat.TYPE_TIMESTAMP;
+                    builder.addShort(ArrowFormat.TIMESTAMP_UNIT, ArrowFormat.TIME_UNIT_SECOND);
+                }
+            }
+            int type = builder.endTable();
+            int children = builder.createOffsetVector();
+
+            builder.startTable(ArrowFormat.FIELD_FIELDS);
+            builder.addOffset(ArrowFormat.FIELD_CHILDREN, children);
+            builder.addOffset(ArrowFormat.FIELD_TYPE, type);
+            builder.addOffset(ArrowFormat.FIELD_NAME, name);
+            builder.addByte(ArrowFormat.FIELD_TYPE_TYPE, typeType);
+            builder.addByte(ArrowFormat.FIELD_NULLABLE, 0);
+            fields[i] = builder.endTable();
+        }
+
+        int fieldVector = builder.createOffsetVector(fields);
+        builder.startTable(ArrowFormat.SCHEMA_FIELD_COUNT);
+        builder.addOffset(ArrowFormat.SCHEMA_FIELDS, fieldVector);
+        return builder.endTable();
+    }
+
+    private void writeChunk() throws IOException {
+
+        int emailLength = emailOffsets[rows];
+        int bitmapLength = (rows + 7) / 8;
+        long[] lengths = {
+                0, 8L * rows,
+                0, 8L * rows,
+                0, 4L * (rows + 1), emailLength,
+                0, bitmapLength,
+                0, 8L * rows};
+
+        // {offset, length} de cada buffer dentro del cuerpo del mensaje
+        long[] buffers = new long[2 * BUFFERS];
+        long bodyLength = 0;
+        for (int i = 0; i < BUFFERS; i++) {
+            buffers[2 * i] = bodyLength;
+            buffers[2 * i + 1] = lengths[i];
+            bodyLength += lengths[i] + ArrowFormat.padding(lengths[i]);
+        }
+
+        long[] nodes = new long[2 * COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            nodes[2 * i] = rows;
+        }
+
+        ArrowFormat.Builder builder = new ArrowFormat.Builder();
+        int bufferVector = builder.createLongPairVector(buffers);
+        int nodeVector = builder.createLongPairVector(nodes);
+        builder.startTable(ArrowFormat.RECORD_BATCH_FIELDS);
+        builder.addLong(ArrowFormat.RECORD_BATCH_LENGTH, rows);
+        builder.addOffset(ArrowFormat.RECORD_BATCH_BUFFERS, bufferVector);
+        builder.addOffset(ArrowFormat.RECORD_BATCH_NODES, nodeVector);
+        int recordBatch = builder.endTable();
+
+        if (blockCount * 3 == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blocks.length * 2);
+        }
+        blocks[3 * blockCount] = position;
+        blocks[3 * blockCount + 1] = writeMessage(builder, ArrowFormat.HEADER_RECORD_BATCH, recordBatch,
+                bodyLength);
+        blocks[3 * blockCount + 2] = bodyLength;
+        blockCount++;
+
+        writeLongs(responseIds);
+        writeLongs(surveyIds);
+        column.clear();
+        for (int i = 0; i <= rows; i++) {
+            column.putInt(emailOffsets[i]);
+        }
+        writeColumn();
+        write(emailBytes, 0, emailLength);
+        writePadding(emailLength);
+        write(responses, 0, bitmapLength);
+        writePadding(bitmapLength);
+        writeLongs(responseDates);
+
+        rows = 0;
+        Arrays.fill(responses, (byte) 0);
+    }
+
+    /**
+     * Escribe los metadatos de un mensaje (sin el cuerpo), precedidos de la
+     * marca de continuación y de su longitud.
+     * @return los bytes escritos.
+     */
+    private int writeMessage(ArrowFormat.Builder builder, byte headerType, int header, long bodyLength)
+            throws IOException {
+
+        builder.startTable(ArrowFormat.MESSAGE_FIELDS);
+        builder.addLong(ArrowFormat.MESSAGE_BODY_LENGTH, bodyLength);
+        builder.addOffset(ArrowFormat.MESSAGE_HEADER, header);
+        builder.addShort(ArrowFormat.MESSAGE_VERSION, ArrowFormat.METADATA_VERSION_V5);
+        builder.addByte(ArrowFormat.MESSAGE_HEADER_TYPE, headerType);
+        byte[] metadata = builder.finish(builder.endTable());
+        int padding = ArrowFormat.padding(metadata.length);
+
+        writeInt(ArrowFormat.CONTINUATION);
+        writeInt(metadata.length + padding);
+        write(metadata);
+        writePadding(metadata.length);
+
+        return 8 + metadata.length + padding;
+    }
+
+    private void writeLongs(long[] values) throws IOException {
+        column.clear();
+        column.asLongBuffer().put(values, 0, rows);
+        column.position(8 * rows);
+        writeColumn();
+    }
+
+    private void writeColumn() throws IOException {
+        while (column.position() % 8 != 0) {
+            column.put((byte) 0);
+        }
+        write(column.array(), 0, column.position());
+    }
+
+    private void writePadding(long length) throws IOException {
+        write(new byte[ArrowFormat.ALIGNMENT], 0, ArrowFormat.padding(length));
+    }
+
+    private void writeInt(int value) throws IOException {
+        column.clear();
+        column.putInt(value);
+        write(column.array(), 0, 4);
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length);
+        position += length;
+    }
+}
@@ -0,0 +1,16 @@
+package es.udc.ws.app.model.response;
+
+/**
+ * Resultado de {@link SqlResponseDao#upsert}: indica qué había antes del voto.
+ */
+public enum ResponseUpsertResult {
+
+    /** El empleado no había respondido todavía: se creó la respuesta. */
+    CREATED,
+
+    /** El empleado había respondido con el valor contrario: se cambió. */
+    CHANGED,
+
+    /** El empleado ya había respondido con el mismo valor: sólo se actualiza la fecha. */
+    UNCHANGED
+}
@@ -1,10 +1,13 @@
 package es.udc.ws.app.model.response;
 
+import es.udc.ws.app.model.util.KeysetCursor;
 import es.udc.ws.util.exceptions.InstanceNotFoundException;
 
 import java.sql.Connection;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 // Importar las excepciones custom
 // import es.udc.fic.isd.exceptions.InstanceNotFoundException;
@@ -22,6 +25,28 @@ public interface SqlResponseDao {
     public void update(Connection connection, Response response)
             throws InstanceNotFoundException;
 
+    /**
+     * Crea varias respuestas con sentencias por lotes, asignando a cada una
+     * el identificador generado.
+     */
+    public void createBatch(Connection connection, List<Response> responses);
+
+    /**
+     * Actualiza varias respuestas existentes con sentencias por lotes.
+     */
+    public void updateBatch(Connection connection, Collection<Response> responses)
+            throws InstanceNotFoundException;
+
+    /**
+     * [FUNC-4] Crea la respuesta del empleado o, si ya había respondido a la
+     * encuesta, actualiza su valor y fecha, todo en una única sentencia.
+     * Si se crea o cambia, se asigna el identificador a la respuesta recibida.
+     * @return qué valor tenía antes la respuesta del empleado.
+     * @throws InstanceNotFoundException si la encuesta no existe.
+     */
+    public ResponseUpsertResult upsert(Connection connection, Response response)
+            throws InstanceNotFoundException;
+
     /**
      * (Útil para pruebas). Busca una respuesta por su ID.
      */
@@ -34,12 +59,50 @@ public interface SqlResponseDao {
      */
     public Optional<Response> findBySurveyAndEmployee(Connection connection, Long surveyId, String employeeEmail);
 
+    /**
+     * Busca y bloquea las respuestas de varios empleados a una misma encuesta.
+     * Los empleados que aún no han respondido no aparecen en el resultado.
+     */
+    public List<Response> findBySurveyAndEmployees(Connection connection, Long surveyId,
+            Collection<String> employeeEmails);
+
     /**
      * Recupera las respuestas para una encuesta dada.
      * @param onlyPositive true si se desean solo las respuestas positivas.
      */
     public List<Response> findBySurveyId(Connection connection, Long surveyId, boolean onlyPositive);
 
+    /**
+     * [FUNC-6] Página de {@link #findBySurveyId(Connection, Long, boolean)}: hasta
+     * count respuestas, en orden de responseDate y responseId descendentes,
+     * situadas después de la posición after (desde el principio si es null).
+     */
+    public List<Response> findBySurveyId(Connection connection, Long surveyId, boolean onlyPositive,
+            KeysetCursor after, int count);
+
+    /**
+     * [FUNC-6] Igual que {@link #findBySurveyId(Connection, Long, boolean)}, pero
+     * entrega las respuestas al consumidor según se leen de la BD, sin construir
+     * la lista. El consumidor no puede usar la misma conexión durante el recorrido.
+     */
+    public void streamBySurveyId(Connection connection, Long surveyId, boolean onlyPositive,
+            Consumer<Response> consumer);
+
+    /**
+     * Entrega al consumidor todas las respuestas de todas las encuestas, sin un
+     * orden determinado, según se leen de la BD. El consumidor no puede usar la
+     * misma conexión durante el recorrido.
+     */
+    public void streamAll(Connection connection, Consumer<Response> consumer);
+
+    /**
+     * Cuenta las respuestas positivas y negativas de las encuestas con
+     * identificador entre firstSurveyId y lastSurveyId (ambos incluidos) con
+     * una única consulta agrupada. Las encuestas sin respuestas no aparecen.
+     */
+    public List<ResponseCounts> countBySurveyIdRange(Connection connection, Long firstSurveyId,
+            Long lastSurveyId);
+
     /**
      * Necesario para las pruebas de integración.
      */
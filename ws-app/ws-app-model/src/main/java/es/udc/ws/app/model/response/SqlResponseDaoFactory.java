@@ -13,10 +13,14 @@ public class SqlResponseDaoFactory {
     private SqlResponseDaoFactory() {
     }
 
+    /**
+     * Instancia la implementación indicada en el parámetro de configuración.
+     * También lo usan los decoradores para crear la implementación a la que delegan.
+     */
     @SuppressWarnings("rawtypes")
-    private static SqlResponseDao getInstance() {
+    static SqlResponseDao getInstance(String classNameParameter) {
         try {
-            String daoClassName = ConfigurationParametersManager.getParameter(CLASS_NAME_PARAMETER);
+            String daoClassName = ConfigurationParametersManager.getParameter(classNameParameter);
             Class daoClass = Class.forName(daoClassName);
             return (SqlResponseDao) daoClass.getDeclaredConstructor().newInstance();
         } catch (Exception e) {
@@ -26,7 +30,7 @@ public class SqlResponseDaoFactory {
 
     public synchronized static SqlResponseDao getDao() {
         if (dao == null) {
-            dao = getInstance();
+            dao = getInstance(CLASS_NAME_PARAMETER);
         }
         return dao;
     }
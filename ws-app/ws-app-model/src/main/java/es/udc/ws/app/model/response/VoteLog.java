@@ -0,0 +1,354 @@
+package es.udc.ws.app.model.response;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Ficheros del registro de votos de {@link VoteLogStore}: sólo se añaden
+ * registros al final, nunca se modifican.
+ * <p>
+ * Los votos se guardan en segmentos de tamaño fijo (votes-NNN.log) proyectados
+ * en memoria, como registros de {@link #RECORD_SIZE} bytes:
+ * <pre>
+ * responseId (long) | surveyId (long) | responseDate (long, segundos) |
+ * emailId &lt;&lt; 2 | tipo (int) | CRC32C de los 28 bytes anteriores (int)
+ * </pre>
+ * El tipo es {@link #NEGATIVE}, {@link #POSITIVE} o {@link #REMOVED}; un
+ * registro posterior con el mismo responseId sustituye a los anteriores. Un
+ * responseId 0 marca el final de los datos del segmento, ya que los ficheros
+ * nuevos están llenos de ceros. Los emails se guardan una sola vez, en un
+ * diccionario aparte (emails.log) que asigna a cada uno un identificador
+ * consecutivo.
+ * <p>
+ * Al abrir el registro, la lectura de cada fichero se detiene en el primer
+ * registro incompleto o con el CRC incorrecto (lo que deja una escritura
+ * interrumpida por una caída), y lo que haya a continuación se descarta.
+ * <p>
+ * No es thread-safe: quien lo use debe sincronizarse con el propio objeto.
+ */
+class VoteLog implements Closeable {
+
+    /**
+     * Recibe los registros de votos en el orden del log.
+     */
+    @FunctionalInterface
+    interface RecordVisitor {
+
+        void visit(long location, long responseId, long surveyId, String email, int type, long responseDate);
+    }
+
+    static final int RECORD_SIZE = 32;
+
+    static final int REMOVED = 0;
+    static final int NEGATIVE = 1;
+    static final int POSITIVE = 2;
+
+    private static final String SEGMENT_PREFIX = "votes-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String DICTIONARY_FILE = "emails.log";
+
+    // emailId (int) | longitud (short) | email en UTF-8 | CRC32C (int)
+    private static final int DICTIONARY_HEADER_SIZE = 6;
+    private static final int MAX_EMAIL_BYTES = 0xFFFF;
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private final TreeMap<Integer, MappedByteBuffer> segments = new TreeMap<>();
+    private int activeSegment;
+    private int position = 0;
+
+    private final FileChannel dictionary;
+    private final Map<String, Integer> emailIds = new HashMap<>();
+    private final List<String> emails = new ArrayList<>();
+    private boolean dictionaryDirty = false;
+
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * Abre (o crea) el registro del directorio. Los votos se leen después con
+     * {@link #replay(RecordVisitor)}.
+     */
+    VoteLog(Path directory, int segmentSize) throws IOException {
+
+        if (segmentSize < RECORD_SIZE || segmentSize % RECORD_SIZE != 0 || segmentSize > 1 << 30) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        Files.createDirectories(directory);
+        dictionary = FileChannel.open(directory.resolve(DICTIONARY_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        loadDictionary();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    int segment = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(segment, map(segment));
+                }
+            }
+        }
+
+        if (segments.isEmpty()) {
+            segments.put(0, map(0));
+        }
+        activeSegment = segments.lastKey();
+    }
+
+    static int segmentOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    static int offsetOf(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Recorre los votos de todos los segmentos en orden y deja el registro
+     * preparado para añadir a continuación del último válido.
+     */
+    void replay(RecordVisitor visitor) {
+        for (int segment : segments.keySet()) {
+            int end = readSegment(segment, visitor);
+            if (segment == activeSegment) {
+                position = end;
+                discardTail(segments.get(segment), end);
+            }
+        }
+    }
+
+    /**
+     * Recorre los votos de un segmento en orden.
+     * @return la posición donde terminan sus datos válidos.
+     */
+    int readSegment(int segment, RecordVisitor visitor) {
+
+        ByteBuffer buffer = segments.get(segment).duplicate();
+        int end = segment == activeSegment && position > 0 ? position : segmentSize;
+
+        for (int offset = 0; offset < end; offset += RECORD_SIZE) {
+
+            long responseId = buffer.getLong(offset);
+            int emailIdAndType = buffer.getInt(offset + 24);
+            int emailId = emailIdAndType >>> 2;
+
+            if (responseId == 0 || checksum(buffer, offset) != buffer.getInt(offset + 28)
+                    || emailId >= emails.size()) {
+                return offset;
+            }
+
+            visitor.visit(location(segment, offset), responseId, buffer.getLong(offset + 8), emails.get(emailId),
+                    emailIdAndType & 3, buffer.getLong(offset + 16));
+        }
+
+        return end;
+    }
+
+    /**
+     * Añade un voto (o su borrado, con tipo REMOVED) al final del registro,
+     * empezando un segmento nuevo si el actual está lleno. No es duradero
+     * hasta {@link #force(long)}.
+     * @return la posición del registro.
+     */
+    long append(long responseId, long surveyId, String email, int type, long responseDate) throws IOException {
+
+        if (position + RECORD_SIZE > segmentSize) {
+            activeSegment++;
+            segments.put(activeSegment, map(activeSegment));
+            position = 0;
+        }
+
+        MappedByteBuffer buffer = segments.get(activeSegment);
+        int offset = position;
+
+        buffer.putLong(offset, responseId);
+        buffer.putLong(offset + 8, surveyId);
+        buffer.putLong(offset + 16, responseDate);
+        buffer.putInt(offset + 24, emailIdOf(email) << 2 | type);
+        buffer.putInt(offset + 28, checksum(buffer, offset));
+
+        position += RECORD_SIZE;
+        return location(activeSegment, offset);
+    }
+
+    /**
+     * Posición donde irá el próximo registro.
+     */
+    long end() {
+        return location(activeSegment, position);
+    }
+
+    /**
+     * Lleva a disco el diccionario y los registros añadidos desde la posición
+     * indicada (devuelta antes por {@link #end()}).
+     */
+    void force(long from) throws IOException {
+
+        if (dictionaryDirty) {
+            dictionary.force(false);
+            dictionaryDirty = false;
+        }
+
+        for (Map.Entry<Integer, MappedByteBuffer> entry : segments.tailMap(segmentOf(from), true).entrySet()) {
+            int start = entry.getKey() == segmentOf(from) ? offsetOf(from) : 0;
+            int end = entry.getKey() == activeSegment ? position : segmentSize;
+            if (end > start) {
+                entry.getValue().force(start, end - start);
+            }
+        }
+    }
+
+    /**
+     * Segmentos llenos, que ya no reciben registros.
+     */
+    List<Integer> sealedSegments() {
+        return new ArrayList<>(segments.headMap(activeSegment, false).keySet());
+    }
+
+    int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Borra un segmento lleno cuyos votos vigentes ya se han copiado al final
+     * del registro y llevado a disco.
+     */
+    void deleteSegment(int segment) throws IOException {
+        if (segment == activeSegment) {
+            throw new IllegalArgumentException("Cannot delete the active segment");
+        }
+        // La proyección se libera cuando el recolector reclama el buffer
+        segments.remove(segment);
+        Files.deleteIfExists(segmentFile(segment));
+    }
+
+    @Override
+    public void close() throws IOException {
+        force(location(segments.firstKey(), 0));
+        dictionary.close();
+    }
+
+    private static long location(int segment, int offset) {
+        return (long) segment << 32 | offset;
+    }
+
+    private Path segmentFile(int segment) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private MappedByteBuffer map(int segment) throws IOException {
+        // Los ficheros se crean con su tamaño final (dispersos, llenos de ceros)
+        try (FileChannel channel = FileChannel.open(segmentFile(segment), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    /**
+     * Pone a cero los registros que queden tras el final de los datos válidos,
+     * para que no reaparezcan cuando se escriba hasta ellos.
+     */
+    private void discardTail(MappedByteBuffer buffer, int end) {
+        for (int offset = end; offset < segmentSize && buffer.getLong(offset) != 0; offset += RECORD_SIZE) {
+            for (int i = 0; i < RECORD_SIZE; i += 8) {
+                buffer.putLong(offset + i, 0);
+            }
+        }
+        buffer.force(end, segmentSize - end);
+    }
+
+    private int checksum(ByteBuffer buffer, int offset) {
+        crc.reset();
+        crc.update(buffer.duplicate().position(offset).limit(offset + 28));
+        return (int) crc.getValue();
+    }
+
+    private int emailIdOf(String email) throws IOException {
+
+        Integer emailId = emailIds.get(email);
+
+        if (emailId != null) {
+            return emailId;
+        }
+
+        byte[] bytes = email.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_EMAIL_BYTES) {
+            throw new IllegalArgumentException("Email too long: " + email);
+        }
+
+        ByteBuffer entry = ByteBuffer.allocate(DICTIONARY_HEADER_SIZE + bytes.length + 4);
+        entry.putInt(emails.size()).putShort((short) bytes.length).put(bytes);
+        crc.reset();
+        crc.update(entry.array(), 0, entry.position());
+        entry.putInt((int) crc.getValue()).flip();
+
+        while (entry.hasRemaining()) {
+            dictionary.write(entry, dictionary.size());
+        }
+        dictionaryDirty = true;
+
+        emailId = emails.size();
+        emails.add(email);
+        emailIds.put(email, emailId);
+        return emailId;
+    }
+
+    /**
+     * Lee el diccionario de emails y corta la entrada final si está incompleta.
+     */
+    private void loadDictionary() throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) dictionary.size());
+        while (buffer.hasRemaining() && dictionary.read(buffer, buffer.position()) >= 0) {
+            // Se lee el fichero completo
+        }
+        buffer.flip();
+
+        while (buffer.remaining() >= DICTIONARY_HEADER_SIZE) {
+
+            int start = buffer.position();
+            int emailId = buffer.getInt();
+            int length = Short.toUnsignedInt(buffer.getShort());
+
+            if (emailId != emails.size() || buffer.remaining() < length + 4) {
+                buffer.position(start);
+                break;
+            }
+
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            crc.reset();
+            crc.update(buffer.array(), start, DICTIONARY_HEADER_SIZE + length);
+
+            if ((int) crc.getValue() != buffer.getInt()) {
+                buffer.position(start);
+                break;
+            }
+
+            String email = new String(bytes, StandardCharsets.UTF_8);
+            emails.add(email);
+            emailIds.put(email, emailId);
+        }
+
+        dictionary.truncate(buffer.position());
+    }
+}
@@ -0,0 +1,509 @@
+package es.udc.ws.app.model.response;
+
+import es.udc.ws.app.model.response.VoteLogStore.Vote;
+import es.udc.ws.app.model.survey.SqlSurveyDao;
+import es.udc.ws.app.model.survey.SqlSurveyDaoFactory;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.util.KeysetCursor;
+import es.udc.ws.app.model.util.TransactionTemplate;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+/**
+ * Implementación de {@link SqlResponseDao} sobre {@link VoteLogStore}: las
+ * respuestas no se guardan en la tabla Response sino en un registro de votos
+ * sólo de añadir, y se leen de su índice en memoria. Las encuestas siguen en
+ * su DAO, y la existencia de la encuesta (la clave ajena de Response) se
+ * comprueba con él la primera vez que se vota en ella.
+ * <p>
+ * Los cambios de cada transacción de TransactionTemplate se acumulan en un
+ * recurso de la transacción, donde los ven sus propias lecturas, y se escriben
+ * en el registro justo antes del commit de la BD; el resto de transacciones
+ * los ven tras el commit. Si después el commit de la BD falla, se anulan en el
+ * registro. Si el proceso cae entre ambos commits, los votos quedan en el
+ * registro sin su reflejo en los contadores de la encuesta, que se corrigen
+ * con SurveyCounterReconciler. Fuera de TransactionTemplate, sólo se admiten
+ * conexiones en modo autocommit, y cada operación se confirma al terminar.
+ */
+public class VoteLogSqlResponseDao implements SqlResponseDao {
+
+    // Mismos errores que MySQL para las restricciones de la tabla Response
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+    private static final int MYSQL_NO_REFERENCED_ROW = 1452;
+
+    // Orden de findBySurveyId: responseDate y responseId descendentes
+    private static final Comparator<Response> NEWEST_FIRST = Comparator.comparing(Response::getResponseDate)
+            .thenComparing(Response::getResponseId).reversed();
+
+    /**
+     * Cuerpo de una operación que modifica o bloquea votos.
+     */
+    @FunctionalInterface
+    private interface Statement<T, E extends Exception> {
+
+        T execute(VoteLogTransaction transaction) throws E;
+    }
+
+    /**
+     * Cambios de una transacción, con los cerrojos de los votos que ha leído
+     * para modificar, hasta que termina.
+     */
+    private class VoteLogTransaction implements TransactionTemplate.TransactionResource {
+
+        private final List<Lock> heldLocks = new ArrayList<>();
+        private final List<Vote> changes = new ArrayList<>();
+        private final Map<Savepoint, Integer> savepoints = new IdentityHashMap<>();
+        private final Map<Long, Vote> byResponseId = new HashMap<>();
+        private long[] locations = null;
+
+        /**
+         * Voto del empleado visto desde la transacción: el último cambio de ésta
+         * o, si no lo hay, el confirmado. Null si no ha votado.
+         */
+        private Vote find(long surveyId, String email) {
+            for (int i = changes.size() - 1; i >= 0; i--) {
+                Vote change = changes.get(i);
+                if (change.getSurveyId() == surveyId && change.getEmail().equals(email)) {
+                    return change.isRemoved() ? null : change;
+                }
+            }
+            return store.find(surveyId, email);
+        }
+
+        private Vote find(long responseId) {
+            Vote change = byResponseId.get(responseId);
+            if (change != null) {
+                return change.isRemoved() ? null : change;
+            }
+            return store.find(responseId);
+        }
+
+        private void add(Vote vote) {
+            changes.add(vote);
+            byResponseId.put(vote.getResponseId(), vote);
+        }
+
+        /**
+         * Descarta los cambios posteriores a los size primeros.
+         */
+        private void truncate(int size) {
+            if (size < changes.size()) {
+                changes.subList(size, changes.size()).clear();
+                byResponseId.clear();
+                for (Vote change : changes) {
+                    byResponseId.put(change.getResponseId(), change);
+                }
+            }
+        }
+
+        @Override
+        public void prepare() {
+            if (!changes.isEmpty()) {
+                locations = store.append(changes);
+            }
+        }
+
+        @Override
+        public void complete(boolean committed) {
+            try {
+                if (locations != null) {
+                    if (committed) {
+                        store.apply(changes, locations);
+                    } else {
+                        store.revert(changes);
+                    }
+                }
+            } finally {
+                for (int i = heldLocks.size() - 1; i >= 0; i--) {
+                    heldLocks.get(i).unlock();
+                }
+                heldLocks.clear();
+            }
+        }
+
+        @Override
+        public void savepoint(Savepoint savepoint) {
+            savepoints.put(savepoint, changes.size());
+        }
+
+        @Override
+        public void rollbackTo(Savepoint savepoint) {
+            // Como en InnoDB, los cerrojos se conservan
+            truncate(savepoints.getOrDefault(savepoint, 0));
+        }
+    }
+
+    private final VoteLogStore store;
+    private final SqlSurveyDao surveyDao;
+
+    public VoteLogSqlResponseDao() {
+        this(VoteLogStore.getInstance(), SqlSurveyDaoFactory.getDao());
+    }
+
+    public VoteLogSqlResponseDao(VoteLogStore store, SqlSurveyDao surveyDao) {
+        this.store = store;
+        this.surveyDao = surveyDao;
+    }
+
+    @Override
+    public Response create(Connection connection, Response response) {
+        return statement(connection, transaction -> {
+            insert(connection, transaction, response);
+            return response;
+        });
+    }
+
+    @Override
+    public void createBatch(Connection connection, List<Response> responses) {
+        statement(connection, transaction -> {
+            for (Response response : responses) {
+                insert(connection, transaction, response);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void update(Connection connection, Response response) throws InstanceNotFoundException {
+        this.<Void, InstanceNotFoundException>statement(connection, transaction -> {
+            replace(transaction, response);
+            return null;
+        });
+    }
+
+    @Override
+    public void updateBatch(Connection connection, Collection<Response> responses)
+            throws InstanceNotFoundException {
+        this.<Void, InstanceNotFoundException>statement(connection, transaction -> {
+            for (Response response : responses) {
+                replace(transaction, response);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public ResponseUpsertResult upsert(Connection connection, Response response)
+            throws InstanceNotFoundException {
+        return this.<ResponseUpsertResult, InstanceNotFoundException>statement(connection, transaction -> {
+
+            long surveyId = response.getSurveyId();
+            String email = response.getEmployeeEmail();
+
+            store.lock(transaction.heldLocks, surveyId, email);
+            Vote current = transaction.find(surveyId, email);
+
+            if (current == null) {
+                if (!surveyExists(connection, transaction, surveyId)) {
+                    throw new InstanceNotFoundException(surveyId, Survey.class.getName());
+                }
+                long responseId = store.nextResponseId();
+                transaction.add(new Vote(responseId, surveyId, email, response.getResponse(),
+                        response.getResponseDate()));
+                response.setResponseId(responseId);
+                return ResponseUpsertResult.CREATED;
+            }
+
+            // Como en Jdbc3SqlResponseDao, la fecha se actualiza aunque el valor no cambie
+            transaction.add(new Vote(current.getResponseId(), surveyId, email, response.getResponse(),
+                    response.getResponseDate()));
+
+            if (current.isPositive() == response.getResponse()) {
+                return ResponseUpsertResult.UNCHANGED;
+            }
+            response.setResponseId(current.getResponseId());
+            return ResponseUpsertResult.CHANGED;
+        });
+    }
+
+    @Override
+    public Response find(Connection connection, Long responseId) throws InstanceNotFoundException {
+
+        VoteLogTransaction transaction = currentTransaction(connection);
+        Vote vote = transaction != null ? transaction.find(responseId) : store.find(responseId);
+
+        if (vote == null) {
+            throw new InstanceNotFoundException(responseId, Response.class.getName());
+        }
+
+        return vote.toResponse();
+    }
+
+    @Override
+    public Optional<Response> findBySurveyAndEmployee(Connection connection, Long surveyId, String employeeEmail) {
+
+        VoteLogTransaction transaction = currentTransaction(connection);
+        Vote vote = transaction != null ? transaction.find(surveyId, employeeEmail)
+                : store.find(surveyId, employeeEmail);
+
+        return Optional.ofNullable(vote).map(Vote::toResponse);
+    }
+
+    @Override
+    public List<Response> findBySurveyAndEmployees(Connection connection, Long surveyId,
+            Collection<String> employeeEmails) {
+        return statement(connection, transaction -> {
+
+            // Equivale a FOR UPDATE: los votos quedan bloqueados hasta el commit
+            List<Response> responses = new ArrayList<>();
+
+            for (String employeeEmail : employeeEmails) {
+                store.lock(transaction.heldLocks, surveyId, employeeEmail);
+                Vote vote = transaction.find(surveyId, employeeEmail);
+                if (vote != null) {
+                    responses.add(vote.toResponse());
+                }
+            }
+
+            return responses;
+        });
+    }
+
+    @Override
+    public List<Response> findBySurveyId(Connection connection, Long surveyId, boolean onlyPositive) {
+        return findBySurveyId(connection, surveyId, onlyPositive, null, 0);
+    }
+
+    @Override
+    public List<Response> findBySurveyId(Connection connection, Long surveyId, boolean onlyPositive,
+            KeysetCursor after, int count) {
+
+        List<Response> responses = new ArrayList<>();
+
+        for (Response response : readSorted(connection, surveyId)) {
+            if (count > 0 && responses.size() >= count) {
+                break;
+            }
+            if ((!onlyPositive || response.getResponse()) && isAfter(response, after)) {
+                responses.add(response);
+            }
+        }
+
+        return responses;
+    }
+
+    @Override
+    public void streamBySurveyId(Connection connection, Long surveyId, boolean onlyPositive,
+            Consumer<Response> consumer) {
+        for (Response response : readSorted(connection, surveyId)) {
+            if (!onlyPositive || response.getResponse()) {
+                consumer.accept(response);
+            }
+        }
+    }
+
+    @Override
+    public void streamAll(Connection connection, Consumer<Response> consumer) {
+
+        VoteLogTransaction transaction = currentTransaction(connection);
+        NavigableSet<Long> surveyIds = new TreeSet<>(store.surveyIds());
+
+        if (transaction != null) {
+            for (Vote change : transaction.changes) {
+                surveyIds.add(change.getSurveyId());
+            }
+        }
+
+        for (Long surveyId : surveyIds) {
+            for (Response response : readSorted(connection, surveyId)) {
+                consumer.accept(response);
+            }
+        }
+    }
+
+    @Override
+    public List<ResponseCounts> countBySurveyIdRange(Connection connection, Long firstSurveyId,
+            Long lastSurveyId) {
+        return store.countBySurveyIdRange(firstSurveyId, lastSurveyId);
+    }
+
+    @Override
+    public void remove(Connection connection, Long responseId) throws InstanceNotFoundException {
+        this.<Void, InstanceNotFoundException>statement(connection, transaction -> {
+            transaction.add(findForUpdate(transaction, responseId).removed());
+            return null;
+        });
+    }
+
+    /**
+     * Ejecuta una operación de forma atómica en la transacción de la conexión
+     * o, en modo autocommit, en una transacción propia que se confirma al
+     * terminar.
+     */
+    private <T, E extends Exception> T statement(Connection connection, Statement<T, E> statement) throws E {
+
+        VoteLogTransaction transaction = currentTransaction(connection);
+
+        if (transaction != null) {
+            int size = transaction.changes.size();
+            try {
+                return statement.execute(transaction);
+            } catch (Throwable e) {
+                transaction.truncate(size);
+                throw e;
+            }
+        }
+
+        try {
+            if (!connection.getAutoCommit()) {
+                throw new IllegalStateException(
+                        "VoteLogSqlResponseDao needs a TransactionTemplate transaction or autocommit mode");
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        transaction = new VoteLogTransaction();
+        boolean committed = false;
+
+        try {
+            T result = statement.execute(transaction);
+            transaction.prepare();
+            committed = true;
+            return result;
+        } finally {
+            transaction.complete(committed);
+        }
+    }
+
+    private VoteLogTransaction currentTransaction(Connection connection) {
+        return TransactionTemplate.resource(connection, store, VoteLogTransaction::new);
+    }
+
+    /**
+     * Añade una respuesta nueva y le asigna identificador.
+     */
+    private void insert(Connection connection, VoteLogTransaction transaction, Response response) {
+
+        long surveyId = response.getSurveyId();
+        String email = response.getEmployeeEmail();
+
+        store.lock(transaction.heldLocks, surveyId, email);
+
+        if (!surveyExists(connection, transaction, surveyId)) {
+            throw new RuntimeException(new SQLIntegrityConstraintViolationException(
+                    "Cannot add or update a child row: a foreign key constraint fails (ResponseSurveyFK)",
+                    "23000", MYSQL_NO_REFERENCED_ROW));
+        }
+        if (transaction.find(surveyId, email) != null) {
+            throw new RuntimeException(new SQLIntegrityConstraintViolationException(
+                    "Duplicate entry for key 'EmployeeSurveyUnique'", "23000", MYSQL_DUPLICATE_ENTRY));
+        }
+
+        long responseId = store.nextResponseId();
+        transaction.add(new Vote(responseId, surveyId, email, response.getResponse(), response.getResponseDate()));
+        response.setResponseId(responseId);
+    }
+
+    /**
+     * Sustituye el valor y la fecha de una respuesta existente.
+     */
+    private void replace(VoteLogTransaction transaction, Response response) throws InstanceNotFoundException {
+        Vote current = findForUpdate(transaction, response.getResponseId());
+        transaction.add(new Vote(current.getResponseId(), current.getSurveyId(), current.getEmail(),
+                response.getResponse(), response.getResponseDate()));
+    }
+
+    /**
+     * Busca y bloquea una respuesta por su identificador.
+     */
+    private Vote findForUpdate(VoteLogTransaction transaction, Long responseId) throws InstanceNotFoundException {
+
+        Vote vote = transaction.find(responseId);
+
+        if (vote != null) {
+            store.lock(transaction.heldLocks, vote.getSurveyId(), vote.getEmail());
+            // Pudo borrarse mientras se esperaba por el cerrojo
+            vote = transaction.find(responseId);
+        }
+        if (vote == null) {
+            throw new InstanceNotFoundException(responseId, Response.class.getName());
+        }
+
+        return vote;
+    }
+
+    /**
+     * Comprueba la clave ajena de una respuesta nueva. Basta con consultar el
+     * DAO de encuestas la primera vez, porque los identificadores de encuesta
+     * no se reutilizan.
+     */
+    private boolean surveyExists(Connection connection, VoteLogTransaction transaction, long surveyId) {
+
+        if (store.hasVotes(surveyId)) {
+            return true;
+        }
+        for (Vote change : transaction.changes) {
+            if (change.getSurveyId() == surveyId) {
+                return true;
+            }
+        }
+
+        try {
+            surveyDao.find(connection, surveyId);
+            return true;
+        } catch (InstanceNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Respuestas de la encuesta, incluidos los cambios de la transacción en
+     * curso, en orden de responseDate y responseId descendentes.
+     */
+    private List<Response> readSorted(Connection connection, Long surveyId) {
+
+        VoteLogTransaction transaction = currentTransaction(connection);
+        Map<Long, Vote> votes = new HashMap<>();
+
+        for (Vote vote : store.findBySurvey(surveyId)) {
+            votes.put(vote.getResponseId(), vote);
+        }
+        if (transaction != null) {
+            for (Vote change : transaction.changes) {
+                if (change.getSurveyId() == surveyId) {
+                    votes.put(change.getResponseId(), change);
+                }
+            }
+        }
+
+        List<Response> responses = new ArrayList<>(votes.size());
+        for (Vote vote : votes.values()) {
+            if (!vote.isRemoved()) {
+                responses.add(vote.toResponse());
+            }
+        }
+
+        responses.sort(NEWEST_FIRST);
+        return responses;
+    }
+
+    /**
+     * Equivale a (responseDate, responseId) < (after.date, after.id).
+     */
+    private static boolean isAfter(Response response, KeysetCursor after) {
+
+        if (after == null) {
+            return true;
+        }
+
+        int comparison = response.getResponseDate().compareTo(after.getDate());
+        return comparison < 0 || comparison == 0 && response.getResponseId() < after.getId();
+    }
+}
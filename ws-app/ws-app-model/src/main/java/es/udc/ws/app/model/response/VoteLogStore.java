@@ -0,0 +1,581 @@
+package es.udc.ws.app.model.response;
+
+import es.udc.ws.app.model.util.memory.LongHashMap;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import es.udc.ws.util.configuration.ConfigurationParametersManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.SQLTransactionRollbackException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Almacén de respuestas de {@link VoteLogSqlResponseDao}: un registro de votos
+ * sólo de añadir ({@link VoteLog}) y, en memoria, el voto vigente de cada
+ * empleado en cada encuesta, con la posición de su registro.
+ * <p>
+ * Al arrancar, el índice se reconstruye leyendo el registro completo. Los
+ * registros sustituidos por otros posteriores quedan muertos: cuando se llena
+ * un segmento, un hilo en segundo plano compacta los segmentos llenos con menos
+ * de compactionLiveRatio registros vivos, copiando los vivos al final del
+ * registro y borrando el segmento.
+ * <p>
+ * Las transacciones bloquean cada (encuesta, empleado) que modifican hasta
+ * terminar, como los bloqueos de fila de InnoDB, en una de {@link #KEY_LOCKS}
+ * franjas. Si un cerrojo no se obtiene en lockWaitTimeoutMillis, la operación
+ * falla con el error de MySQL para un tiempo de espera de bloqueo agotado, de
+ * modo que TransactionTemplate repite la transacción.
+ */
+public class VoteLogStore {
+
+    /**
+     * Voto de un empleado en una encuesta, o su borrado, con la posición de su
+     * registro en el log (-1 si aún no se ha escrito).
+     */
+    static final class Vote {
+
+        private final long responseId;
+        private final long surveyId;
+        private final String email;
+        private final int type;
+        private final long responseDate;
+        private final long location;
+
+        Vote(long responseId, long surveyId, String email, int type, long responseDate, long location) {
+            this.responseId = responseId;
+            this.surveyId = surveyId;
+            this.email = email;
+            this.type = type;
+            this.responseDate = responseDate;
+            this.location = location;
+        }
+
+        Vote(long responseId, long surveyId, String email, boolean response, LocalDateTime responseDate) {
+            this(responseId, surveyId, email, response ? VoteLog.POSITIVE : VoteLog.NEGATIVE,
+                    responseDate.toEpochSecond(ZoneOffset.UTC), -1);
+        }
+
+        Vote removed() {
+            return new Vote(responseId, surveyId, email, VoteLog.REMOVED, responseDate, -1);
+        }
+
+        long getResponseId() {
+            return responseId;
+        }
+
+        long getSurveyId() {
+            return surveyId;
+        }
+
+        String getEmail() {
+            return email;
+        }
+
+        boolean isRemoved() {
+            return type == VoteLog.REMOVED;
+        }
+
+        boolean isPositive() {
+            return type == VoteLog.POSITIVE;
+        }
+
+        Response toResponse() {
+            return new Response(responseId, surveyId, email, isPositive(),
+                    LocalDateTime.ofEpochSecond(responseDate, 0, ZoneOffset.UTC));
+        }
+    }
+
+    /**
+     * Votos vigentes de una encuesta, indexados por email.
+     */
+    private static final class SurveyVotes {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, Vote> byEmail = new HashMap<>();
+    }
+
+    /**
+     * Porción del índice por responseId.
+     */
+    private static final class ResponseSegment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LongHashMap<Vote> votes = new LongHashMap<>();
+    }
+
+    private final static String DIRECTORY_PARAMETER = "VoteLogStore.directory";
+    private final static String SEGMENT_SIZE_MEGABYTES_PARAMETER = "VoteLogStore.segmentSizeMegabytes";
+    private final static String SYNC_ON_COMMIT_PARAMETER = "VoteLogStore.syncOnCommit";
+    private final static String COMPACTION_LIVE_RATIO_PARAMETER = "VoteLogStore.compactionLiveRatio";
+    private final static String LOCK_WAIT_TIMEOUT_MILLIS_PARAMETER = "VoteLogStore.lockWaitTimeoutMillis";
+
+    private final static int KEY_LOCKS = 1024;
+    private final static int RESPONSE_SEGMENTS = 64;
+    private final static int MYSQL_LOCK_WAIT_TIMEOUT = 1205;
+
+    private static VoteLogStore instance = null;
+
+    private final VoteLog log;
+    private final boolean syncOnCommit;
+    private final double compactionLiveRatio;
+    private final long lockWaitTimeoutNanos;
+
+    private final ReentrantLock[] keyLocks = new ReentrantLock[KEY_LOCKS];
+    private final ResponseSegment[] responseSegments = new ResponseSegment[RESPONSE_SEGMENTS];
+    private final ConcurrentSkipListMap<Long, SurveyVotes> surveys = new ConcurrentSkipListMap<>();
+    // Registros vivos (apuntados por el índice) de cada segmento del log
+    private final Map<Integer, AtomicInteger> liveRecords = new ConcurrentHashMap<>();
+    private final AtomicLong lastResponseId = new AtomicLong();
+
+    private final ExecutorService compactor;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final LongAdder compactionsCounter;
+    private final LongAdder compactionFailuresCounter;
+    private final LongAdder revertFailuresCounter;
+
+    /**
+     * Abre el registro del directorio y reconstruye el índice a partir de él.
+     * @param syncOnCommit si cada commit espera a que sus registros estén en
+     * disco; si no, sobreviven a una caída del proceso pero no a una del sistema.
+     */
+    public VoteLogStore(Path directory, int segmentSize, boolean syncOnCommit, double compactionLiveRatio,
+            long lockWaitTimeoutMillis, MetricsRegistry registry) throws IOException {
+
+        for (int i = 0; i < KEY_LOCKS; i++) {
+            keyLocks[i] = new ReentrantLock();
+        }
+        for (int i = 0; i < RESPONSE_SEGMENTS; i++) {
+            responseSegments[i] = new ResponseSegment();
+        }
+        this.syncOnCommit = syncOnCommit;
+        this.compactionLiveRatio = compactionLiveRatio;
+        this.lockWaitTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(lockWaitTimeoutMillis);
+
+        compactionsCounter = registry.counter("vote_log_compactions");
+        compactionFailuresCounter = registry.counter("vote_log_compaction_failures");
+        revertFailuresCounter = registry.counter("vote_log_revert_failures");
+
+        log = new VoteLog(directory, segmentSize);
+        log.replay((location, responseId, surveyId, email, type, responseDate) -> {
+            apply(new Vote(responseId, surveyId, email, type, responseDate, location));
+            if (responseId > lastResponseId.get()) {
+                lastResponseId.set(responseId);
+            }
+        });
+
+        compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vote-log-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Instancia compartida por los DAO, configurada con los parámetros
+     * VoteLogStore.*. Se cierra, llevando a disco lo pendiente, al terminar la JVM.
+     */
+    public synchronized static VoteLogStore getInstance() {
+
+        if (instance == null) {
+            try {
+                instance = new VoteLogStore(
+                        Path.of(ConfigurationParametersManager.getParameter(DIRECTORY_PARAMETER)),
+                        Integer.parseInt(ConfigurationParametersManager.getParameter(
+                                SEGMENT_SIZE_MEGABYTES_PARAMETER)) << 20,
+                        Boolean.parseBoolean(ConfigurationParametersManager.getParameter(SYNC_ON_COMMIT_PARAMETER)),
+                        Double.parseDouble(ConfigurationParametersManager.getParameter(
+                                COMPACTION_LIVE_RATIO_PARAMETER)),
+                        Long.parseLong(ConfigurationParametersManager.getParameter(
+                                LOCK_WAIT_TIMEOUT_MILLIS_PARAMETER)),
+                        MetricsRegistry.getInstance());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            VoteLogStore store = instance;
+            Runtime.getRuntime().addShutdownHook(new Thread(store::close, "vote-log-close"));
+        }
+        return instance;
+    }
+
+    long nextResponseId() {
+        return lastResponseId.incrementAndGet();
+    }
+
+    /**
+     * Bloquea el voto del empleado en la encuesta hasta que quien llama libere
+     * los cerrojos de heldLocks (si ya tenía el de su franja, no hace nada).
+     */
+    void lock(List<Lock> heldLocks, long surveyId, String email) {
+
+        Lock lock = keyLock(surveyId, email);
+
+        for (Lock heldLock : heldLocks) {
+            if (heldLock == lock) {
+                return;
+            }
+        }
+
+        try {
+            if (!lock.tryLock(lockWaitTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new RuntimeException(new SQLTransactionRollbackException(
+                        "Lock wait timeout exceeded; try restarting transaction", "40001",
+                        MYSQL_LOCK_WAIT_TIMEOUT));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        heldLocks.add(lock);
+    }
+
+    /**
+     * Voto vigente del empleado en la encuesta, o null si no ha votado.
+     */
+    Vote find(long surveyId, String email) {
+
+        SurveyVotes surveyVotes = surveys.get(surveyId);
+
+        if (surveyVotes == null) {
+            return null;
+        }
+
+        surveyVotes.lock.readLock().lock();
+        try {
+            return surveyVotes.byEmail.get(email);
+        } finally {
+            surveyVotes.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Voto vigente con el identificador, o null si no existe.
+     */
+    Vote find(long responseId) {
+
+        ResponseSegment segment = responseSegment(responseId);
+
+        segment.lock.lock();
+        try {
+            return segment.votes.get(responseId);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Encuestas con votos en el registro, aunque estén borrados.
+     */
+    Set<Long> surveyIds() {
+        return surveys.keySet();
+    }
+
+    /**
+     * Votos vigentes de la encuesta, sin orden.
+     */
+    List<Vote> findBySurvey(long surveyId) {
+
+        SurveyVotes surveyVotes = surveys.get(surveyId);
+
+        if (surveyVotes == null) {
+            return new ArrayList<>();
+        }
+
+        surveyVotes.lock.readLock().lock();
+        try {
+            return new ArrayList<>(surveyVotes.byEmail.values());
+        } finally {
+            surveyVotes.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Si alguna vez se ha votado en la encuesta, lo que prueba que existe.
+     */
+    boolean hasVotes(long surveyId) {
+        return surveys.containsKey(surveyId);
+    }
+
+    List<ResponseCounts> countBySurveyIdRange(long firstSurveyId, long lastSurveyId) {
+
+        List<ResponseCounts> counts = new ArrayList<>();
+
+        for (Map.Entry<Long, SurveyVotes> entry : surveys.subMap(firstSurveyId, true, lastSurveyId, true)
+                .entrySet()) {
+
+            SurveyVotes surveyVotes = entry.getValue();
+            long positiveResponses = 0;
+            long responses;
+
+            surveyVotes.lock.readLock().lock();
+            try {
+                for (Vote vote : surveyVotes.byEmail.values()) {
+                    if (vote.isPositive()) {
+                        positiveResponses++;
+                    }
+                }
+                responses = surveyVotes.byEmail.size();
+            } finally {
+                surveyVotes.lock.readLock().unlock();
+            }
+
+            if (responses > 0) {
+                counts.add(new ResponseCounts(entry.getKey(), positiveResponses, responses - positiveResponses));
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * Escribe los votos al final del registro y, con syncOnCommit, espera a
+     * que estén en disco. No cambia el índice: ver {@link #apply(List, long[])}.
+     * @return la posición de cada voto.
+     */
+    long[] append(List<Vote> votes) {
+
+        long[] locations = new long[votes.size()];
+        boolean sealed;
+
+        synchronized (log) {
+            long start = log.end();
+            try {
+                for (int i = 0; i < votes.size(); i++) {
+                    Vote vote = votes.get(i);
+                    locations[i] = log.append(vote.responseId, vote.surveyId, vote.email, vote.type,
+                            vote.responseDate);
+                }
+                if (syncOnCommit) {
+                    log.force(start);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            sealed = VoteLog.segmentOf(log.end()) != VoteLog.segmentOf(start);
+        }
+
+        if (sealed) {
+            scheduleCompaction();
+        }
+        return locations;
+    }
+
+    /**
+     * Hace visibles en el índice los votos ya escritos por {@link #append(List)}.
+     */
+    void apply(List<Vote> votes, long[] locations) {
+        for (int i = 0; i < votes.size(); i++) {
+            Vote vote = votes.get(i);
+            apply(new Vote(vote.responseId, vote.surveyId, vote.email, vote.type, vote.responseDate,
+                    locations[i]));
+        }
+    }
+
+    /**
+     * Anula votos escritos por {@link #append(List)} cuya transacción no llegó
+     * a confirmarse, volviendo a escribir detrás de ellos el estado vigente de
+     * cada respuesta. Si falla, la transacción deshecha podría reaparecer al
+     * reconstruir el índice; los contadores de las encuestas se corregirían
+     * entonces con SurveyCounterReconciler.
+     */
+    void revert(List<Vote> votes) {
+
+        Map<Long, Vote> reverted = new LinkedHashMap<>();
+
+        for (Vote vote : votes) {
+            if (!reverted.containsKey(vote.responseId)) {
+                Vote current = find(vote.responseId);
+                reverted.put(vote.responseId, current != null ? current : vote.removed());
+            }
+        }
+
+        try {
+            append(new ArrayList<>(reverted.values()));
+        } catch (RuntimeException e) {
+            revertFailuresCounter.increment();
+        }
+    }
+
+    /**
+     * Compacta los segmentos llenos con menos de compactionLiveRatio registros
+     * vivos: copia sus votos vigentes al final del registro, los lleva a disco
+     * y borra el segmento.
+     */
+    public void compact() throws IOException {
+
+        List<Integer> sealedSegments;
+        int capacity;
+
+        synchronized (log) {
+            sealedSegments = log.sealedSegments();
+            capacity = log.getSegmentSize() / VoteLog.RECORD_SIZE;
+        }
+
+        for (int i = 0; i < sealedSegments.size(); i++) {
+            int segment = sealedSegments.get(i);
+            AtomicInteger live = liveRecords.get(segment);
+            if (live == null || live.get() < compactionLiveRatio * capacity) {
+                compactSegment(segment, i == 0);
+            }
+        }
+    }
+
+    /**
+     * Lleva a disco lo pendiente y detiene la compactación.
+     */
+    public void close() {
+
+        compactor.shutdownNow();
+
+        synchronized (log) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void compactSegment(int segment, boolean oldest) throws IOException {
+
+        List<Vote> candidates = new ArrayList<>();
+
+        // Los segmentos llenos no cambian: se buscan los votos vivos y, si hay
+        // segmentos anteriores, los borrados que aún ocultan votos de ellos
+        synchronized (log) {
+            log.readSegment(segment, (location, responseId, surveyId, email, type, responseDate) -> {
+                Vote current = find(responseId);
+                if (current != null ? current.location == location : type == VoteLog.REMOVED && !oldest) {
+                    candidates.add(new Vote(responseId, surveyId, email, type, responseDate, location));
+                }
+            });
+        }
+
+        long start;
+        synchronized (log) {
+            start = log.end();
+        }
+
+        for (Vote candidate : candidates) {
+            // Con el cerrojo del voto, ninguna transacción puede estar
+            // escribiendo una versión más reciente
+            Lock lock = keyLock(candidate.surveyId, candidate.email);
+            lock.lock();
+            try {
+                Vote current = find(candidate.responseId);
+                if (current != null ? current.location == candidate.location : candidate.isRemoved()) {
+                    long location;
+                    synchronized (log) {
+                        location = log.append(candidate.responseId, candidate.surveyId, candidate.email,
+                                candidate.type, candidate.responseDate);
+                    }
+                    if (current != null) {
+                        apply(new Vote(current.responseId, current.surveyId, current.email, current.type,
+                                current.responseDate, location));
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        synchronized (log) {
+            log.force(start);
+            log.deleteSegment(segment);
+        }
+        liveRecords.remove(segment);
+        compactionsCounter.increment();
+    }
+
+    private void scheduleCompaction() {
+        if (compactionScheduled.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                compactionScheduled.set(false);
+                try {
+                    compact();
+                } catch (IOException | RuntimeException e) {
+                    compactionFailuresCounter.increment();
+                }
+            });
+        }
+    }
+
+    /**
+     * Sustituye en el índice el voto con el mismo responseId (o lo elimina, si
+     * es un borrado) y actualiza los registros vivos de los segmentos.
+     */
+    private void apply(Vote vote) {
+
+        ResponseSegment segment = responseSegment(vote.responseId);
+        Vote previous;
+
+        segment.lock.lock();
+        try {
+            previous = vote.isRemoved() ? segment.votes.remove(vote.responseId)
+                    : segment.votes.put(vote.responseId, vote);
+        } finally {
+            segment.lock.unlock();
+        }
+
+        SurveyVotes surveyVotes = surveys.computeIfAbsent(vote.surveyId, surveyId -> new SurveyVotes());
+
+        surveyVotes.lock.writeLock().lock();
+        try {
+            if (vote.isRemoved()) {
+                // Un borrado copiado por la compactación puede llegar después
+                // de una respuesta nueva del mismo empleado
+                Vote current = surveyVotes.byEmail.get(vote.email);
+                if (current != null && current.responseId == vote.responseId) {
+                    surveyVotes.byEmail.remove(vote.email);
+                }
+            } else {
+                surveyVotes.byEmail.put(vote.email, vote);
+            }
+        } finally {
+            surveyVotes.lock.writeLock().unlock();
+        }
+
+        if (previous != null) {
+            AtomicInteger live = liveRecords.get(VoteLog.segmentOf(previous.location));
+            if (live != null) {
+                live.decrementAndGet();
+            }
+        }
+        if (!vote.isRemoved()) {
+            liveRecords.computeIfAbsent(VoteLog.segmentOf(vote.location), location -> new AtomicInteger())
+                    .incrementAndGet();
+        }
+    }
+
+    private Lock keyLock(long surveyId, String email) {
+        return keyLocks[spread(surveyId * 31 + email.hashCode()) & (KEY_LOCKS - 1)];
+    }
+
+    private ResponseSegment responseSegment(long responseId) {
+        return responseSegments[spread(responseId) & (RESPONSE_SEGMENTS - 1)];
+    }
+
+    private static int spread(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
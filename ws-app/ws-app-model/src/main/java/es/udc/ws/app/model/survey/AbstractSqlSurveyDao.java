@@ -28,9 +28,14 @@ public abstract class AbstractSqlSurveyDao implements SqlSurveyDao {
         boolean canceled = resultSet.getBoolean(5);
         long positiveResponses = resultSet.getLong(6);
         long negativeResponses = resultSet.getLong(7);
+        int counterShards = resultSet.getInt(8);
+        SurveyStatus status = SurveyStatus.valueOf(resultSet.getString(9));
 
-        return new Survey(surveyId, question, creationDate, endDate, canceled,
+        Survey survey = new Survey(surveyId, question, creationDate, endDate, canceled,
                 positiveResponses, negativeResponses);
+        survey.setCounterShards(counterShards);
+        survey.setStatus(status);
+        return survey;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,465 @@
+package es.udc.ws.app.model.survey;
+
+import es.udc.ws.app.model.util.KeysetCursor;
+import es.udc.ws.app.model.util.TransactionTemplate;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import es.udc.ws.util.configuration.ConfigurationParametersManager;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Decorador de {@link SqlSurveyDao} que guarda en memoria las encuestas leídas
+ * con find, para que findSurvey y getResponses no accedan a la BD en cada
+ * petición. La caché está acotada en tamaño (se descarta la encuesta usada hace
+ * más tiempo) y en tiempo de vida.
+ * <p>
+ * Las escrituras se aplican a la caché cuando la transacción de
+ * TransactionTemplate hace commit: los votos suman su incremento a los
+ * contadores de la entrada, y el resto de escrituras (cancelación, fin,
+ * cambios de la encuesta) la descartan. Si la transacción se deshace, la
+ * entrada no cambia.
+ * <p>
+ * Una lectura de la BD que coincide en el tiempo con una escritura de la misma
+ * encuesta puede ver el valor anterior al commit. Si la escritura era un voto,
+ * la entrada se guarda como aproximada y caduca a los counterTtlMillis, sin
+ * recibir incrementos (podría contar dos veces el voto); si era otra
+ * escritura, no se cachea. Las escrituras en modo autocommit se aplican en el
+ * momento; las de transacciones ajenas a TransactionTemplate, de las que no se
+ * sabe cuándo se confirman, descartan la entrada en el momento.
+ * <p>
+ * Los aciertos, fallos y descartes se publican como contadores de
+ * {@link MetricsRegistry} (survey_cache_hits, survey_cache_misses y
+ * survey_cache_evictions).
+ */
+public class CachingSqlSurveyDao implements SqlSurveyDao {
+
+    private final static String DELEGATE_CLASS_NAME_PARAMETER = "CachingSqlSurveyDao.delegateClassName";
+    private final static String MAX_SIZE_PARAMETER = "CachingSqlSurveyDao.maxSize";
+    private final static String TTL_SECONDS_PARAMETER = "CachingSqlSurveyDao.ttlSeconds";
+    private final static String COUNTER_TTL_MILLIS_PARAMETER = "CachingSqlSurveyDao.counterTtlMillis";
+
+    // Número de franjas en que se reparten las encuestas para seguir sus escrituras
+    private static final int WRITE_STRIPES = 1024;
+
+    private static class CacheEntry {
+
+        private final Survey survey;
+        private final long expirationTime;
+        // Si es false, puede no incluir votos confirmados mientras se leía
+        private final boolean exact;
+
+        private CacheEntry(Survey survey, long expirationTime, boolean exact) {
+            this.survey = survey;
+            this.expirationTime = expirationTime;
+            this.exact = exact;
+        }
+    }
+
+    /**
+     * Escrituras en curso por franja de encuestas. Cada franja es un long con
+     * las escrituras empezadas o terminadas (32 bits altos) y las que siguen
+     * sin terminar (32 bits bajos), para leer ambos valores a la vez.
+     */
+    private static class WriteTracker {
+
+        private static final long CHANGE = 1L << 32;
+
+        private final AtomicLongArray stripes = new AtomicLongArray(WRITE_STRIPES);
+
+        private void begin(Long surveyId) {
+            stripes.addAndGet(stripe(surveyId), CHANGE + 1);
+        }
+
+        private void end(Long surveyId) {
+            stripes.addAndGet(stripe(surveyId), CHANGE - 1);
+        }
+
+        /**
+         * Estado de la franja antes de leer de la BD, o -1 si hay escrituras
+         * sin terminar.
+         */
+        private long stamp(Long surveyId) {
+            long value = stripes.get(stripe(surveyId));
+            return (int) value == 0 ? value : -1;
+        }
+
+        /**
+         * Indica si no ha empezado ni terminado ninguna escritura desde stamp.
+         */
+        private boolean unchanged(Long surveyId, long stamp) {
+            return stamp >= 0 && stripes.get(stripe(surveyId)) == stamp;
+        }
+
+        private static int stripe(Long surveyId) {
+            return (int) Math.floorMod(surveyId, (long) WRITE_STRIPES);
+        }
+    }
+
+    /**
+     * Escritura pendiente de aplicar a la caché en el commit: un incremento de
+     * contadores o, si counters es false, el descarte de la entrada.
+     */
+    private static class PendingWrite {
+
+        private final Long surveyId;
+        private final boolean counters;
+        private final long positiveDelta;
+        private final long negativeDelta;
+
+        private PendingWrite(Long surveyId, boolean counters, long positiveDelta, long negativeDelta) {
+            this.surveyId = surveyId;
+            this.counters = counters;
+            this.positiveDelta = positiveDelta;
+            this.negativeDelta = negativeDelta;
+        }
+    }
+
+    /**
+     * Escrituras de una transacción, que se aplican a la caché tras su commit.
+     */
+    private class CacheTransaction implements TransactionTemplate.TransactionResource {
+
+        private final List<PendingWrite> pendingWrites = new ArrayList<>();
+        // Escrituras empezadas, también las deshechas con un savepoint
+        private final List<PendingWrite> begunWrites = new ArrayList<>();
+        private final Map<Savepoint, Integer> savepoints = new IdentityHashMap<>();
+
+        private void add(PendingWrite write) {
+            (write.counters ? counterWrites : surveyWrites).begin(write.surveyId);
+            begunWrites.add(write);
+            pendingWrites.add(write);
+        }
+
+        @Override
+        public void prepare() {
+        }
+
+        @Override
+        public void complete(boolean committed) {
+            if (committed) {
+                pendingWrites.forEach(CachingSqlSurveyDao.this::apply);
+            }
+            for (PendingWrite write : begunWrites) {
+                (write.counters ? counterWrites : surveyWrites).end(write.surveyId);
+            }
+        }
+
+        @Override
+        public void savepoint(Savepoint savepoint) {
+            savepoints.put(savepoint, pendingWrites.size());
+        }
+
+        @Override
+        public void rollbackTo(Savepoint savepoint) {
+            // Si el savepoint es anterior al recurso, se deshace todo
+            Integer size = savepoints.get(savepoint);
+            pendingWrites.subList(size == null ? 0 : size, pendingWrites.size()).clear();
+        }
+    }
+
+    private final SqlSurveyDao delegate;
+    private final long ttlNanos;
+    private final long counterTtlNanos;
+    private final Map<Long, CacheEntry> cache;
+    private final WriteTracker counterWrites = new WriteTracker();
+    private final WriteTracker surveyWrites = new WriteTracker();
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    public CachingSqlSurveyDao() {
+        this(SqlSurveyDaoFactory.getInstance(DELEGATE_CLASS_NAME_PARAMETER),
+                Integer.parseInt(ConfigurationParametersManager.getParameter(MAX_SIZE_PARAMETER)),
+                Long.parseLong(ConfigurationParametersManager.getParameter(TTL_SECONDS_PARAMETER)),
+                Long.parseLong(ConfigurationParametersManager.getParameter(COUNTER_TTL_MILLIS_PARAMETER)),
+                MetricsRegistry.getInstance());
+    }
+
+    public CachingSqlSurveyDao(SqlSurveyDao delegate, int maxSize, long ttlSeconds, long counterTtlMillis,
+            MetricsRegistry registry) {
+        this.delegate = delegate;
+        hits = registry.counter("survey_cache_hits");
+        misses = registry.counter("survey_cache_misses");
+        // Entradas descartadas por falta de espacio o por caducar
+        evictions = registry.counter("survey_cache_evictions");
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.counterTtlNanos = Math.min(ttlNanos, TimeUnit.MILLISECONDS.toNanos(counterTtlMillis));
+        // LinkedHashMap en orden de acceso: la primera entrada es la menos usada
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized int getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public Survey create(Connection connection, Survey survey) {
+        // No se cachea: la transacción todavía puede deshacerse
+        return delegate.create(connection, survey);
+    }
+
+    @Override
+    public void createBatch(Connection connection, List<Survey> surveys) {
+        delegate.createBatch(connection, surveys);
+    }
+
+    @Override
+    public void update(Connection connection, Survey survey) throws InstanceNotFoundException {
+        delegate.update(connection, survey);
+        written(connection, survey.getSurveyId());
+    }
+
+    @Override
+    public boolean cancel(Connection connection, Long surveyId) {
+        boolean canceled = delegate.cancel(connection, surveyId);
+        written(connection, surveyId);
+        return canceled;
+    }
+
+    @Override
+    public int finish(Connection connection, Collection<Long> surveyIds) {
+        int finished = delegate.finish(connection, surveyIds);
+        for (Long surveyId : surveyIds) {
+            written(connection, surveyId);
+        }
+        return finished;
+    }
+
+    @Override
+    public int updateCounters(Connection connection, Long surveyId, int shardKey,
+            long positiveDelta, long negativeDelta) {
+        int shard = delegate.updateCounters(connection, surveyId, shardKey, positiveDelta, negativeDelta);
+        if (shard < 0) {
+            // El rechazo indica que la copia cacheada puede no reflejar una
+            // cancelación o un fin recientes
+            invalidate(surveyId);
+        } else {
+            countersUpdated(connection, surveyId, positiveDelta, negativeDelta);
+        }
+        return shard;
+    }
+
+    @Override
+    public boolean acceptsResponses(Connection connection, Long surveyId) {
+        boolean accepts = delegate.acceptsResponses(connection, surveyId);
+        if (!accepts) {
+            // Como en updateCounters: la copia cacheada puede estar desfasada
+            invalidate(surveyId);
+        }
+        return accepts;
+    }
+
+    @Override
+    public void updateCounterShards(Connection connection, Long surveyId, int counterShards)
+            throws InstanceNotFoundException {
+        delegate.updateCounterShards(connection, surveyId, counterShards);
+        written(connection, surveyId);
+    }
+
+    @Override
+    public boolean repairCounters(Connection connection, Long surveyId,
+            long expectedPositive, long expectedNegative, long positiveResponses, long negativeResponses) {
+        boolean repaired = delegate.repairCounters(connection, surveyId, expectedPositive, expectedNegative,
+                positiveResponses, negativeResponses);
+        written(connection, surveyId);
+        return repaired;
+    }
+
+    @Override
+    public Survey find(Connection connection, Long surveyId) throws InstanceNotFoundException {
+
+        Survey cachedSurvey = getCached(surveyId);
+
+        // La transacción que ha votado debe ver sus propios votos
+        if (cachedSurvey != null && counterWrites.stamp(surveyId) < 0 && writesCounters(connection, surveyId)) {
+            return delegate.find(connection, surveyId);
+        }
+
+        if (cachedSurvey != null) {
+            hits.increment();
+            return cachedSurvey;
+        }
+
+        misses.increment();
+        long surveyStamp = surveyWrites.stamp(surveyId);
+        long counterStamp = counterWrites.stamp(surveyId);
+        Survey survey = delegate.find(connection, surveyId);
+
+        // Se comprueba con el cerrojo tomado: un commit posterior ya encuentra
+        // la entrada, y uno anterior ha cambiado la franja
+        synchronized (this) {
+            if (surveyWrites.unchanged(surveyId, surveyStamp)) {
+                boolean exact = counterWrites.unchanged(surveyId, counterStamp);
+                cache.put(surveyId, new CacheEntry(copy(survey),
+                        System.nanoTime() + (exact ? ttlNanos : counterTtlNanos), exact));
+            }
+        }
+
+        return survey;
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture) {
+        return delegate.findByKeyword(connection, keyword, onlyFuture);
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            Collection<Long> surveyIds, LocalDateTime createdSince) {
+        return delegate.findByKeyword(connection, keyword, onlyFuture, surveyIds, createdSince);
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            KeysetCursor after, int count) {
+        return delegate.findByKeyword(connection, keyword, onlyFuture, after, count);
+    }
+
+    @Override
+    public void streamByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            Consumer<Survey> consumer) {
+        delegate.streamByKeyword(connection, keyword, onlyFuture, consumer);
+    }
+
+    @Override
+    public List<Survey> findAfter(Connection connection, Long surveyId, int count) {
+        return delegate.findAfter(connection, surveyId, count);
+    }
+
+    @Override
+    public List<Survey> findCreatedAfter(Connection connection, KeysetCursor after, int count) {
+        return delegate.findCreatedAfter(connection, after, count);
+    }
+
+    @Override
+    public List<Survey> findOpen(Connection connection, KeysetCursor after, int count) {
+        return delegate.findOpen(connection, after, count);
+    }
+
+    @Override
+    public void remove(Connection connection, Long surveyId) throws InstanceNotFoundException {
+        delegate.remove(connection, surveyId);
+        written(connection, surveyId);
+    }
+
+    private synchronized Survey getCached(Long surveyId) {
+
+        CacheEntry entry = cache.get(surveyId);
+
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expirationTime >= 0) {
+            cache.remove(surveyId);
+            evictions.increment();
+            return null;
+        }
+
+        return copy(entry.survey);
+    }
+
+    private synchronized void invalidate(Long surveyId) {
+        cache.remove(surveyId);
+    }
+
+    /**
+     * Se ha modificado la encuesta (no sólo sus contadores): se descarta su
+     * entrada ya, para que esta transacción no lea la copia anterior, y de
+     * nuevo tras el commit.
+     */
+    private void written(Connection connection, Long surveyId) {
+        invalidate(surveyId);
+        register(connection, new PendingWrite(surveyId, false, 0, 0));
+    }
+
+    private void countersUpdated(Connection connection, Long surveyId, long positiveDelta, long negativeDelta) {
+        register(connection, new PendingWrite(surveyId, true, positiveDelta, negativeDelta));
+    }
+
+    private boolean writesCounters(Connection connection, Long surveyId) {
+        CacheTransaction transaction = TransactionTemplate.resource(connection, this, CacheTransaction::new);
+        return transaction != null && transaction.pendingWrites.stream()
+                .anyMatch(write -> write.counters && write.surveyId.equals(surveyId));
+    }
+
+    private void register(Connection connection, PendingWrite write) {
+
+        CacheTransaction transaction = TransactionTemplate.resource(connection, this, CacheTransaction::new);
+
+        if (transaction != null) {
+            transaction.add(write);
+            return;
+        }
+
+        try {
+            if (connection.getAutoCommit()) {
+                // Ya está confirmada
+                WriteTracker tracker = write.counters ? counterWrites : surveyWrites;
+                tracker.begin(write.surveyId);
+                apply(write);
+                tracker.end(write.surveyId);
+            } else {
+                invalidate(write.surveyId);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Aplica a la caché una escritura confirmada.
+     */
+    private synchronized void apply(PendingWrite write) {
+
+        if (!write.counters) {
+            cache.remove(write.surveyId);
+            return;
+        }
+
+        CacheEntry entry = cache.get(write.surveyId);
+        if (entry == null) {
+            return;
+        }
+        if (entry.exact) {
+            entry.survey.setPositiveResponses(entry.survey.getPositiveResponses() + write.positiveDelta);
+            entry.survey.setNegativeResponses(entry.survey.getNegativeResponses() + write.negativeDelta);
+        }
+    }
+
+    /**
+     * Las encuestas son mutables (cancelSurvey modifica la que lee), así que
+     * nunca se comparte la instancia cacheada.
+     */
+    private static Survey copy(Survey survey) {
+        Survey copy = new Survey(survey.getSurveyId(), survey.getQuestion(), survey.getCreationDate(),
+                survey.getEndDate(), survey.isCanceled(), survey.getPositiveResponses(),
+                survey.getNegativeResponses());
+        copy.setCounterShards(survey.getCounterShards());
+        copy.setStatus(survey.getStatus());
+        return copy;
+    }
+}
@@ -0,0 +1,350 @@
+package es.udc.ws.app.model.survey;
+
+import es.udc.ws.app.model.survey.InMemorySurveyStore.SurveyRecord;
+import es.udc.ws.app.model.util.KeysetCursor;
+import es.udc.ws.app.model.util.memory.InMemoryTransaction;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Implementación de {@link SqlSurveyDao} sobre {@link InMemorySurveyStore}, sin
+ * BD. Las conexiones deben ser de InMemoryDataSource.
+ * <p>
+ * Cada operación bloquea las encuestas que modifica hasta el final de la
+ * transacción y es atómica, como las sentencias de Jdbc3SqlSurveyDao: las
+ * condiciones de updateCounters, cancel o repairCounters se comprueban y
+ * aplican bajo el mismo cerrojo. Los contadores repartidos no necesitan filas
+ * propias: counterShards sólo determina la fila que devuelve updateCounters.
+ */
+public class InMemorySqlSurveyDao implements SqlSurveyDao {
+
+    // Orden de findByKeyword: creationDate y surveyId descendentes
+    private static final Comparator<Survey> NEWEST_FIRST = Comparator.comparing(Survey::getCreationDate)
+            .thenComparing(Survey::getSurveyId).reversed();
+
+    private final InMemorySurveyStore store;
+
+    public InMemorySqlSurveyDao() {
+        this(InMemorySurveyStore.getInstance());
+    }
+
+    public InMemorySqlSurveyDao(InMemorySurveyStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Survey create(Connection connection, Survey survey) {
+        return InMemoryTransaction.of(connection).statement(transaction -> {
+            survey.setSurveyId(store.nextSurveyId());
+            store.insert(transaction, copyOf(survey));
+            return survey;
+        });
+    }
+
+    @Override
+    public void createBatch(Connection connection, List<Survey> surveys) {
+        InMemoryTransaction.of(connection).statement(transaction -> {
+            for (Survey survey : surveys) {
+                survey.setSurveyId(store.nextSurveyId());
+                store.insert(transaction, copyOf(survey));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void update(Connection connection, Survey survey) throws InstanceNotFoundException {
+        InMemoryTransaction.of(connection).<Void, InstanceNotFoundException>statement(transaction -> {
+            SurveyRecord record = findForUpdate(transaction, survey.getSurveyId());
+            store.update(transaction, record, copyOf(survey));
+            return null;
+        });
+    }
+
+    @Override
+    public boolean cancel(Connection connection, Long surveyId) {
+        return InMemoryTransaction.of(connection).statement(transaction -> {
+
+            SurveyRecord record = store.lockForUpdate(transaction, surveyId);
+
+            if (record == null || !acceptsResponses(record.getSurvey())) {
+                return false;
+            }
+
+            Survey survey = copyOf(record.getSurvey());
+            survey.setCanceled(true);
+            store.update(transaction, record, survey);
+            return true;
+        });
+    }
+
+    @Override
+    public int finish(Connection connection, Collection<Long> surveyIds) {
+        return InMemoryTransaction.of(connection).statement(transaction -> {
+
+            int finished = 0;
+
+            for (SurveyRecord record : store.lockForUpdate(transaction, surveyIds)) {
+                if (record.getSurvey().getStatus() == SurveyStatus.OPEN) {
+                    Survey survey = copyOf(record.getSurvey());
+                    survey.setStatus(SurveyStatus.FINISHED);
+                    store.update(transaction, record, survey);
+                    finished++;
+                }
+            }
+
+            return finished;
+        });
+    }
+
+    @Override
+    public int updateCounters(Connection connection, Long surveyId, int shardKey,
+            long positiveDelta, long negativeDelta) {
+        return InMemoryTransaction.of(connection).statement(transaction -> {
+
+            SurveyRecord record = store.lockForUpdate(transaction, surveyId);
+
+            if (record == null || !acceptsResponses(record.getSurvey())) {
+                return -1;
+            }
+
+            Survey survey = copyOf(record.getSurvey());
+            survey.setPositiveResponses(survey.getPositiveResponses() + positiveDelta);
+            survey.setNegativeResponses(survey.getNegativeResponses() + negativeDelta);
+            store.update(transaction, record, survey);
+
+            return survey.getCounterShards() > 1 ? Math.floorMod(shardKey, survey.getCounterShards()) : 0;
+        });
+    }
+
+    @Override
+    public boolean acceptsResponses(Connection connection, Long surveyId) {
+        return store.read(InMemoryTransaction.of(connection), surveyId,
+                record -> record != null && acceptsResponses(record.getSurvey()));
+    }
+
+    @Override
+    public void updateCounterShards(Connection connection, Long surveyId, int counterShards)
+            throws InstanceNotFoundException {
+        InMemoryTransaction.of(connection).<Void, InstanceNotFoundException>statement(transaction -> {
+            SurveyRecord record = findForUpdate(transaction, surveyId);
+            Survey survey = copyOf(record.getSurvey());
+            survey.setCounterShards(counterShards);
+            store.update(transaction, record, survey);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean repairCounters(Connection connection, Long surveyId,
+            long expectedPositive, long expectedNegative, long positiveResponses, long negativeResponses) {
+        return InMemoryTransaction.of(connection).statement(transaction -> {
+
+            SurveyRecord record = store.lockForUpdate(transaction, surveyId);
+
+            // Control optimista, como en Jdbc3SqlSurveyDao
+            if (record == null || record.getSurvey().getPositiveResponses() != expectedPositive
+                    || record.getSurvey().getNegativeResponses() != expectedNegative) {
+                return false;
+            }
+
+            Survey survey = copyOf(record.getSurvey());
+            survey.setPositiveResponses(positiveResponses);
+            survey.setNegativeResponses(negativeResponses);
+            store.update(transaction, record, survey);
+            return true;
+        });
+    }
+
+    @Override
+    public Survey find(Connection connection, Long surveyId) throws InstanceNotFoundException {
+
+        Survey survey = store.read(InMemoryTransaction.of(connection), surveyId,
+                record -> record == null ? null : record.getSurvey());
+
+        if (survey == null) {
+            throw new InstanceNotFoundException(surveyId, Survey.class.getName());
+        }
+
+        return copyOf(survey);
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture) {
+        return findByKeyword(connection, keyword, onlyFuture, null, 0);
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            Collection<Long> surveyIds, LocalDateTime createdSince) {
+
+        InMemoryTransaction transaction = InMemoryTransaction.of(connection);
+        String pattern = toPattern(keyword);
+        LocalDateTime endsAfter = toEndsAfter(onlyFuture);
+        Map<Long, Survey> surveys = new HashMap<>();
+
+        for (Long surveyId : surveyIds) {
+            Survey survey = store.read(transaction, surveyId, record -> record == null ? null : record.getSurvey());
+            if (survey != null && matches(survey, pattern, endsAfter)) {
+                surveys.put(surveyId, copyOf(survey));
+            }
+        }
+        if (createdSince != null) {
+            store.scanCreatedAfter(transaction, new KeysetCursor(createdSince, 0L), survey -> {
+                if (matches(survey, pattern, endsAfter)) {
+                    surveys.putIfAbsent(survey.getSurveyId(), copyOf(survey));
+                }
+                return true;
+            });
+        }
+
+        List<Survey> sortedSurveys = new ArrayList<>(surveys.values());
+        sortedSurveys.sort(NEWEST_FIRST);
+        return sortedSurveys;
+    }
+
+    @Override
+    public List<Survey> findCreatedAfter(Connection connection, KeysetCursor after, int count) {
+
+        List<Survey> surveys = new ArrayList<>();
+
+        store.scanCreatedAfter(InMemoryTransaction.of(connection), after, survey -> {
+            surveys.add(copyOf(survey));
+            return surveys.size() < count;
+        });
+
+        return surveys;
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            KeysetCursor after, int count) {
+
+        String pattern = toPattern(keyword);
+        LocalDateTime endsAfter = toEndsAfter(onlyFuture);
+        List<Survey> surveys = new ArrayList<>();
+
+        store.scanByCreationDate(InMemoryTransaction.of(connection), after, survey -> {
+            if (matches(survey, pattern, endsAfter)) {
+                surveys.add(copyOf(survey));
+            }
+            return count <= 0 || surveys.size() < count;
+        });
+
+        return surveys;
+    }
+
+    @Override
+    public void streamByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            Consumer<Survey> consumer) {
+
+        String pattern = toPattern(keyword);
+        LocalDateTime endsAfter = toEndsAfter(onlyFuture);
+
+        // El consumidor recibe cada encuesta ya fuera del cerrojo de su franja
+        store.scanByCreationDate(InMemoryTransaction.of(connection), null, survey -> {
+            if (matches(survey, pattern, endsAfter)) {
+                consumer.accept(copyOf(survey));
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public List<Survey> findAfter(Connection connection, Long surveyId, int count) {
+
+        InMemoryTransaction transaction = InMemoryTransaction.of(connection);
+        List<Survey> surveys = new ArrayList<>();
+        long lastSurveyId = store.getLastSurveyId();
+
+        // Los identificadores son consecutivos: basta con probarlos en orden
+        for (long id = surveyId + 1; id <= lastSurveyId && surveys.size() < count; id++) {
+            Survey survey = store.read(transaction, id, record -> record == null ? null : record.getSurvey());
+            if (survey != null) {
+                surveys.add(copyOf(survey));
+            }
+        }
+
+        return surveys;
+    }
+
+    @Override
+    public List<Survey> findOpen(Connection connection, KeysetCursor after, int count) {
+
+        List<Survey> surveys = new ArrayList<>();
+
+        store.scanOpenByEndDate(InMemoryTransaction.of(connection), after, survey -> {
+            surveys.add(copyOf(survey));
+            return surveys.size() < count;
+        });
+
+        return surveys;
+    }
+
+    @Override
+    public void remove(Connection connection, Long surveyId) throws InstanceNotFoundException {
+        InMemoryTransaction.of(connection).<Void, InstanceNotFoundException>statement(transaction -> {
+            store.remove(transaction, findForUpdate(transaction, surveyId));
+            return null;
+        });
+    }
+
+    private SurveyRecord findForUpdate(InMemoryTransaction transaction, Long surveyId)
+            throws InstanceNotFoundException {
+
+        SurveyRecord record = store.lockForUpdate(transaction, surveyId);
+
+        if (record == null) {
+            throw new InstanceNotFoundException(surveyId, Survey.class.getName());
+        }
+
+        return record;
+    }
+
+    private static boolean acceptsResponses(Survey survey) {
+        return !survey.isCanceled() && survey.getStatus() == SurveyStatus.OPEN;
+    }
+
+    /**
+     * Equivale a LOWER(question) LIKE LOWER('%keyword%'); null si no hay palabra clave.
+     */
+    private static String toPattern(String keyword) {
+        return keyword == null || keyword.trim().isEmpty() ? null : keyword.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Equivale a status = 'OPEN' AND endDate > NOW() si onlyFuture; null si no.
+     */
+    private static LocalDateTime toEndsAfter(boolean onlyFuture) {
+        return onlyFuture ? LocalDateTime.now() : null;
+    }
+
+    private static boolean matches(Survey survey, String pattern, LocalDateTime endsAfter) {
+        return (pattern == null || survey.getQuestion().toLowerCase(Locale.ROOT).contains(pattern))
+                && (endsAfter == null || (survey.getStatus() == SurveyStatus.OPEN
+                        && survey.getEndDate().isAfter(endsAfter)));
+    }
+
+    /**
+     * Las filas del almacén no se comparten con quien llama: se guardan y
+     * devuelven copias.
+     */
+    private static Survey copyOf(Survey survey) {
+        Survey copy = new Survey(survey.getSurveyId(), survey.getQuestion(), survey.getCreationDate(),
+                survey.getEndDate(), survey.isCanceled(), survey.getPositiveResponses(),
+                survey.getNegativeResponses());
+        copy.setStatus(survey.getStatus());
+        copy.setCounterShards(survey.getCounterShards());
+        return copy;
+    }
+}
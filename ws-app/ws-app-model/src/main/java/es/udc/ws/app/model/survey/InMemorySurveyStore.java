@@ -0,0 +1,710 @@
+package es.udc.ws.app.model.survey;
+
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.util.KeysetCursor;
+import es.udc.ws.app.model.util.memory.InMemoryTransaction;
+import es.udc.ws.app.model.util.memory.LongHashMap;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import es.udc.ws.util.configuration.ConfigurationParametersManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Datos de los DAO en memoria (InMemorySqlSurveyDao, InMemorySqlResponseDao e
+ * InMemorySqlSurveyStatsDao), que sustituyen a las tablas de MySQL.
+ * <p>
+ * Cada encuesta es un {@link SurveyRecord} con su fila de Survey, sus respuestas
+ * indexadas por email y sus intervalos de estadísticas ordenados por fecha. Las
+ * encuestas se reparten en 64 franjas según su identificador; cada franja
+ * guarda las suyas en una {@link LongHashMap} y tiene un cerrojo de
+ * lectura/escritura que protege todo lo de sus encuestas (ver
+ * {@link InMemoryTransaction}). Las filas no se modifican nunca: se sustituyen
+ * por una copia nueva, así que lo que se lee bajo el cerrojo puede usarse después.
+ * <p>
+ * Dos índices ordenados sin cerrojos permiten recorrer las encuestas por
+ * (creationDate, surveyId) y las abiertas por (endDate, surveyId), y otra tabla
+ * localiza las respuestas por su identificador. Los índices pueden incluir
+ * encuestas aún sin confirmar; al recorrerlos, cada encuesta se lee bajo el
+ * cerrojo de su franja, que espera a que se confirmen.
+ * <p>
+ * Si se configura snapshotFile, los datos se cargan de ese fichero al arrancar
+ * y se vuelcan en él cada snapshotIntervalSeconds y al terminar la JVM. El volcado
+ * toma todos los cerrojos de lectura, así que sólo incluye datos confirmados y
+ * es coherente entre encuestas; lo que se confirme después de la última copia
+ * se pierde si la JVM termina de forma abrupta.
+ */
+public class InMemorySurveyStore {
+
+    /**
+     * Encuesta con sus respuestas y estadísticas. Sólo se accede a ella con el
+     * cerrojo de su franja.
+     */
+    public static final class SurveyRecord {
+
+        private final long surveyId;
+        private Survey survey;
+        private final Map<String, Response> responses = new HashMap<>();
+        private final NavigableMap<LocalDateTime, long[]> stats = new TreeMap<>();
+
+        private SurveyRecord(Survey survey) {
+            this.surveyId = survey.getSurveyId();
+            this.survey = survey;
+        }
+
+        /**
+         * Fila actual de la encuesta; no debe modificarse (ver
+         * {@link InMemorySurveyStore#update(InMemoryTransaction, SurveyRecord, Survey)}).
+         */
+        public Survey getSurvey() {
+            return survey;
+        }
+
+        /**
+         * Respuestas de la encuesta, indexadas por email. Las respuestas no
+         * deben modificarse, sino sustituirse por una copia.
+         */
+        public Map<String, Response> getResponses() {
+            return responses;
+        }
+
+        /**
+         * Intervalos de la encuesta por bucketStart: votos positivos, negativos,
+         * cambios a positivo y cambios a negativo.
+         */
+        public NavigableMap<LocalDateTime, long[]> getStats() {
+            return stats;
+        }
+    }
+
+    private static class Stripe {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final LongHashMap<SurveyRecord> surveys = new LongHashMap<>();
+    }
+
+    private static class ResponseSegment {
+
+        private final Lock lock = new ReentrantLock();
+        // Respuesta tal como se creó: sólo se usan surveyId y employeeEmail, que no cambian
+        private final LongHashMap<Response> responses = new LongHashMap<>();
+    }
+
+    /**
+     * Clave de los índices ordenados.
+     */
+    private static final class DateKey implements Comparable<DateKey> {
+
+        private static final Comparator<DateKey> ORDER =
+                Comparator.<DateKey, LocalDateTime>comparing(key -> key.date).thenComparingLong(key -> key.surveyId);
+
+        private final LocalDateTime date;
+        private final long surveyId;
+
+        private DateKey(LocalDateTime date, long surveyId) {
+            this.date = date;
+            this.surveyId = surveyId;
+        }
+
+        @Override
+        public int compareTo(DateKey other) {
+            return ORDER.compare(this, other);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof DateKey other && surveyId == other.surveyId && date.equals(other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(surveyId) * 31 + date.hashCode();
+        }
+    }
+
+    private final static String SNAPSHOT_FILE_PARAMETER = "InMemorySurveyStore.snapshotFile";
+    private final static String SNAPSHOT_INTERVAL_SECONDS_PARAMETER = "InMemorySurveyStore.snapshotIntervalSeconds";
+
+    private final static int STRIPES = 64;
+    private final static int SNAPSHOT_MAGIC = 0x57534D53;
+    private final static int SNAPSHOT_VERSION = 1;
+    private final static long SNAPSHOT_LOCK_WAIT_MILLIS = 5000;
+
+    private static InMemorySurveyStore instance = null;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final ResponseSegment[] responseSegments = new ResponseSegment[STRIPES];
+    private final ConcurrentSkipListMap<DateKey, SurveyRecord> byCreationDate = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<DateKey, SurveyRecord> openByEndDate = new ConcurrentSkipListMap<>();
+    private final AtomicLong lastSurveyId = new AtomicLong();
+    private final AtomicLong lastResponseId = new AtomicLong();
+
+    private final Path snapshotFile;
+    private final LongAdder snapshotsCounter;
+    private final LongAdder snapshotFailuresCounter;
+
+    /**
+     * @param snapshotFile fichero del que se cargan y en el que se vuelcan los
+     * datos, o null para no usar ninguno.
+     */
+    public InMemorySurveyStore(Path snapshotFile, MetricsRegistry registry) {
+
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+            responseSegments[i] = new ResponseSegment();
+        }
+        this.snapshotFile = snapshotFile;
+        snapshotsCounter = registry.counter("survey_store_snapshots");
+        snapshotFailuresCounter = registry.counter("survey_store_snapshot_failures");
+
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            try {
+                loadSnapshot();
+            } catch (IOException e) {
+                // Mejor no arrancar que arrancar vacío y sobrescribir el volcado
+                throw new RuntimeException("Cannot load snapshot " + snapshotFile, e);
+            }
+        }
+    }
+
+    /**
+     * Instancia compartida por los DAO en memoria, configurada con los
+     * parámetros InMemorySurveyStore.*.
+     */
+    public synchronized static InMemorySurveyStore getInstance() {
+
+        if (instance == null) {
+
+            String snapshotFile = ConfigurationParametersManager.getParameter(SNAPSHOT_FILE_PARAMETER).trim();
+
+            if (snapshotFile.isEmpty()) {
+                instance = new InMemorySurveyStore(null, MetricsRegistry.getInstance());
+            } else {
+                long intervalSeconds = Long.parseLong(
+                        ConfigurationParametersManager.getParameter(SNAPSHOT_INTERVAL_SECONDS_PARAMETER));
+                instance = new InMemorySurveyStore(Path.of(snapshotFile), MetricsRegistry.getInstance());
+                instance.startSnapshots(intervalSeconds);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Vuelca los datos cada intervalSeconds, en un hilo propio que no impide que
+     * termine la JVM, y una última vez al terminar.
+     */
+    private void startSnapshots(long intervalSeconds) {
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "survey-store-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::saveScheduledSnapshot, intervalSeconds, intervalSeconds,
+                TimeUnit.SECONDS);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            scheduler.shutdownNow();
+            saveScheduledSnapshot();
+        }, "survey-store-final-snapshot"));
+    }
+
+    /**
+     * Un volcado que falla no debe cancelar los siguientes.
+     */
+    private void saveScheduledSnapshot() {
+        try {
+            saveSnapshot();
+        } catch (IOException | RuntimeException e) {
+            snapshotFailuresCounter.increment();
+        }
+    }
+
+    public long nextSurveyId() {
+        return lastSurveyId.incrementAndGet();
+    }
+
+    public long nextResponseId() {
+        return lastResponseId.incrementAndGet();
+    }
+
+    /**
+     * Mayor identificador de encuesta asignado hasta ahora.
+     */
+    public long getLastSurveyId() {
+        return lastSurveyId.get();
+    }
+
+    /**
+     * Bloquea la encuesta hasta el final de la transacción.
+     * @return la encuesta, o null si no existe.
+     */
+    public SurveyRecord lockForUpdate(InMemoryTransaction transaction, long surveyId) {
+        Stripe stripe = stripeOf(surveyId);
+        transaction.lockForUpdate(stripe.lock);
+        return stripe.surveys.get(surveyId);
+    }
+
+    /**
+     * Bloquea las encuestas hasta el final de la transacción, en orden de franja
+     * para que dos transacciones que bloquean varias no se esperen mutuamente.
+     * @return las encuestas que existen.
+     */
+    public List<SurveyRecord> lockForUpdate(InMemoryTransaction transaction, Collection<Long> surveyIds) {
+
+        List<Long> sortedIds = new ArrayList<>(surveyIds);
+        sortedIds.sort(Comparator.comparingInt((Long surveyId) -> stripeIndex(surveyId))
+                .thenComparing(Comparator.naturalOrder()));
+
+        List<SurveyRecord> records = new ArrayList<>();
+        for (Long surveyId : sortedIds) {
+            SurveyRecord record = lockForUpdate(transaction, surveyId);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Lee la encuesta bajo el cerrojo de su franja.
+     * @param reader recibe la encuesta, o null si no existe.
+     */
+    public <T> T read(InMemoryTransaction transaction, long surveyId, Function<SurveyRecord, T> reader) {
+        Stripe stripe = stripeOf(surveyId);
+        return transaction.read(stripe.lock, () -> reader.apply(stripe.surveys.get(surveyId)));
+    }
+
+    /**
+     * Añade la encuesta, que ya tiene identificador.
+     */
+    public void insert(InMemoryTransaction transaction, Survey survey) {
+
+        long surveyId = survey.getSurveyId();
+        Stripe stripe = stripeOf(surveyId);
+        transaction.lockForUpdate(stripe.lock);
+
+        SurveyRecord record = new SurveyRecord(survey);
+
+        transaction.onRollback(() -> {
+            stripe.surveys.remove(surveyId);
+            unindex(survey);
+        });
+        stripe.surveys.put(surveyId, record);
+        index(record, survey);
+    }
+
+    /**
+     * Sustituye la fila de una encuesta bloqueada con
+     * {@link #lockForUpdate(InMemoryTransaction, long)}.
+     */
+    public void update(InMemoryTransaction transaction, SurveyRecord record, Survey survey) {
+
+        Survey previous = record.survey;
+
+        transaction.onRollback(() -> {
+            reindex(record, survey, previous);
+            record.survey = previous;
+        });
+        reindex(record, previous, survey);
+        record.survey = survey;
+    }
+
+    /**
+     * Borra una encuesta bloqueada, con sus respuestas y estadísticas.
+     */
+    public void remove(InMemoryTransaction transaction, SurveyRecord record) {
+
+        Stripe stripe = stripeOf(record.surveyId);
+        Survey survey = record.survey;
+
+        transaction.onRollback(() -> {
+            stripe.surveys.put(record.surveyId, record);
+            index(record, survey);
+            record.responses.values().forEach(this::putResponse);
+        });
+        stripe.surveys.remove(record.surveyId);
+        unindex(survey);
+        record.responses.values().forEach(response -> removeResponse(response.getResponseId()));
+    }
+
+    /**
+     * Registra una respuesta nueva en el índice por identificador.
+     */
+    public void indexResponse(InMemoryTransaction transaction, Response response) {
+        transaction.onRollback(() -> removeResponse(response.getResponseId()));
+        putResponse(response);
+    }
+
+    /**
+     * Quita una respuesta borrada del índice por identificador.
+     */
+    public void unindexResponse(InMemoryTransaction transaction, Response response) {
+        transaction.onRollback(() -> putResponse(response));
+        removeResponse(response.getResponseId());
+    }
+
+    /**
+     * Busca una respuesta en el índice por identificador. La respuesta
+     * devuelta sólo sirve para saber su encuesta y su email: su valor actual
+     * se lee de la encuesta. Puede estar aún sin confirmar.
+     * @return la respuesta, o null si no existe.
+     */
+    public Response findResponse(long responseId) {
+
+        ResponseSegment segment = responseSegmentOf(responseId);
+
+        segment.lock.lock();
+        try {
+            return segment.responses.get(responseId);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Recorre las encuestas en orden de creationDate y surveyId descendentes,
+     * desde justo antes de before (desde el principio si es null), mientras el
+     * visitante devuelva true.
+     */
+    public void scanByCreationDate(InMemoryTransaction transaction, KeysetCursor before,
+            Predicate<Survey> visitor) {
+
+        NavigableMap<DateKey, SurveyRecord> records = before == null
+                ? byCreationDate.descendingMap()
+                : byCreationDate.headMap(new DateKey(before.getDate(), before.getId()), false).descendingMap();
+
+        for (Map.Entry<DateKey, SurveyRecord> entry : records.entrySet()) {
+            Survey survey = currentSurvey(transaction, entry.getValue());
+            // Si cambió su creationDate, se visita en su nueva posición
+            if (survey != null && survey.getCreationDate().equals(entry.getKey().date)
+                    && !visitor.test(survey)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Recorre las encuestas en orden de creationDate y surveyId ascendentes,
+     * desde justo después de after (desde el principio si es null), mientras
+     * el visitante devuelva true.
+     */
+    public void scanCreatedAfter(InMemoryTransaction transaction, KeysetCursor after,
+            Predicate<Survey> visitor) {
+
+        NavigableMap<DateKey, SurveyRecord> records = after == null
+                ? byCreationDate
+                : byCreationDate.tailMap(new DateKey(after.getDate(), after.getId()), false);
+
+        for (Map.Entry<DateKey, SurveyRecord> entry : records.entrySet()) {
+            Survey survey = currentSurvey(transaction, entry.getValue());
+            if (survey != null && survey.getCreationDate().equals(entry.getKey().date)
+                    && !visitor.test(survey)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Recorre las encuestas en estado OPEN en orden de endDate y surveyId,
+     * desde justo después de after (desde el principio si es null), mientras
+     * el visitante devuelva true.
+     */
+    public void scanOpenByEndDate(InMemoryTransaction transaction, KeysetCursor after,
+            Predicate<Survey> visitor) {
+
+        NavigableMap<DateKey, SurveyRecord> records = after == null
+                ? openByEndDate
+                : openByEndDate.tailMap(new DateKey(after.getDate(), after.getId()), false);
+
+        for (Map.Entry<DateKey, SurveyRecord> entry : records.entrySet()) {
+            Survey survey = currentSurvey(transaction, entry.getValue());
+            if (survey != null && survey.getStatus() == SurveyStatus.OPEN
+                    && survey.getEndDate().equals(entry.getKey().date) && !visitor.test(survey)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fila confirmada (o de la propia transacción) de una encuesta de un
+     * índice, o null si ya no existe.
+     */
+    private Survey currentSurvey(InMemoryTransaction transaction, SurveyRecord record) {
+        Stripe stripe = stripeOf(record.surveyId);
+        return transaction.read(stripe.lock,
+                () -> stripe.surveys.get(record.surveyId) == record ? record.survey : null);
+    }
+
+    private void index(SurveyRecord record, Survey survey) {
+        byCreationDate.put(new DateKey(survey.getCreationDate(), record.surveyId), record);
+        if (survey.getStatus() == SurveyStatus.OPEN) {
+            openByEndDate.put(new DateKey(survey.getEndDate(), record.surveyId), record);
+        }
+    }
+
+    /**
+     * Mueve la encuesta en los índices sólo si cambian sus claves, para que no
+     * desaparezca de ellos mientras otros los recorren.
+     */
+    private void reindex(SurveyRecord record, Survey previous, Survey survey) {
+
+        if (!previous.getCreationDate().equals(survey.getCreationDate())) {
+            byCreationDate.remove(new DateKey(previous.getCreationDate(), record.surveyId));
+            byCreationDate.put(new DateKey(survey.getCreationDate(), record.surveyId), record);
+        }
+
+        boolean wasOpen = previous.getStatus() == SurveyStatus.OPEN;
+        boolean isOpen = survey.getStatus() == SurveyStatus.OPEN;
+        boolean endDateChanged = !previous.getEndDate().equals(survey.getEndDate());
+
+        if (wasOpen && (!isOpen || endDateChanged)) {
+            openByEndDate.remove(new DateKey(previous.getEndDate(), record.surveyId));
+        }
+        if (isOpen && (!wasOpen || endDateChanged)) {
+            openByEndDate.put(new DateKey(survey.getEndDate(), record.surveyId), record);
+        }
+    }
+
+    private void unindex(Survey survey) {
+        byCreationDate.remove(new DateKey(survey.getCreationDate(), survey.getSurveyId()));
+        openByEndDate.remove(new DateKey(survey.getEndDate(), survey.getSurveyId()));
+    }
+
+    private void putResponse(Response response) {
+
+        ResponseSegment segment = responseSegmentOf(response.getResponseId());
+
+        segment.lock.lock();
+        try {
+            segment.responses.put(response.getResponseId(), response);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    private void removeResponse(long responseId) {
+
+        ResponseSegment segment = responseSegmentOf(responseId);
+
+        segment.lock.lock();
+        try {
+            segment.responses.remove(responseId);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Vuelca los datos confirmados en snapshotFile, sustituyéndolo de forma
+     * atómica cuando el volcado está completo.
+     */
+    public void saveSnapshot() throws IOException {
+
+        if (snapshotFile == null) {
+            throw new IllegalStateException("No snapshot file configured");
+        }
+
+        // Se serializa en memoria con los cerrojos y se escribe sin ellos
+        byte[] snapshot = serialize();
+
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            out.write(snapshot);
+        }
+        Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        snapshotsCounter.increment();
+    }
+
+    private byte[] serialize() throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int locked = 0;
+
+        try {
+            // En orden de franja, como las transacciones que bloquean varias
+            for (; locked < STRIPES; locked++) {
+                if (!stripes[locked].lock.readLock().tryLock(SNAPSHOT_LOCK_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    throw new IOException("Timed out waiting for stripe " + locked);
+                }
+            }
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes));
+            int surveyCount = 0;
+            for (Stripe stripe : stripes) {
+                surveyCount += stripe.surveys.size();
+            }
+
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(lastSurveyId.get());
+            out.writeLong(lastResponseId.get());
+            out.writeInt(surveyCount);
+
+            for (Stripe stripe : stripes) {
+                List<SurveyRecord> records = new ArrayList<>(stripe.surveys.size());
+                stripe.surveys.forEachValue(records::add);
+                for (SurveyRecord record : records) {
+                    writeRecord(out, record);
+                }
+            }
+            out.flush();
+            return bytes.toByteArray();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[i].lock.readLock().unlock();
+            }
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, SurveyRecord record) throws IOException {
+
+        Survey survey = record.survey;
+        out.writeLong(survey.getSurveyId());
+        writeString(out, survey.getQuestion());
+        writeDate(out, survey.getCreationDate());
+        writeDate(out, survey.getEndDate());
+        out.writeBoolean(survey.isCanceled());
+        writeString(out, survey.getStatus().name());
+        out.writeLong(survey.getPositiveResponses());
+        out.writeLong(survey.getNegativeResponses());
+        out.writeInt(survey.getCounterShards());
+
+        out.writeInt(record.responses.size());
+        for (Response response : record.responses.values()) {
+            out.writeLong(response.getResponseId());
+            writeString(out, response.getEmployeeEmail());
+            out.writeBoolean(response.getResponse());
+            writeDate(out, response.getResponseDate());
+        }
+
+        out.writeInt(record.stats.size());
+        for (Map.Entry<LocalDateTime, long[]> bucket : record.stats.entrySet()) {
+            writeDate(out, bucket.getKey());
+            for (long value : bucket.getValue()) {
+                out.writeLong(value);
+            }
+        }
+    }
+
+    /**
+     * Carga el volcado antes de que el almacén se use, así que no toma cerrojos.
+     */
+    private void loadSnapshot() throws IOException {
+
+        try (InputStream file = Files.newInputStream(snapshotFile);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported snapshot format");
+            }
+            lastSurveyId.set(in.readLong());
+            lastResponseId.set(in.readLong());
+
+            for (int surveyCount = in.readInt(); surveyCount > 0; surveyCount--) {
+
+                Survey survey = new Survey(in.readLong(), readString(in), readDate(in), readDate(in),
+                        in.readBoolean(), 0, 0);
+                survey.setStatus(SurveyStatus.valueOf(readString(in)));
+                survey.setPositiveResponses(in.readLong());
+                survey.setNegativeResponses(in.readLong());
+                survey.setCounterShards(in.readInt());
+
+                SurveyRecord record = new SurveyRecord(survey);
+                stripeOf(record.surveyId).surveys.put(record.surveyId, record);
+                index(record, survey);
+
+                for (int responseCount = in.readInt(); responseCount > 0; responseCount--) {
+                    Response response = new Response(in.readLong(), survey.getSurveyId(), readString(in),
+                            in.readBoolean(), readDate(in));
+                    record.responses.put(response.getEmployeeEmail(), response);
+                    putResponse(response);
+                }
+
+                for (int bucketCount = in.readInt(); bucketCount > 0; bucketCount--) {
+                    LocalDateTime bucketStart = readDate(in);
+                    long[] values = new long[4];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = in.readLong();
+                    }
+                    record.stats.put(bucketStart, values);
+                }
+            }
+        }
+    }
+
+    // writeUTF no admite más de 64 KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDateTime date) throws IOException {
+        out.writeLong(date.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(date.getNano());
+    }
+
+    private static LocalDateTime readDate(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private Stripe stripeOf(long surveyId) {
+        return stripes[stripeIndex(surveyId)];
+    }
+
+    private ResponseSegment responseSegmentOf(long responseId) {
+        return responseSegments[stripeIndex(responseId)];
+    }
+
+    /**
+     * Los bits altos del hash multiplicativo reparten los identificadores,
+     * que son consecutivos, entre las franjas.
+     */
+    private static int stripeIndex(long id) {
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 58);
+    }
+}
@@ -1,21 +1,49 @@
 package es.udc.ws.app.model.survey;
 
+import es.udc.ws.app.model.util.KeysetCursor;
 import es.udc.ws.util.exceptions.InstanceNotFoundException;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class Jdbc3SqlSurveyDao extends AbstractSqlSurveyDao {
 
+    // Votos sumados en las filas de SurveyCounterShard de la encuesta de la fila actual
+    private static final String SHARD_POSITIVE_SUM = "(SELECT COALESCE(SUM(s.positiveResponses), 0)"
+            + " FROM SurveyCounterShard s WHERE s.surveyId = Survey.surveyId)";
+    private static final String SHARD_NEGATIVE_SUM = "(SELECT COALESCE(SUM(s.negativeResponses), 0)"
+            + " FROM SurveyCounterShard s WHERE s.surveyId = Survey.surveyId)";
+
+    // Lo mismo, pero sólo se consulta SurveyCounterShard si la encuesta reparte
+    // sus contadores: al volver a una fila, updateCounterShards pasa sus votos a
+    // Survey (MySQL no evalúa la rama del CASE que no se elige)
+    private static final String SHARD_POSITIVE_RESPONSES = "(CASE WHEN Survey.counterShards > 1 THEN "
+            + SHARD_POSITIVE_SUM + " ELSE 0 END)";
+    private static final String SHARD_NEGATIVE_RESPONSES = "(CASE WHEN Survey.counterShards > 1 THEN "
+            + SHARD_NEGATIVE_SUM + " ELSE 0 END)";
+
+    // Columnas que lee getSurveyFromResultSet: los contadores son los de Survey
+    // más los de todas sus filas repartidas
+    private static final String SURVEY_COLUMNS = "surveyId, question, creationDate, endDate, canceled, "
+            + "positiveResponses + " + SHARD_POSITIVE_RESPONSES + ", "
+            + "negativeResponses + " + SHARD_NEGATIVE_RESPONSES + ", counterShards, status";
+
+    // Crea, si no existe, una fila de contadores repartidos
+    private static final String CREATE_COUNTER_SHARD = "INSERT INTO SurveyCounterShard"
+            + " (surveyId, shard, positiveResponses, negativeResponses) VALUES (?, ?, 0, 0)"
+            + " ON DUPLICATE KEY UPDATE shard = shard";
+
     @Override
     public Survey create(Connection connection, Survey survey) {
 
         String queryString = "INSERT INTO Survey"
                 + " (question, creationDate, endDate, canceled, "
-                + " positiveResponses, negativeResponses)"
-                + " VALUES (?, ?, ?, ?, ?, ?)";
+                + " positiveResponses, negativeResponses, counterShards, status)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
         try (PreparedStatement preparedStatement = connection.prepareStatement(
                 queryString, Statement.RETURN_GENERATED_KEYS)) {
@@ -27,6 +55,8 @@ public class Jdbc3SqlSurveyDao extends AbstractSqlSurveyDao {
             preparedStatement.setBoolean(4, survey.isCanceled());
             preparedStatement.setLong(5, survey.getPositiveResponses());
             preparedStatement.setLong(6, survey.getNegativeResponses());
+            preparedStatement.setInt(7, survey.getCounterShards());
+            preparedStatement.setString(8, survey.getStatus().name());
 
             // Realizar la inserción
             preparedStatement.executeUpdate();
@@ -41,6 +71,7 @@ public class Jdbc3SqlSurveyDao extends AbstractSqlSurveyDao {
 
             // Actualiza el objeto de encuesta con el ID y devuélvelo.
             survey.setSurveyId(surveyId);
+            createCounterShards(connection, surveyId, survey.getCounterShards());
             return survey;
 
         } catch (SQLException e) {
@@ -48,22 +79,83 @@ public class Jdbc3SqlSurveyDao extends AbstractSqlSurveyDao {
         }
     }
 
+    @Override
+    public void createBatch(Connection connection, List<Survey> surveys) {
+
+        if (surveys.isEmpty()) {
+            return;
+        }
+
+        // Con rewriteBatchedStatements, Connector/J envía el lote como INSERT de
+        // varias filas (tantas como quepan en max_allowed_packet)
+        String queryString = "INSERT INTO Survey"
+                + " (question, creationDate, endDate, canceled, "
+                + " positiveResponses, negativeResponses, counterShards, status)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                queryString, Statement.RETURN_GENERATED_KEYS)) {
+
+            for (Survey survey : surveys) {
+                int i = 1;
+                preparedStatement.setString(i++, survey.getQuestion());
+                preparedStatement.setTimestamp(i++, Timestamp.valueOf(survey.getCreationDate()));
+                preparedStatement.setTimestamp(i++, Timestamp.valueOf(survey.getEndDate()));
+                preparedStatement.setBoolean(i++, survey.isCanceled());
+                preparedStatement.setLong(i++, survey.getPositiveResponses());
+                preparedStatement.setLong(i++, survey.getNegativeResponses());
+                preparedStatement.setInt(i++, survey.getCounterShards());
+                preparedStatement.setString(i++, survey.getStatus().name());
+                preparedStatement.addBatch();
+            }
+
+            preparedStatement.executeBatch();
+
+            // Las claves generadas llegan en el mismo orden que las inserciones
+            ResultSet resultSet = preparedStatement.getGeneratedKeys();
+
+            for (Survey survey : surveys) {
+                if (!resultSet.next()) {
+                    throw new SQLException("JDBC driver did not return generated key.");
+                }
+                survey.setSurveyId(resultSet.getLong(1));
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        createCounterShards(connection, surveys);
+    }
+
     @Override
     public void update(Connection connection, Survey survey) throws InstanceNotFoundException {
 
-        // [FUNC-4] Actualizamos los contadores y otros campos posibles
+        // [FUNC-4] Actualizamos los contadores y otros campos posibles. Los
+        // contadores de la encuesta son totales: en Survey se guarda lo que no
+        // está en las filas repartidas
         String queryString = "UPDATE Survey"
-                + " SET question = ?, creationDate = ?, endDate = ?, "
-                + " canceled = ?, positiveResponses = ?, negativeResponses = ?"
+                + " SET question = ?, creationDate = ?, endDate = ?, canceled = ?, status = ?,"
+                + " positiveResponses = ? - " + SHARD_POSITIVE_RESPONSES + ","
+                + " negativeResponses = ? - " + SHARD_NEGATIVE_RESPONSES
                 + " WHERE surveyId = ?";
 
-        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+        // Las filas repartidas se bloquean antes, para que la suma no cambie
+        // hasta el commit y los votos en curso terminen antes (ver updateCounters)
+        String lockShardsQueryString = "SELECT shard FROM SurveyCounterShard WHERE surveyId = ? FOR UPDATE";
+
+        try (PreparedStatement lockShardsStatement = connection.prepareStatement(lockShardsQueryString);
+             PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            lockShardsStatement.setLong(1, survey.getSurveyId());
+            lockShardsStatement.executeQuery().close();
 
             int i = 1;
             preparedStatement.setString(i++, survey.getQuestion());
             preparedStatement.setTimestamp(i++, Timestamp.valueOf(survey.getCreationDate()));
             preparedStatement.setTimestamp(i++, Timestamp.valueOf(survey.getEndDate()));
             preparedStatement.setBoolean(i++, survey.isCanceled());
+            preparedStatement.setString(i++, survey.getStatus().name());
             preparedStatement.setLong(i++, survey.getPositiveResponses());
             preparedStatement.setLong(i++, survey.getNegativeResponses());
             preparedStatement.setLong(i++, survey.getSurveyId());
@@ -80,11 +172,318 @@ public class Jdbc3SqlSurveyDao extends AbstractSqlSurveyDao {
         }
     }
 
+    @Override
+    public int updateCounters(Connection connection, Long surveyId, int shardKey,
+            long positiveDelta, long negativeDelta) {
+
+        // [FUNC-4] Incremento atómico: no hace falta leer la encuesta antes de escribirla
+        String queryString = "UPDATE Survey"
+                + " SET positiveResponses = positiveResponses + ?,"
+                + " negativeResponses = negativeResponses + ?"
+                + " WHERE surveyId = ? AND canceled = 0 AND status = 'OPEN' AND counterShards = 1";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            int i = 1;
+            preparedStatement.setLong(i++, positiveDelta);
+            preparedStatement.setLong(i++, negativeDelta);
+            preparedStatement.setLong(i++, surveyId);
+
+            if (preparedStatement.executeUpdate() > 0) {
+                return 0;
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        // La encuesta no existe, no admite votos o los reparte entre varias filas.
+        // En este último caso, el UPDATE anterior no retiene el bloqueo de la fila
+        // de Survey: con READ COMMITTED, InnoDB lo libera en cuanto comprueba que
+        // no cumple la condición
+        int counterShards = findOpenCounterShards(connection, surveyId);
+
+        if (counterShards == 0) {
+            return -1;
+        }
+
+        int shard = Math.floorMod(shardKey, counterShards);
+        incrementCounterShard(connection, surveyId, shard, positiveDelta, negativeDelta);
+
+        // Se vuelve a comprobar después de bloquear la fila repartida: una
+        // cancelación bloquea todas las filas de la encuesta antes de modificarla
+        // (ver cancel), así que o bien este voto termina antes o bien aquí ya se
+        // ve la encuesta cancelada
+        counterShards = findOpenCounterShards(connection, surveyId);
+
+        if (counterShards == 0) {
+            return -1;
+        }
+        if (counterShards == 1) {
+            // Mientras esperaba, la encuesta volvió a una sola fila (ver
+            // mergeCounterShards), que ya no suma las repartidas
+            incrementCounterShard(connection, surveyId, shard, -positiveDelta, -negativeDelta);
+            return updateCounters(connection, surveyId, shardKey, positiveDelta, negativeDelta);
+        }
+        return shard;
+    }
+
+    @Override
+    public boolean acceptsResponses(Connection connection, Long surveyId) {
+        return findOpenCounterShards(connection, surveyId) > 0;
+    }
+
+    /**
+     * Devuelve el número de filas de contadores de la encuesta, o 0 si no
+     * existe o no admite votos.
+     */
+    private int findOpenCounterShards(Connection connection, Long surveyId) {
+
+        String queryString = "SELECT counterShards FROM Survey"
+                + " WHERE surveyId = ? AND canceled = 0 AND status = 'OPEN'";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            preparedStatement.setLong(1, surveyId);
+
+            ResultSet resultSet = preparedStatement.executeQuery();
+
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void incrementCounterShard(Connection connection, Long surveyId, int shard,
+            long positiveDelta, long negativeDelta) {
+
+        String queryString = "INSERT INTO SurveyCounterShard"
+                + " (surveyId, shard, positiveResponses, negativeResponses) VALUES (?, ?, ?, ?)"
+                + " ON DUPLICATE KEY UPDATE"
+                + " positiveResponses = positiveResponses + VALUES(positiveResponses),"
+                + " negativeResponses = negativeResponses + VALUES(negativeResponses)";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            int i = 1;
+            preparedStatement.setLong(i++, surveyId);
+            preparedStatement.setInt(i++, shard);
+            preparedStatement.setLong(i++, positiveDelta);
+            preparedStatement.setLong(i++, negativeDelta);
+
+            preparedStatement.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Crea, si no existen, las filas de contadores 0..counterShards-1 de la
+     * encuesta, para que update pueda bloquear todas las que reciben votos.
+     */
+    private void createCounterShards(Connection connection, Long surveyId, int counterShards) {
+
+        if (counterShards <= 1) {
+            return;
+        }
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(CREATE_COUNTER_SHARD)) {
+
+            addCounterShards(preparedStatement, surveyId, counterShards);
+            preparedStatement.executeBatch();
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Igual que {@link #createCounterShards(Connection, Long, int)}, para todas
+     * las encuestas del lote en una sola sentencia por lotes.
+     */
+    private void createCounterShards(Connection connection, List<Survey> surveys) {
+
+        if (surveys.stream().allMatch(survey -> survey.getCounterShards() <= 1)) {
+            return;
+        }
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(CREATE_COUNTER_SHARD)) {
+
+            for (Survey survey : surveys) {
+                if (survey.getCounterShards() > 1) {
+                    addCounterShards(preparedStatement, survey.getSurveyId(), survey.getCounterShards());
+                }
+            }
+            preparedStatement.executeBatch();
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void addCounterShards(PreparedStatement preparedStatement, Long surveyId, int counterShards)
+            throws SQLException {
+
+        for (int shard = 0; shard < counterShards; shard++) {
+            preparedStatement.setLong(1, surveyId);
+            preparedStatement.setInt(2, shard);
+            preparedStatement.addBatch();
+        }
+    }
+
+    @Override
+    public void updateCounterShards(Connection connection, Long surveyId, int counterShards)
+            throws InstanceNotFoundException {
+
+        if (counterShards == 1) {
+            mergeCounterShards(connection, surveyId);
+            return;
+        }
+
+        String queryString = "UPDATE Survey SET counterShards = ? WHERE surveyId = ?";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            preparedStatement.setInt(1, counterShards);
+            preparedStatement.setLong(2, surveyId);
+
+            if (preparedStatement.executeUpdate() == 0) {
+                throw new InstanceNotFoundException(surveyId, Survey.class.getName());
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        // Las filas que dejan de usarse al reducir el número se conservan: sus
+        // votos siguen sumando en los contadores
+        createCounterShards(connection, surveyId, counterShards);
+    }
+
+    /**
+     * Vuelve a una sola fila de contadores: suma a Survey los votos de las
+     * filas repartidas y las borra, ya que las lecturas dejan de consultarlas.
+     */
+    private void mergeCounterShards(Connection connection, Long surveyId) throws InstanceNotFoundException {
+
+        // Como en cancel, los votos en curso sobre las filas repartidas terminan
+        // antes; los que esperaban a este bloqueo las vuelven a crear y ellos
+        // mismos pasan su voto a Survey (ver updateCounters)
+        String lockShardsQueryString = "SELECT shard FROM SurveyCounterShard WHERE surveyId = ? FOR UPDATE";
+
+        String queryString = "UPDATE Survey SET counterShards = 1,"
+                + " positiveResponses = positiveResponses + " + SHARD_POSITIVE_SUM + ","
+                + " negativeResponses = negativeResponses + " + SHARD_NEGATIVE_SUM
+                + " WHERE surveyId = ?";
+
+        String deleteShardsQueryString = "DELETE FROM SurveyCounterShard WHERE surveyId = ?";
+
+        try (PreparedStatement lockShardsStatement = connection.prepareStatement(lockShardsQueryString);
+             PreparedStatement preparedStatement = connection.prepareStatement(queryString);
+             PreparedStatement deleteShardsStatement = connection.prepareStatement(deleteShardsQueryString)) {
+
+            lockShardsStatement.setLong(1, surveyId);
+            lockShardsStatement.executeQuery().close();
+
+            preparedStatement.setLong(1, surveyId);
+            if (preparedStatement.executeUpdate() == 0) {
+                throw new InstanceNotFoundException(surveyId, Survey.class.getName());
+            }
+
+            deleteShardsStatement.setLong(1, surveyId);
+            deleteShardsStatement.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean cancel(Connection connection, Long surveyId) {
+
+        // Como en update, las filas repartidas se bloquean antes para que los
+        // votos en curso terminen primero (ver updateCounters)
+        String lockShardsQueryString = "SELECT shard FROM SurveyCounterShard WHERE surveyId = ? FOR UPDATE";
+
+        // [FUNC-5] Sólo se modifica canceled: los contadores no se reescriben, así
+        // que no se pierden los votos que lleguen mientras tanto
+        String queryString = "UPDATE Survey SET canceled = 1"
+                + " WHERE surveyId = ? AND canceled = 0 AND status = 'OPEN'";
+
+        try (PreparedStatement lockShardsStatement = connection.prepareStatement(lockShardsQueryString);
+             PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            lockShardsStatement.setLong(1, surveyId);
+            lockShardsStatement.executeQuery().close();
+
+            preparedStatement.setLong(1, surveyId);
+
+            return preparedStatement.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public int finish(Connection connection, Collection<Long> surveyIds) {
+
+        if (surveyIds.isEmpty()) {
+            return 0;
+        }
+
+        String queryString = "UPDATE Survey SET status = 'FINISHED'"
+                + " WHERE surveyId IN (" + "?, ".repeat(surveyIds.size() - 1) + "?) AND status = 'OPEN'";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            int i = 1;
+            for (Long surveyId : surveyIds) {
+                preparedStatement.setLong(i++, surveyId);
+            }
+
+            return preparedStatement.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean repairCounters(Connection connection, Long surveyId,
+            long expectedPositive, long expectedNegative, long positiveResponses, long negativeResponses) {
+
+        // Control optimista: si ha cambiado algún contador, no se toca la fila.
+        // Se comparan y fijan los totales; las filas repartidas no se modifican
+        String queryString = "UPDATE Survey"
+                + " SET positiveResponses = ? - " + SHARD_POSITIVE_RESPONSES + ","
+                + " negativeResponses = ? - " + SHARD_NEGATIVE_RESPONSES
+                + " WHERE surveyId = ?"
+                + " AND positiveResponses + " + SHARD_POSITIVE_RESPONSES + " = ?"
+                + " AND negativeResponses + " + SHARD_NEGATIVE_RESPONSES + " = ?";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            int i = 1;
+            preparedStatement.setLong(i++, positiveResponses);
+            preparedStatement.setLong(i++, negativeResponses);
+            preparedStatement.setLong(i++, surveyId);
+            preparedStatement.setLong(i++, expectedPositive);
+            preparedStatement.setLong(i++, expectedNegative);
+
+            return preparedStatement.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public Survey find(Connection connection, Long surveyId) throws InstanceNotFoundException {
 
-        String queryString = "SELECT surveyId, question, creationDate, endDate, canceled, "
-                + "positiveResponses, negativeResponses FROM Survey WHERE surveyId = ?";
+        String queryString = "SELECT " + SURVEY_COLUMNS + " FROM Survey WHERE surveyId = ?";
 
         try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
 
@@ -108,47 +507,225 @@ public class Jdbc3SqlSurveyDao extends AbstractSqlSurveyDao {
 
     @Override
     public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture) {
+        return findByKeyword(connection, keyword, onlyFuture, null, null);
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            Collection<Long> surveyIds, LocalDateTime createdSince) {
 
-        // [FUNC-2] Búsqueda de encuestas por palabra clave y/o fecha futura
-        String queryString = "SELECT surveyId, question, creationDate, endDate, canceled, "
-                + "positiveResponses, negativeResponses FROM Survey";
+        if (surveyIds != null && surveyIds.isEmpty() && createdSince == null) {
+            return new ArrayList<>();
+        }
+
+        try (PreparedStatement preparedStatement = prepareFindByKeyword(connection, keyword, onlyFuture,
+                surveyIds, createdSince, null, 0)) {
+            return getSurveysFromStatement(preparedStatement);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            KeysetCursor after, int count) {
+
+        try (PreparedStatement preparedStatement = prepareFindByKeyword(connection, keyword, onlyFuture,
+                null, null, after, count)) {
+            return getSurveysFromStatement(preparedStatement);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void streamByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            Consumer<Survey> consumer) {
+
+        try (PreparedStatement preparedStatement = prepareFindByKeyword(connection, keyword, onlyFuture,
+                null, null, null, 0)) {
+
+            // Con Connector/J, Integer.MIN_VALUE hace que las filas se lean de la red
+            // según se recorren, en lugar de cargar todo el resultado en memoria
+            preparedStatement.setFetchSize(Integer.MIN_VALUE);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept(getSurveyFromResultSet(resultSet));
+                }
+            } finally {
+                // Si el pool reutiliza la sentencia, las búsquedas normales no deben leer en streaming
+                preparedStatement.setFetchSize(0);
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * [FUNC-2] Construye la búsqueda por palabra clave y/o fecha futura,
+     * opcionalmente restringida a unas encuestas (más las creadas desde
+     * createdSince) o paginada (count > 0).
+     */
+    private PreparedStatement prepareFindByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            Collection<Long> surveyIds, LocalDateTime createdSince, KeysetCursor after, int count)
+            throws SQLException {
+
+        String queryString = "SELECT " + SURVEY_COLUMNS + " FROM Survey";
 
         // Determinar si hay palabra clave para filtrar
         boolean hasKeyword = keyword != null && !keyword.trim().isEmpty();
 
         // Construir la cláusula WHERE dinámicamente
+        List<String> conditions = new ArrayList<>();
+
+        if (surveyIds != null) {
+            List<String> alternatives = new ArrayList<>();
+            if (!surveyIds.isEmpty()) {
+                alternatives.add("surveyId IN (" + "?, ".repeat(surveyIds.size() - 1) + "?)");
+            }
+            if (createdSince != null) {
+                // Recorre SurveyCreationDateIdx sólo desde esa fecha
+                alternatives.add("creationDate >= ?");
+            }
+            conditions.add("(" + String.join(" OR ", alternatives) + ")");
+        }
         if (hasKeyword) {
-            queryString += " WHERE LOWER(question) LIKE LOWER(?)";
+            conditions.add("LOWER(question) LIKE LOWER(?)");
         }
-
         if (onlyFuture) {
-            queryString += (hasKeyword ? " AND" : " WHERE") + " endDate > ?";
+            // status descarta las finalizadas por el planificador; endDate, las que
+            // han terminado y aún no ha procesado
+            conditions.add("status = 'OPEN' AND endDate > ?");
+        }
+        if (after != null) {
+            // Continuar justo después de la última fila de la página anterior
+            conditions.add("(creationDate, surveyId) < (?, ?)");
+        }
+        if (!conditions.isEmpty()) {
+            queryString += " WHERE " + String.join(" AND ", conditions);
         }
 
-        // Ordenar por fecha de creación descendente (las más recientes primero)
-        queryString += " ORDER BY creationDate DESC";
+        // Ordenar por fecha de creación descendente (las más recientes primero);
+        // el identificador desempata para que la paginación sea estable
+        queryString += " ORDER BY creationDate DESC, surveyId DESC";
 
-        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+        if (count > 0) {
+            queryString += " LIMIT ?";
+        }
 
+        PreparedStatement preparedStatement = connection.prepareStatement(queryString);
+
+        try {
             int i = 1;
+            if (surveyIds != null) {
+                for (Long surveyId : surveyIds) {
+                    preparedStatement.setLong(i++, surveyId);
+                }
+                if (createdSince != null) {
+                    preparedStatement.setTimestamp(i++, Timestamp.valueOf(createdSince));
+                }
+            }
             if (hasKeyword) {
                 // Usar % para búsqueda parcial
                 preparedStatement.setString(i++, "%" + keyword + "%");
             }
             if (onlyFuture) {
-                // Filtrar encuestas cuya fecha de fin sea posterior a ahora
                 preparedStatement.setTimestamp(i++, Timestamp.valueOf(LocalDateTime.now()));
             }
+            if (after != null) {
+                preparedStatement.setTimestamp(i++, Timestamp.valueOf(after.getDate()));
+                preparedStatement.setLong(i++, after.getId());
+            }
+            if (count > 0) {
+                preparedStatement.setInt(i++, count);
+            }
+            return preparedStatement;
 
-            ResultSet resultSet = preparedStatement.executeQuery();
-            List<Survey> surveys = new ArrayList<>();
+        } catch (SQLException e) {
+            preparedStatement.close();
+            throw e;
+        }
+    }
+
+    private List<Survey> getSurveysFromStatement(PreparedStatement preparedStatement) throws SQLException {
 
-            while (resultSet.next()) {
-                // Usamos el método auxiliar de la clase abstracta
-                surveys.add(getSurveyFromResultSet(resultSet));
+        ResultSet resultSet = preparedStatement.executeQuery();
+        List<Survey> surveys = new ArrayList<>();
+
+        while (resultSet.next()) {
+            // Usamos el método auxiliar de la clase abstracta
+            surveys.add(getSurveyFromResultSet(resultSet));
+        }
+
+        return surveys;
+    }
+
+    @Override
+    public List<Survey> findAfter(Connection connection, Long surveyId, int count) {
+
+        String queryString = "SELECT " + SURVEY_COLUMNS + " FROM Survey"
+                + " WHERE surveyId > ? ORDER BY surveyId LIMIT ?";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            preparedStatement.setLong(1, surveyId);
+            preparedStatement.setInt(2, count);
+
+            return getSurveysFromStatement(preparedStatement);
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<Survey> findCreatedAfter(Connection connection, KeysetCursor after, int count) {
+
+        String queryString = "SELECT " + SURVEY_COLUMNS + " FROM Survey";
+
+        if (after != null) {
+            queryString += " WHERE (creationDate, surveyId) > (?, ?)";
+        }
+        queryString += " ORDER BY creationDate, surveyId LIMIT ?";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            int i = 1;
+            if (after != null) {
+                preparedStatement.setTimestamp(i++, Timestamp.valueOf(after.getDate()));
+                preparedStatement.setLong(i++, after.getId());
+            }
+            preparedStatement.setInt(i++, count);
+
+            return getSurveysFromStatement(preparedStatement);
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<Survey> findOpen(Connection connection, KeysetCursor after, int count) {
+
+        String queryString = "SELECT " + SURVEY_COLUMNS + " FROM Survey WHERE status = 'OPEN'";
+
+        if (after != null) {
+            queryString += " AND (endDate, surveyId) > (?, ?)";
+        }
+        queryString += " ORDER BY endDate, surveyId LIMIT ?";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            int i = 1;
+            if (after != null) {
+                preparedStatement.setTimestamp(i++, Timestamp.valueOf(after.getDate()));
+                preparedStatement.setLong(i++, after.getId());
             }
+            preparedStatement.setInt(i++, count);
 
-            return surveys;
+            return getSurveysFromStatement(preparedStatement);
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -0,0 +1,462 @@
+package es.udc.ws.app.model.survey;
+
+import es.udc.ws.app.model.util.KeysetCursor;
+import es.udc.ws.app.model.util.memory.LongHashMap;
+import es.udc.ws.util.configuration.ConfigurationParametersManager;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+
+import java.sql.Connection;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Decorador de {@link SqlSurveyDao} que mantiene en memoria un índice invertido
+ * de trigramas sobre la pregunta de las encuestas, para que findByKeyword no
+ * tenga que recorrer toda la tabla con LIKE '%palabra%'.
+ * <p>
+ * El índice sólo propone candidatas: toda encuesta cuya pregunta contiene la
+ * palabra clave contiene también todos sus trigramas. La consulta final se sigue
+ * haciendo en la BD, restringida a esas candidatas, así que el resultado (filtro
+ * LIKE, onlyFuture, orden y contadores) es exactamente el de siempre. Si la
+ * palabra es demasiado corta o hay demasiadas candidatas se delega sin índice.
+ * <p>
+ * Las encuestas creadas en esta instancia se indexan al crearse; las creadas
+ * desde otras instancias se incorporan cada refreshSeconds, en la siguiente
+ * búsqueda, leyendo por creationDate las creadas desde la marca de la carga
+ * anterior. Un identificador menor no implica haberse confirmado antes (el
+ * AUTO_INCREMENT se asigna al insertar, no en el commit), así que no se sigue
+ * por surveyId. La marca es el inicio de la carga anterior menos overlapSeconds,
+ * que debe cubrir la transacción más larga que crea encuestas y la diferencia
+ * entre los relojes de las instancias. Cada búsqueda incluye además, en la
+ * misma consulta, las encuestas creadas desde la marca, que el índice aún
+ * puede no tener. Cada encuesta ocupa una única entrada del índice, aunque se
+ * lea varias veces.
+ */
+public class KeywordIndexSqlSurveyDao implements SqlSurveyDao {
+
+    private final static String DELEGATE_CLASS_NAME_PARAMETER = "KeywordIndexSqlSurveyDao.delegateClassName";
+    private final static String MAX_CANDIDATES_PARAMETER = "KeywordIndexSqlSurveyDao.maxCandidates";
+    private final static String REFRESH_SECONDS_PARAMETER = "KeywordIndexSqlSurveyDao.refreshSeconds";
+    private final static String OVERLAP_SECONDS_PARAMETER = "KeywordIndexSqlSurveyDao.overlapSeconds";
+
+    private final static int TRIGRAM_LENGTH = 3;
+    private final static int LOAD_CHUNK_SIZE = 10000;
+    private final static Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    // Identificador de las entradas sustituidas al reindexar una encuesta
+    private final static long SUPERSEDED = 0;
+
+    /**
+     * Lista creciente de ordinales (enteros para ocupar la mitad que los
+     * identificadores). Los ordinales se asignan en orden, así que está ordenada.
+     */
+    private static class PostingList {
+
+        private int[] ordinals = new int[4];
+        private int size = 0;
+
+        private void add(int ordinal) {
+            if (size > 0 && ordinals[size - 1] == ordinal) {
+                return;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+    }
+
+    private final SqlSurveyDao delegate;
+    private final int maxCandidates;
+    private final long refreshNanos;
+    private final long overlapSeconds;
+
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    // Entrada vigente de cada encuesta indexada
+    private final LongHashMap<Integer> ordinalsBySurveyId = new LongHashMap<>();
+    private long[] surveyIdsByOrdinal = new long[1024];
+    private int ordinalCount = 0;
+    // Todas las encuestas creadas antes de la marca están indexadas; null antes de la primera carga
+    private volatile LocalDateTime watermark = null;
+    private volatile long nextLoadTime;
+
+    public KeywordIndexSqlSurveyDao() {
+        this(SqlSurveyDaoFactory.getInstance(DELEGATE_CLASS_NAME_PARAMETER),
+                Integer.parseInt(ConfigurationParametersManager.getParameter(MAX_CANDIDATES_PARAMETER)),
+                Long.parseLong(ConfigurationParametersManager.getParameter(REFRESH_SECONDS_PARAMETER)),
+                Long.parseLong(ConfigurationParametersManager.getParameter(OVERLAP_SECONDS_PARAMETER)));
+    }
+
+    public KeywordIndexSqlSurveyDao(SqlSurveyDao delegate, int maxCandidates, long refreshSeconds,
+            long overlapSeconds) {
+        this.delegate = delegate;
+        this.maxCandidates = maxCandidates;
+        this.refreshNanos = TimeUnit.SECONDS.toNanos(refreshSeconds);
+        this.overlapSeconds = overlapSeconds;
+    }
+
+    /**
+     * Número de encuestas indexadas.
+     */
+    public int getIndexedCount() {
+        indexLock.readLock().lock();
+        try {
+            return ordinalsBySurveyId.size();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Survey create(Connection connection, Survey survey) {
+        Survey createdSurvey = delegate.create(connection, survey);
+        // Si la transacción se deshace, la consulta en BD descartará la candidata
+        index(createdSurvey.getSurveyId(), createdSurvey.getQuestion(), false);
+        return createdSurvey;
+    }
+
+    @Override
+    public void createBatch(Connection connection, List<Survey> surveys) {
+        delegate.createBatch(connection, surveys);
+        for (Survey survey : surveys) {
+            index(survey.getSurveyId(), survey.getQuestion(), false);
+        }
+    }
+
+    @Override
+    public void update(Connection connection, Survey survey) throws InstanceNotFoundException {
+        delegate.update(connection, survey);
+        // La pregunta puede haber cambiado: la entrada nueva sustituye a la anterior
+        index(survey.getSurveyId(), survey.getQuestion(), true);
+    }
+
+    @Override
+    public boolean cancel(Connection connection, Long surveyId) {
+        return delegate.cancel(connection, surveyId);
+    }
+
+    @Override
+    public int finish(Connection connection, Collection<Long> surveyIds) {
+        return delegate.finish(connection, surveyIds);
+    }
+
+    @Override
+    public int updateCounters(Connection connection, Long surveyId, int shardKey,
+            long positiveDelta, long negativeDelta) {
+        return delegate.updateCounters(connection, surveyId, shardKey, positiveDelta, negativeDelta);
+    }
+
+    @Override
+    public boolean acceptsResponses(Connection connection, Long surveyId) {
+        return delegate.acceptsResponses(connection, surveyId);
+    }
+
+    @Override
+    public void updateCounterShards(Connection connection, Long surveyId, int counterShards)
+            throws InstanceNotFoundException {
+        delegate.updateCounterShards(connection, surveyId, counterShards);
+    }
+
+    @Override
+    public boolean repairCounters(Connection connection, Long surveyId,
+            long expectedPositive, long expectedNegative, long positiveResponses, long negativeResponses) {
+        return delegate.repairCounters(connection, surveyId, expectedPositive, expectedNegative,
+                positiveResponses, negativeResponses);
+    }
+
+    @Override
+    public Survey find(Connection connection, Long surveyId) throws InstanceNotFoundException {
+        return delegate.find(connection, surveyId);
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture) {
+
+        List<Survey> surveys = findIndexed(connection, keyword, onlyFuture);
+
+        return surveys != null ? surveys : delegate.findByKeyword(connection, keyword, onlyFuture);
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            Collection<Long> surveyIds, LocalDateTime createdSince) {
+        return delegate.findByKeyword(connection, keyword, onlyFuture, surveyIds, createdSince);
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            KeysetCursor after, int count) {
+
+        List<Survey> surveys = findIndexed(connection, keyword, onlyFuture);
+
+        if (surveys == null) {
+            return delegate.findByKeyword(connection, keyword, onlyFuture, after, count);
+        }
+
+        // Como mucho maxCandidates encuestas: se pagina en memoria con el mismo orden que la BD
+        return surveys.stream()
+                .filter(survey -> after == null || isAfter(survey, after))
+                .limit(count)
+                .toList();
+    }
+
+    @Override
+    public void streamByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            Consumer<Survey> consumer) {
+
+        List<Survey> surveys = findIndexed(connection, keyword, onlyFuture);
+
+        if (surveys == null) {
+            delegate.streamByKeyword(connection, keyword, onlyFuture, consumer);
+        } else {
+            surveys.forEach(consumer);
+        }
+    }
+
+    @Override
+    public List<Survey> findAfter(Connection connection, Long surveyId, int count) {
+        return delegate.findAfter(connection, surveyId, count);
+    }
+
+    @Override
+    public List<Survey> findCreatedAfter(Connection connection, KeysetCursor after, int count) {
+        return delegate.findCreatedAfter(connection, after, count);
+    }
+
+    @Override
+    public List<Survey> findOpen(Connection connection, KeysetCursor after, int count) {
+        return delegate.findOpen(connection, after, count);
+    }
+
+    @Override
+    public void remove(Connection connection, Long surveyId) throws InstanceNotFoundException {
+        // Se deja en el índice: la consulta en BD ya no la devolverá
+        delegate.remove(connection, surveyId);
+    }
+
+    /**
+     * Busca usando el índice.
+     * @return las encuestas encontradas, o null si la búsqueda no puede usar el índice.
+     */
+    private List<Survey> findIndexed(Connection connection, String keyword, boolean onlyFuture) {
+
+        if (!isIndexable(keyword)) {
+            return null;
+        }
+
+        LocalDateTime createdSince = loadNewSurveys(connection);
+        List<Long> candidates = findCandidates(normalize(keyword));
+
+        if (candidates == null) {
+            return null;
+        }
+
+        return delegate.findByKeyword(connection, keyword, onlyFuture, candidates, createdSince);
+    }
+
+    private static boolean isAfter(Survey survey, KeysetCursor cursor) {
+        int comparison = survey.getCreationDate().compareTo(cursor.getDate());
+        return comparison < 0 || (comparison == 0 && survey.getSurveyId() < cursor.getId());
+    }
+
+    /**
+     * Convierte el texto a minúsculas y sin tildes, como compara MySQL con la
+     * colación por defecto (utf8mb4_0900_ai_ci).
+     */
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isIndexable(String keyword) {
+        // '%' y '_' actúan como comodines en el LIKE actual: esas búsquedas no se indexan
+        return keyword != null && !keyword.trim().isEmpty()
+                && normalize(keyword).length() >= TRIGRAM_LENGTH
+                && keyword.indexOf('%') < 0 && keyword.indexOf('_') < 0 && keyword.indexOf('\\') < 0;
+    }
+
+    private static Set<Long> trigrams(String normalizedText) {
+
+        Set<Long> trigrams = new LinkedHashSet<>();
+
+        for (int i = 0; i + TRIGRAM_LENGTH <= normalizedText.length(); i++) {
+            trigrams.add(((long) normalizedText.charAt(i) << 32)
+                    | ((long) normalizedText.charAt(i + 1) << 16)
+                    | normalizedText.charAt(i + 2));
+        }
+
+        return trigrams;
+    }
+
+    /**
+     * Indexa la encuesta. Si ya lo estaba, sólo se sustituye su entrada si
+     * replace es true.
+     */
+    private void index(Long surveyId, String question, boolean replace) {
+
+        if (!replace && isIndexed(surveyId)) {
+            return;
+        }
+
+        Set<Long> trigrams = trigrams(normalize(question));
+
+        indexLock.writeLock().lock();
+        try {
+            Integer previousOrdinal = ordinalsBySurveyId.get(surveyId);
+            if (previousOrdinal != null) {
+                if (!replace) {
+                    return;
+                }
+                // Sus trigramas antiguos dejan de proponerla como candidata
+                surveyIdsByOrdinal[previousOrdinal] = SUPERSEDED;
+            }
+            int ordinal = ordinalCount++;
+            ordinalsBySurveyId.put(surveyId, ordinal);
+            if (ordinal == surveyIdsByOrdinal.length) {
+                surveyIdsByOrdinal = Arrays.copyOf(surveyIdsByOrdinal, ordinal * 2);
+            }
+            surveyIdsByOrdinal[ordinal] = surveyId;
+            for (Long trigram : trigrams) {
+                postings.computeIfAbsent(trigram, t -> new PostingList()).add(ordinal);
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private boolean isIndexed(Long surveyId) {
+        indexLock.readLock().lock();
+        try {
+            return ordinalsBySurveyId.get(surveyId) != null;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexa las encuestas creadas desde la marca: la primera vez, toda la
+     * tabla; después, como mucho cada refreshSeconds, las creadas desde otras
+     * instancias. Si otro hilo está cargando, no se le espera.
+     * @return la marca con la que buscar: las encuestas creadas antes de ella
+     * están indexadas.
+     */
+    private LocalDateTime loadNewSurveys(Connection connection) {
+
+        LocalDateTime currentWatermark = watermark;
+
+        if (currentWatermark != null && (System.nanoTime() - nextLoadTime < 0 || !loadLock.tryLock())) {
+            return currentWatermark;
+        }
+        if (currentWatermark == null) {
+            loadLock.lock();
+        }
+
+        try {
+            if (watermark != null && watermark != currentWatermark) {
+                return watermark;
+            }
+
+            LocalDateTime loadStart = LocalDateTime.now();
+            KeysetCursor after = watermark == null ? null : new KeysetCursor(watermark, 0L);
+            List<Survey> surveys;
+            do {
+                surveys = delegate.findCreatedAfter(connection, after, LOAD_CHUNK_SIZE);
+                for (Survey survey : surveys) {
+                    index(survey.getSurveyId(), survey.getQuestion(), false);
+                }
+                if (!surveys.isEmpty()) {
+                    Survey last = surveys.get(surveys.size() - 1);
+                    after = new KeysetCursor(last.getCreationDate(), last.getSurveyId());
+                }
+            } while (surveys.size() == LOAD_CHUNK_SIZE);
+
+            watermark = loadStart.minusSeconds(overlapSeconds);
+            nextLoadTime = System.nanoTime() + refreshNanos;
+            return watermark;
+
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Intersección de las listas de los trigramas de la palabra clave, empezando
+     * por la más corta.
+     * @return identificadores candidatos, o null si superan maxCandidates.
+     */
+    private List<Long> findCandidates(String normalizedKeyword) {
+
+        indexLock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>();
+            for (Long trigram : trigrams(normalizedKeyword)) {
+                PostingList list = postings.get(trigram);
+                if (list == null) {
+                    return new ArrayList<>();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            int[] result = Arrays.copyOf(lists.get(0).ordinals, lists.get(0).size);
+            int resultSize = result.length;
+
+            for (int l = 1; l < lists.size() && resultSize > 0; l++) {
+                resultSize = intersect(result, resultSize, lists.get(l));
+            }
+
+            List<Long> surveyIds = new ArrayList<>();
+            for (int i = 0; i < resultSize; i++) {
+                long surveyId = surveyIdsByOrdinal[result[i]];
+                if (surveyId != SUPERSEDED) {
+                    if (surveyIds.size() == maxCandidates) {
+                        return null;
+                    }
+                    surveyIds.add(surveyId);
+                }
+            }
+            return surveyIds;
+
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Deja en las primeras posiciones de result los ordinales que también están
+     * en list y devuelve cuántos son. Ambas secuencias están ordenadas.
+     */
+    private static int intersect(int[] result, int resultSize, PostingList list) {
+
+        int size = 0;
+        int j = 0;
+
+        for (int i = 0; i < resultSize && j < list.size; i++) {
+            while (j < list.size && list.ordinals[j] < result[i]) {
+                j++;
+            }
+            if (j < list.size && list.ordinals[j] == result[i]) {
+                result[size++] = result[i];
+            }
+        }
+
+        return size;
+    }
+}
@@ -0,0 +1,306 @@
+package es.udc.ws.app.model.survey;
+
+import es.udc.ws.app.model.util.KeysetCursor;
+import es.udc.ws.app.model.util.metrics.MethodMetrics;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Decorador de {@link SqlSurveyDao} que mide la latencia y las excepciones de
+ * cada método en {@link MetricsRegistry}, bajo el componente "SqlSurveyDao".
+ */
+public class MeteredSqlSurveyDao implements SqlSurveyDao {
+
+    private final static String DELEGATE_CLASS_NAME_PARAMETER = "MeteredSqlSurveyDao.delegateClassName";
+    private final static String COMPONENT = "SqlSurveyDao";
+
+    private final SqlSurveyDao delegate;
+
+    private final MethodMetrics create;
+    private final MethodMetrics createBatch;
+    private final MethodMetrics update;
+    private final MethodMetrics cancel;
+    private final MethodMetrics finish;
+    private final MethodMetrics updateCounters;
+    private final MethodMetrics acceptsResponses;
+    private final MethodMetrics updateCounterShards;
+    private final MethodMetrics repairCounters;
+    private final MethodMetrics find;
+    private final MethodMetrics findByKeyword;
+    private final MethodMetrics findByKeywordInIds;
+    private final MethodMetrics findByKeywordPage;
+    private final MethodMetrics streamByKeyword;
+    private final MethodMetrics findAfter;
+    private final MethodMetrics findCreatedAfter;
+    private final MethodMetrics findOpen;
+    private final MethodMetrics remove;
+
+    public MeteredSqlSurveyDao() {
+        this(SqlSurveyDaoFactory.getInstance(DELEGATE_CLASS_NAME_PARAMETER), MetricsRegistry.getInstance());
+    }
+
+    public MeteredSqlSurveyDao(SqlSurveyDao delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        create = registry.method(COMPONENT, "create");
+        createBatch = registry.method(COMPONENT, "createBatch");
+        update = registry.method(COMPONENT, "update");
+        cancel = registry.method(COMPONENT, "cancel");
+        finish = registry.method(COMPONENT, "finish");
+        updateCounters = registry.method(COMPONENT, "updateCounters");
+        acceptsResponses = registry.method(COMPONENT, "acceptsResponses");
+        updateCounterShards = registry.method(COMPONENT, "updateCounterShards");
+        repairCounters = registry.method(COMPONENT, "repairCounters");
+        find = registry.method(COMPONENT, "find");
+        findByKeyword = registry.method(COMPONENT, "findByKeyword");
+        findByKeywordInIds = registry.method(COMPONENT, "findByKeywordInIds");
+        findByKeywordPage = registry.method(COMPONENT, "findByKeywordPage");
+        streamByKeyword = registry.method(COMPONENT, "streamByKeyword");
+        findAfter = registry.method(COMPONENT, "findAfter");
+        findCreatedAfter = registry.method(COMPONENT, "findCreatedAfter");
+        findOpen = registry.method(COMPONENT, "findOpen");
+        remove = registry.method(COMPONENT, "remove");
+    }
+
+    @Override
+    public Survey create(Connection connection, Survey survey) {
+        long start = System.nanoTime();
+        try {
+            Survey result = delegate.create(connection, survey);
+            create.success(start);
+            return result;
+        } catch (Throwable e) {
+            create.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void createBatch(Connection connection, List<Survey> surveys) {
+        long start = System.nanoTime();
+        try {
+            delegate.createBatch(connection, surveys);
+            createBatch.success(start);
+        } catch (Throwable e) {
+            createBatch.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void update(Connection connection, Survey survey) throws InstanceNotFoundException {
+        long start = System.nanoTime();
+        try {
+            delegate.update(connection, survey);
+            update.success(start);
+        } catch (Throwable e) {
+            update.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean cancel(Connection connection, Long surveyId) {
+        long start = System.nanoTime();
+        try {
+            boolean result = delegate.cancel(connection, surveyId);
+            cancel.success(start);
+            return result;
+        } catch (Throwable e) {
+            cancel.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public int finish(Connection connection, Collection<Long> surveyIds) {
+        long start = System.nanoTime();
+        try {
+            int result = delegate.finish(connection, surveyIds);
+            finish.success(start);
+            return result;
+        } catch (Throwable e) {
+            finish.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public int updateCounters(Connection connection, Long surveyId, int shardKey, long positiveDelta,
+            long negativeDelta) {
+        long start = System.nanoTime();
+        try {
+            int result = delegate.updateCounters(connection, surveyId, shardKey, positiveDelta, negativeDelta);
+            updateCounters.success(start);
+            return result;
+        } catch (Throwable e) {
+            updateCounters.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean acceptsResponses(Connection connection, Long surveyId) {
+        long start = System.nanoTime();
+        try {
+            boolean result = delegate.acceptsResponses(connection, surveyId);
+            acceptsResponses.success(start);
+            return result;
+        } catch (Throwable e) {
+            acceptsResponses.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void updateCounterShards(Connection connection, Long surveyId, int counterShards)
+            throws InstanceNotFoundException {
+        long start = System.nanoTime();
+        try {
+            delegate.updateCounterShards(connection, surveyId, counterShards);
+            updateCounterShards.success(start);
+        } catch (Throwable e) {
+            updateCounterShards.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean repairCounters(Connection connection, Long surveyId,
+            long expectedPositive, long expectedNegative, long positiveResponses, long negativeResponses) {
+        long start = System.nanoTime();
+        try {
+            boolean result = delegate.repairCounters(connection, surveyId, expectedPositive, expectedNegative,
+                    positiveResponses, negativeResponses);
+            repairCounters.success(start);
+            return result;
+        } catch (Throwable e) {
+            repairCounters.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Survey find(Connection connection, Long surveyId) throws InstanceNotFoundException {
+        long start = System.nanoTime();
+        try {
+            Survey result = delegate.find(connection, surveyId);
+            find.success(start);
+            return result;
+        } catch (Throwable e) {
+            find.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture) {
+        long start = System.nanoTime();
+        try {
+            List<Survey> result = delegate.findByKeyword(connection, keyword, onlyFuture);
+            findByKeyword.success(start);
+            return result;
+        } catch (Throwable e) {
+            findByKeyword.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            Collection<Long> surveyIds, LocalDateTime createdSince) {
+        long start = System.nanoTime();
+        try {
+            List<Survey> result = delegate.findByKeyword(connection, keyword, onlyFuture, surveyIds, createdSince);
+            findByKeywordInIds.success(start);
+            return result;
+        } catch (Throwable e) {
+            findByKeywordInIds.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            KeysetCursor after, int count) {
+        long start = System.nanoTime();
+        try {
+            List<Survey> result = delegate.findByKeyword(connection, keyword, onlyFuture, after, count);
+            findByKeywordPage.success(start);
+            return result;
+        } catch (Throwable e) {
+            findByKeywordPage.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void streamByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            Consumer<Survey> consumer) {
+        // Incluye el tiempo que tarda el consumidor
+        long start = System.nanoTime();
+        try {
+            delegate.streamByKeyword(connection, keyword, onlyFuture, consumer);
+            streamByKeyword.success(start);
+        } catch (Throwable e) {
+            streamByKeyword.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Survey> findAfter(Connection connection, Long surveyId, int count) {
+        long start = System.nanoTime();
+        try {
+            List<Survey> result = delegate.findAfter(connection, surveyId, count);
+            findAfter.success(start);
+            return result;
+        } catch (Throwable e) {
+            findAfter.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Survey> findCreatedAfter(Connection connection, KeysetCursor after, int count) {
+        long start = System.nanoTime();
+        try {
+            List<Survey> result = delegate.findCreatedAfter(connection, after, count);
+            findCreatedAfter.success(start);
+            return result;
+        } catch (Throwable e) {
+            findCreatedAfter.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Survey> findOpen(Connection connection, KeysetCursor after, int count) {
+        long start = System.nanoTime();
+        try {
+            List<Survey> result = delegate.findOpen(connection, after, count);
+            findOpen.success(start);
+            return result;
+        } catch (Throwable e) {
+            findOpen.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void remove(Connection connection, Long surveyId) throws InstanceNotFoundException {
+        long start = System.nanoTime();
+        try {
+            delegate.remove(connection, surveyId);
+            remove.success(start);
+        } catch (Throwable e) {
+            remove.failure(start, e);
+            throw e;
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package es.udc.ws.app.model.survey;
 import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.util.KeysetCursor;
 import es.udc.ws.util.exceptions.InstanceNotFoundException;
 import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 // Importar las excepciones custom (suponiendo que están en un paquete)
 // import es.udc.fic.isd.exceptions.InstanceNotFoundException;
@@ -14,6 +18,12 @@ public interface SqlSurveyDao {
      */
     public Survey create(Connection connection, Survey survey);
 
+    /**
+     * [FUNC-1] Crea varias encuestas con sentencias por lotes y asigna a cada
+     * una su identificador, en el orden de la lista.
+     */
+    public void createBatch(Connection connection, List<Survey> surveys);
+
     /**
      * [FUNC-4] [FUNC-5] Actualiza una encuesta existente.
      * (Necesario para cancelar o actualizar contadores).
@@ -21,6 +31,55 @@ public interface SqlSurveyDao {
     public void update(Connection connection, Survey survey)
             throws InstanceNotFoundException;
 
+    /**
+     * [FUNC-5] Marca la encuesta como cancelada, siempre que no lo estuviera
+     * ya y siga en estado OPEN. Sólo modifica canceled.
+     * @return true si se canceló la encuesta.
+     */
+    public boolean cancel(Connection connection, Long surveyId);
+
+    /**
+     * Pasa a FINISHED las encuestas indicadas que sigan en estado OPEN.
+     * @return el número de encuestas modificadas.
+     */
+    public int finish(Connection connection, Collection<Long> surveyIds);
+
+    /**
+     * [FUNC-4] Suma los incrementos indicados a los contadores de la encuesta
+     * con sentencias atómicas, siempre que no esté cancelada y siga en estado
+     * OPEN. Si la encuesta reparte sus contadores en varias
+     * filas, se incrementa la que corresponde a shardKey (p. ej. el hash del
+     * email del empleado), de modo que los votos simultáneos no esperan todos
+     * por la misma fila.
+     * @return la fila de contadores incrementada (0 si la encuesta no los
+     * reparte), o -1 si la encuesta no existe o ya no admite respuestas.
+     */
+    public int updateCounters(Connection connection, Long surveyId, int shardKey,
+            long positiveDelta, long negativeDelta);
+
+    /**
+     * Indica si la encuesta existe y admite respuestas (no cancelada y en
+     * estado OPEN), leyendo siempre de la BD.
+     */
+    public boolean acceptsResponses(Connection connection, Long surveyId);
+
+    /**
+     * Cambia el número de filas entre las que se reparten los contadores de la
+     * encuesta. Los contadores no cambian: son siempre la suma de todas las filas.
+     * Al volver a una sola fila, los votos de las repartidas pasan a Survey.
+     */
+    public void updateCounterShards(Connection connection, Long surveyId, int counterShards)
+            throws InstanceNotFoundException;
+
+    /**
+     * Fija los contadores (totales) de la encuesta a los valores indicados, sólo
+     * si siguen valiendo expectedPositive y expectedNegative, es decir, si no ha
+     * llegado ningún voto desde que se leyeron.
+     * @return true si se actualizaron los contadores.
+     */
+    public boolean repairCounters(Connection connection, Long surveyId,
+            long expectedPositive, long expectedNegative, long positiveResponses, long negativeResponses);
+
     /**
      * [FUNC-3] [FUNC-4] [FUNC-5] [FUNC-6] Busca una encuesta por su ID.
      */
@@ -30,10 +89,55 @@ public interface SqlSurveyDao {
     /**
      * [FUNC-2] Busca encuestas por palabra clave en la pregunta.
      * @param onlyFuture true si deben recuperarse solo encuestas 
-     * con fecha de fin futura.
+     * en estado OPEN y con fecha de fin futura.
      */
     public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture);
 
+    /**
+     * [FUNC-2] Igual que {@link #findByKeyword(Connection, String, boolean)}, pero
+     * restringida a las encuestas indicadas (candidatas de un índice de búsqueda)
+     * y, si createdSince no es null, a las creadas desde esa fecha (las que el
+     * índice puede no tener aún).
+     */
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            Collection<Long> surveyIds, LocalDateTime createdSince);
+
+    /**
+     * [FUNC-2] Página de {@link #findByKeyword(Connection, String, boolean)}: hasta
+     * count encuestas, en orden de creationDate y surveyId descendentes, situadas
+     * después de la posición after (desde el principio si es null).
+     */
+    public List<Survey> findByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            KeysetCursor after, int count);
+
+    /**
+     * [FUNC-2] Igual que {@link #findByKeyword(Connection, String, boolean)}, pero
+     * entrega las encuestas al consumidor según se leen de la BD, sin construir la
+     * lista. El consumidor no puede usar la misma conexión durante el recorrido.
+     */
+    public void streamByKeyword(Connection connection, String keyword, boolean onlyFuture,
+            Consumer<Survey> consumer);
+
+    /**
+     * Recupera, en orden de identificador, hasta count encuestas con
+     * identificador mayor que surveyId. Permite recorrer la tabla por bloques.
+     */
+    public List<Survey> findAfter(Connection connection, Long surveyId, int count);
+
+    /**
+     * Recupera hasta count encuestas en orden de creationDate y surveyId
+     * ascendentes, situadas después de la posición after (desde el principio si
+     * es null). Permite seguir las encuestas creadas desde una fecha.
+     */
+    public List<Survey> findCreatedAfter(Connection connection, KeysetCursor after, int count);
+
+    /**
+     * Recupera hasta count encuestas en estado OPEN (canceladas o no), en orden
+     * de endDate y surveyId, situadas después de la posición after (desde el
+     * principio si es null).
+     */
+    public List<Survey> findOpen(Connection connection, KeysetCursor after, int count);
+
     /**
      * Necesario para las pruebas de integración (borrar datos).
      */
@@ -10,10 +10,14 @@ public class SqlSurveyDaoFactory {
     private SqlSurveyDaoFactory() {
     }
 
+    /**
+     * Instancia la implementación indicada en el parámetro de configuración.
+     * También lo usan los decoradores para crear la implementación a la que delegan.
+     */
     @SuppressWarnings("rawtypes")
-    private static SqlSurveyDao getInstance() {
+    static SqlSurveyDao getInstance(String classNameParameter) {
         try {
-            String daoClassName = ConfigurationParametersManager.getParameter(CLASS_NAME_PARAMETER);
+            String daoClassName = ConfigurationParametersManager.getParameter(classNameParameter);
             Class daoClass = Class.forName(daoClassName);
             return (SqlSurveyDao) daoClass.getDeclaredConstructor().newInstance();
         } catch (Exception e) {
@@ -23,7 +27,7 @@ public class SqlSurveyDaoFactory {
 
     public synchronized static SqlSurveyDao getDao() {
         if (dao == null) {
-            dao = getInstance();
+            dao = getInstance(CLASS_NAME_PARAMETER);
         }
         return dao;
     }
@@ -12,8 +12,10 @@ public class Survey {
     private LocalDateTime creationDate;
     private LocalDateTime endDate;
     private boolean canceled;
+    private SurveyStatus status = SurveyStatus.OPEN;
     private long positiveResponses; // Contador de respuestas positivas
     private long negativeResponses; // Contador de respuestas negativas
+    private int counterShards = 1; // Filas entre las que se reparten los votos
 
     /**
      * Constructor para crear una nueva encuesta (aún no persistida).
@@ -83,6 +85,18 @@ public class Survey {
         this.canceled = canceled;
     }
 
+    /**
+     * Estado guardado en la BD. Puede seguir OPEN unos instantes después de
+     * endDate, hasta que SurveyLifecycleScheduler lo actualiza.
+     */
+    public SurveyStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(SurveyStatus status) {
+        this.status = status;
+    }
+
     public long getPositiveResponses() {
         return positiveResponses;
     }
@@ -99,6 +113,18 @@ public class Survey {
         this.negativeResponses = negativeResponses;
     }
 
+    /**
+     * Número de filas de contadores entre las que se reparten los votos. Los
+     * contadores de la encuesta son siempre la suma de todas ellas.
+     */
+    public int getCounterShards() {
+        return counterShards;
+    }
+
+    public void setCounterShards(int counterShards) {
+        this.counterShards = counterShards;
+    }
+
     // Implementación de equals y hashCode
 
     @Override
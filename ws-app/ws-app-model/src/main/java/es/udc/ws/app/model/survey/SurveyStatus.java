@@ -0,0 +1,18 @@
+package es.udc.ws.app.model.survey;
+
+/**
+ * Estado de una encuesta según su fecha de fin. Es independiente de la
+ * cancelación: una encuesta cancelada sigue OPEN hasta su endDate.
+ */
+public enum SurveyStatus {
+
+    /**
+     * No ha llegado endDate.
+     */
+    OPEN,
+
+    /**
+     * Ha llegado endDate; no admite votos ni cancelación.
+     */
+    FINISHED
+}
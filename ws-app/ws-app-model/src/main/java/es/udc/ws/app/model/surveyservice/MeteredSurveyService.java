@@ -0,0 +1,317 @@
+package es.udc.ws.app.model.surveyservice;
+
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.surveystats.SurveyStats;
+import es.udc.ws.app.model.surveyservice.exceptions.InputValidationException;
+import es.udc.ws.app.model.surveyservice.exceptions.SurveyAlreadyCanceledException;
+import es.udc.ws.app.model.surveyservice.exceptions.SurveyCanceledException;
+import es.udc.ws.app.model.surveyservice.exceptions.SurveyFinishedException;
+import es.udc.ws.app.model.util.Page;
+import es.udc.ws.app.model.util.metrics.MethodMetrics;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Decorador de {@link SurveyService} que mide la latencia y las excepciones de
+ * cada operación en {@link MetricsRegistry}, bajo el componente "SurveyService".
+ * Las excepciones de negocio (SurveyFinishedException, SurveyCanceledException...)
+ * se cuentan por tipo igual que los errores internos.
+ */
+public class MeteredSurveyService implements SurveyService {
+
+    private final static String DELEGATE_CLASS_NAME_PARAMETER = "MeteredSurveyService.delegateClassName";
+    private final static String COMPONENT = "SurveyService";
+
+    private final SurveyService delegate;
+
+    private final MethodMetrics createSurvey;
+    private final MethodMetrics createSurveys;
+    private final MethodMetrics findSurveys;
+    private final MethodMetrics findSurveysPage;
+    private final MethodMetrics streamSurveys;
+    private final MethodMetrics findSurvey;
+    private final MethodMetrics respondToSurvey;
+    private final MethodMetrics respondToSurveyAsync;
+    private final MethodMetrics respondToSurveyBatch;
+    private final MethodMetrics cancelSurvey;
+    private final MethodMetrics setCounterShards;
+    private final MethodMetrics getResponses;
+    private final MethodMetrics getResponsesPage;
+    private final MethodMetrics streamResponses;
+    private final MethodMetrics exportResponses;
+    private final MethodMetrics getSurveyStats;
+
+    public MeteredSurveyService() {
+        this(SurveyServiceFactory.getInstance(DELEGATE_CLASS_NAME_PARAMETER), MetricsRegistry.getInstance());
+    }
+
+    public MeteredSurveyService(SurveyService delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        createSurvey = registry.method(COMPONENT, "createSurvey");
+        createSurveys = registry.method(COMPONENT, "createSurveys");
+        findSurveys = registry.method(COMPONENT, "findSurveys");
+        findSurveysPage = registry.method(COMPONENT, "findSurveysPage");
+        streamSurveys = registry.method(COMPONENT, "streamSurveys");
+        findSurvey = registry.method(COMPONENT, "findSurvey");
+        respondToSurvey = registry.method(COMPONENT, "respondToSurvey");
+        respondToSurveyAsync = registry.method(COMPONENT, "respondToSurveyAsync");
+        respondToSurveyBatch = registry.method(COMPONENT, "respondToSurveyBatch");
+        cancelSurvey = registry.method(COMPONENT, "cancelSurvey");
+        setCounterShards = registry.method(COMPONENT, "setCounterShards");
+        getResponses = registry.method(COMPONENT, "getResponses");
+        getResponsesPage = registry.method(COMPONENT, "getResponsesPage");
+        streamResponses = registry.method(COMPONENT, "streamResponses");
+        exportResponses = registry.method(COMPONENT, "exportResponses");
+        getSurveyStats = registry.method(COMPONENT, "getSurveyStats");
+    }
+
+    @Override
+    public Survey createSurvey(String question, LocalDateTime endDate) throws InputValidationException {
+        long start = System.nanoTime();
+        try {
+            Survey result = delegate.createSurvey(question, endDate);
+            createSurvey.success(start);
+            return result;
+        } catch (Throwable e) {
+            createSurvey.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Survey> createSurveys(List<SurveyCommand> surveys) throws InputValidationException {
+        long start = System.nanoTime();
+        try {
+            List<Survey> result = delegate.createSurveys(surveys);
+            createSurveys.success(start);
+            return result;
+        } catch (Throwable e) {
+            createSurveys.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Survey> findSurveys(String keyword, boolean onlyFuture) {
+        long start = System.nanoTime();
+        try {
+            List<Survey> result = delegate.findSurveys(keyword, onlyFuture);
+            findSurveys.success(start);
+            return result;
+        } catch (Throwable e) {
+            findSurveys.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Page<Survey> findSurveys(String keyword, boolean onlyFuture, String pageToken, int pageSize)
+            throws InputValidationException {
+        long start = System.nanoTime();
+        try {
+            Page<Survey> result = delegate.findSurveys(keyword, onlyFuture, pageToken, pageSize);
+            findSurveysPage.success(start);
+            return result;
+        } catch (Throwable e) {
+            findSurveysPage.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void streamSurveys(String keyword, boolean onlyFuture, Consumer<Survey> consumer) {
+        // Incluye el tiempo que tarda el consumidor
+        long start = System.nanoTime();
+        try {
+            delegate.streamSurveys(keyword, onlyFuture, consumer);
+            streamSurveys.success(start);
+        } catch (Throwable e) {
+            streamSurveys.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Survey findSurvey(Long surveyId) throws InstanceNotFoundException {
+        long start = System.nanoTime();
+        try {
+            Survey result = delegate.findSurvey(surveyId);
+            findSurvey.success(start);
+            return result;
+        } catch (Throwable e) {
+            findSurvey.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Response respondToSurvey(Long surveyId, String employeeEmail, boolean response)
+            throws InstanceNotFoundException, InputValidationException,
+            SurveyFinishedException, SurveyCanceledException {
+        long start = System.nanoTime();
+        try {
+            Response result = delegate.respondToSurvey(surveyId, employeeEmail, response);
+            respondToSurvey.success(start);
+            return result;
+        } catch (Throwable e) {
+            respondToSurvey.failure(start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Mide hasta que el voto es persistente. Sin votos asíncronos el futuro
+     * llega ya completado y se mide sin reservar memoria; con ellos se añade un
+     * callback al futuro, que la cola ya ha reservado de todos modos.
+     */
+    @Override
+    public CompletableFuture<Response> respondToSurveyAsync(Long surveyId, String employeeEmail,
+            boolean response) {
+        long start = System.nanoTime();
+        CompletableFuture<Response> future;
+        try {
+            future = delegate.respondToSurveyAsync(surveyId, employeeEmail, response);
+        } catch (Throwable e) {
+            respondToSurveyAsync.failure(start, e);
+            throw e;
+        }
+
+        if (future.isDone()) {
+            if (future.isCompletedExceptionally()) {
+                respondToSurveyAsync.failure(start, future.exceptionNow());
+            } else {
+                respondToSurveyAsync.success(start);
+            }
+            return future;
+        }
+
+        return future.whenComplete((result, e) -> {
+            if (e == null) {
+                respondToSurveyAsync.success(start);
+            } else {
+                respondToSurveyAsync.failure(start, e);
+            }
+        });
+    }
+
+    @Override
+    public List<VoteResult> respondToSurveyBatch(List<VoteCommand> votes) {
+        long start = System.nanoTime();
+        try {
+            List<VoteResult> result = delegate.respondToSurveyBatch(votes);
+            respondToSurveyBatch.success(start);
+            return result;
+        } catch (Throwable e) {
+            respondToSurveyBatch.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Survey cancelSurvey(Long surveyId) throws InstanceNotFoundException, SurveyFinishedException,
+            SurveyAlreadyCanceledException {
+        long start = System.nanoTime();
+        try {
+            Survey result = delegate.cancelSurvey(surveyId);
+            cancelSurvey.success(start);
+            return result;
+        } catch (Throwable e) {
+            cancelSurvey.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Survey setCounterShards(Long surveyId, int counterShards)
+            throws InstanceNotFoundException, InputValidationException {
+        long start = System.nanoTime();
+        try {
+            Survey result = delegate.setCounterShards(surveyId, counterShards);
+            setCounterShards.success(start);
+            return result;
+        } catch (Throwable e) {
+            setCounterShards.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Response> getResponses(Long surveyId, boolean onlyPositive) throws InstanceNotFoundException {
+        long start = System.nanoTime();
+        try {
+            List<Response> result = delegate.getResponses(surveyId, onlyPositive);
+            getResponses.success(start);
+            return result;
+        } catch (Throwable e) {
+            getResponses.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Page<Response> getResponses(Long surveyId, boolean onlyPositive, String pageToken, int pageSize)
+            throws InstanceNotFoundException, InputValidationException {
+        long start = System.nanoTime();
+        try {
+            Page<Response> result = delegate.getResponses(surveyId, onlyPositive, pageToken, pageSize);
+            getResponsesPage.success(start);
+            return result;
+        } catch (Throwable e) {
+            getResponsesPage.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void streamResponses(Long surveyId, boolean onlyPositive, Consumer<Response> consumer)
+            throws InstanceNotFoundException {
+        // Incluye el tiempo que tarda el consumidor
+        long start = System.nanoTime();
+        try {
+            delegate.streamResponses(surveyId, onlyPositive, consumer);
+            streamResponses.success(start);
+        } catch (Throwable e) {
+            streamResponses.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public long exportResponses(Long surveyId, OutputStream out) throws InstanceNotFoundException {
+        long start = System.nanoTime();
+        try {
+            long result = delegate.exportResponses(surveyId, out);
+            exportResponses.success(start);
+            return result;
+        } catch (Throwable e) {
+            exportResponses.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public SurveyStats getSurveyStats(Long surveyId, LocalDateTime from, LocalDateTime to)
+            throws InstanceNotFoundException, InputValidationException {
+        long start = System.nanoTime();
+        try {
+            SurveyStats result = delegate.getSurveyStats(surveyId, from, to);
+            getSurveyStats.success(start);
+            return result;
+        } catch (Throwable e) {
+            getSurveyStats.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+}
@@ -0,0 +1,25 @@
+package es.udc.ws.app.model.surveyservice;
+
+import java.time.LocalDateTime;
+
+/**
+ * Encuesta que se quiere crear, tal y como llega en una importación por lotes.
+ */
+public class SurveyCommand {
+
+    private final String question;
+    private final LocalDateTime endDate;
+
+    public SurveyCommand(String question, LocalDateTime endDate) {
+        this.question = question;
+        this.endDate = endDate;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+
+    public LocalDateTime getEndDate() {
+        return endDate;
+    }
+}
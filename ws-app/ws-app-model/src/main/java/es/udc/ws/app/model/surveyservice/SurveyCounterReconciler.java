@@ -0,0 +1,286 @@
+package es.udc.ws.app.model.surveyservice;
+
+import es.udc.ws.app.model.response.ResponseCounts;
+import es.udc.ws.app.model.response.SqlResponseDao;
+import es.udc.ws.app.model.survey.SqlSurveyDao;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.util.TransactionTemplate;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Comprueba los contadores positiveResponses y negativeResponses de las
+ * encuestas contra las respuestas guardadas y corrige los que no coinciden.
+ * <p>
+ * Recorre las encuestas por bloques de chunkSize en orden de identificador.
+ * De cada bloque lee las encuestas y cuenta sus respuestas con una única
+ * consulta agrupada, ambas en la misma transacción REPEATABLE READ para que
+ * vean el mismo instante sin bloquear nada. Cada corrección es una transacción
+ * propia que sólo escribe si los contadores siguen valiendo lo que se leyó: si
+ * entretanto llegó un voto, la encuesta se deja para la siguiente pasada.
+ * <p>
+ * Para no competir con los votos, limita las filas leídas (encuestas más
+ * respuestas contadas) a maxRowsPerSecond.
+ */
+public class SurveyCounterReconciler {
+
+    /**
+     * Resultado de una pasada.
+     */
+    public static class Report {
+
+        private final long scannedSurveys;
+        private final long scannedResponses;
+        private final long repairedSurveys;
+        private final long conflicts;
+        private final long elapsedMillis;
+
+        Report(long scannedSurveys, long scannedResponses, long repairedSurveys, long conflicts,
+                long elapsedMillis) {
+            this.scannedSurveys = scannedSurveys;
+            this.scannedResponses = scannedResponses;
+            this.repairedSurveys = repairedSurveys;
+            this.conflicts = conflicts;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getScannedSurveys() {
+            return scannedSurveys;
+        }
+
+        public long getScannedResponses() {
+            return scannedResponses;
+        }
+
+        /**
+         * Encuestas cuyos contadores no coincidían y se han corregido.
+         */
+        public long getRepairedSurveys() {
+            return repairedSurveys;
+        }
+
+        /**
+         * Encuestas con contadores incorrectos que no se corrigieron porque
+         * recibieron votos durante la comprobación.
+         */
+        public long getConflicts() {
+            return conflicts;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Report{" +
+                    "scannedSurveys=" + scannedSurveys +
+                    ", scannedResponses=" + scannedResponses +
+                    ", repairedSurveys=" + repairedSurveys +
+                    ", conflicts=" + conflicts +
+                    ", elapsedMillis=" + elapsedMillis +
+                    '}';
+        }
+    }
+
+    /**
+     * Encuestas de un bloque y sus respuestas contadas, leídas en el mismo instante.
+     */
+    private static class Chunk {
+
+        private final List<Survey> surveys;
+        private final Map<Long, ResponseCounts> counts = new HashMap<>();
+
+        private Chunk(List<Survey> surveys, List<ResponseCounts> counts) {
+            this.surveys = surveys;
+            for (ResponseCounts surveyCounts : counts) {
+                this.counts.put(surveyCounts.getSurveyId(), surveyCounts);
+            }
+        }
+    }
+
+    private final TransactionTemplate transactionTemplate;
+    private final SqlSurveyDao surveyDao;
+    private final SqlResponseDao responseDao;
+    private final int chunkSize;
+    private final long maxRowsPerSecond;
+
+    private final LongAdder scannedSurveysCounter;
+    private final LongAdder repairsCounter;
+    private final LongAdder conflictsCounter;
+    private final LongAdder failuresCounter;
+
+    private ScheduledExecutorService scheduler = null;
+    private volatile Report lastReport = null;
+
+    /**
+     * @param maxRowsPerSecond filas leídas por segundo como máximo; 0 para no limitarlas.
+     */
+    public SurveyCounterReconciler(TransactionTemplate transactionTemplate, SqlSurveyDao surveyDao,
+            SqlResponseDao responseDao, int chunkSize, long maxRowsPerSecond, MetricsRegistry registry) {
+
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+
+        this.transactionTemplate = transactionTemplate;
+        this.surveyDao = surveyDao;
+        this.responseDao = responseDao;
+        this.chunkSize = chunkSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+
+        scannedSurveysCounter = registry.counter("survey_counter_scanned_surveys");
+        repairsCounter = registry.counter("survey_counter_repairs");
+        conflictsCounter = registry.counter("survey_counter_repair_conflicts");
+        failuresCounter = registry.counter("survey_counter_reconciliation_failures");
+    }
+
+    /**
+     * Lanza una pasada cada intervalMinutes, en un hilo propio que no impide
+     * que termine la JVM.
+     */
+    public synchronized void start(long intervalMinutes) {
+
+        if (scheduler != null) {
+            throw new IllegalStateException("Reconciler already started");
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "survey-counter-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runScheduled, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Una pasada que falla (p. ej. porque la BD no está disponible) no debe
+     * cancelar las siguientes, como haría el planificador si la excepción
+     * se propagase.
+     */
+    private void runScheduled() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            failuresCounter.increment();
+        }
+    }
+
+    /**
+     * Detiene las pasadas programadas, interrumpiendo la que esté en curso.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Resultado de la última pasada, o null si aún no ha terminado ninguna.
+     */
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Recorre todas las encuestas y corrige sus contadores. Si el hilo se
+     * interrumpe, termina tras el bloque en curso.
+     */
+    public Report reconcile() {
+
+        long start = System.nanoTime();
+        long scannedSurveys = 0;
+        long scannedResponses = 0;
+        long repairedSurveys = 0;
+        long conflicts = 0;
+        Long lastSurveyId = 0L;
+
+        while (!Thread.currentThread().isInterrupted()) {
+
+            Long afterSurveyId = lastSurveyId;
+            Chunk chunk = transactionTemplate.execute(Connection.TRANSACTION_REPEATABLE_READ,
+                    connection -> readChunk(connection, afterSurveyId));
+
+            if (chunk.surveys.isEmpty()) {
+                break;
+            }
+
+            for (Survey survey : chunk.surveys) {
+
+                ResponseCounts counts = chunk.counts.get(survey.getSurveyId());
+                long positiveResponses = counts == null ? 0 : counts.getPositiveResponses();
+                long negativeResponses = counts == null ? 0 : counts.getNegativeResponses();
+                scannedResponses += positiveResponses + negativeResponses;
+
+                if (survey.getPositiveResponses() != positiveResponses
+                        || survey.getNegativeResponses() != negativeResponses) {
+                    boolean repaired = transactionTemplate.execute(connection ->
+                            surveyDao.repairCounters(connection, survey.getSurveyId(),
+                                    survey.getPositiveResponses(), survey.getNegativeResponses(),
+                                    positiveResponses, negativeResponses));
+                    if (repaired) {
+                        repairedSurveys++;
+                        repairsCounter.increment();
+                    } else {
+                        conflicts++;
+                        conflictsCounter.increment();
+                    }
+                }
+            }
+
+            scannedSurveys += chunk.surveys.size();
+            scannedSurveysCounter.add(chunk.surveys.size());
+            lastSurveyId = chunk.surveys.get(chunk.surveys.size() - 1).getSurveyId();
+
+            throttle(start, scannedSurveys + scannedResponses);
+        }
+
+        Report report = new Report(scannedSurveys, scannedResponses, repairedSurveys, conflicts,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        lastReport = report;
+        return report;
+    }
+
+    private Chunk readChunk(Connection connection, Long afterSurveyId) {
+
+        List<Survey> surveys = surveyDao.findAfter(connection, afterSurveyId, chunkSize);
+
+        if (surveys.isEmpty()) {
+            return new Chunk(surveys, List.of());
+        }
+
+        return new Chunk(surveys, responseDao.countBySurveyIdRange(connection,
+                surveys.get(0).getSurveyId(), surveys.get(surveys.size() - 1).getSurveyId()));
+    }
+
+    /**
+     * Espera lo necesario para que las filas leídas desde el inicio de la
+     * pasada no superen maxRowsPerSecond.
+     */
+    private void throttle(long start, long rows) {
+
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+
+        long earliestNanos = start + rows * TimeUnit.SECONDS.toNanos(1) / maxRowsPerSecond;
+        long waitNanos = earliestNanos - System.nanoTime();
+
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package es.udc.ws.app.model.surveyservice;
+
+import es.udc.ws.app.model.survey.SqlSurveyDao;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.survey.SurveyStatus;
+import es.udc.ws.app.model.util.KeysetCursor;
+import es.udc.ws.app.model.util.TransactionTemplate;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lleva las encuestas de OPEN a FINISHED al llegar su endDate y mantiene en
+ * memoria ({@link SurveyStateRegistry}) qué encuestas admiten votos, para
+ * rechazar los votos a encuestas cerradas o inexistentes sin acceder a la BD.
+ * <p>
+ * Al arrancar carga las encuestas en estado OPEN (canceladas o no) y guarda sus
+ * fechas de fin en un montículo. Cada tickMillis saca las vencidas y las pasa a
+ * FINISHED en la BD, así que la columna status puede ir hasta un tick por
+ * detrás de la hora; la comprobación en memoria, en cambio, compara con la
+ * endDate y es exacta. Si la BD falla, las encuestas vuelven al montículo y se
+ * reintentan en el tick siguiente.
+ * <p>
+ * Las encuestas creadas o canceladas desde esta instancia se registran al
+ * confirmarse la transacción. De las demás (creadas o canceladas desde otra
+ * instancia, o descartadas del registro por falta de espacio) no se sabe nada
+ * hasta que se leen de la BD: el servicio las consulta una vez y las registra
+ * con {@link #refresh(Survey)}. Las que no existen se recuerdan sólo durante
+ * notFoundTtlMillis ({@link #notFound(Long)}): los identificadores se asignan
+ * al insertar, y una transacción que aún no ha confirmado puede tener uno
+ * menor que otras ya confirmadas.
+ */
+public class SurveyLifecycleScheduler {
+
+    /**
+     * Estado de una encuesta según lo que se sabe en memoria.
+     */
+    public enum State {
+        OPEN, FINISHED, CANCELED, NOT_FOUND, UNKNOWN
+    }
+
+    // Encuestas leídas por bloque al arrancar y escritas por transacción al finalizar
+    private final static int CHUNK_SIZE = 1000;
+
+    private final TransactionTemplate transactionTemplate;
+    private final SqlSurveyDao surveyDao;
+    private final SurveyStateRegistry registry;
+    private final long tickMillis;
+    private final long notFoundTtlMillis;
+
+    // Montículo de mínimos con las fechas de fin (en milisegundos) de las
+    // encuestas en estado OPEN en la BD, canceladas incluidas. Son dos arrays
+    // en lugar de un objeto por encuesta
+    private final Object deadlinesLock = new Object();
+    private long[] deadlineMillis = new long[1024];
+    private long[] deadlineSurveyIds = new long[1024];
+    private int deadlineCount = 0;
+
+    private final LongAdder finishedCounter;
+    private final LongAdder failuresCounter;
+
+    private ScheduledExecutorService scheduler = null;
+    private volatile boolean loaded = false;
+
+    /**
+     * @param notFoundTtlMillis tiempo durante el que se recuerda que una encuesta no existe.
+     */
+    public SurveyLifecycleScheduler(TransactionTemplate transactionTemplate, SqlSurveyDao surveyDao,
+            SurveyStateRegistry registry, long tickMillis, long notFoundTtlMillis, MetricsRegistry metrics) {
+
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("tickMillis must be at least 1");
+        }
+
+        this.transactionTemplate = transactionTemplate;
+        this.surveyDao = surveyDao;
+        this.registry = registry;
+        this.tickMillis = tickMillis;
+        this.notFoundTtlMillis = notFoundTtlMillis;
+
+        finishedCounter = metrics.counter("survey_lifecycle_finished");
+        failuresCounter = metrics.counter("survey_lifecycle_failures");
+    }
+
+    /**
+     * Carga las encuestas abiertas y lanza un tick cada tickMillis, en un hilo
+     * propio que no impide que termine la JVM. La carga se hace en ese hilo: si
+     * la BD no está disponible se reintenta en cada tick, y mientras tanto las
+     * encuestas se consultan en la BD como si fueran desconocidas.
+     */
+    public synchronized void start() {
+
+        if (scheduler != null) {
+            throw new IllegalStateException("Lifecycle scheduler already started");
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "survey-lifecycle-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runScheduled, 0, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Un tick que falla no debe cancelar los siguientes, como haría el
+     * planificador si la excepción se propagase.
+     */
+    private void runScheduled() {
+        try {
+            if (!loaded) {
+                load();
+            }
+            tick(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            failuresCounter.increment();
+        }
+    }
+
+    /**
+     * Detiene los ticks programados.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Lee de la BD todas las encuestas en estado OPEN, por bloques en orden de
+     * endDate, y programa su fin. Lo ya registrado en memoria es más reciente
+     * y se respeta.
+     */
+    public void load() {
+
+        KeysetCursor after = null;
+
+        while (true) {
+            KeysetCursor afterCursor = after;
+            List<Survey> surveys = transactionTemplate.query(connection ->
+                    surveyDao.findOpen(connection, afterCursor, CHUNK_SIZE));
+
+            for (Survey survey : surveys) {
+                registry.putIfAbsent(survey.getSurveyId(), stateOf(survey));
+                addDeadline(survey.getSurveyId(), toMillis(survey.getEndDate()));
+            }
+
+            if (surveys.size() < CHUNK_SIZE) {
+                break;
+            }
+            Survey last = surveys.get(surveys.size() - 1);
+            after = new KeysetCursor(last.getEndDate(), last.getSurveyId());
+        }
+
+        loaded = true;
+    }
+
+    /**
+     * Pasa a FINISHED en la BD las encuestas cuya endDate es anterior a now.
+     * @return el número de encuestas modificadas en la BD.
+     */
+    public int tick(LocalDateTime now) {
+
+        long nowMillis = toMillis(now);
+        long[] dueMillis = new long[16];
+        long[] dueSurveyIds = new long[16];
+        int dueCount = 0;
+
+        synchronized (deadlinesLock) {
+            while (deadlineCount > 0 && deadlineMillis[0] < nowMillis) {
+                if (dueCount == dueMillis.length) {
+                    dueMillis = Arrays.copyOf(dueMillis, dueCount * 2);
+                    dueSurveyIds = Arrays.copyOf(dueSurveyIds, dueCount * 2);
+                }
+                dueMillis[dueCount] = deadlineMillis[0];
+                dueSurveyIds[dueCount] = deadlineSurveyIds[0];
+                dueCount++;
+                removeFirstDeadline();
+            }
+        }
+
+        for (int i = 0; i < dueCount; i++) {
+            registry.markFinished(dueSurveyIds[i]);
+        }
+
+        int finished = 0;
+
+        for (int from = 0; from < dueCount; from += CHUNK_SIZE) {
+
+            List<Long> surveyIds = Arrays.stream(dueSurveyIds, from, Math.min(from + CHUNK_SIZE, dueCount))
+                    .boxed().toList();
+
+            try {
+                int chunkFinished = transactionTemplate.execute(connection ->
+                        surveyDao.finish(connection, surveyIds));
+                finished += chunkFinished;
+                finishedCounter.add(chunkFinished);
+            } catch (RuntimeException e) {
+                // Se reintentan en el siguiente tick, junto con las que faltaban
+                for (int i = from; i < dueCount; i++) {
+                    addDeadline(dueSurveyIds[i], dueMillis[i]);
+                }
+                throw e;
+            }
+        }
+
+        return finished;
+    }
+
+    /**
+     * Registra una encuesta recién creada y programa su fin.
+     */
+    public void register(Survey survey) {
+        registry.put(survey.getSurveyId(), stateOf(survey));
+        addDeadline(survey.getSurveyId(), toMillis(survey.getEndDate()));
+    }
+
+    /**
+     * Registra una encuesta recién cancelada. Su fin sigue programado: la
+     * encuesta pasará a FINISHED igualmente.
+     */
+    public void cancel(Survey survey) {
+        if (!survey.isCanceled()) {
+            throw new IllegalArgumentException("Survey " + survey.getSurveyId() + " is not canceled");
+        }
+        registry.put(survey.getSurveyId(), stateOf(survey));
+    }
+
+    /**
+     * Actualiza lo que se sabe de una encuesta con la versión leída de la BD,
+     * que sustituye a la que hubiera en memoria. Si no se conocía y sigue en
+     * estado OPEN, programa su fin.
+     */
+    public void refresh(Survey survey) {
+
+        long previous = registry.get(survey.getSurveyId());
+        boolean stored = registry.put(survey.getSurveyId(), stateOf(survey));
+
+        // Sólo si se ha guardado: con el registro lleno, cada lectura volvería a programarla
+        if (stored && (previous == SurveyStateRegistry.ABSENT || SurveyStateRegistry.isNotFound(previous))
+                && survey.getStatus() == SurveyStatus.OPEN) {
+            addDeadline(survey.getSurveyId(), toMillis(survey.getEndDate()));
+        }
+    }
+
+    /**
+     * Registra que la encuesta no existe.
+     */
+    public void notFound(Long surveyId) {
+        if (surveyId > 0) {
+            registry.put(surveyId, SurveyStateRegistry.notFound(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Estado de la encuesta en el instante now según lo registrado en memoria,
+     * o UNKNOWN si no está registrada. Los identificadores no positivos nunca
+     * corresponden a una encuesta.
+     */
+    public State state(Long surveyId, LocalDateTime now) {
+
+        if (surveyId <= 0) {
+            return State.NOT_FOUND;
+        }
+
+        long state = registry.get(surveyId);
+
+        if (state == SurveyStateRegistry.ABSENT) {
+            return State.UNKNOWN;
+        }
+        if (SurveyStateRegistry.isNotFound(state)) {
+            return System.currentTimeMillis() - SurveyStateRegistry.millisOf(state) < notFoundTtlMillis
+                    ? State.NOT_FOUND : State.UNKNOWN;
+        }
+        if (SurveyStateRegistry.isCanceled(state)) {
+            return State.CANCELED;
+        }
+        if (SurveyStateRegistry.isFinished(state) || SurveyStateRegistry.millisOf(state) < toMillis(now)) {
+            return State.FINISHED;
+        }
+        return State.OPEN;
+    }
+
+    /**
+     * Indica si la encuesta ha finalizado en el instante now, aunque la BD aún
+     * no lo refleje.
+     */
+    public static boolean isFinished(Survey survey, LocalDateTime now) {
+        return survey.getStatus() == SurveyStatus.FINISHED || survey.getEndDate().isBefore(now);
+    }
+
+    /**
+     * Número de fines programados pendientes de pasar a FINISHED.
+     */
+    public int getPendingDeadlineCount() {
+        synchronized (deadlinesLock) {
+            return deadlineCount;
+        }
+    }
+
+    private static long stateOf(Survey survey) {
+        long endMillis = toMillis(survey.getEndDate());
+        return survey.getStatus() == SurveyStatus.FINISHED
+                ? SurveyStateRegistry.finished(endMillis, survey.isCanceled())
+                : SurveyStateRegistry.open(endMillis, survey.isCanceled());
+    }
+
+    /**
+     * Las fechas son locales y sin zona; basta con que todas se conviertan igual.
+     */
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private void addDeadline(long surveyId, long endMillis) {
+
+        synchronized (deadlinesLock) {
+
+            if (deadlineCount == deadlineMillis.length) {
+                deadlineMillis = Arrays.copyOf(deadlineMillis, deadlineCount * 2);
+                deadlineSurveyIds = Arrays.copyOf(deadlineSurveyIds, deadlineCount * 2);
+            }
+
+            // Subir el nuevo elemento desde el final hasta su sitio
+            int i = deadlineCount++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!isBefore(endMillis, surveyId, deadlineMillis[parent], deadlineSurveyIds[parent])) {
+                    break;
+                }
+                deadlineMillis[i] = deadlineMillis[parent];
+                deadlineSurveyIds[i] = deadlineSurveyIds[parent];
+                i = parent;
+            }
+            deadlineMillis[i] = endMillis;
+            deadlineSurveyIds[i] = surveyId;
+        }
+    }
+
+    /**
+     * Quita la primera fecha del montículo. Se llama con deadlinesLock tomado.
+     */
+    private void removeFirstDeadline() {
+
+        deadlineCount--;
+        long lastMillis = deadlineMillis[deadlineCount];
+        long lastSurveyId = deadlineSurveyIds[deadlineCount];
+
+        // Bajar el último elemento desde la raíz hasta su sitio
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= deadlineCount) {
+                break;
+            }
+            if (child + 1 < deadlineCount && isBefore(deadlineMillis[child + 1], deadlineSurveyIds[child + 1],
+                    deadlineMillis[child], deadlineSurveyIds[child])) {
+                child++;
+            }
+            if (!isBefore(deadlineMillis[child], deadlineSurveyIds[child], lastMillis, lastSurveyId)) {
+                break;
+            }
+            deadlineMillis[i] = deadlineMillis[child];
+            deadlineSurveyIds[i] = deadlineSurveyIds[child];
+            i = child;
+        }
+        deadlineMillis[i] = lastMillis;
+        deadlineSurveyIds[i] = lastSurveyId;
+    }
+
+    private static boolean isBefore(long millis, long surveyId, long otherMillis, long otherSurveyId) {
+        return millis < otherMillis || (millis == otherMillis && surveyId < otherSurveyId);
+    }
+}
@@ -4,10 +4,17 @@ import es.udc.ws.app.model.surveyservice.exceptions.SurveyAlreadyCanceledExcepti
 import es.udc.ws.app.model.surveyservice.exceptions.SurveyCanceledException;
 import es.udc.ws.app.model.surveyservice.exceptions.SurveyFinishedException;
 import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.surveystats.SurveyStats;
 import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.response.ResponseExportWriter;
+import es.udc.ws.app.model.util.Page;
 import es.udc.ws.util.exceptions.InstanceNotFoundException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface SurveyService {
 
@@ -19,6 +26,17 @@ public interface SurveyService {
     public Survey createSurvey(String question, LocalDateTime endDate)
             throws InputValidationException;
 
+    /**
+     * [FUNC-1] Crea un lote de encuestas (importaciones) en una única
+     * transacción, con inserciones por lotes. Se validan todas antes de crear
+     * ninguna: si alguna no es válida, no se crea ninguna.
+     * @return las encuestas creadas, en el mismo orden que la lista recibida.
+     * @throws InputValidationException con la posición en la lista y el motivo
+     * de cada encuesta no válida.
+     */
+    public List<Survey> createSurveys(List<SurveyCommand> surveys)
+            throws InputValidationException;
+
     /**
      * [FUNC-2] Buscar encuestas por palabra clave.
      * Si la palabraClave es vacía, devuelve todas.
@@ -26,6 +44,22 @@ public interface SurveyService {
      */
     public List<Survey> findSurveys(String keyword, boolean onlyFuture);
 
+    /**
+     * [FUNC-2] Versión paginada de {@link #findSurveys(String, boolean)}, de la
+     * más reciente a la más antigua.
+     * @param pageToken null para pedir la primera página, o el nextPageToken
+     * de la página anterior.
+     * @throws InputValidationException si el token o el tamaño de página no son válidos.
+     */
+    public Page<Survey> findSurveys(String keyword, boolean onlyFuture, String pageToken, int pageSize)
+            throws InputValidationException;
+
+    /**
+     * [FUNC-2] Igual que {@link #findSurveys(String, boolean)}, pero entrega las
+     * encuestas al consumidor una a una sin cargarlas todas en memoria.
+     */
+    public void streamSurveys(String keyword, boolean onlyFuture, Consumer<Survey> consumer);
+
     /**
      * [FUNC-3] Encontrar una encuesta por su ID.
      * Devuelve todos los datos, incluidos los contadores.
@@ -42,6 +76,24 @@ public interface SurveyService {
             throws InstanceNotFoundException, InputValidationException,
             SurveyFinishedException, SurveyCanceledException;
 
+    /**
+     * [FUNC-4] Igual que {@link #respondToSurvey}, pero si está activado el modo
+     * asíncrono el voto se encola y se escribe junto a otros en un mismo commit.
+     * El futuro se completa cuando el voto ya es persistente, o de forma
+     * excepcional con las mismas excepciones que respondToSurvey.
+     */
+    public CompletableFuture<Response> respondToSurveyAsync(Long surveyId, String employeeEmail,
+            boolean response);
+
+    /**
+     * [FUNC-4] Registra un lote de votos (importaciones desde quioscos o
+     * formularios) en una única transacción. Los votos se agrupan por encuesta
+     * y, si un empleado vota varias veces, prevalece su último voto.
+     * Los votos no válidos no impiden registrar el resto.
+     * @return el resultado de cada voto, en el mismo orden que la lista recibida.
+     */
+    public List<VoteResult> respondToSurveyBatch(List<VoteCommand> votes);
+
     /**
      * [FUNC-5] Cancela una encuesta no finalizada.
      * Lanza error si ya está finalizada o ya está cancelada.
@@ -50,6 +102,16 @@ public interface SurveyService {
             throws InstanceNotFoundException, SurveyFinishedException,
             SurveyAlreadyCanceledException;
 
+    /**
+     * Reparte los contadores de la encuesta entre counterShards filas, para
+     * que los votos simultáneos a una encuesta muy votada no esperen todos por
+     * la misma fila. Con 1, los votos incrementan directamente la fila de la
+     * encuesta. Los contadores no cambian y puede modificarse en cualquier momento.
+     * @throws InputValidationException si counterShards está fuera de 1..256.
+     */
+    public Survey setCounterShards(Long surveyId, int counterShards)
+            throws InstanceNotFoundException, InputValidationException;
+
     /**
      * [FUNC-6] Obtiene las respuestas de una encuesta.
      * Puede filtrar solo por respuestas positivas.
@@ -57,4 +119,47 @@ public interface SurveyService {
      */
     public List<Response> getResponses(Long surveyId, boolean onlyPositive)
             throws InstanceNotFoundException;
-}
\ No newline at end of file
+
+    /**
+     * [FUNC-6] Versión paginada de {@link #getResponses(Long, boolean)}, de la
+     * más reciente a la más antigua.
+     * @param pageToken null para pedir la primera página, o el nextPageToken
+     * de la página anterior.
+     * @throws InputValidationException si el token o el tamaño de página no son válidos.
+     */
+    public Page<Response> getResponses(Long surveyId, boolean onlyPositive, String pageToken, int pageSize)
+            throws InstanceNotFoundException, InputValidationException;
+
+    /**
+     * [FUNC-6] Igual que {@link #getResponses(Long, boolean)}, pero entrega las
+     * respuestas al consumidor una a una sin cargarlas todas en memoria.
+     */
+    public void streamResponses(Long surveyId, boolean onlyPositive, Consumer<Response> consumer)
+            throws InstanceNotFoundException;
+
+    /**
+     * Escribe las respuestas de la encuesta, o de todas si surveyId es null,
+     * en un fichero IPC de Apache Arrow ({@link ResponseExportWriter}). Las respuestas
+     * se leen en streaming y se escriben por bloques, sin cargarlas todas en
+     * memoria. No cierra el flujo de salida.
+     * @return el número de respuestas exportadas.
+     * @throws UncheckedIOException si falla la escritura.
+     */
+    public long exportResponses(Long surveyId, OutputStream out) throws InstanceNotFoundException;
+
+    /**
+     * Estadísticas de la encuesta: contadores actuales y votos por horas entre
+     * from (incluido) y to (excluido); cualquiera de los dos límites puede ser
+     * null. Se leen de una tabla que se actualiza con cada voto, así que el
+     * coste depende del número de horas, no del de respuestas.
+     * @throws InputValidationException si from es posterior a to.
+     */
+    public SurveyStats getSurveyStats(Long surveyId, LocalDateTime from, LocalDateTime to)
+            throws InstanceNotFoundException, InputValidationException;
+
+    /**
+     * Escribe los votos asíncronos pendientes, deja de aceptar nuevos y detiene
+     * las tareas en segundo plano. Debe invocarse al parar la aplicación.
+     */
+    public void shutdown();
+}
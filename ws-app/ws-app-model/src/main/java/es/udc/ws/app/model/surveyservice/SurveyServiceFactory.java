@@ -0,0 +1,38 @@
+package es.udc.ws.app.model.surveyservice;
+
+import es.udc.ws.util.configuration.ConfigurationParametersManager;
+
+/**
+ * Factoría para obtener la implementación de {@link SurveyService} configurada
+ * en SurveyService.className.
+ */
+public class SurveyServiceFactory {
+
+    private final static String CLASS_NAME_PARAMETER = "SurveyService.className";
+    private static SurveyService service = null;
+
+    private SurveyServiceFactory() {
+    }
+
+    /**
+     * Instancia la implementación indicada en el parámetro de configuración.
+     * También lo usan los decoradores para crear la implementación a la que delegan.
+     */
+    @SuppressWarnings("rawtypes")
+    static SurveyService getInstance(String classNameParameter) {
+        try {
+            String serviceClassName = ConfigurationParametersManager.getParameter(classNameParameter);
+            Class serviceClass = Class.forName(serviceClassName);
+            return (SurveyService) serviceClass.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public synchronized static SurveyService getService() {
+        if (service == null) {
+            service = getInstance(CLASS_NAME_PARAMETER);
+        }
+        return service;
+    }
+}
@@ -1,38 +1,173 @@
 package es.udc.ws.app.model.surveyservice;
 
+import es.udc.ws.app.model.util.KeysetCursor;
 import es.udc.ws.app.model.util.ModelConstants;
+import es.udc.ws.app.model.util.Page;
+import es.udc.ws.app.model.util.SqlErrors;
+import es.udc.ws.app.model.util.TransactionTemplate;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
 import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.response.ResponseExportWriter;
+import es.udc.ws.app.model.response.ResponseUpsertResult;
 import es.udc.ws.app.model.response.SqlResponseDao;
 import es.udc.ws.app.model.response.SqlResponseDaoFactory;
 import es.udc.ws.app.model.survey.SqlSurveyDao;
 import es.udc.ws.app.model.survey.SqlSurveyDaoFactory;
 import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.surveystats.SqlSurveyStatsDao;
+import es.udc.ws.app.model.surveystats.SqlSurveyStatsDaoFactory;
+import es.udc.ws.app.model.surveystats.SurveyStats;
+import es.udc.ws.app.model.surveystats.SurveyStatsBucket;
 import es.udc.ws.app.model.surveyservice.exceptions.InputValidationException;
 import es.udc.ws.app.model.surveyservice.exceptions.SurveyAlreadyCanceledException;
 import es.udc.ws.app.model.surveyservice.exceptions.SurveyCanceledException;
 import es.udc.ws.app.model.surveyservice.exceptions.SurveyFinishedException;
+import es.udc.ws.util.configuration.ConfigurationParametersManager;
 import es.udc.ws.util.exceptions.InstanceNotFoundException;
 import es.udc.ws.util.sql.DataSourceLocator;
 
-import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class SurveyServiceImpl implements SurveyService {
 
+    // Errores de validación que se detallan en el mensaje de createSurveys
+    private final static int MAX_REPORTED_SURVEY_ERRORS = 10;
+
+    private final static String ASYNC_VOTES_PARAMETER = "SurveyService.asyncVotes.enabled";
+    private final static String ASYNC_QUEUE_CAPACITY_PARAMETER = "SurveyService.asyncVotes.queueCapacity";
+    private final static String ASYNC_MAX_BATCH_SIZE_PARAMETER = "SurveyService.asyncVotes.maxBatchSize";
+    private final static String ASYNC_MAX_DELAY_PARAMETER = "SurveyService.asyncVotes.maxDelayMillis";
+    private final static String RETRY_MAX_ATTEMPTS_PARAMETER = "SurveyService.retry.maxAttempts";
+    private final static String RETRY_INITIAL_BACKOFF_PARAMETER = "SurveyService.retry.initialBackoffMillis";
+    private final static String RETRY_MAX_BACKOFF_PARAMETER = "SurveyService.retry.maxBackoffMillis";
+    private final static String RETRY_BUDGET_PARAMETER = "SurveyService.retry.budgetMillis";
+    private final static String RECONCILIATION_PARAMETER = "SurveyService.counterReconciliation.enabled";
+    private final static String RECONCILIATION_INTERVAL_PARAMETER =
+            "SurveyService.counterReconciliation.intervalMinutes";
+    private final static String RECONCILIATION_CHUNK_SIZE_PARAMETER =
+            "SurveyService.counterReconciliation.chunkSize";
+    private final static String RECONCILIATION_MAX_ROWS_PARAMETER =
+            "SurveyService.counterReconciliation.maxRowsPerSecond";
+    private final static String LIFECYCLE_TICK_PARAMETER = "SurveyService.lifecycle.tickMillis";
+    private final static String REGISTRY_MAX_SURVEYS_PARAMETER = "SurveyService.registry.maxSurveys";
+    private final static String REGISTRY_NOT_FOUND_TTL_PARAMETER = "SurveyService.registry.notFoundTtlMillis";
+
+    // Tamaño máximo de página en los listados paginados
+    private final static int MAX_PAGE_SIZE = 1000;
+
+    // Máximo de filas entre las que se reparten los contadores de una encuesta
+    private final static int MAX_COUNTER_SHARDS = 256;
+
     private static SurveyService instance = null;
 
-    private final DataSource dataSource;
+    /**
+     * Votos nuevos y cambios de voto de un lote que van a la misma fila de
+     * contadores de la encuesta.
+     */
+    private static class CounterDelta {
+
+        // Email de uno de los empleados, que elige la fila en updateCounters
+        private final int shardKey;
+        private long positiveResponses = 0;
+        private long negativeResponses = 0;
+        private long positiveChanges = 0;
+        private long negativeChanges = 0;
+
+        private CounterDelta(int shardKey) {
+            this.shardKey = shardKey;
+        }
+
+        private boolean isEmpty() {
+            return positiveResponses + negativeResponses + positiveChanges + negativeChanges == 0;
+        }
+
+        private void add(CounterDelta other) {
+            positiveResponses += other.positiveResponses;
+            negativeResponses += other.negativeResponses;
+            positiveChanges += other.positiveChanges;
+            negativeChanges += other.negativeChanges;
+        }
+    }
+
+    private final TransactionTemplate transactionTemplate;
     private final SqlSurveyDao surveyDao;
     private final SqlResponseDao responseDao;
+    private final SqlSurveyStatsDao statsDao;
+    private final VoteWriteBehindQueue voteQueue;
+    private final SurveyCounterReconciler counterReconciler;
+    private final SurveyLifecycleScheduler lifecycle;
+
+    public SurveyServiceImpl() {
+        this(Boolean.parseBoolean(ConfigurationParametersManager.getParameter(ASYNC_VOTES_PARAMETER)));
+    }
 
-    private SurveyServiceImpl() {
-        dataSource = DataSourceLocator.getDataSource(ModelConstants.APP_DATA_SOURCE);
+    /**
+     * @param asyncVotes si respondToSurveyAsync encola los votos, en lugar de
+     * lo que indique SurveyService.asyncVotes.enabled. El resto de parámetros
+     * se leen igualmente de la configuración.
+     */
+    public SurveyServiceImpl(boolean asyncVotes) {
+        transactionTemplate = new TransactionTemplate(
+                DataSourceLocator.getDataSource(ModelConstants.APP_DATA_SOURCE),
+                Integer.parseInt(ConfigurationParametersManager.getParameter(RETRY_MAX_ATTEMPTS_PARAMETER)),
+                Long.parseLong(ConfigurationParametersManager.getParameter(RETRY_INITIAL_BACKOFF_PARAMETER)),
+                Long.parseLong(ConfigurationParametersManager.getParameter(RETRY_MAX_BACKOFF_PARAMETER)),
+                Long.parseLong(ConfigurationParametersManager.getParameter(RETRY_BUDGET_PARAMETER)),
+                MetricsRegistry.getInstance());
         surveyDao = SqlSurveyDaoFactory.getDao();
         responseDao = SqlResponseDaoFactory.getDao();
+        statsDao = SqlSurveyStatsDaoFactory.getDao();
+
+        SurveyStateRegistry registry = new SurveyStateRegistry(
+                Integer.parseInt(ConfigurationParametersManager.getParameter(REGISTRY_MAX_SURVEYS_PARAMETER)),
+                MetricsRegistry.getInstance());
+        lifecycle = new SurveyLifecycleScheduler(transactionTemplate, surveyDao, registry,
+                Long.parseLong(ConfigurationParametersManager.getParameter(LIFECYCLE_TICK_PARAMETER)),
+                Long.parseLong(ConfigurationParametersManager.getParameter(REGISTRY_NOT_FOUND_TTL_PARAMETER)),
+                MetricsRegistry.getInstance());
+        lifecycle.start();
+
+        if (asyncVotes) {
+            voteQueue = new VoteWriteBehindQueue(
+                    Integer.parseInt(ConfigurationParametersManager.getParameter(ASYNC_QUEUE_CAPACITY_PARAMETER)),
+                    Integer.parseInt(ConfigurationParametersManager.getParameter(ASYNC_MAX_BATCH_SIZE_PARAMETER)),
+                    Long.parseLong(ConfigurationParametersManager.getParameter(ASYNC_MAX_DELAY_PARAMETER)),
+                    this::respondToSurveyBatch, SurveyServiceImpl::toException);
+            // Escribir los votos pendientes antes de que termine la JVM
+            Runtime.getRuntime().addShutdownHook(new Thread(voteQueue::close));
+        } else {
+            voteQueue = null;
+        }
+
+        if (Boolean.parseBoolean(ConfigurationParametersManager.getParameter(RECONCILIATION_PARAMETER))) {
+            counterReconciler = new SurveyCounterReconciler(transactionTemplate, surveyDao, responseDao,
+                    Integer.parseInt(ConfigurationParametersManager.getParameter(
+                            RECONCILIATION_CHUNK_SIZE_PARAMETER)),
+                    Long.parseLong(ConfigurationParametersManager.getParameter(RECONCILIATION_MAX_ROWS_PARAMETER)),
+                    MetricsRegistry.getInstance());
+            counterReconciler.start(
+                    Long.parseLong(ConfigurationParametersManager.getParameter(RECONCILIATION_INTERVAL_PARAMETER)));
+        } else {
+            counterReconciler = null;
+        }
     }
 
     public synchronized static SurveyService getInstance() {
@@ -42,12 +177,59 @@ public class SurveyServiceImpl implements SurveyService {
         return instance;
     }
 
+    @Override
+    public void shutdown() {
+        lifecycle.stop();
+        if (counterReconciler != null) {
+            counterReconciler.stop();
+        }
+        if (voteQueue != null) {
+            voteQueue.close();
+        }
+    }
+
+    private static boolean isValidEmail(String employeeEmail) {
+        return employeeEmail != null && !employeeEmail.trim().isEmpty() && employeeEmail.contains("@");
+    }
+
+    private static void validateEmployeeEmail(String employeeEmail) throws InputValidationException {
+
+        if (employeeEmail == null || employeeEmail.trim().isEmpty()) {
+            throw new InputValidationException("Employee email cannot be null or empty");
+        }
+        // [OPCIONAL] Validación simple de formato de email
+        if (!employeeEmail.contains("@")) {
+            throw new InputValidationException("Invalid email format");
+        }
+    }
+
+    /**
+     * Convierte el rechazo de un voto procesado por lotes en la excepción
+     * que habría lanzado respondToSurvey.
+     */
+    private static Exception toException(VoteResult result) {
+
+        Long surveyId = result.getVote().getSurveyId();
+
+        return switch (result.getStatus()) {
+            case REJECTED_NOT_FOUND -> new InstanceNotFoundException(surveyId, Survey.class.getName());
+            case REJECTED_CANCELED ->
+                    new SurveyCanceledException("Cannot respond to a canceled survey (ID: " + surveyId + ")");
+            case REJECTED_FINISHED ->
+                    new SurveyFinishedException("Cannot respond to a finished survey (ID: " + surveyId + ")");
+            default -> new InputValidationException("Invalid vote for survey " + surveyId);
+        };
+    }
+
     private void validateCreateSurvey(String question, LocalDateTime endDate)
             throws InputValidationException {
 
         if (question == null || question.trim().isEmpty()) {
             throw new InputValidationException("Question cannot be null or empty");
         }
+        if (endDate == null) {
+            throw new InputValidationException("End date cannot be null");
+        }
         if (endDate.isBefore(LocalDateTime.now())) {
             throw new InputValidationException("End date must be a future date");
         }
@@ -63,43 +245,87 @@ public class SurveyServiceImpl implements SurveyService {
         // Ignoramos nanosegundos para compatibilidad con BD MySQL y evitar errores en tests
         survey.setCreationDate(LocalDateTime.now().withNano(0));
 
-        try (Connection connection = dataSource.getConnection()) {
+        Survey createdSurvey = transactionTemplate.execute(connection -> surveyDao.create(connection, survey));
+        lifecycle.register(createdSurvey);
+
+        return createdSurvey;
+    }
+
+    @Override
+    public List<Survey> createSurveys(List<SurveyCommand> surveys) throws InputValidationException {
+
+        // Se recogen los errores de todo el lote para informar de una vez
+        List<String> errors = new ArrayList<>();
+        int invalidSurveys = 0;
 
+        for (int i = 0; i < surveys.size(); i++) {
+            SurveyCommand survey = surveys.get(i);
             try {
-                connection.setAutoCommit(false);
-                Survey createdSurvey = surveyDao.create(connection, survey);
-                connection.commit();
-                return createdSurvey;
-
-            } catch (SQLException e) {
-                connection.rollback();
-                throw new RuntimeException(e);
-            } catch (RuntimeException | Error e) {
-                connection.rollback();
-                throw e;
+                validateCreateSurvey(survey.getQuestion(), survey.getEndDate());
+            } catch (InputValidationException e) {
+                if (invalidSurveys++ < MAX_REPORTED_SURVEY_ERRORS) {
+                    errors.add("survey " + i + ": " + e.getMessage());
+                }
             }
+        }
 
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        if (invalidSurveys > 0) {
+            if (invalidSurveys > MAX_REPORTED_SURVEY_ERRORS) {
+                errors.add((invalidSurveys - MAX_REPORTED_SURVEY_ERRORS) + " more");
+            }
+            throw new InputValidationException(invalidSurveys + " invalid surveys ("
+                    + String.join("; ", errors) + ")");
         }
+
+        LocalDateTime creationDate = LocalDateTime.now().withNano(0);
+        List<Survey> newSurveys = new ArrayList<>(surveys.size());
+        for (SurveyCommand command : surveys) {
+            Survey survey = new Survey(command.getQuestion(), command.getEndDate());
+            survey.setCreationDate(creationDate);
+            newSurveys.add(survey);
+        }
+
+        // Si la transacción se repite, createBatch vuelve a asignar los identificadores
+        transactionTemplate.execute(connection -> {
+            surveyDao.createBatch(connection, newSurveys);
+            return null;
+        });
+        for (Survey survey : newSurveys) {
+            lifecycle.register(survey);
+        }
+
+        return newSurveys;
     }
 
     @Override
     public List<Survey> findSurveys(String keyword, boolean onlyFuture) {
-        try (Connection connection = dataSource.getConnection()) {
-            return surveyDao.findByKeyword(connection, keyword, onlyFuture);
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        return transactionTemplate.query(connection -> surveyDao.findByKeyword(connection, keyword, onlyFuture));
+    }
+
+    @Override
+    public Page<Survey> findSurveys(String keyword, boolean onlyFuture, String pageToken, int pageSize)
+            throws InputValidationException {
+
+        KeysetCursor after = validatePage(pageToken, pageSize);
+
+        return transactionTemplate.query(connection -> {
+            // Se pide una fila más para saber si hay página siguiente
+            List<Survey> surveys = surveyDao.findByKeyword(connection, keyword, onlyFuture, after, pageSize + 1);
+            return toPage(surveys, pageSize, survey -> new KeysetCursor(survey.getCreationDate(), survey.getSurveyId()));
+        });
+    }
+
+    @Override
+    public void streamSurveys(String keyword, boolean onlyFuture, Consumer<Survey> consumer) {
+        transactionTemplate.query(connection -> {
+            surveyDao.streamByKeyword(connection, keyword, onlyFuture, consumer);
+            return null;
+        });
     }
 
     @Override
     public Survey findSurvey(Long surveyId) throws InstanceNotFoundException {
-        try (Connection connection = dataSource.getConnection()) {
-            return surveyDao.find(connection, surveyId);
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        return transactionTemplate.query(connection -> surveyDao.find(connection, surveyId));
     }
 
     @Override
@@ -108,91 +334,391 @@ public class SurveyServiceImpl implements SurveyService {
             SurveyFinishedException, SurveyCanceledException {
 
         // Validar email
-        if (employeeEmail == null || employeeEmail.trim().isEmpty()) {
-            throw new InputValidationException("Employee email cannot be null or empty");
+        validateEmployeeEmail(employeeEmail);
+
+        // Rechazar los votos a encuestas cerradas o inexistentes antes de
+        // pedir una conexión
+        checkSurveyAcceptsResponses(surveyId);
+
+        // Los contadores se modifican con incrementos atómicos, así que basta
+        // READ COMMITTED: los votos concurrentes sobre una misma encuesta sólo
+        // esperan entre sí durante el UPDATE de los contadores. Si aun así chocan
+        // (interbloqueo entre el upsert y el UPDATE), la plantilla repite la
+        // transacción completa.
+        return transactionTemplate.<Response, InstanceNotFoundException, SurveyCanceledException,
+                SurveyFinishedException>execute(Connection.TRANSACTION_READ_COMMITTED, connection -> {
+
+            LocalDateTime now = LocalDateTime.now();
+
+            // 1. Crear o actualizar la respuesta del empleado en una sola sentencia,
+            // que además indica qué había respondido antes [FUNC-4]
+            Response resultResponse = new Response(surveyId, employeeEmail, response, now.withNano(0));
+            ResponseUpsertResult upsertResult = responseDao.upsert(connection, resultResponse);
+
+            // 2. Actualizar contadores sólo si la encuesta existe, no está cancelada
+            // ni ha finalizado. Si el voto no cambia, no hay contadores que
+            // actualizar, pero se comprueba igualmente en la BD: la comprobación
+            // anterior usa lo que se sabe en memoria, que puede no reflejar una
+            // cancelación desde otra instancia. Las excepciones deshacen la
+            // respuesta ya escrita (también la nueva fecha de un voto repetido).
+            if (upsertResult == ResponseUpsertResult.UNCHANGED) {
+                if (!surveyDao.acceptsResponses(connection, surveyId)) {
+                    checkSurveyAcceptsResponses(connection, surveyId, now);
+                    throw new IllegalStateException("Survey " + surveyId + " does not accept responses");
+                }
+                resultResponse = responseDao.findBySurveyAndEmployee(connection, surveyId, employeeEmail)
+                        .orElseThrow();
+            } else {
+                long positiveDelta;
+                long negativeDelta;
+
+                if (upsertResult == ResponseUpsertResult.CREATED) {
+                    positiveDelta = response ? 1 : 0;
+                    negativeDelta = response ? 0 : 1;
+                } else {
+                    // Cambia el sentido del voto: se mueve de un contador al otro
+                    positiveDelta = response ? 1 : -1;
+                    negativeDelta = -positiveDelta;
+                }
+
+                // Si la encuesta reparte sus contadores, el email elige la fila
+                int shard = surveyDao.updateCounters(connection, surveyId, employeeEmail.hashCode(),
+                        positiveDelta, negativeDelta);
+                if (shard < 0) {
+                    // Se canceló desde otra instancia o acaba de finalizar
+                    checkSurveyAcceptsResponses(connection, surveyId, now);
+                    throw new IllegalStateException("Could not update counters of survey " + surveyId);
+                }
+
+                // 3. Registrar el voto en las estadísticas de esta hora. Se hace después
+                // de los contadores para que todos los votos bloqueen las filas en el
+                // mismo orden (Survey y luego SurveyStats)
+                if (upsertResult == ResponseUpsertResult.CREATED) {
+                    statsDao.increment(connection, surveyId, SurveyStatsBucket.bucketStartOf(now), shard,
+                            positiveDelta, negativeDelta, 0, 0);
+                } else {
+                    statsDao.increment(connection, surveyId, SurveyStatsBucket.bucketStartOf(now), shard,
+                            0, 0, response ? 1 : 0, response ? 0 : 1);
+                }
+            }
+
+            return resultResponse;
+        });
+    }
+
+    /**
+     * Comprueba que la encuesta existe y admite respuestas con lo que se sabe
+     * en memoria. Sólo si la encuesta no se conoce la lee de la BD (y así la
+     * registra).
+     */
+    private void checkSurveyAcceptsResponses(Long surveyId)
+            throws InstanceNotFoundException, SurveyCanceledException, SurveyFinishedException {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        switch (lifecycle.state(surveyId, now)) {
+            case NOT_FOUND -> throw new InstanceNotFoundException(surveyId, Survey.class.getName());
+            case CANCELED ->
+                    throw new SurveyCanceledException("Cannot respond to a canceled survey (ID: " + surveyId + ")");
+            case FINISHED ->
+                    throw new SurveyFinishedException("Cannot respond to a finished survey (ID: " + surveyId + ")");
+            case UNKNOWN -> transactionTemplate.<Void, InstanceNotFoundException, SurveyCanceledException,
+                    SurveyFinishedException>query(connection -> {
+                checkSurveyAcceptsResponses(connection, surveyId, now);
+                return null;
+            });
+            case OPEN -> {
+            }
         }
-        // [OPCIONAL] Validación simple de formato de email
-        if (!employeeEmail.contains("@")) {
-            throw new InputValidationException("Invalid email format");
+    }
+
+    /**
+     * Comprueba en la BD que la encuesta existe y admite respuestas (no
+     * cancelada ni finalizada), y actualiza lo que se sabe de ella en memoria.
+     */
+    private void checkSurveyAcceptsResponses(Connection connection, Long surveyId, LocalDateTime now)
+            throws InstanceNotFoundException, SurveyCanceledException, SurveyFinishedException {
+
+        Survey survey;
+        try {
+            survey = surveyDao.find(connection, surveyId);
+        } catch (InstanceNotFoundException e) {
+            lifecycle.notFound(surveyId);
+            throw e;
         }
+        lifecycle.refresh(survey);
 
-        try (Connection connection = dataSource.getConnection()) {
+        if (survey.isCanceled()) {
+            throw new SurveyCanceledException("Cannot respond to a canceled survey (ID: " + surveyId + ")");
+        }
+        if (SurveyLifecycleScheduler.isFinished(survey, now)) {
+            throw new SurveyFinishedException("Cannot respond to a finished survey (ID: " + surveyId + ")");
+        }
+    }
 
-            try {
-                // CORRECCIÓN PRIMERA ITERACION: Configuración del nivel de aislamiento
-                connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
-                connection.setAutoCommit(false);
+    @Override
+    public CompletableFuture<Response> respondToSurveyAsync(Long surveyId, String employeeEmail,
+            boolean response) {
 
-                // 1. Buscar la encuesta. Lanza InstanceNotFoundException si no existe
-                Survey survey = surveyDao.find(connection, surveyId);
+        try {
+            if (voteQueue == null) {
+                return CompletableFuture.completedFuture(respondToSurvey(surveyId, employeeEmail, response));
+            }
+            validateEmployeeEmail(employeeEmail);
+            // No se encolan votos que se sabe que se van a rechazar
+            checkSurveyAcceptsResponses(surveyId);
+            return voteQueue.submit(new VoteCommand(surveyId, employeeEmail, response));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 
-                // 2. Verificar si está cancelada [FUNC-4]
-                if (survey.isCanceled()) {
-                    throw new SurveyCanceledException("Cannot respond to a canceled survey (ID: " + surveyId + ")");
-                }
+    @Override
+    public List<VoteResult> respondToSurveyBatch(List<VoteCommand> votes) {
 
-                // 3. Verificar si ha finalizado [FUNC-4]
-                if (survey.getEndDate().isBefore(LocalDateTime.now())) {
-                    throw new SurveyFinishedException("Cannot respond to a finished survey (ID: " + surveyId + ")");
-                }
+        VoteResult[] results = new VoteResult[votes.size()];
 
-                // 4. Buscar si ya existe respuesta de este empleado
-                Optional<Response> existingResponseOp = responseDao.findBySurveyAndEmployee(connection, surveyId, employeeEmail);
-                Response resultResponse;
-
-                if (existingResponseOp.isPresent()) {
-                    // Actualizar respuesta existente [FUNC-4]
-                    Response existingResponse = existingResponseOp.get();
-                    boolean oldResponseValue = existingResponse.getResponse();
-
-                    // Si cambia el sentido del voto, actualizamos contadores
-                    if (oldResponseValue != response) {
-                        if (oldResponseValue) { // Era positiva, ahora negativa
-                            survey.setPositiveResponses(survey.getPositiveResponses() - 1);
-                            survey.setNegativeResponses(survey.getNegativeResponses() + 1);
-                        } else { // Era negativa, ahora positiva
-                            survey.setNegativeResponses(survey.getNegativeResponses() - 1);
-                            survey.setPositiveResponses(survey.getPositiveResponses() + 1);
-                        }
-                        surveyDao.update(connection, survey);
-                    }
+        // Agrupar por encuesta las posiciones de los votos válidos, conservando el orden
+        Map<Long, List<Integer>> votesBySurvey = new LinkedHashMap<>();
 
-                    // Actualizamos la respuesta con el nuevo valor y fecha
-                    existingResponse.setResponse(response);
-                    existingResponse.setResponseDate(LocalDateTime.now().withNano(0));
-                    responseDao.update(connection, existingResponse);
-                    resultResponse = existingResponse;
+        for (int i = 0; i < votes.size(); i++) {
+            VoteCommand vote = votes.get(i);
+            if (vote.getSurveyId() == null || !isValidEmail(vote.getEmployeeEmail())) {
+                results[i] = new VoteResult(vote, VoteStatus.REJECTED_INVALID, null);
+            } else {
+                votesBySurvey.computeIfAbsent(vote.getSurveyId(), id -> new ArrayList<>()).add(i);
+            }
+        }
 
-                } else {
-                    // Crear nueva respuesta [FUNC-4]
-                    resultResponse = new Response(surveyId, employeeEmail, response, LocalDateTime.now().withNano(0));
-                    responseDao.create(connection, resultResponse);
+        // Si la transacción se repite, cada grupo vuelve a leer sus respuestas y
+        // sobrescribe los resultados de todas sus posiciones
+        return transactionTemplate.execute(Connection.TRANSACTION_READ_COMMITTED, connection -> {
+
+            LocalDateTime now = LocalDateTime.now();
 
-                    // Actualizar contadores de la encuesta
-                    if (response) {
-                        survey.setPositiveResponses(survey.getPositiveResponses() + 1);
+            for (Map.Entry<Long, List<Integer>> entry : votesBySurvey.entrySet()) {
+                respondToSurveyGroup(connection, entry.getKey(), votes, entry.getValue(), results, now);
+            }
+
+            return Arrays.asList(results);
+        });
+    }
+
+    /**
+     * Aplica los votos de un lote dirigidos a una misma encuesta: carga de una vez
+     * las respuestas previas, escribe las respuestas con sentencias por lotes y
+     * actualiza los contadores una sola vez con la variación neta.
+     */
+    private void respondToSurveyGroup(Connection connection, Long surveyId, List<VoteCommand> votes,
+            List<Integer> positions, VoteResult[] results, LocalDateTime now) throws SQLException {
+
+        VoteStatus rejection = findRejection(connection, surveyId, now);
+
+        if (rejection != null) {
+            rejectVotes(votes, positions, results, rejection);
+            return;
+        }
+
+        Savepoint savepoint = TransactionTemplate.setSavepoint(connection);
+
+        // La lectura con bloqueo no impide que otra transacción inserte a la vez
+        // la primera respuesta de alguno de los empleados (con READ COMMITTED no
+        // se bloquean los huecos). Entonces se deshace el grupo y se vuelve a
+        // leer: ese empleado ya tiene respuesta previa. Cada repetición se debe
+        // a un empleado distinto del grupo, así que el bucle termina.
+        while (!applyVotes(connection, surveyId, votes, positions, results, now, savepoint)) {
+            TransactionTemplate.rollback(connection, savepoint);
+        }
+    }
+
+    /**
+     * Un intento de {@link #respondToSurveyGroup}, desde el savepoint indicado.
+     * @return false si otra transacción ha insertado a la vez la respuesta de
+     * alguno de los empleados y hay que repetir el grupo.
+     */
+    private boolean applyVotes(Connection connection, Long surveyId, List<VoteCommand> votes,
+            List<Integer> positions, VoteResult[] results, LocalDateTime now, Savepoint savepoint)
+            throws SQLException {
+
+        // Último voto de cada empleado: si vota varias veces en el lote, sólo
+        // ese cuenta, comparado con la respuesta que tenía antes del lote
+        Map<String, Boolean> lastVotes = new LinkedHashMap<>();
+        for (int position : positions) {
+            VoteCommand vote = votes.get(position);
+            lastVotes.put(vote.getEmployeeEmail(), vote.getResponse());
+        }
+
+        // Respuestas vigentes de los empleados del grupo, indexadas por email
+        Map<String, Response> currentResponses = new HashMap<>();
+        for (Response response : responseDao.findBySurveyAndEmployees(connection, surveyId,
+                lastVotes.keySet())) {
+            currentResponses.put(response.getEmployeeEmail(), response);
+        }
+
+        List<Response> responsesToCreate = new ArrayList<>();
+        List<Response> responsesToUpdate = new ArrayList<>();
+        // Respuestas nuevas y cambios de voto de cada empleado, para los
+        // contadores y las estadísticas
+        List<CounterDelta> deltas = new ArrayList<>();
+        LocalDateTime responseDate = now.withNano(0);
+
+        for (Map.Entry<String, Boolean> lastVote : lastVotes.entrySet()) {
+
+            String email = lastVote.getKey();
+            boolean value = lastVote.getValue();
+            Response response = currentResponses.get(email);
+            CounterDelta delta = new CounterDelta(email.hashCode());
+
+            if (response == null) {
+                response = new Response(surveyId, email, value, responseDate);
+                currentResponses.put(email, response);
+                responsesToCreate.add(response);
+                if (value) {
+                    delta.positiveResponses++;
+                } else {
+                    delta.negativeResponses++;
+                }
+            } else {
+                if (response.getResponse() != value) {
+                    if (value) {
+                        delta.positiveChanges++;
                     } else {
-                        survey.setNegativeResponses(survey.getNegativeResponses() + 1);
+                        delta.negativeChanges++;
                     }
-                    surveyDao.update(connection, survey);
+                    response.setResponse(value);
                 }
+                response.setResponseDate(responseDate);
+                responsesToUpdate.add(response);
+            }
 
-                connection.commit();
-                return resultResponse;
-
-            } catch (InstanceNotFoundException | SurveyCanceledException | SurveyFinishedException e) {
-                connection.commit(); // Liberar bloqueos de lectura si los hubiera
-                throw e;
-            } catch (SQLException e) {
-                connection.rollback();
-                throw new RuntimeException(e);
-            } catch (RuntimeException | Error e) {
-                connection.rollback();
-                throw e;
+            if (!delta.isEmpty()) {
+                deltas.add(delta);
             }
+        }
 
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        try {
+            if (!responsesToCreate.isEmpty()) {
+                responseDao.createBatch(connection, responsesToCreate);
+            }
+            if (!responsesToUpdate.isEmpty()) {
+                responseDao.updateBatch(connection, responsesToUpdate);
+            }
+        } catch (InstanceNotFoundException e) {
+            // Las respuestas se acaban de leer bloqueadas, no pueden haber desaparecido
+            throw new IllegalStateException(e);
+        } catch (RuntimeException e) {
+            if (SqlErrors.isDuplicateEntry(e)) {
+                return false;
+            }
+            throw e;
+        }
+
+        // Todos los votos de un empleado comparten su respuesta final; el primero
+        // de un empleado sin respuesta previa es el que la crea
+        Set<String> createdEmails = new HashSet<>();
+        for (Response response : responsesToCreate) {
+            createdEmails.add(response.getEmployeeEmail());
+        }
+        for (int position : positions) {
+            VoteCommand vote = votes.get(position);
+            String email = vote.getEmployeeEmail();
+            VoteStatus status = createdEmails.remove(email) ? VoteStatus.ACCEPTED : VoteStatus.UPDATED;
+            results[position] = new VoteResult(vote, status, currentResponses.get(email));
+        }
+
+        // Si ningún voto cambia los contadores, updateCounters no comprueba la
+        // encuesta: se comprueba aquí en la BD, como en un voto individual, para
+        // no reescribir las fechas de una encuesta cancelada desde otra instancia
+        if (deltas.isEmpty() && !surveyDao.acceptsResponses(connection, surveyId)) {
+            TransactionTemplate.rollback(connection, savepoint);
+            rejectVotes(votes, positions, results, findRejectionInDatabase(connection, surveyId, now));
+            return true;
+        }
+
+        for (CounterDelta delta : groupByShard(connection, surveyId, deltas)) {
+
+            long positiveDelta = delta.positiveResponses + delta.positiveChanges - delta.negativeChanges;
+            long negativeDelta = delta.negativeResponses + delta.negativeChanges - delta.positiveChanges;
+
+            int shard = surveyDao.updateCounters(connection, surveyId, delta.shardKey,
+                    positiveDelta, negativeDelta);
+
+            if (shard < 0) {
+                // La encuesta se canceló mientras tanto: se deshace el grupo completo
+                TransactionTemplate.rollback(connection, savepoint);
+                rejectVotes(votes, positions, results, findRejectionInDatabase(connection, surveyId, now));
+                return true;
+            }
+
+            statsDao.increment(connection, surveyId, SurveyStatsBucket.bucketStartOf(now), shard,
+                    delta.positiveResponses, delta.negativeResponses, delta.positiveChanges,
+                    delta.negativeChanges);
+        }
+
+        return true;
+    }
+
+    /**
+     * Suma las variaciones de los empleados que van a la misma fila de
+     * contadores, como en un voto individual, ordenadas por fila para que dos
+     * lotes bloqueen las filas siempre en el mismo orden. El número de filas se
+     * lee de la caché si es posible: si ha cambiado, updateCounters las sigue
+     * eligiendo bien y sólo se pierde parte del agrupamiento.
+     */
+    private List<CounterDelta> groupByShard(Connection connection, Long surveyId, List<CounterDelta> deltas) {
+
+        if (deltas.size() < 2) {
+            return deltas;
+        }
+
+        int counterShards;
+        try {
+            counterShards = surveyDao.find(connection, surveyId).getCounterShards();
+        } catch (InstanceNotFoundException e) {
+            // updateCounters lo detecta y se rechaza el grupo
+            counterShards = 1;
+        }
+
+        Map<Integer, CounterDelta> deltasByShard = new TreeMap<>();
+        for (CounterDelta delta : deltas) {
+            deltasByShard.computeIfAbsent(Math.floorMod(delta.shardKey, counterShards),
+                    shard -> new CounterDelta(delta.shardKey)).add(delta);
+        }
+
+        return new ArrayList<>(deltasByShard.values());
+    }
+
+    /**
+     * Devuelve por qué se rechazarían los votos a la encuesta, o null si los
+     * admite. Sólo consulta la BD si la encuesta no se conoce en memoria.
+     */
+    private VoteStatus findRejection(Connection connection, Long surveyId, LocalDateTime now) {
+        return switch (lifecycle.state(surveyId, now)) {
+            case OPEN -> null;
+            case NOT_FOUND -> VoteStatus.REJECTED_NOT_FOUND;
+            case CANCELED -> VoteStatus.REJECTED_CANCELED;
+            case FINISHED -> VoteStatus.REJECTED_FINISHED;
+            case UNKNOWN -> findRejectionInDatabase(connection, surveyId, now);
+        };
+    }
+
+    private VoteStatus findRejectionInDatabase(Connection connection, Long surveyId, LocalDateTime now) {
+        try {
+            checkSurveyAcceptsResponses(connection, surveyId, now);
+            return null;
+        } catch (InstanceNotFoundException e) {
+            return VoteStatus.REJECTED_NOT_FOUND;
+        } catch (SurveyCanceledException e) {
+            return VoteStatus.REJECTED_CANCELED;
+        } catch (SurveyFinishedException e) {
+            return VoteStatus.REJECTED_FINISHED;
+        }
+    }
+
+    private static void rejectVotes(List<VoteCommand> votes, List<Integer> positions,
+            VoteResult[] results, VoteStatus status) {
+        for (int position : positions) {
+            results[position] = new VoteResult(votes.get(position), status, null);
         }
     }
 
@@ -201,50 +727,64 @@ public class SurveyServiceImpl implements SurveyService {
             throws InstanceNotFoundException, SurveyFinishedException,
             SurveyAlreadyCanceledException {
 
-        try (Connection connection = dataSource.getConnection()) {
-            try {
-                connection.setAutoCommit(false);
+        Survey canceledSurvey = transactionTemplate.<Survey, InstanceNotFoundException, SurveyFinishedException,
+                SurveyAlreadyCanceledException>execute(connection -> {
 
-                // 1. Buscar la encuesta. Lanza InstanceNotFoundException si no existe
-                Survey survey = surveyDao.find(connection, surveyId);
+            // 1. Buscar la encuesta. Lanza InstanceNotFoundException si no existe
+            Survey survey = surveyDao.find(connection, surveyId);
+            checkSurveyCanBeCanceled(survey);
 
-                // 2. [FUNC-5] Verificar si ha finalizado
-                if (survey.getEndDate().isBefore(LocalDateTime.now())) {
-                    throw new SurveyFinishedException("Cannot cancel a finished survey (ID: " + surveyId + ")");
-                }
+            // 2. Cancelar la encuesta. Si no se cancela es que cambió desde que
+            // se leyó (p. ej. la copia estaba cacheada): se vuelve a leer para
+            // saber por qué
+            if (!surveyDao.cancel(connection, surveyId)) {
+                checkSurveyCanBeCanceled(surveyDao.find(connection, surveyId));
+                throw new IllegalStateException("Could not cancel survey " + surveyId);
+            }
 
-                // 3. [FUNC-5] Verificar si ya estaba cancelada
-                if (survey.isCanceled()) {
-                    throw new SurveyAlreadyCanceledException("Survey is already canceled (ID: " + surveyId + ")");
-                }
+            survey.setCanceled(true);
+            return survey;
+        });
 
-                // 4. Cancelar la encuesta
-                survey.setCanceled(true);
-                surveyDao.update(connection, survey);
-
-                connection.commit();
-                return survey;
-
-            } catch (InstanceNotFoundException | SurveyFinishedException | SurveyAlreadyCanceledException e) {
-                connection.commit(); // Liberar bloqueos de lectura
-                throw e;
-            } catch (SQLException e) {
-                connection.rollback();
-                throw new RuntimeException(e);
-            } catch (RuntimeException | Error e) {
-                connection.rollback();
-                throw e;
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        lifecycle.cancel(canceledSurvey);
+
+        return canceledSurvey;
+    }
+
+    private static void checkSurveyCanBeCanceled(Survey survey)
+            throws SurveyFinishedException, SurveyAlreadyCanceledException {
+
+        // [FUNC-5] Verificar si ha finalizado
+        if (SurveyLifecycleScheduler.isFinished(survey, LocalDateTime.now())) {
+            throw new SurveyFinishedException("Cannot cancel a finished survey (ID: " + survey.getSurveyId() + ")");
+        }
+
+        // [FUNC-5] Verificar si ya estaba cancelada
+        if (survey.isCanceled()) {
+            throw new SurveyAlreadyCanceledException("Survey is already canceled (ID: "
+                    + survey.getSurveyId() + ")");
+        }
+    }
+
+    @Override
+    public Survey setCounterShards(Long surveyId, int counterShards)
+            throws InstanceNotFoundException, InputValidationException {
+
+        if (counterShards < 1 || counterShards > MAX_COUNTER_SHARDS) {
+            throw new InputValidationException("counterShards must be between 1 and " + MAX_COUNTER_SHARDS);
         }
+
+        return transactionTemplate.execute(connection -> {
+            surveyDao.updateCounterShards(connection, surveyId, counterShards);
+            return surveyDao.find(connection, surveyId);
+        });
     }
 
     @Override
     public List<Response> getResponses(Long surveyId, boolean onlyPositive)
             throws InstanceNotFoundException {
 
-        try (Connection connection = dataSource.getConnection()) {
+        return transactionTemplate.query(connection -> {
 
             // [FUNC-6] Primero verificamos que la encuesta existe
             // Si no existe, el DAO lanzará InstanceNotFoundException
@@ -252,9 +792,108 @@ public class SurveyServiceImpl implements SurveyService {
 
             // Recuperamos las respuestas
             return responseDao.findBySurveyId(connection, surveyId, onlyPositive);
+        });
+    }
+
+    @Override
+    public Page<Response> getResponses(Long surveyId, boolean onlyPositive, String pageToken, int pageSize)
+            throws InstanceNotFoundException, InputValidationException {
+
+        KeysetCursor after = validatePage(pageToken, pageSize);
+
+        return transactionTemplate.query(connection -> {
+
+            // [FUNC-6] Primero verificamos que la encuesta existe
+            surveyDao.find(connection, surveyId);
+
+            // Se pide una fila más para saber si hay página siguiente
+            List<Response> responses = responseDao.findBySurveyId(connection, surveyId, onlyPositive,
+                    after, pageSize + 1);
+            return toPage(responses, pageSize,
+                    response -> new KeysetCursor(response.getResponseDate(), response.getResponseId()));
+        });
+    }
+
+    @Override
+    public void streamResponses(Long surveyId, boolean onlyPositive, Consumer<Response> consumer)
+            throws InstanceNotFoundException {
+
+        transactionTemplate.query(connection -> {
+
+            // [FUNC-6] Primero verificamos que la encuesta existe
+            surveyDao.find(connection, surveyId);
 
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+            responseDao.streamBySurveyId(connection, surveyId, onlyPositive, consumer);
+            return null;
+        });
+    }
+
+    @Override
+    public long exportResponses(Long surveyId, OutputStream out) throws InstanceNotFoundException {
+
+        try {
+            ResponseExportWriter writer = new ResponseExportWriter(out);
+
+            transactionTemplate.query(connection -> {
+                if (surveyId != null) {
+                    surveyDao.find(connection, surveyId);
+                    responseDao.streamBySurveyId(connection, surveyId, false, writer);
+                } else {
+                    responseDao.streamAll(connection, writer);
+                }
+                return null;
+            });
+
+            writer.finish();
+            return writer.getRowCount();
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public SurveyStats getSurveyStats(Long surveyId, LocalDateTime from, LocalDateTime to)
+            throws InstanceNotFoundException, InputValidationException {
+
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new InputValidationException("The start of the interval must not be after its end");
+        }
+
+        return transactionTemplate.query(connection -> {
+            Survey survey = surveyDao.find(connection, surveyId);
+            List<SurveyStatsBucket> buckets = statsDao.findBySurveyId(connection, surveyId, from, to);
+            return new SurveyStats(surveyId, survey.getPositiveResponses(), survey.getNegativeResponses(),
+                    buckets);
+        });
+    }
+
+    private static KeysetCursor validatePage(String pageToken, int pageSize) throws InputValidationException {
+
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new InputValidationException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (pageToken == null) {
+            return null;
         }
+        try {
+            return KeysetCursor.fromToken(pageToken);
+        } catch (IllegalArgumentException e) {
+            throw new InputValidationException("Invalid page token");
+        }
+    }
+
+    /**
+     * Recibe hasta pageSize + 1 elementos: si llegó el elemento extra, hay página
+     * siguiente y empieza después del último elemento de esta.
+     */
+    private static <T> Page<T> toPage(List<T> items, int pageSize, Function<T, KeysetCursor> cursorOf) {
+
+        if (items.size() <= pageSize) {
+            return new Page<>(items, null);
+        }
+
+        List<T> pageItems = items.subList(0, pageSize);
+        return new Page<>(pageItems, cursorOf.apply(pageItems.get(pageSize - 1)).toToken());
     }
-}
\ No newline at end of file
+}
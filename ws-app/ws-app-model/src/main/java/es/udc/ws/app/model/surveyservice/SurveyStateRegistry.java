@@ -0,0 +1,305 @@
+package es.udc.ws.app.model.surveyservice;
+
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Tabla en memoria surveyId → estado empaquetado en un long, para decidir si
+ * una encuesta admite votos sin acceder a la BD.
+ * <p>
+ * Cada entrada ocupa dos long (clave y estado) en tablas de direccionamiento
+ * abierto con sondeo lineal, sin objetos por encuesta: con un factor de carga
+ * máximo de 0,75 son entre 21 y 43 bytes por encuesta (unos 32 MB como mucho
+ * para 1M de encuestas). La tabla se divide en segmentos, cada uno con su
+ * propio cerrojo de lectura/escritura, para que los votos a encuestas
+ * distintas no compitan por el mismo.
+ * <p>
+ * El número de entradas está acotado por maxSurveys (cada segmento admite un
+ * octavo más que su parte, para que quepan maxSurveys encuestas aunque no se
+ * repartan por igual). Cuando un segmento se llena se descartan sus entradas
+ * cerradas (ver {@link #isClosed(long)}), que pueden volver a leerse de la BD;
+ * si aun así no hay sitio, la entrada nueva no se guarda. En ambos casos la
+ * encuesta vuelve a ser desconocida: nunca se da por buena información que no
+ * se tiene.
+ */
+public class SurveyStateRegistry {
+
+    /**
+     * Valor que devuelve {@link #get(long)} si la encuesta no está en la tabla.
+     * Ningún estado empaquetado lo vale: NOT_FOUND nunca se combina con los
+     * otros indicadores.
+     */
+    public final static long ABSENT = -1L;
+
+    // Bits 0-2: indicadores; bits 3-63: milisegundos (endDate o instante de la consulta)
+    private final static int FLAG_BITS = 3;
+    private final static long CANCELED = 1L;
+    private final static long FINISHED = 2L;
+    private final static long NOT_FOUND = 4L;
+
+    private final static int SEGMENTS = 64;
+    private final static int INITIAL_SEGMENT_SLOTS = 64;
+    private final static float MAX_LOAD_FACTOR = 0.75f;
+
+    private static class Segment {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        // Clave 0 = hueco libre: los identificadores de encuesta son positivos
+        private long[] keys = new long[INITIAL_SEGMENT_SLOTS];
+        private long[] states = new long[INITIAL_SEGMENT_SLOTS];
+        private int size = 0;
+    }
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int maxSegmentSize;
+
+    private final LongAdder evictionsCounter;
+    private final LongAdder rejectionsCounter;
+
+    public SurveyStateRegistry(int maxSurveys, MetricsRegistry registry) {
+
+        if (maxSurveys < SEGMENTS) {
+            throw new IllegalArgumentException("maxSurveys must be at least " + SEGMENTS);
+        }
+
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+        maxSegmentSize = maxSurveys / SEGMENTS + maxSurveys / SEGMENTS / 8;
+
+        evictionsCounter = registry.counter("survey_registry_evictions");
+        rejectionsCounter = registry.counter("survey_registry_rejections");
+    }
+
+    /**
+     * Estado de una encuesta abierta (cancelada o no) que finaliza en endMillis.
+     */
+    public static long open(long endMillis, boolean canceled) {
+        return endMillis << FLAG_BITS | (canceled ? CANCELED : 0);
+    }
+
+    /**
+     * Estado de una encuesta ya en estado FINISHED.
+     */
+    public static long finished(long endMillis, boolean canceled) {
+        return open(endMillis, canceled) | FINISHED;
+    }
+
+    /**
+     * Estado de una encuesta que no existía al consultarla en lookupMillis.
+     */
+    public static long notFound(long lookupMillis) {
+        return lookupMillis << FLAG_BITS | NOT_FOUND;
+    }
+
+    /**
+     * endDate de la encuesta, o instante de la consulta si no existía.
+     */
+    public static long millisOf(long state) {
+        return state >> FLAG_BITS;
+    }
+
+    public static boolean isCanceled(long state) {
+        return (state & CANCELED) != 0;
+    }
+
+    public static boolean isFinished(long state) {
+        return (state & FINISHED) != 0;
+    }
+
+    public static boolean isNotFound(long state) {
+        return (state & NOT_FOUND) != 0;
+    }
+
+    /**
+     * Indica si el estado ya no puede volver a admitir votos, así que puede
+     * descartarse sin perder nada que no esté en la BD.
+     */
+    public static boolean isClosed(long state) {
+        return state != ABSENT && (state & (CANCELED | FINISHED | NOT_FOUND)) != 0;
+    }
+
+    /**
+     * @return el estado de la encuesta, o {@link #ABSENT} si no está en la tabla.
+     */
+    public long get(long surveyId) {
+
+        Segment segment = segmentOf(surveyId);
+
+        segment.lock.readLock().lock();
+        try {
+            int slot = find(segment.keys, surveyId);
+            return segment.keys[slot] == surveyId ? segment.states[slot] : ABSENT;
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Guarda el estado de la encuesta, sustituyendo el que hubiera.
+     * @return false si no se ha guardado por falta de espacio.
+     */
+    public boolean put(long surveyId, long state) {
+        return put(surveyId, state, true);
+    }
+
+    /**
+     * Guarda el estado de la encuesta sólo si no estaba en la tabla.
+     * @return true si se ha guardado.
+     */
+    public boolean putIfAbsent(long surveyId, long state) {
+        return put(surveyId, state, false);
+    }
+
+    /**
+     * Marca la encuesta como FINISHED, si está en la tabla.
+     */
+    public void markFinished(long surveyId) {
+
+        Segment segment = segmentOf(surveyId);
+
+        segment.lock.writeLock().lock();
+        try {
+            int slot = find(segment.keys, surveyId);
+            if (segment.keys[slot] == surveyId && !isNotFound(segment.states[slot])) {
+                segment.states[slot] |= FINISHED;
+            }
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Número de encuestas en la tabla.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                size += segment.size;
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    private boolean put(long surveyId, long state, boolean replace) {
+
+        if (surveyId <= 0) {
+            throw new IllegalArgumentException("Invalid survey id: " + surveyId);
+        }
+
+        Segment segment = segmentOf(surveyId);
+
+        segment.lock.writeLock().lock();
+        try {
+            int slot = find(segment.keys, surveyId);
+
+            if (segment.keys[slot] == surveyId) {
+                if (replace) {
+                    segment.states[slot] = state;
+                }
+                return replace;
+            }
+
+            if (segment.size >= maxSegmentSize) {
+                evictClosed(segment);
+                if (segment.size >= maxSegmentSize) {
+                    rejectionsCounter.increment();
+                    return false;
+                }
+            }
+            if (segment.size + 1 > segment.keys.length * MAX_LOAD_FACTOR) {
+                rehash(segment, segment.keys.length * 2);
+            }
+
+            slot = find(segment.keys, surveyId);
+            segment.keys[slot] = surveyId;
+            segment.states[slot] = state;
+            segment.size++;
+            return true;
+
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Descarta las entradas cerradas del segmento reconstruyendo sus tablas.
+     */
+    private void evictClosed(Segment segment) {
+
+        long[] keys = segment.keys;
+        long[] states = segment.states;
+        long[] newKeys = new long[keys.length];
+        long[] newStates = new long[keys.length];
+        int size = 0;
+
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && !isClosed(states[i])) {
+                int slot = find(newKeys, keys[i]);
+                newKeys[slot] = keys[i];
+                newStates[slot] = states[i];
+                size++;
+            }
+        }
+
+        evictionsCounter.add(segment.size - size);
+        segment.keys = newKeys;
+        segment.states = newStates;
+        segment.size = size;
+    }
+
+    private static void rehash(Segment segment, int slots) {
+
+        long[] keys = segment.keys;
+        long[] states = segment.states;
+        long[] newKeys = new long[slots];
+        long[] newStates = new long[slots];
+
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                int slot = find(newKeys, keys[i]);
+                newKeys[slot] = keys[i];
+                newStates[slot] = states[i];
+            }
+        }
+
+        segment.keys = newKeys;
+        segment.states = newStates;
+    }
+
+    /**
+     * Posición de la clave en la tabla, o del hueco libre donde iría. Como el
+     * factor de carga nunca llega a 1, siempre hay algún hueco libre.
+     */
+    private static int find(long[] keys, long surveyId) {
+
+        int mask = keys.length - 1;
+        int slot = (int) hash(surveyId) & mask;
+
+        while (keys[slot] != 0 && keys[slot] != surveyId) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private Segment segmentOf(long surveyId) {
+        // Los bits altos eligen el segmento y los bajos la posición dentro de él
+        return segments[(int) (hash(surveyId) >>> 58)];
+    }
+
+    /**
+     * Dispersa los identificadores, que son consecutivos, por toda la tabla.
+     */
+    private static long hash(long surveyId) {
+        long hash = surveyId * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+}
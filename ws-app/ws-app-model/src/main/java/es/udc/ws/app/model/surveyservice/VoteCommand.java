@@ -0,0 +1,29 @@
+package es.udc.ws.app.model.surveyservice;
+
+/**
+ * Voto de un empleado a una encuesta, tal y como llega en una importación por lotes.
+ */
+public class VoteCommand {
+
+    private final Long surveyId;
+    private final String employeeEmail;
+    private final boolean response;
+
+    public VoteCommand(Long surveyId, String employeeEmail, boolean response) {
+        this.surveyId = surveyId;
+        this.employeeEmail = employeeEmail;
+        this.response = response;
+    }
+
+    public Long getSurveyId() {
+        return surveyId;
+    }
+
+    public String getEmployeeEmail() {
+        return employeeEmail;
+    }
+
+    public boolean getResponse() {
+        return response;
+    }
+}
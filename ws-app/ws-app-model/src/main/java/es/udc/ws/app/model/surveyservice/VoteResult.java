@@ -0,0 +1,40 @@
+package es.udc.ws.app.model.surveyservice;
+
+import es.udc.ws.app.model.response.Response;
+
+/**
+ * Resultado de un voto procesado por {@link SurveyService#respondToSurveyBatch}.
+ */
+public class VoteResult {
+
+    private final VoteCommand vote;
+    private final VoteStatus status;
+    private final Response response;
+
+    public VoteResult(VoteCommand vote, VoteStatus status, Response response) {
+        this.vote = vote;
+        this.status = status;
+        this.response = response;
+    }
+
+    public VoteCommand getVote() {
+        return vote;
+    }
+
+    public VoteStatus getStatus() {
+        return status;
+    }
+
+    public boolean isAccepted() {
+        return status == VoteStatus.ACCEPTED || status == VoteStatus.UPDATED;
+    }
+
+    /**
+     * Respuesta guardada para el empleado tras aplicar el lote completo, o null
+     * si el voto fue rechazado. Si el mismo empleado vota varias veces en el
+     * lote, todos sus votos comparten la respuesta final.
+     */
+    public Response getResponse() {
+        return response;
+    }
+}
@@ -0,0 +1,25 @@
+package es.udc.ws.app.model.surveyservice;
+
+/**
+ * Resultado de procesar un voto dentro de un lote.
+ */
+public enum VoteStatus {
+
+    /** Primera respuesta del empleado a la encuesta. */
+    ACCEPTED,
+
+    /** El empleado ya había respondido: se actualizó su respuesta. */
+    UPDATED,
+
+    /** Email o encuesta no válidos. */
+    REJECTED_INVALID,
+
+    /** La encuesta no existe. */
+    REJECTED_NOT_FOUND,
+
+    /** La encuesta ya ha finalizado. */
+    REJECTED_FINISHED,
+
+    /** La encuesta está cancelada. */
+    REJECTED_CANCELED
+}
@@ -0,0 +1,154 @@
+package es.udc.ws.app.model.surveyservice;
+
+import es.udc.ws.app.model.response.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Cola acotada de votos pendientes. Un único hilo la vacía por grupos: espera
+ * como mucho maxDelayMillis desde el primer voto o hasta reunir maxBatchSize
+ * votos, y los escribe todos con un solo commit. Al ser un único hilo los votos
+ * se aplican en orden de llegada, de modo que el último voto de un empleado
+ * siempre prevalece.
+ */
+public class VoteWriteBehindQueue {
+
+    private static class PendingVote {
+
+        private final VoteCommand vote;
+        private final CompletableFuture<Response> future = new CompletableFuture<>();
+
+        private PendingVote(VoteCommand vote) {
+            this.vote = vote;
+        }
+    }
+
+    private final BlockingQueue<PendingVote> queue;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Function<List<VoteCommand>, List<VoteResult>> batchWriter;
+    private final Function<VoteResult, Exception> rejectionMapper;
+    private final Thread drainer;
+    private volatile boolean closed = false;
+
+    public VoteWriteBehindQueue(int capacity, int maxBatchSize, long maxDelayMillis,
+            Function<List<VoteCommand>, List<VoteResult>> batchWriter,
+            Function<VoteResult, Exception> rejectionMapper) {
+
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.batchWriter = batchWriter;
+        this.rejectionMapper = rejectionMapper;
+        this.drainer = new Thread(this::drain, "vote-write-behind");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Encola un voto. Si la cola está llena, el llamante se bloquea hasta que
+     * haya hueco (contrapresión).
+     * @return futuro que se completa cuando el voto se ha confirmado en la BD.
+     */
+    public CompletableFuture<Response> submit(VoteCommand vote) {
+
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Vote queue is closed"));
+        }
+
+        PendingVote pendingVote = new PendingVote(vote);
+
+        try {
+            queue.put(pendingVote);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // Si se cerró mientras esperábamos y el drenador ya no lo va a recoger
+        if (closed && queue.remove(pendingVote)) {
+            pendingVote.future.completeExceptionally(new IllegalStateException("Vote queue is closed"));
+        }
+
+        return pendingVote.future;
+    }
+
+    /**
+     * Deja de aceptar votos, escribe los que quedan en la cola y espera a que
+     * termine el hilo drenador.
+     */
+    public void close() {
+        closed = true;
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+
+        List<PendingVote> batch = new ArrayList<>(maxBatchSize);
+
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingVote first = queue.poll(maxDelayNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    PendingVote next = queue.poll(Math.max(0, deadline - System.nanoTime()),
+                            TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                write(batch);
+
+            } catch (InterruptedException e) {
+                // Sólo se interrumpe al parar la JVM: se escribe lo pendiente igualmente
+                closed = true;
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingVote> batch) {
+
+        List<VoteCommand> votes = new ArrayList<>(batch.size());
+        for (PendingVote pendingVote : batch) {
+            votes.add(pendingVote.vote);
+        }
+
+        try {
+            List<VoteResult> results = batchWriter.apply(votes);
+            for (int i = 0; i < batch.size(); i++) {
+                VoteResult result = results.get(i);
+                if (result.isAccepted()) {
+                    batch.get(i).future.complete(result.getResponse());
+                } else {
+                    batch.get(i).future.completeExceptionally(rejectionMapper.apply(result));
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            for (PendingVote pendingVote : batch) {
+                pendingVote.future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package es.udc.ws.app.model.surveystats;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Implementación abstracta de {@link SqlSurveyStatsDao} que incluye características comunes.
+ */
+public abstract class AbstractSqlSurveyStatsDao implements SqlSurveyStatsDao {
+
+    protected AbstractSqlSurveyStatsDao() {
+    }
+
+    protected SurveyStatsBucket getBucketFromResultSet(ResultSet resultSet) throws SQLException {
+
+        int i = 1;
+        Long surveyId = resultSet.getLong(i++);
+        LocalDateTime bucketStart = resultSet.getTimestamp(i++).toLocalDateTime();
+        long positiveResponses = resultSet.getLong(i++);
+        long negativeResponses = resultSet.getLong(i++);
+        long positiveChanges = resultSet.getLong(i++);
+        long negativeChanges = resultSet.getLong(i++);
+
+        return new SurveyStatsBucket(surveyId, bucketStart, positiveResponses, negativeResponses,
+                positiveChanges, negativeChanges);
+    }
+}
@@ -0,0 +1,97 @@
+package es.udc.ws.app.model.surveystats;
+
+import es.udc.ws.app.model.survey.InMemorySurveyStore;
+import es.udc.ws.app.model.survey.InMemorySurveyStore.SurveyRecord;
+import es.udc.ws.app.model.util.memory.InMemoryTransaction;
+
+import java.sql.Connection;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Implementación de {@link SqlSurveyStatsDao} sobre {@link InMemorySurveyStore},
+ * sin BD. Cada encuesta guarda sus intervalos ordenados por bucketStart en una
+ * única fila por intervalo: el parámetro shard no se usa, porque la encuesta
+ * ya está bloqueada por el voto que llama a increment.
+ */
+public class InMemorySqlSurveyStatsDao implements SqlSurveyStatsDao {
+
+    private static final int MYSQL_NO_REFERENCED_ROW = 1452;
+
+    private final InMemorySurveyStore store;
+
+    public InMemorySqlSurveyStatsDao() {
+        this(InMemorySurveyStore.getInstance());
+    }
+
+    public InMemorySqlSurveyStatsDao(InMemorySurveyStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void increment(Connection connection, Long surveyId, LocalDateTime bucketStart, int shard,
+            long positiveResponses, long negativeResponses, long positiveChanges, long negativeChanges) {
+        InMemoryTransaction.of(connection).statement(transaction -> {
+
+            SurveyRecord record = store.lockForUpdate(transaction, surveyId);
+
+            if (record == null) {
+                throw new RuntimeException(new SQLIntegrityConstraintViolationException(
+                        "Cannot add or update a child row: a foreign key constraint fails (SurveyStatsSurveyFK)",
+                        "23000", MYSQL_NO_REFERENCED_ROW));
+            }
+
+            NavigableMap<LocalDateTime, long[]> stats = record.getStats();
+            long[] deltas = {positiveResponses, negativeResponses, positiveChanges, negativeChanges};
+            long[] bucket = stats.get(bucketStart);
+
+            if (bucket == null) {
+                transaction.onRollback(() -> stats.remove(bucketStart));
+                stats.put(bucketStart, deltas);
+            } else {
+                transaction.onRollback(() -> add(bucket, deltas, -1));
+                add(bucket, deltas, 1);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public List<SurveyStatsBucket> findBySurveyId(Connection connection, Long surveyId,
+            LocalDateTime from, LocalDateTime to) {
+        return store.read(InMemoryTransaction.of(connection), surveyId, record -> {
+
+            List<SurveyStatsBucket> buckets = new ArrayList<>();
+
+            if (record == null) {
+                return buckets;
+            }
+
+            NavigableMap<LocalDateTime, long[]> stats = record.getStats();
+            if (from != null) {
+                stats = stats.tailMap(from, true);
+            }
+            if (to != null) {
+                stats = stats.headMap(to, false);
+            }
+
+            for (Map.Entry<LocalDateTime, long[]> entry : stats.entrySet()) {
+                long[] values = entry.getValue();
+                buckets.add(new SurveyStatsBucket(surveyId, entry.getKey(), values[0], values[1], values[2],
+                        values[3]));
+            }
+
+            return buckets;
+        });
+    }
+
+    private static void add(long[] bucket, long[] deltas, int sign) {
+        for (int i = 0; i < bucket.length; i++) {
+            bucket[i] += sign * deltas[i];
+        }
+    }
+}
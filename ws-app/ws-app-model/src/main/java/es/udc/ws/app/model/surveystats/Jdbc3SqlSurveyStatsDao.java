@@ -0,0 +1,89 @@
+package es.udc.ws.app.model.surveystats;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Jdbc3SqlSurveyStatsDao extends AbstractSqlSurveyStatsDao {
+
+    @Override
+    public void increment(Connection connection, Long surveyId, LocalDateTime bucketStart, int shard,
+            long positiveResponses, long negativeResponses, long positiveChanges, long negativeChanges) {
+
+        // Incremento atómico; el primer voto de la hora en esa fila la crea
+        String queryString = "INSERT INTO SurveyStats"
+                + " (surveyId, bucketStart, shard, positiveResponses, negativeResponses,"
+                + " positiveChanges, negativeChanges)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?)"
+                + " ON DUPLICATE KEY UPDATE"
+                + " positiveResponses = positiveResponses + VALUES(positiveResponses),"
+                + " negativeResponses = negativeResponses + VALUES(negativeResponses),"
+                + " positiveChanges = positiveChanges + VALUES(positiveChanges),"
+                + " negativeChanges = negativeChanges + VALUES(negativeChanges)";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            int i = 1;
+            preparedStatement.setLong(i++, surveyId);
+            preparedStatement.setTimestamp(i++, Timestamp.valueOf(bucketStart));
+            preparedStatement.setInt(i++, shard);
+            preparedStatement.setLong(i++, positiveResponses);
+            preparedStatement.setLong(i++, negativeResponses);
+            preparedStatement.setLong(i++, positiveChanges);
+            preparedStatement.setLong(i++, negativeChanges);
+
+            preparedStatement.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<SurveyStatsBucket> findBySurveyId(Connection connection, Long surveyId,
+            LocalDateTime from, LocalDateTime to) {
+
+        String queryString = "SELECT surveyId, bucketStart, SUM(positiveResponses), SUM(negativeResponses),"
+                + " SUM(positiveChanges), SUM(negativeChanges) FROM SurveyStats WHERE surveyId = ?";
+
+        if (from != null) {
+            queryString += " AND bucketStart >= ?";
+        }
+        if (to != null) {
+            queryString += " AND bucketStart < ?";
+        }
+
+        // Es el orden de la clave primaria (surveyId, bucketStart, shard): MySQL
+        // agrupa y ordena recorriendo el índice
+        queryString += " GROUP BY surveyId, bucketStart ORDER BY bucketStart";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(queryString)) {
+
+            int i = 1;
+            preparedStatement.setLong(i++, surveyId);
+            if (from != null) {
+                preparedStatement.setTimestamp(i++, Timestamp.valueOf(from));
+            }
+            if (to != null) {
+                preparedStatement.setTimestamp(i++, Timestamp.valueOf(to));
+            }
+
+            ResultSet resultSet = preparedStatement.executeQuery();
+            List<SurveyStatsBucket> buckets = new ArrayList<>();
+
+            while (resultSet.next()) {
+                buckets.add(getBucketFromResultSet(resultSet));
+            }
+
+            return buckets;
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package es.udc.ws.app.model.surveystats;
+
+import es.udc.ws.app.model.util.metrics.MethodMetrics;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Decorador de {@link SqlSurveyStatsDao} que mide la latencia y las excepciones
+ * de cada método en {@link MetricsRegistry}, bajo el componente "SqlSurveyStatsDao".
+ */
+public class MeteredSqlSurveyStatsDao implements SqlSurveyStatsDao {
+
+    private final static String DELEGATE_CLASS_NAME_PARAMETER = "MeteredSqlSurveyStatsDao.delegateClassName";
+    private final static String COMPONENT = "SqlSurveyStatsDao";
+
+    private final SqlSurveyStatsDao delegate;
+
+    private final MethodMetrics increment;
+    private final MethodMetrics findBySurveyId;
+
+    public MeteredSqlSurveyStatsDao() {
+        this(SqlSurveyStatsDaoFactory.getInstance(DELEGATE_CLASS_NAME_PARAMETER), MetricsRegistry.getInstance());
+    }
+
+    public MeteredSqlSurveyStatsDao(SqlSurveyStatsDao delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        increment = registry.method(COMPONENT, "increment");
+        findBySurveyId = registry.method(COMPONENT, "findBySurveyId");
+    }
+
+    @Override
+    public void increment(Connection connection, Long surveyId, LocalDateTime bucketStart, int shard,
+            long positiveResponses, long negativeResponses, long positiveChanges, long negativeChanges) {
+        long start = System.nanoTime();
+        try {
+            delegate.increment(connection, surveyId, bucketStart, shard, positiveResponses, negativeResponses,
+                    positiveChanges, negativeChanges);
+            increment.success(start);
+        } catch (Throwable e) {
+            increment.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<SurveyStatsBucket> findBySurveyId(Connection connection, Long surveyId,
+            LocalDateTime from, LocalDateTime to) {
+        long start = System.nanoTime();
+        try {
+            List<SurveyStatsBucket> result = delegate.findBySurveyId(connection, surveyId, from, to);
+            findBySurveyId.success(start);
+            return result;
+        } catch (Throwable e) {
+            findBySurveyId.failure(start, e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package es.udc.ws.app.model.surveystats;
+
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Acceso a la tabla SurveyStats, que acumula los votos de cada encuesta por
+ * horas. Se mantiene en la misma transacción que los contadores de Survey.
+ */
+public interface SqlSurveyStatsDao {
+
+    /**
+     * Suma los valores indicados al intervalo de la encuesta que empieza en
+     * bucketStart, creándolo si es el primer voto de esa hora. Cada intervalo
+     * se reparte en las mismas filas que los contadores de la encuesta (ver
+     * SqlSurveyDao.updateCounters): shard es la fila que incrementó el voto.
+     */
+    public void increment(Connection connection, Long surveyId, LocalDateTime bucketStart, int shard,
+            long positiveResponses, long negativeResponses, long positiveChanges, long negativeChanges);
+
+    /**
+     * Intervalos de la encuesta que empiezan entre from (incluido) y to
+     * (excluido), sumando sus filas, en orden cronológico. Cualquiera de los dos límites puede
+     * ser null.
+     */
+    public List<SurveyStatsBucket> findBySurveyId(Connection connection, Long surveyId,
+            LocalDateTime from, LocalDateTime to);
+}
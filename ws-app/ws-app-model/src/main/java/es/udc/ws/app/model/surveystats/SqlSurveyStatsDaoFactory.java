@@ -0,0 +1,37 @@
+package es.udc.ws.app.model.surveystats;
+
+import es.udc.ws.util.configuration.ConfigurationParametersManager;
+
+/**
+ * Factoría para obtener instancias de {@link SqlSurveyStatsDao}.
+ */
+public class SqlSurveyStatsDaoFactory {
+
+    private final static String CLASS_NAME_PARAMETER = "SqlSurveyStatsDao.className";
+    private static SqlSurveyStatsDao dao = null;
+
+    private SqlSurveyStatsDaoFactory() {
+    }
+
+    /**
+     * Instancia la implementación indicada en el parámetro de configuración.
+     * También lo usan los decoradores para crear la implementación a la que delegan.
+     */
+    @SuppressWarnings("rawtypes")
+    static SqlSurveyStatsDao getInstance(String classNameParameter) {
+        try {
+            String daoClassName = ConfigurationParametersManager.getParameter(classNameParameter);
+            Class daoClass = Class.forName(daoClassName);
+            return (SqlSurveyStatsDao) daoClass.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public synchronized static SqlSurveyStatsDao getDao() {
+        if (dao == null) {
+            dao = getInstance(CLASS_NAME_PARAMETER);
+        }
+        return dao;
+    }
+}
@@ -0,0 +1,39 @@
+package es.udc.ws.app.model.surveystats;
+
+import java.util.List;
+
+/**
+ * Estadísticas de una encuesta: los contadores actuales y la evolución de los
+ * votos hora a hora (sólo las horas en que hubo votos, en orden cronológico).
+ */
+public class SurveyStats {
+
+    private final Long surveyId;
+    private final long positiveResponses;
+    private final long negativeResponses;
+    private final List<SurveyStatsBucket> buckets;
+
+    public SurveyStats(Long surveyId, long positiveResponses, long negativeResponses,
+            List<SurveyStatsBucket> buckets) {
+        this.surveyId = surveyId;
+        this.positiveResponses = positiveResponses;
+        this.negativeResponses = negativeResponses;
+        this.buckets = buckets;
+    }
+
+    public Long getSurveyId() {
+        return surveyId;
+    }
+
+    public long getPositiveResponses() {
+        return positiveResponses;
+    }
+
+    public long getNegativeResponses() {
+        return negativeResponses;
+    }
+
+    public List<SurveyStatsBucket> getBuckets() {
+        return buckets;
+    }
+}
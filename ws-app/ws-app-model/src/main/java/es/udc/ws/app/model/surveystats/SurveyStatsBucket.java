@@ -0,0 +1,97 @@
+package es.udc.ws.app.model.surveystats;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+
+/**
+ * Votos recibidos por una encuesta durante una hora. Registra sucesos, no
+ * estados: una respuesta nueva cuenta en la hora en que se creó y un cambio de
+ * voto en la hora en que se cambió, así que el número de respuestas positivas
+ * hasta una hora es la suma acumulada de
+ * positiveResponses + positiveChanges - negativeChanges.
+ */
+public class SurveyStatsBucket {
+
+    private final Long surveyId;
+    private final LocalDateTime bucketStart;
+    private final long positiveResponses;
+    private final long negativeResponses;
+    private final long positiveChanges;
+    private final long negativeChanges;
+
+    /**
+     * @param positiveResponses respuestas nuevas positivas.
+     * @param negativeResponses respuestas nuevas negativas.
+     * @param positiveChanges votos que pasaron de negativo a positivo.
+     * @param negativeChanges votos que pasaron de positivo a negativo.
+     */
+    public SurveyStatsBucket(Long surveyId, LocalDateTime bucketStart, long positiveResponses,
+            long negativeResponses, long positiveChanges, long negativeChanges) {
+        this.surveyId = surveyId;
+        this.bucketStart = bucketStart;
+        this.positiveResponses = positiveResponses;
+        this.negativeResponses = negativeResponses;
+        this.positiveChanges = positiveChanges;
+        this.negativeChanges = negativeChanges;
+    }
+
+    /**
+     * Inicio del intervalo al que pertenece el instante indicado.
+     */
+    public static LocalDateTime bucketStartOf(LocalDateTime date) {
+        return date.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    public Long getSurveyId() {
+        return surveyId;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public long getPositiveResponses() {
+        return positiveResponses;
+    }
+
+    public long getNegativeResponses() {
+        return negativeResponses;
+    }
+
+    public long getPositiveChanges() {
+        return positiveChanges;
+    }
+
+    public long getNegativeChanges() {
+        return negativeChanges;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SurveyStatsBucket that = (SurveyStatsBucket) o;
+        return positiveResponses == that.positiveResponses && negativeResponses == that.negativeResponses
+                && positiveChanges == that.positiveChanges && negativeChanges == that.negativeChanges
+                && Objects.equals(surveyId, that.surveyId) && Objects.equals(bucketStart, that.bucketStart);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(surveyId, bucketStart, positiveResponses, negativeResponses,
+                positiveChanges, negativeChanges);
+    }
+
+    @Override
+    public String toString() {
+        return "SurveyStatsBucket{" +
+                "surveyId=" + surveyId +
+                ", bucketStart=" + bucketStart +
+                ", positiveResponses=" + positiveResponses +
+                ", negativeResponses=" + negativeResponses +
+                ", positiveChanges=" + positiveChanges +
+                ", negativeChanges=" + negativeChanges +
+                '}';
+    }
+}
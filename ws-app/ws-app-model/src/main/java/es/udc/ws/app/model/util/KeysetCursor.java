@@ -0,0 +1,56 @@
+package es.udc.ws.app.model.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Posición de un listado paginado por clave: la fecha y el identificador de la
+ * última fila devuelta. La siguiente página empieza justo después de ella, sin
+ * OFFSET, así que cuesta lo mismo pedir la primera página que la milésima.
+ * <p>
+ * Se entrega al cliente como un token opaco (Base64 URL-safe).
+ */
+public class KeysetCursor {
+
+    private final static String SEPARATOR = "|";
+
+    private final LocalDateTime date;
+    private final Long id;
+
+    public KeysetCursor(LocalDateTime date, Long id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String toToken() {
+        String plain = date + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException si el token no es uno generado por {@link #toToken()}.
+     */
+    public static KeysetCursor fromToken(String token) {
+
+        try {
+            String plain = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = plain.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid page token: " + token);
+            }
+            return new KeysetCursor(LocalDateTime.parse(plain.substring(0, separator)),
+                    Long.parseLong(plain.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page token: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package es.udc.ws.app.model.util;
+
+import java.util.List;
+
+/**
+ * Página de un listado paginado por clave.
+ * nextPageToken es null cuando no hay más resultados.
+ */
+public class Page<T> {
+
+    private final List<T> items;
+    private final String nextPageToken;
+
+    public Page(List<T> items, String nextPageToken) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNext() {
+        return nextPageToken != null;
+    }
+}
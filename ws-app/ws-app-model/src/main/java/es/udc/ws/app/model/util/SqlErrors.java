@@ -0,0 +1,53 @@
+package es.udc.ws.app.model.util;
+
+import java.sql.SQLException;
+
+/**
+ * Clasificación de los errores de la BD.
+ */
+public class SqlErrors {
+
+    private static final String SERIALIZATION_FAILURE_SQL_STATE = "40001";
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+    private static final int MYSQL_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int MYSQL_DEADLOCK = 1213;
+
+    private SqlErrors() {
+    }
+
+    /**
+     * Indica si el error (o alguna de sus causas) es un fallo de serialización,
+     * un interbloqueo o un tiempo de espera de bloqueo agotado: errores que no
+     * dependen de los datos y que desaparecen al repetir la transacción.
+     */
+    public static boolean isSerializationFailure(Throwable e) {
+
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                if (SERIALIZATION_FAILURE_SQL_STATE.equals(sqlException.getSQLState())
+                        || sqlException.getErrorCode() == MYSQL_DEADLOCK
+                        || sqlException.getErrorCode() == MYSQL_LOCK_WAIT_TIMEOUT) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indica si el error (o alguna de sus causas) es una violación de una
+     * clave única. Con READ COMMITTED, InnoDB no bloquea los huecos del índice,
+     * así que dos transacciones pueden insertar a la vez la misma clave aunque
+     * ambas hayan comprobado antes, con bloqueo, que no existía.
+     */
+    public static boolean isDuplicateEntry(Throwable e) {
+
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                    && sqlException.getErrorCode() == MYSQL_DUPLICATE_ENTRY) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,349 @@
+package es.udc.ws.app.model.util;
+
+import es.udc.ws.app.model.util.metrics.MethodMetrics;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta código sobre una conexión del pool, encargándose de abrir, confirmar
+ * y deshacer la transacción.
+ * <p>
+ * Si la transacción falla por un interbloqueo, un tiempo de espera de bloqueo
+ * agotado o un fallo de serialización (ver {@link SqlErrors}), se deshace y se
+ * repite completa tras una espera exponencial con jitter, mientras no se agoten
+ * ni los intentos ni el presupuesto de tiempo. Por eso el callback debe poder
+ * repetirse: todo lo que construya o modifique ha de crearse dentro de él.
+ * <p>
+ * Las excepciones del callback (de negocio o no) deshacen la transacción y se
+ * propagan tal cual; las SQLException se envuelven en RuntimeException.
+ * <p>
+ * Además de la BD, en la transacción pueden participar recursos que guardan
+ * datos fuera de ella ({@link TransactionResource}): se preparan antes del
+ * commit de la BD y se les notifica cómo terminó. Para que también se enteren
+ * de los savepoints, éstos deben crearse y deshacerse con
+ * {@link #setSavepoint(Connection)} y {@link #rollback(Connection, Savepoint)}.
+ */
+public class TransactionTemplate {
+
+    /**
+     * Código que se ejecuta con una conexión. Los tres tipos de excepción
+     * permiten propagar las excepciones de negocio sin envolverlas; si el
+     * callback lanza excepciones de tipos distintos, hay que indicarlos al
+     * invocar execute o query.
+     */
+    @FunctionalInterface
+    public interface TransactionCallback<T, E1 extends Exception, E2 extends Exception,
+            E3 extends Exception> {
+
+        T doInConnection(Connection connection) throws SQLException, E1, E2, E3;
+    }
+
+    /**
+     * Recurso no JDBC que participa en una transacción de TransactionTemplate;
+     * ver {@link #resource(Connection, Object, Supplier)}. Todos sus métodos se
+     * invocan en el hilo de la transacción.
+     */
+    public interface TransactionResource {
+
+        /**
+         * Hace duraderos los cambios justo antes del commit de la BD. Si lanza
+         * una excepción, la transacción se deshace.
+         */
+        void prepare();
+
+        /**
+         * Se invoca al terminar la transacción, tras el commit de la BD
+         * (committed) o el rollback, aunque prepare no llegara a invocarse. No
+         * debe lanzar excepciones.
+         */
+        void complete(boolean committed);
+
+        /**
+         * Se ha creado un savepoint en la transacción.
+         */
+        void savepoint(Savepoint savepoint);
+
+        /**
+         * Se ha vuelto a un savepoint: hay que descartar los cambios hechos
+         * desde él, o todos si se creó antes de unirse el recurso.
+         */
+        void rollbackTo(Savepoint savepoint);
+    }
+
+    /**
+     * Transacción en curso en un hilo, con los recursos que se le han unido.
+     */
+    private static class ActiveTransaction {
+
+        private final Connection connection;
+        private final List<Object> keys = new ArrayList<>();
+        private final List<TransactionResource> resources = new ArrayList<>();
+
+        private ActiveTransaction(Connection connection) {
+            this.connection = connection;
+        }
+
+        private void prepare() {
+            for (TransactionResource resource : resources) {
+                resource.prepare();
+            }
+        }
+
+        private void complete(boolean committed) {
+            for (TransactionResource resource : resources) {
+                resource.complete(committed);
+            }
+        }
+    }
+
+    private static final ThreadLocal<ActiveTransaction> activeTransaction = new ThreadLocal<>();
+
+    // Indica que se mantiene el nivel de aislamiento por defecto de la conexión
+    private static final int DEFAULT_ISOLATION = -1;
+
+    private final DataSource dataSource;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final long retryBudgetNanos;
+
+    private final MethodMetrics connectionMetrics;
+    private final MethodMetrics commitMetrics;
+    private final LongAdder retries;
+    private final LongAdder retriesExhausted;
+
+    public TransactionTemplate(DataSource dataSource, int maxAttempts, long initialBackoffMillis,
+            long maxBackoffMillis, long retryBudgetMillis, MetricsRegistry registry) {
+
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+
+        this.dataSource = dataSource;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(initialBackoffMillis);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis);
+        this.retryBudgetNanos = TimeUnit.MILLISECONDS.toNanos(retryBudgetMillis);
+
+        connectionMetrics = registry.method("Transaction", "getConnection");
+        commitMetrics = registry.method("Transaction", "commit");
+        retries = registry.counter("transaction_retries");
+        retriesExhausted = registry.counter("transaction_retries_exhausted");
+    }
+
+    /**
+     * Ejecuta el callback en una transacción con el nivel de aislamiento por
+     * defecto de la conexión.
+     */
+    public <T, E1 extends Exception, E2 extends Exception, E3 extends Exception> T execute(
+            TransactionCallback<T, E1, E2, E3> callback) throws E1, E2, E3 {
+        return execute(DEFAULT_ISOLATION, callback);
+    }
+
+    /**
+     * Ejecuta el callback en una transacción con el nivel de aislamiento
+     * indicado (una de las constantes Connection.TRANSACTION_*), repitiéndola
+     * si falla por un error transitorio de concurrencia.
+     */
+    public <T, E1 extends Exception, E2 extends Exception, E3 extends Exception> T execute(
+            int isolationLevel, TransactionCallback<T, E1, E2, E3> callback) throws E1, E2, E3 {
+
+        long deadline = System.nanoTime() + retryBudgetNanos;
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return executeOnce(isolationLevel, callback);
+            } catch (RuntimeException e) {
+                if (!SqlErrors.isSerializationFailure(e)) {
+                    throw e;
+                }
+                long backoffNanos = backoffNanos(attempt);
+                if (attempt >= maxAttempts || System.nanoTime() + backoffNanos > deadline) {
+                    retriesExhausted.increment();
+                    throw e;
+                }
+                retries.increment();
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoffNanos);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    e.addSuppressed(interruptedException);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ejecuta el callback con una conexión en modo autocommit, sin transacción
+     * explícita ni reintentos. Es lo adecuado para las lecturas, en particular
+     * las que recorren resultados en streaming: no pueden repetirse una vez que
+     * el consumidor ha recibido elementos.
+     */
+    public <T, E1 extends Exception, E2 extends Exception, E3 extends Exception> T query(
+            TransactionCallback<T, E1, E2, E3> callback) throws E1, E2, E3 {
+
+        try (Connection connection = getConnection()) {
+            // El pool entrega las conexiones sin autocommit (y se lo vuelve a
+            // quitar al prestarlas): sin esto, cada lectura abriría una
+            // transacción y los DAO que miran getAutoCommit no sabrían que lo
+            // que leen está confirmado
+            connection.setAutoCommit(true);
+            return callback.doInConnection(connection);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Recurso registrado con la clave indicada en la transacción de
+     * TransactionTemplate que usa la conexión; si aún no lo hay, se crea con
+     * factory y se une a ella. Devuelve null si la conexión no pertenece a una
+     * transacción de TransactionTemplate en este hilo (p. ej. en query o en
+     * modo autocommit): quien llama debe entonces confirmar sus cambios por sí
+     * mismo.
+     */
+    @SuppressWarnings("unchecked")
+    public static <R extends TransactionResource> R resource(Connection connection, Object key,
+            Supplier<R> factory) {
+
+        ActiveTransaction transaction = activeTransaction.get();
+
+        if (transaction == null || transaction.connection != connection) {
+            return null;
+        }
+
+        for (int i = 0; i < transaction.keys.size(); i++) {
+            if (transaction.keys.get(i) == key) {
+                return (R) transaction.resources.get(i);
+            }
+        }
+
+        R resource = factory.get();
+        transaction.keys.add(key);
+        transaction.resources.add(resource);
+        return resource;
+    }
+
+    /**
+     * Crea un savepoint y lo notifica a los recursos de la transacción.
+     */
+    public static Savepoint setSavepoint(Connection connection) throws SQLException {
+
+        Savepoint savepoint = connection.setSavepoint();
+        ActiveTransaction transaction = activeTransaction.get();
+
+        if (transaction != null && transaction.connection == connection) {
+            for (TransactionResource resource : transaction.resources) {
+                resource.savepoint(savepoint);
+            }
+        }
+
+        return savepoint;
+    }
+
+    /**
+     * Vuelve al savepoint en la BD y en los recursos de la transacción.
+     */
+    public static void rollback(Connection connection, Savepoint savepoint) throws SQLException {
+
+        connection.rollback(savepoint);
+        ActiveTransaction transaction = activeTransaction.get();
+
+        if (transaction != null && transaction.connection == connection) {
+            for (TransactionResource resource : transaction.resources) {
+                resource.rollbackTo(savepoint);
+            }
+        }
+    }
+
+    private <T, E1 extends Exception, E2 extends Exception, E3 extends Exception> T executeOnce(
+            int isolationLevel, TransactionCallback<T, E1, E2, E3> callback) throws E1, E2, E3 {
+
+        try (Connection connection = getConnection()) {
+
+            ActiveTransaction previousTransaction = activeTransaction.get();
+            ActiveTransaction transaction = new ActiveTransaction(connection);
+            boolean committed = false;
+            activeTransaction.set(transaction);
+
+            try {
+                if (isolationLevel != DEFAULT_ISOLATION) {
+                    connection.setTransactionIsolation(isolationLevel);
+                }
+                connection.setAutoCommit(false);
+
+                T result = callback.doInConnection(connection);
+
+                transaction.prepare();
+                commit(connection);
+                committed = true;
+                return result;
+
+            } catch (Throwable e) {
+                rollback(connection, e);
+                throw e;
+            } finally {
+                transaction.complete(committed);
+                activeTransaction.set(previousTransaction);
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Espera antes del intento siguiente: un valor aleatorio entre la mitad y
+     * el total de un tope que se duplica en cada intento, para que las
+     * transacciones que chocaron no vuelvan a coincidir.
+     */
+    private long backoffNanos(int attempt) {
+        long cap = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 20));
+        return cap <= 1 ? cap : ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+    }
+
+    /**
+     * Obtiene una conexión del pool midiendo cuánto se espera por ella.
+     */
+    private Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = dataSource.getConnection();
+            connectionMetrics.success(start);
+            return connection;
+        } catch (Throwable e) {
+            connectionMetrics.failure(start, e);
+            throw e;
+        }
+    }
+
+    private void commit(Connection connection) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            connection.commit();
+            commitMetrics.success(start);
+        } catch (Throwable e) {
+            commitMetrics.failure(start, e);
+            throw e;
+        }
+    }
+
+    private static void rollback(Connection connection, Throwable cause) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+}
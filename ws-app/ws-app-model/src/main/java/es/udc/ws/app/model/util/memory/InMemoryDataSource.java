@@ -0,0 +1,81 @@
+package es.udc.ws.app.model.util.memory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+/**
+ * Fuente de datos para los DAO en memoria (InMemorySql*Dao): cada conexión es
+ * una {@link InMemoryTransaction} nueva, sin BD detrás. Se registra como la
+ * fuente de datos de la aplicación (ModelConstants.APP_DATA_SOURCE), con
+ * DataSourceLocator.addDataSource o como recurso JNDI.
+ */
+public class InMemoryDataSource implements DataSource {
+
+    private final static long DEFAULT_LOCK_WAIT_TIMEOUT_MILLIS = 5000;
+
+    private final long lockWaitTimeoutMillis;
+    private int loginTimeout = 0;
+
+    public InMemoryDataSource() {
+        this(DEFAULT_LOCK_WAIT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param lockWaitTimeoutMillis espera máxima por un cerrojo antes de que
+     * la sentencia falle (ver {@link InMemoryTransaction}).
+     */
+    public InMemoryDataSource(long lockWaitTimeoutMillis) {
+        this.lockWaitTimeoutMillis = lockWaitTimeoutMillis;
+    }
+
+    @Override
+    public Connection getConnection() {
+        return new InMemoryTransaction(lockWaitTimeoutMillis).newConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        if (!isWrapperFor(type)) {
+            throw new SQLException("Not a wrapper for " + type);
+        }
+        return type.cast(this);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) {
+        return type.isInstance(this);
+    }
+}
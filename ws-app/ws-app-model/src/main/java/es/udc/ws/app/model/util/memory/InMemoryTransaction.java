@@ -0,0 +1,313 @@
+package es.udc.ws.app.model.util.memory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Transacción de una conexión de {@link InMemoryDataSource}: implementa, con un
+ * proxy de {@link Connection}, el autocommit, commit, rollback y los savepoints,
+ * que es todo lo que usan el servicio y {@link es.udc.ws.app.model.util.TransactionTemplate}.
+ * Las sentencias SQL no están soportadas: los DAO en memoria obtienen la
+ * transacción con {@link #of(Connection)} y trabajan directamente sobre sus datos.
+ * <p>
+ * Los DAO bloquean los datos que modifican con el cerrojo de escritura de su
+ * franja ({@link #lockForUpdate(ReadWriteLock)}), que se mantiene hasta el
+ * commit o el rollback, como los bloqueos de fila de InnoDB; antes de modificar
+ * nada, registran cómo deshacerlo ({@link #onRollback(Runnable)}). Las lecturas
+ * toman el cerrojo de lectura sólo mientras copian los datos
+ * ({@link #read(ReadWriteLock, Supplier)}), así que nunca ven cambios sin confirmar
+ * de otras transacciones. El nivel de aislamiento se acepta pero no cambia nada.
+ * <p>
+ * Si un cerrojo no se obtiene en lockWaitTimeoutMillis (p. ej. por un
+ * interbloqueo), la sentencia falla con el mismo error que MySQL para un tiempo
+ * de espera de bloqueo agotado, de modo que TransactionTemplate repite la
+ * transacción. Los cerrojos pertenecen al hilo: una transacción debe empezar y
+ * terminar en el mismo hilo, y cada hilo no puede tener más de una a la vez.
+ */
+public class InMemoryTransaction implements InvocationHandler {
+
+    /**
+     * Cuerpo de una sentencia; ver {@link #statement(Statement)}.
+     */
+    @FunctionalInterface
+    public interface Statement<T, E extends Exception> {
+
+        T execute(InMemoryTransaction transaction) throws E;
+    }
+
+    private static class InMemorySavepoint implements Savepoint {
+
+        private final int undoLogSize;
+
+        private InMemorySavepoint(int undoLogSize) {
+            this.undoLogSize = undoLogSize;
+        }
+
+        @Override
+        public int getSavepointId() {
+            return undoLogSize;
+        }
+
+        @Override
+        public String getSavepointName() throws SQLException {
+            throw new SQLException("Unnamed savepoint");
+        }
+    }
+
+    private final static int MYSQL_LOCK_WAIT_TIMEOUT = 1205;
+
+    private final long lockWaitTimeoutNanos;
+
+    private final List<Lock> heldLocks = new ArrayList<>();
+    private final List<Runnable> undoLog = new ArrayList<>();
+    private boolean autoCommit = true;
+    private boolean closed = false;
+    private int isolationLevel = Connection.TRANSACTION_REPEATABLE_READ;
+
+    InMemoryTransaction(long lockWaitTimeoutMillis) {
+        this.lockWaitTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(lockWaitTimeoutMillis);
+    }
+
+    Connection newConnection() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, this);
+    }
+
+    /**
+     * Transacción de una conexión obtenida de {@link InMemoryDataSource}.
+     * @throws IllegalStateException si la conexión es de otra fuente de datos.
+     */
+    public static InMemoryTransaction of(Connection connection) {
+        try {
+            if (connection.isWrapperFor(InMemoryTransaction.class)) {
+                return connection.unwrap(InMemoryTransaction.class);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        throw new IllegalStateException("In-memory DAOs need a connection from InMemoryDataSource");
+    }
+
+    /**
+     * Ejecuta una sentencia de forma atómica: si lanza una excepción, se
+     * deshace lo que hubiera modificado (pero no las sentencias anteriores de
+     * la transacción). En modo autocommit, la sentencia se confirma al terminar.
+     */
+    public <T, E extends Exception> T statement(Statement<T, E> statement) throws E {
+
+        if (closed) {
+            throw new IllegalStateException("Connection is closed");
+        }
+        int undoLogSize = undoLog.size();
+
+        try {
+            return statement.execute(this);
+        } catch (Throwable e) {
+            undo(undoLogSize);
+            throw e;
+        } finally {
+            if (autoCommit) {
+                commit();
+            }
+        }
+    }
+
+    /**
+     * Toma el cerrojo de escritura hasta el final de la transacción, si no lo
+     * tenía ya.
+     */
+    public void lockForUpdate(ReadWriteLock lock) {
+
+        Lock writeLock = lock.writeLock();
+
+        for (Lock heldLock : heldLocks) {
+            if (heldLock == writeLock) {
+                return;
+            }
+        }
+
+        acquire(writeLock);
+        heldLocks.add(writeLock);
+    }
+
+    /**
+     * Lee bajo el cerrojo de lectura, que se libera al terminar. Si la
+     * transacción ya tiene el de escritura, lee directamente sus propios cambios.
+     */
+    public <T> T read(ReadWriteLock lock, Supplier<T> reader) {
+
+        Lock writeLock = lock.writeLock();
+
+        for (Lock heldLock : heldLocks) {
+            if (heldLock == writeLock) {
+                return reader.get();
+            }
+        }
+
+        Lock readLock = lock.readLock();
+        acquire(readLock);
+        try {
+            return reader.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Registra cómo deshacer una modificación que se va a hacer. Se deshacen
+     * en orden inverso al de registro.
+     */
+    public void onRollback(Runnable undo) {
+        undoLog.add(undo);
+    }
+
+    /**
+     * Toma el cerrojo con el tiempo de espera de la transacción, o falla como
+     * un tiempo de espera de bloqueo agotado de MySQL.
+     */
+    private void acquire(Lock lock) {
+        try {
+            if (!lock.tryLock(lockWaitTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new RuntimeException(new SQLTransactionRollbackException(
+                        "Lock wait timeout exceeded; try restarting transaction", "40001",
+                        MYSQL_LOCK_WAIT_TIMEOUT));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "InMemoryConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+            case "unwrap":
+                if (!isWrapperFor((Class<?>) args[0])) {
+                    throw new SQLException("Not a wrapper for " + args[0]);
+                }
+                return this;
+            case "isWrapperFor":
+                return isWrapperFor((Class<?>) args[0]);
+            case "close":
+                close();
+                return null;
+            case "isClosed":
+                return closed;
+            case "isValid":
+                return !closed;
+        }
+
+        if (closed) {
+            throw new SQLException("Connection is closed");
+        }
+
+        switch (method.getName()) {
+            case "getAutoCommit":
+                return autoCommit;
+            case "setAutoCommit":
+                boolean newAutoCommit = (Boolean) args[0];
+                // Según JDBC, activar el autocommit confirma la transacción en curso
+                if (newAutoCommit && !autoCommit) {
+                    commit();
+                }
+                autoCommit = newAutoCommit;
+                return null;
+            case "commit":
+                commit();
+                return null;
+            case "rollback":
+                if (args == null) {
+                    rollback();
+                } else {
+                    rollback((Savepoint) args[0]);
+                }
+                return null;
+            case "setSavepoint":
+                return new InMemorySavepoint(undoLog.size());
+            case "releaseSavepoint":
+                return null;
+            case "getTransactionIsolation":
+                return isolationLevel;
+            case "setTransactionIsolation":
+                isolationLevel = (Integer) args[0];
+                return null;
+            case "isReadOnly":
+                return false;
+            case "setReadOnly":
+            case "clearWarnings":
+                return null;
+            case "getWarnings":
+                return null;
+            default:
+                throw new SQLFeatureNotSupportedException(method.getName()
+                        + " is not supported by in-memory connections");
+        }
+    }
+
+    private static boolean isWrapperFor(Class<?> type) {
+        return type.isAssignableFrom(InMemoryTransaction.class);
+    }
+
+    private void commit() {
+        undoLog.clear();
+        releaseLocks();
+    }
+
+    private void rollback() {
+        undo(0);
+        releaseLocks();
+    }
+
+    /**
+     * Deshace lo hecho desde el savepoint, conservando los cerrojos, como InnoDB.
+     */
+    private void rollback(Savepoint savepoint) throws SQLException {
+        if (!(savepoint instanceof InMemorySavepoint inMemorySavepoint)
+                || inMemorySavepoint.undoLogSize > undoLog.size()) {
+            throw new SQLException("Invalid savepoint");
+        }
+        undo(inMemorySavepoint.undoLogSize);
+    }
+
+    /**
+     * Cerrar con una transacción en curso la deshace, como hacen los pools.
+     */
+    private void close() {
+        if (!closed) {
+            rollback();
+            closed = true;
+        }
+    }
+
+    private void undo(int undoLogSize) {
+        for (int i = undoLog.size() - 1; i >= undoLogSize; i--) {
+            undoLog.remove(i).run();
+        }
+    }
+
+    private void releaseLocks() {
+        for (int i = heldLocks.size() - 1; i >= 0; i--) {
+            heldLocks.get(i).unlock();
+        }
+        heldLocks.clear();
+    }
+}
@@ -0,0 +1,141 @@
+package es.udc.ws.app.model.util.memory;
+
+import java.util.function.Consumer;
+
+/**
+ * Tabla hash de claves long positivas, con direccionamiento abierto y sondeo
+ * lineal: las claves se guardan en un long[] sin envolverlas en Long ni crear
+ * un nodo por entrada. No es thread-safe; quien la use debe protegerla con su
+ * propio cerrojo.
+ */
+public class LongHashMap<V> {
+
+    private final static int INITIAL_SLOTS = 16;
+    private final static float MAX_LOAD_FACTOR = 0.75f;
+
+    // Clave 0 = hueco libre: los identificadores son positivos
+    private long[] keys = new long[INITIAL_SLOTS];
+    private Object[] values = new Object[INITIAL_SLOTS];
+    private int size = 0;
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = find(keys, key);
+        return keys[slot] == key ? (V) values[slot] : null;
+    }
+
+    /**
+     * @return el valor anterior de la clave, o null si no estaba.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+
+        if (key <= 0) {
+            throw new IllegalArgumentException("Invalid key: " + key);
+        }
+
+        int slot = find(keys, key);
+
+        if (keys[slot] == key) {
+            V previous = (V) values[slot];
+            values[slot] = value;
+            return previous;
+        }
+
+        if (size + 1 > keys.length * MAX_LOAD_FACTOR) {
+            rehash(keys.length * 2);
+            slot = find(keys, key);
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return null;
+    }
+
+    /**
+     * @return el valor que tenía la clave, o null si no estaba.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+
+        int slot = find(keys, key);
+
+        if (keys[slot] != key) {
+            return null;
+        }
+
+        V previous = (V) values[slot];
+        int mask = keys.length - 1;
+
+        // Se desplazan hacia el hueco las entradas siguientes de la misma
+        // secuencia de sondeo, para que sigan siendo alcanzables sin marcas
+        // de borrado
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = (int) hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = null;
+        size--;
+
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<V> consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept((V) values[i]);
+            }
+        }
+    }
+
+    private void rehash(int slots) {
+
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[slots];
+        values = new Object[slots];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = find(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Posición de la clave en la tabla, o del hueco libre donde iría.
+     */
+    private static int find(long[] keys, long key) {
+
+        int mask = keys.length - 1;
+        int slot = (int) hash(key) & mask;
+
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Dispersa los identificadores, que son consecutivos, por toda la tabla.
+     */
+    static long hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+}
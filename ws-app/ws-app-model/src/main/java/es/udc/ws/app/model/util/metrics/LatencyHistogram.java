@@ -0,0 +1,75 @@
+package es.udc.ws.app.model.util.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias con buckets fijos, al estilo de Prometheus. Registrar
+ * un valor no reserva memoria ni toma locks: sólo busca el bucket e incrementa
+ * dos LongAdder.
+ */
+public class LatencyHistogram {
+
+    // Límite superior (inclusivo) de cada bucket, en microsegundos; el último
+    // bucket, sin límite, recoge el resto
+    private static final long[] UPPER_BOUNDS_MICROS = {
+            50, 100, 250, 500,
+            1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+
+    private static final long[] UPPER_BOUNDS_NANOS = new long[UPPER_BOUNDS_MICROS.length];
+
+    static {
+        for (int i = 0; i < UPPER_BOUNDS_MICROS.length; i++) {
+            UPPER_BOUNDS_NANOS[i] = TimeUnit.MICROSECONDS.toNanos(UPPER_BOUNDS_MICROS[i]);
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[UPPER_BOUNDS_MICROS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < UPPER_BOUNDS_NANOS.length && nanos > UPPER_BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Número de buckets, incluido el último (sin límite superior).
+     */
+    public static int getBucketCount() {
+        return UPPER_BOUNDS_MICROS.length + 1;
+    }
+
+    /**
+     * Límite superior del bucket en microsegundos, o Long.MAX_VALUE para el último.
+     */
+    public static long getUpperBoundMicros(int bucket) {
+        return bucket < UPPER_BOUNDS_MICROS.length ? UPPER_BOUNDS_MICROS[bucket] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Número de valores registrados en cada bucket (no acumulado).
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+}
@@ -0,0 +1,90 @@
+package es.udc.ws.app.model.util.metrics;
+
+import es.udc.ws.app.model.util.SqlErrors;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de un método instrumentado: histograma de latencias, excepciones
+ * por tipo y fallos de serialización de la BD.
+ * <p>
+ * Uso, sin reservar memoria en las llamadas que terminan bien:
+ * <pre>
+ * long start = System.nanoTime();
+ * try {
+ *     T result = delegate.method(...);
+ *     metrics.success(start);
+ *     return result;
+ * } catch (Throwable e) {
+ *     metrics.failure(start, e);
+ *     throw e;
+ * }
+ * </pre>
+ */
+public class MethodMetrics {
+
+    private final String component;
+    private final String method;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final ConcurrentMap<Class<?>, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder serializationFailures = new LongAdder();
+
+    MethodMetrics(String component, String method) {
+        this.component = component;
+        this.method = method;
+    }
+
+    public String getComponent() {
+        return component;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public void success(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+    }
+
+    public void failure(long startNanos, Throwable e) {
+
+        latency.record(System.nanoTime() - startNanos);
+
+        // De las llamadas asíncronas interesa la excepción original
+        Throwable error = e;
+        if ((error instanceof ExecutionException || error instanceof CompletionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+
+        // Tras la primera excepción de cada tipo, la búsqueda no reserva memoria
+        errors.computeIfAbsent(error.getClass(), type -> new LongAdder()).increment();
+
+        if (SqlErrors.isSerializationFailure(error)) {
+            serializationFailures.increment();
+        }
+    }
+
+    /**
+     * Número de excepciones lanzadas, por nombre simple de su clase.
+     */
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        errors.forEach((type, count) -> counts.merge(type.getSimpleName(), count.sum(), Long::sum));
+        return counts;
+    }
+
+    public long getSerializationFailures() {
+        return serializationFailures.sum();
+    }
+}
@@ -0,0 +1,65 @@
+package es.udc.ws.app.model.util.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro de las métricas de la aplicación. Los decoradores obtienen sus
+ * MethodMetrics al construirse, de modo que en cada llamada no hay búsquedas
+ * en el registro; el endpoint de métricas lo recorre al consultarlo.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry instance = new MetricsRegistry();
+
+    private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Devuelve las métricas del método, creándolas la primera vez. Varias
+     * instancias de un mismo componente comparten métricas.
+     */
+    public MethodMetrics method(String component, String method) {
+        return methods.computeIfAbsent(component + "." + method, key -> new MethodMetrics(component, method));
+    }
+
+    /**
+     * Métricas de todos los métodos registrados, ordenadas por componente y método.
+     */
+    public Collection<MethodMetrics> getMethods() {
+        return new ArrayList<>(methods.values());
+    }
+
+    /**
+     * Devuelve el contador con ese nombre, creándolo la primera vez. El nombre
+     * se publica tal cual (con el prefijo y el sufijo del endpoint), así que
+     * debe estar en minúsculas y separado por guiones bajos.
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Valor actual de todos los contadores, ordenados por nombre.
+     */
+    public SortedMap<String, Long> getCounters() {
+        SortedMap<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().sum());
+        }
+        return values;
+    }
+}
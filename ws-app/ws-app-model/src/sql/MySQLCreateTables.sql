@@ -1,27 +1,108 @@
+DROP TABLE IF EXISTS SurveyCounterShard;
+DROP TABLE IF EXISTS SurveyStats;
 DROP TABLE IF EXISTS Response;
+DROP TABLE IF EXISTS Employee;
 DROP TABLE IF EXISTS Survey;
+DROP TABLE IF EXISTS SchemaVersion;
 
 
 
+-- Versiones del esquema aplicadas. Este script crea directamente la última;
+-- las BD existentes se actualizan con los scripts de migrations/.
+CREATE TABLE SchemaVersion (
+    version INT NOT NULL,
+    description VARCHAR(255) NOT NULL,
+    appliedDate DATETIME NOT NULL,
+    CONSTRAINT SchemaVersionPK PRIMARY KEY (version)
+) ENGINE = InnoDB;
+
 CREATE TABLE Survey (
     surveyId BIGINT NOT NULL AUTO_INCREMENT,
     question VARCHAR(255) NOT NULL,
     creationDate DATETIME NOT NULL,
     endDate DATETIME NOT NULL,
     canceled BIT NOT NULL,
+    -- OPEN hasta endDate, FINISHED después; lo actualiza SurveyLifecycleScheduler
+    status VARCHAR(10) NOT NULL DEFAULT 'OPEN',
     positiveResponses BIGINT NOT NULL,
     negativeResponses BIGINT NOT NULL,
-    CONSTRAINT SurveyPK PRIMARY KEY (surveyId)
+    -- Filas de SurveyCounterShard entre las que se reparten los votos; con 1,
+    -- los votos incrementan directamente los contadores de esta tabla
+    counterShards INT NOT NULL DEFAULT 1,
+    CONSTRAINT SurveyPK PRIMARY KEY (surveyId),
+    -- findByKeyword: ORDER BY creationDate DESC, surveyId DESC (InnoDB añade la PK)
+    INDEX SurveyCreationDateIdx (creationDate),
+    -- findByKeyword con onlyFuture: status = 'OPEN' ORDER BY creationDate DESC, surveyId DESC
+    INDEX SurveyStatusCreationDateIdx (status, creationDate),
+    -- findOpen: status = 'OPEN' ORDER BY endDate, surveyId
+    INDEX SurveyStatusEndDateIdx (status, endDate)
+) ENGINE = InnoDB;
+
+-- Diccionario de empleados: Response guarda el identificador, no el email.
+-- Las filas no se borran nunca, y EmployeeDirectory las mantiene en caché
+CREATE TABLE Employee (
+    employeeId BIGINT NOT NULL AUTO_INCREMENT,
+    email VARCHAR(255) NOT NULL,
+    CONSTRAINT EmployeePK PRIMARY KEY (employeeId),
+    -- EmployeeDirectory: WHERE email IN (...)
+    CONSTRAINT EmployeeEmailUnique UNIQUE (email)
 ) ENGINE = InnoDB;
 
 CREATE TABLE Response (
     responseId BIGINT NOT NULL AUTO_INCREMENT,
     surveyId BIGINT NOT NULL,
-    employeeEmail VARCHAR(255) NOT NULL,
+    employeeId BIGINT NOT NULL,
     response BIT NOT NULL,
     responseDate DATETIME NOT NULL,
     CONSTRAINT ResponsePK PRIMARY KEY (responseId),
     CONSTRAINT ResponseSurveyFK FOREIGN KEY (surveyId)
         REFERENCES Survey(surveyId) ON DELETE CASCADE,
-    CONSTRAINT EmailSurveyUnique UNIQUE (employeeEmail, surveyId)
-) ENGINE = InnoDB;
\ No newline at end of file
+    -- Los empleados no se borran nunca
+    CONSTRAINT ResponseEmployeeFK FOREIGN KEY (employeeId)
+        REFERENCES Employee(employeeId),
+    -- upsert y findBySurveyAndEmployee(s); también sirve a ResponseSurveyFK
+    CONSTRAINT EmployeeSurveyUnique UNIQUE (surveyId, employeeId),
+    -- ResponseEmployeeFK (employeeId no es el primer campo de la clave única)
+    INDEX ResponseEmployeeIdx (employeeId),
+    -- findBySurveyId: WHERE surveyId = ? ORDER BY responseDate DESC, responseId DESC
+    INDEX ResponseSurveyDateIdx (surveyId, responseDate),
+    -- findBySurveyId con onlyPositive: WHERE surveyId = ? AND response = ? ORDER BY ...
+    INDEX ResponseSurveyValueDateIdx (surveyId, response, responseDate)
+) ENGINE = InnoDB;
+
+-- Votos de cada encuesta por horas: respuestas nuevas y cambios de voto,
+-- actualizados en la misma transacción que los contadores de Survey
+CREATE TABLE SurveyStats (
+    surveyId BIGINT NOT NULL,
+    bucketStart DATETIME NOT NULL,
+    -- Fila de contadores (ver SurveyCounterShard) que incrementaron estos votos
+    shard INT NOT NULL DEFAULT 0,
+    positiveResponses BIGINT NOT NULL,
+    negativeResponses BIGINT NOT NULL,
+    positiveChanges BIGINT NOT NULL,
+    negativeChanges BIGINT NOT NULL,
+    -- findBySurveyId: WHERE surveyId = ? AND bucketStart ... GROUP BY/ORDER BY bucketStart
+    CONSTRAINT SurveyStatsPK PRIMARY KEY (surveyId, bucketStart, shard),
+    CONSTRAINT SurveyStatsSurveyFK FOREIGN KEY (surveyId)
+        REFERENCES Survey(surveyId) ON DELETE CASCADE
+) ENGINE = InnoDB;
+
+-- Contadores repartidos de las encuestas con counterShards > 1. Los contadores
+-- de una encuesta son los de Survey más la suma de todas sus filas
+CREATE TABLE SurveyCounterShard (
+    surveyId BIGINT NOT NULL,
+    shard INT NOT NULL,
+    positiveResponses BIGINT NOT NULL,
+    negativeResponses BIGINT NOT NULL,
+    CONSTRAINT SurveyCounterShardPK PRIMARY KEY (surveyId, shard),
+    CONSTRAINT SurveyCounterShardSurveyFK FOREIGN KEY (surveyId)
+        REFERENCES Survey(surveyId) ON DELETE CASCADE
+) ENGINE = InnoDB;
+
+INSERT INTO SchemaVersion (version, description, appliedDate)
+    VALUES (1, 'Initial schema', NOW()),
+           (2, 'Composite indexes for DAO queries', NOW()),
+           (3, 'Hourly survey statistics', NOW()),
+           (4, 'Sharded survey counters', NOW()),
+           (5, 'Survey status', NOW()),
+           (6, 'Employee dictionary', NOW());
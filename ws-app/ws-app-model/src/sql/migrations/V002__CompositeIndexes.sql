@@ -0,0 +1,37 @@
+-- Migración 2: índices compuestos para las consultas de los DAO.
+-- Para BD creadas con la versión 1 de MySQLCreateTables.sql; las creadas con la
+-- versión actual ya incluyen estos índices.
+--
+--   mysql -u ws -p ws < src/sql/migrations/V002__CompositeIndexes.sql
+
+CREATE TABLE IF NOT EXISTS SchemaVersion (
+    version INT NOT NULL,
+    description VARCHAR(255) NOT NULL,
+    appliedDate DATETIME NOT NULL,
+    CONSTRAINT SchemaVersionPK PRIMARY KEY (version)
+) ENGINE = InnoDB;
+
+INSERT IGNORE INTO SchemaVersion (version, description, appliedDate)
+    VALUES (1, 'Initial schema', NOW());
+
+-- La clave única empieza ahora por surveyId, que es por lo que filtran todas
+-- las consultas sobre Response. Se crea antes de borrar la anterior para no
+-- dejar de garantizar la unicidad; MySQL elimina por su cuenta el índice que
+-- había creado para la clave ajena, porque el nuevo ya la cubre.
+ALTER TABLE Response
+    ADD CONSTRAINT SurveyEmailUnique UNIQUE (surveyId, employeeEmail),
+    ADD INDEX ResponseSurveyDateIdx (surveyId, responseDate),
+    ADD INDEX ResponseSurveyValueDateIdx (surveyId, response, responseDate),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+ALTER TABLE Response DROP INDEX EmailSurveyUnique;
+
+ALTER TABLE Response RENAME INDEX SurveyEmailUnique TO EmailSurveyUnique;
+
+ALTER TABLE Survey
+    ADD INDEX SurveyCreationDateIdx (creationDate),
+    ADD INDEX SurveyEndDateIdx (endDate),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+INSERT INTO SchemaVersion (version, description, appliedDate)
+    VALUES (2, 'Composite indexes for DAO queries', NOW());
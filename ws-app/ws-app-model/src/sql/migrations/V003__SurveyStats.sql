@@ -0,0 +1,29 @@
+-- Migración 3: estadísticas de votos por horas (tabla SurveyStats).
+--
+--   mysql -u ws -p ws < src/sql/migrations/V003__SurveyStats.sql
+
+CREATE TABLE SurveyStats (
+    surveyId BIGINT NOT NULL,
+    bucketStart DATETIME NOT NULL,
+    positiveResponses BIGINT NOT NULL,
+    negativeResponses BIGINT NOT NULL,
+    positiveChanges BIGINT NOT NULL,
+    negativeChanges BIGINT NOT NULL,
+    CONSTRAINT SurveyStatsPK PRIMARY KEY (surveyId, bucketStart),
+    CONSTRAINT SurveyStatsSurveyFK FOREIGN KEY (surveyId)
+        REFERENCES Survey(surveyId) ON DELETE CASCADE
+) ENGINE = InnoDB;
+
+-- Carga inicial a partir de las respuestas existentes. Los cambios de voto
+-- anteriores no quedaron registrados: cada respuesta cuenta como nueva, con su
+-- valor actual, en la hora de su última modificación. Conviene aplicarla con
+-- la aplicación parada, para no perder los votos que lleguen durante la carga.
+INSERT INTO SurveyStats (surveyId, bucketStart, positiveResponses, negativeResponses,
+        positiveChanges, negativeChanges)
+    SELECT surveyId, DATE_FORMAT(responseDate, '%Y-%m-%d %H:00:00'),
+           SUM(response = 1), SUM(response = 0), 0, 0
+    FROM Response
+    GROUP BY surveyId, DATE_FORMAT(responseDate, '%Y-%m-%d %H:00:00');
+
+INSERT INTO SchemaVersion (version, description, appliedDate)
+    VALUES (3, 'Hourly survey statistics', NOW());
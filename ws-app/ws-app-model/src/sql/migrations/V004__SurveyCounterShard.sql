@@ -0,0 +1,31 @@
+-- Migración 4: contadores repartidos en varias filas para las encuestas con
+-- muchos votos simultáneos (columna Survey.counterShards y tabla
+-- SurveyCounterShard). Las estadísticas por horas se reparten igual, con una
+-- columna shard más en su clave. Las encuestas existentes quedan con una sola
+-- fila, la de Survey.
+--
+-- SurveyCounterShard sólo tiene filas de las encuestas con counterShards > 1,
+-- que son las únicas cuyas lecturas las suman: al volver a una sola fila, sus
+-- votos pasan a Survey y se borran (ver Jdbc3SqlSurveyDao.updateCounterShards).
+--
+--   mysql -u ws -p ws < src/sql/migrations/V004__SurveyCounterShard.sql
+
+ALTER TABLE Survey ADD COLUMN counterShards INT NOT NULL DEFAULT 1;
+
+CREATE TABLE SurveyCounterShard (
+    surveyId BIGINT NOT NULL,
+    shard INT NOT NULL,
+    positiveResponses BIGINT NOT NULL,
+    negativeResponses BIGINT NOT NULL,
+    CONSTRAINT SurveyCounterShardPK PRIMARY KEY (surveyId, shard),
+    CONSTRAINT SurveyCounterShardSurveyFK FOREIGN KEY (surveyId)
+        REFERENCES Survey(surveyId) ON DELETE CASCADE
+) ENGINE = InnoDB;
+
+ALTER TABLE SurveyStats
+    ADD COLUMN shard INT NOT NULL DEFAULT 0 AFTER bucketStart,
+    DROP PRIMARY KEY,
+    ADD CONSTRAINT SurveyStatsPK PRIMARY KEY (surveyId, bucketStart, shard);
+
+INSERT INTO SchemaVersion (version, description, appliedDate)
+    VALUES (4, 'Sharded survey counters', NOW());
@@ -0,0 +1,18 @@
+-- Migración 5: estado de las encuestas (OPEN/FINISHED), que mantiene
+-- SurveyLifecycleScheduler al llegar endDate. Las búsquedas con onlyFuture
+-- filtran por igualdad sobre status en lugar de comparar endDate con la hora
+-- actual.
+--
+--   mysql -u ws -p ws < src/sql/migrations/V005__SurveyStatus.sql
+
+ALTER TABLE Survey
+    ADD COLUMN status VARCHAR(10) NOT NULL DEFAULT 'OPEN' AFTER canceled,
+    DROP INDEX SurveyEndDateIdx,
+    ADD INDEX SurveyStatusCreationDateIdx (status, creationDate),
+    ADD INDEX SurveyStatusEndDateIdx (status, endDate);
+
+-- Las que ya han finalizado; las que finalicen más tarde las marca la aplicación
+UPDATE Survey SET status = 'FINISHED' WHERE endDate < NOW();
+
+INSERT INTO SchemaVersion (version, description, appliedDate)
+    VALUES (5, 'Survey status', NOW());
@@ -0,0 +1,33 @@
+-- Migración 6: diccionario de empleados. Response guarda el identificador del
+-- empleado en lugar de su email, de modo que cada email se almacena una sola
+-- vez y el índice único de Response pasa a ser (surveyId, employeeId).
+--
+--   mysql -u ws -p ws < src/sql/migrations/V006__Employee.sql
+
+CREATE TABLE Employee (
+    employeeId BIGINT NOT NULL AUTO_INCREMENT,
+    email VARCHAR(255) NOT NULL,
+    CONSTRAINT EmployeePK PRIMARY KEY (employeeId),
+    CONSTRAINT EmployeeEmailUnique UNIQUE (email)
+) ENGINE = InnoDB;
+
+INSERT INTO Employee (email)
+    SELECT DISTINCT employeeEmail FROM Response;
+
+ALTER TABLE Response ADD COLUMN employeeId BIGINT NULL AFTER surveyId;
+
+UPDATE Response r JOIN Employee e ON e.email = r.employeeEmail
+    SET r.employeeId = e.employeeId;
+
+-- Un solo ALTER, para reconstruir la tabla una única vez
+ALTER TABLE Response
+    MODIFY COLUMN employeeId BIGINT NOT NULL,
+    DROP INDEX EmailSurveyUnique,
+    DROP COLUMN employeeEmail,
+    ADD CONSTRAINT EmployeeSurveyUnique UNIQUE (surveyId, employeeId),
+    ADD INDEX ResponseEmployeeIdx (employeeId),
+    ADD CONSTRAINT ResponseEmployeeFK FOREIGN KEY (employeeId)
+        REFERENCES Employee(employeeId);
+
+INSERT INTO SchemaVersion (version, description, appliedDate)
+    VALUES (6, 'Employee dictionary', NOW());
@@ -1,17 +1,36 @@
 package es.udc.ws.app.test.model.appservice;
 
 import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.response.ResponseExportReader;
+import es.udc.ws.app.model.response.ResponseExportWriter;
 import es.udc.ws.app.model.response.SqlResponseDao;
 import es.udc.ws.app.model.response.SqlResponseDaoFactory;
 import es.udc.ws.app.model.surveyservice.exceptions.SurveyAlreadyCanceledException;
 import es.udc.ws.app.model.surveyservice.exceptions.SurveyCanceledException;
 import es.udc.ws.app.model.surveyservice.exceptions.SurveyFinishedException;
 import es.udc.ws.app.model.util.ModelConstants;
+import es.udc.ws.app.model.util.Page;
+import es.udc.ws.app.model.util.TransactionTemplate;
+import es.udc.ws.app.model.util.metrics.MethodMetrics;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import es.udc.ws.app.model.survey.CachingSqlSurveyDao;
+import es.udc.ws.app.model.survey.KeywordIndexSqlSurveyDao;
 import es.udc.ws.app.model.survey.SqlSurveyDao;
 import es.udc.ws.app.model.survey.SqlSurveyDaoFactory;
 import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.survey.SurveyStatus;
+import es.udc.ws.app.model.surveyservice.MeteredSurveyService;
+import es.udc.ws.app.model.surveyservice.SurveyCommand;
+import es.udc.ws.app.model.surveyservice.SurveyCounterReconciler;
+import es.udc.ws.app.model.surveyservice.SurveyLifecycleScheduler;
+import es.udc.ws.app.model.surveyservice.SurveyStateRegistry;
 import es.udc.ws.app.model.surveyservice.SurveyService;
 import es.udc.ws.app.model.surveyservice.SurveyServiceImpl;
+import es.udc.ws.app.model.surveyservice.VoteCommand;
+import es.udc.ws.app.model.surveyservice.VoteResult;
+import es.udc.ws.app.model.surveyservice.VoteStatus;
+import es.udc.ws.app.model.surveystats.SurveyStats;
+import es.udc.ws.app.model.surveystats.SurveyStatsBucket;
 import es.udc.ws.app.model.surveyservice.exceptions.InputValidationException;
 import es.udc.ws.util.sql.SimpleDataSource;
 import es.udc.ws.util.exceptions.InstanceNotFoundException;
@@ -20,10 +39,19 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -73,14 +101,20 @@ public class AppServiceTest {
 
     // Método auxiliar para crear una encuesta en el pasado directamente en BD
     private Survey createPastSurveyRaw(String question) {
+        return createPastSurveyRaw(question, "FINISHED");
+    }
+
+    // Con status OPEN, una encuesta terminada que el planificador aún no ha procesado
+    private Survey createPastSurveyRaw(String question, String status) {
         try (Connection conn = dataSource.getConnection()) {
-            String sql = "INSERT INTO Survey (question, creationDate, endDate, canceled, positiveResponses, negativeResponses) VALUES (?, ?, ?, ?, 0, 0)";
+            String sql = "INSERT INTO Survey (question, creationDate, endDate, canceled, status, positiveResponses, negativeResponses) VALUES (?, ?, ?, ?, ?, 0, 0)";
             try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
                 Timestamp pastDate = Timestamp.valueOf(LocalDateTime.now().minusDays(10));
                 ps.setString(1, question);
                 ps.setTimestamp(2, pastDate);
                 ps.setTimestamp(3, pastDate);
                 ps.setBoolean(4, false);
+                ps.setString(5, status);
                 ps.executeUpdate();
                 ResultSet rs = ps.getGeneratedKeys();
                 if (rs.next()) {
@@ -149,6 +183,58 @@ public class AppServiceTest {
         });
     }
 
+    @Test
+    public void testCreateSurveys() throws InputValidationException, InstanceNotFoundException {
+
+        String keyword = "ImportacionLote" + System.nanoTime();
+        LocalDateTime endDate = LocalDateTime.now().plusDays(7).truncatedTo(ChronoUnit.SECONDS);
+        List<SurveyCommand> commands = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            commands.add(new SurveyCommand(keyword + " pregunta " + i, endDate.plusHours(i)));
+        }
+
+        // Si alguna no es válida, no se crea ninguna y se indican todas las no válidas
+        List<SurveyCommand> invalidCommands = new ArrayList<>(commands);
+        invalidCommands.set(3, new SurveyCommand(" ", endDate));
+        invalidCommands.set(7, new SurveyCommand(keyword, LocalDateTime.now().minusDays(1)));
+        invalidCommands.set(9, new SurveyCommand(keyword, null));
+        InputValidationException exception = assertThrows(InputValidationException.class,
+                () -> surveyService.createSurveys(invalidCommands));
+        assertTrue(exception.getMessage().startsWith("3 invalid surveys"));
+        assertTrue(exception.getMessage().contains("survey 3:"));
+        assertTrue(exception.getMessage().contains("survey 7:"));
+        assertTrue(exception.getMessage().contains("survey 9:"));
+        assertTrue(surveyService.findSurveys(keyword, false).isEmpty());
+
+        List<Survey> createdSurveys = surveyService.createSurveys(commands);
+
+        try {
+            // Se devuelven en el orden recibido, con identificadores crecientes
+            assertEquals(commands.size(), createdSurveys.size());
+            for (int i = 0; i < commands.size(); i++) {
+                Survey createdSurvey = createdSurveys.get(i);
+                assertEquals(commands.get(i).getQuestion(), createdSurvey.getQuestion());
+                assertEquals(commands.get(i).getEndDate(), createdSurvey.getEndDate());
+                assertNotNull(createdSurvey.getCreationDate());
+                if (i > 0) {
+                    assertTrue(createdSurvey.getSurveyId() > createdSurveys.get(i - 1).getSurveyId());
+                }
+
+                Survey foundSurvey = surveyService.findSurvey(createdSurvey.getSurveyId());
+                assertEquals(createdSurvey.getQuestion(), foundSurvey.getQuestion());
+                assertEquals(createdSurvey.getEndDate(), foundSurvey.getEndDate());
+                assertEquals(createdSurvey.getCreationDate(), foundSurvey.getCreationDate());
+            }
+            assertEquals(commands.size(), surveyService.findSurveys(keyword, true).size());
+
+            assertTrue(surveyService.createSurveys(List.of()).isEmpty());
+        } finally {
+            for (Survey createdSurvey : createdSurveys) {
+                removeSurvey(createdSurvey.getSurveyId());
+            }
+        }
+    }
+
     // --- TESTS FUNC-3 (Buscar encuesta por ID) ---
 
     @Test
@@ -174,6 +260,148 @@ public class AppServiceTest {
         }
     }
 
+    @Test
+    public void testCachingSurveyDao() throws InputValidationException, InstanceNotFoundException, SQLException {
+        Survey survey = surveyService.createSurvey("Encuesta cacheada", LocalDateTime.now().plusDays(1));
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        CachingSqlSurveyDao cachingDao = new CachingSqlSurveyDao(surveyDao, 1, 60, 1000, registry);
+        // Los contadores del registro son compartidos: se comprueba cuánto aumentan
+        long hits = registry.getCounters().getOrDefault("survey_cache_hits", 0L);
+        long misses = registry.getCounters().getOrDefault("survey_cache_misses", 0L);
+        long evictions = registry.getCounters().getOrDefault("survey_cache_evictions", 0L);
+        Survey otherSurvey = null;
+
+        try (Connection connection = dataSource.getConnection()) {
+            // Primera lectura desde la BD, la segunda desde la caché
+            cachingDao.find(connection, survey.getSurveyId());
+            Survey cachedSurvey = cachingDao.find(connection, survey.getSurveyId());
+            assertEquals(misses + 1, registry.getCounters().get("survey_cache_misses"));
+            assertEquals(hits + 1, registry.getCounters().get("survey_cache_hits"));
+
+            // Modificar la copia devuelta no altera la caché
+            cachedSurvey.setCanceled(true);
+            assertFalse(cachingDao.find(connection, survey.getSurveyId()).isCanceled());
+
+            // Un voto confirmado (autocommit) suma su incremento a la entrada
+            connection.setAutoCommit(true);
+            assertEquals(0, cachingDao.updateCounters(connection, survey.getSurveyId(), 0, 1, 0));
+            assertEquals(1, cachingDao.find(connection, survey.getSurveyId()).getPositiveResponses());
+            assertEquals(misses + 1, registry.getCounters().get("survey_cache_misses"));
+
+            // En una transacción, el incremento llega a la caché con el commit:
+            // si se deshace, la entrada no cambia
+            TransactionTemplate template = new TransactionTemplate(dataSource, 1, 1, 5, 1000, registry);
+            assertThrows(IllegalStateException.class, () -> template.execute(transactionConnection -> {
+                cachingDao.updateCounters(transactionConnection, survey.getSurveyId(), 0, 0, 1);
+                // La propia transacción ve su voto
+                assertEquals(1, cachingDao.find(transactionConnection, survey.getSurveyId())
+                        .getNegativeResponses());
+                throw new IllegalStateException();
+            }));
+            assertEquals(0, cachingDao.find(connection, survey.getSurveyId()).getNegativeResponses());
+
+            template.execute(transactionConnection -> {
+                cachingDao.updateCounters(transactionConnection, survey.getSurveyId(), 0, 1, 1);
+                // Otras conexiones siguen viendo el valor confirmado
+                assertEquals(1, cachingDao.find(connection, survey.getSurveyId()).getPositiveResponses());
+                return null;
+            });
+            Survey updatedSurvey = cachingDao.find(connection, survey.getSurveyId());
+            assertEquals(2, updatedSurvey.getPositiveResponses());
+            assertEquals(1, updatedSurvey.getNegativeResponses());
+            assertEquals(misses + 1, registry.getCounters().get("survey_cache_misses"));
+
+            // El resto de escrituras descartan la entrada tras el commit
+            template.execute(transactionConnection -> cachingDao.cancel(transactionConnection,
+                    survey.getSurveyId()));
+            assertTrue(cachingDao.find(connection, survey.getSurveyId()).isCanceled());
+            assertEquals(misses + 2, registry.getCounters().get("survey_cache_misses"));
+
+            // Con tamaño máximo 1, leer otra encuesta descarta la anterior
+            otherSurvey = surveyService.createSurvey("Otra encuesta cacheada", LocalDateTime.now().plusDays(1));
+            cachingDao.find(connection, otherSurvey.getSurveyId());
+            assertEquals(evictions + 1, registry.getCounters().get("survey_cache_evictions"));
+            assertEquals(1, cachingDao.getSize());
+
+        } finally {
+            removeSurvey(survey.getSurveyId());
+            if (otherSurvey != null) removeSurvey(otherSurvey.getSurveyId());
+        }
+    }
+
+    @Test
+    public void testKeywordIndexSurveyDao() throws InputValidationException, InstanceNotFoundException,
+            SQLException {
+        Survey s1 = surveyService.createSurvey("Índice de Cafetería", LocalDateTime.now().plusDays(5));
+        Survey s2 = surveyService.createSurvey("Otra pregunta", LocalDateTime.now().plusDays(5));
+        Survey s3 = null;
+        // Sin recargas durante la prueba
+        KeywordIndexSqlSurveyDao indexDao = new KeywordIndexSqlSurveyDao(surveyDao, 1000, 3600, 60);
+
+        try (Connection connection = dataSource.getConnection()) {
+            // Mismo resultado que el LIKE: sin distinguir mayúsculas ni tildes
+            List<Survey> surveys = indexDao.findByKeyword(connection, "cafeteria", false);
+            assertTrue(surveys.contains(s1));
+            assertFalse(surveys.contains(s2));
+            int indexedCount = indexDao.getIndexedCount();
+            assertTrue(indexedCount >= 2);
+
+            // Palabras cortas o con comodines se resuelven sin índice
+            assertTrue(indexDao.findByKeyword(connection, "ra", false).contains(s2));
+            assertTrue(indexDao.findByKeyword(connection, "Otra%gunta", false).contains(s2));
+
+            // Las creadas desde otra instancia tras la carga se encuentran sin
+            // estar aún en el índice
+            s3 = surveyService.createSurvey("Cafetería nueva", LocalDateTime.now().plusDays(5));
+            assertTrue(indexDao.findByKeyword(connection, "cafeteria", false).contains(s3));
+            assertEquals(indexedCount, indexDao.getIndexedCount());
+
+            // Al reindexar, la encuesta sigue ocupando una sola entrada
+            connection.setAutoCommit(true);
+            Survey foundSurvey = indexDao.find(connection, s2.getSurveyId());
+            foundSurvey.setQuestion("Otra cafetería");
+            indexDao.update(connection, foundSurvey);
+            assertTrue(indexDao.findByKeyword(connection, "cafeteria", false).contains(foundSurvey));
+            assertFalse(indexDao.findByKeyword(connection, "pregunta", false).contains(foundSurvey));
+            assertEquals(indexedCount, indexDao.getIndexedCount());
+
+        } finally {
+            removeSurvey(s1.getSurveyId());
+            removeSurvey(s2.getSurveyId());
+            if (s3 != null) removeSurvey(s3.getSurveyId());
+        }
+    }
+
+    @Test
+    public void testMeteredSurveyService() throws InputValidationException, InstanceNotFoundException {
+        SurveyService meteredService = new MeteredSurveyService(surveyService, MetricsRegistry.getInstance());
+        MethodMetrics findMetrics = MetricsRegistry.getInstance().method("SurveyService", "findSurvey");
+        long previousCount = getCount(findMetrics);
+        long previousNotFound = findMetrics.getErrorCounts().getOrDefault("InstanceNotFoundException", 0L);
+
+        Survey survey = surveyService.createSurvey("Encuesta medida", LocalDateTime.now().plusDays(5));
+
+        try {
+            assertEquals(survey, meteredService.findSurvey(survey.getSurveyId()));
+            assertThrows(InstanceNotFoundException.class, () -> meteredService.findSurvey(-1L));
+
+            // Se miden las dos llamadas y la excepción se cuenta por su tipo
+            assertEquals(previousCount + 2, getCount(findMetrics));
+            assertEquals(previousNotFound + 1, findMetrics.getErrorCounts().get("InstanceNotFoundException"));
+            assertTrue(findMetrics.getLatency().getSumNanos() > 0);
+        } finally {
+            removeSurvey(survey.getSurveyId());
+        }
+    }
+
+    private static long getCount(MethodMetrics metrics) {
+        long count = 0;
+        for (long bucketCount : metrics.getLatency().getBucketCounts()) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
     @Test
     public void testFindNonExistentSurvey() {
         assertThrows(InstanceNotFoundException.class, () -> {
@@ -217,21 +445,27 @@ public class AppServiceTest {
     public void testFindSurveysOnlyFuture() throws InputValidationException {
         Survey futureSurvey = surveyService.createSurvey("Encuesta futura", LocalDateTime.now().plusDays(10));
         Survey pastSurvey = createPastSurveyRaw("Encuesta pasada");
+        Survey pendingSurvey = createPastSurveyRaw("Encuesta pasada sin finalizar", "OPEN");
 
         try {
             List<Survey> onlyFuture = surveyService.findSurveys("", true);
             assertTrue(onlyFuture.contains(futureSurvey));
             assertFalse(onlyFuture.contains(pastSurvey));
+            assertFalse(onlyFuture.contains(pendingSurvey));
 
             List<Survey> all = surveyService.findSurveys("", false);
             assertTrue(all.contains(futureSurvey));
             assertTrue(all.contains(pastSurvey));
+            assertTrue(all.contains(pendingSurvey));
 
         } finally {
             removeSurvey(futureSurvey.getSurveyId());
             if (pastSurvey != null) {
                 removeSurvey(pastSurvey.getSurveyId());
             }
+            if (pendingSurvey != null) {
+                removeSurvey(pendingSurvey.getSurveyId());
+            }
         }
     }
 
@@ -290,6 +524,427 @@ public class AppServiceTest {
         }
     }
 
+    @Test
+    public void testRespondToSurveyConcurrently() throws Exception {
+        Survey survey = surveyService.createSurvey("Encuesta con votos concurrentes", LocalDateTime.now().plusDays(1));
+        int threads = 8;
+        int employeesPerThread = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int e = 0; e < employeesPerThread; e++) {
+                        String email = "emp" + thread + "-" + e + "@techfic.com";
+                        // Cada empleado vota positivo, la mitad cambia a negativo y
+                        // todos repiten su último voto
+                        surveyService.respondToSurvey(survey.getSurveyId(), email, true);
+                        boolean finalVote = e % 2 == 0;
+                        if (!finalVote) {
+                            surveyService.respondToSurvey(survey.getSurveyId(), email, false);
+                        }
+                        surveyService.respondToSurvey(survey.getSurveyId(), email, finalVote);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+
+            // Los contadores deben coincidir exactamente con las respuestas guardadas
+            List<Response> allResponses = surveyService.getResponses(survey.getSurveyId(), false);
+            List<Response> posResponses = surveyService.getResponses(survey.getSurveyId(), true);
+            Survey foundSurvey = surveyService.findSurvey(survey.getSurveyId());
+
+            assertEquals(threads * employeesPerThread, allResponses.size());
+            assertEquals(threads * employeesPerThread / 2, posResponses.size());
+            assertEquals(posResponses.size(), foundSurvey.getPositiveResponses());
+            assertEquals(allResponses.size() - posResponses.size(), foundSurvey.getNegativeResponses());
+
+        } finally {
+            executor.shutdownNow();
+            removeSurvey(survey.getSurveyId());
+        }
+    }
+
+    @Test
+    public void testCounterShards() throws Exception {
+        Survey survey = surveyService.createSurvey("Encuesta con contadores repartidos",
+                LocalDateTime.now().plusDays(1));
+        int threads = 8;
+        int employeesPerThread = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            assertEquals(1, survey.getCounterShards());
+            surveyService.respondToSurvey(survey.getSurveyId(), "before1@techfic.com", true);
+            surveyService.respondToSurvey(survey.getSurveyId(), "before2@techfic.com", false);
+
+            // Repartir no cambia los contadores
+            Survey shardedSurvey = surveyService.setCounterShards(survey.getSurveyId(), 8);
+            assertEquals(8, shardedSurvey.getCounterShards());
+            assertEquals(1, shardedSurvey.getPositiveResponses());
+            assertEquals(1, shardedSurvey.getNegativeResponses());
+            assertEquals(8, countCounterShards(survey.getSurveyId()));
+
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int e = 0; e < employeesPerThread; e++) {
+                        String email = "shard" + thread + "-" + e + "@techfic.com";
+                        surveyService.respondToSurvey(survey.getSurveyId(), email, true);
+                        if (e % 2 != 0) {
+                            surveyService.respondToSurvey(survey.getSurveyId(), email, false);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+
+            // Los votos por lotes también se reparten
+            surveyService.respondToSurveyBatch(List.of(
+                    new VoteCommand(survey.getSurveyId(), "batch1@techfic.com", true),
+                    new VoteCommand(survey.getSurveyId(), "before2@techfic.com", true)));
+
+            // Menos filas: las que dejan de usarse siguen sumando
+            surveyService.setCounterShards(survey.getSurveyId(), 2);
+            surveyService.respondToSurvey(survey.getSurveyId(), "after@techfic.com", false);
+
+            List<Response> allResponses = surveyService.getResponses(survey.getSurveyId(), false);
+            List<Response> posResponses = surveyService.getResponses(survey.getSurveyId(), true);
+            Survey foundSurvey = surveyService.findSurvey(survey.getSurveyId());
+
+            assertEquals(2, foundSurvey.getCounterShards());
+            assertEquals(threads * employeesPerThread + 4, allResponses.size());
+            assertEquals(posResponses.size(), foundSurvey.getPositiveResponses());
+            assertEquals(allResponses.size() - posResponses.size(), foundSurvey.getNegativeResponses());
+            assertEquals(foundSurvey.getPositiveResponses(), surveyService.findSurveys(
+                    "contadores repartidos", false).get(0).getPositiveResponses());
+
+            // Las estadísticas suman todas las filas de cada hora
+            long newResponses = 0;
+            for (SurveyStatsBucket bucket : surveyService.getSurveyStats(survey.getSurveyId(), null, null)
+                    .getBuckets()) {
+                newResponses += bucket.getPositiveResponses() + bucket.getNegativeResponses();
+            }
+            assertEquals(allResponses.size(), newResponses);
+
+            // La cancelación conserva los contadores y los votos repartidos se rechazan
+            Survey canceledSurvey = surveyService.cancelSurvey(survey.getSurveyId());
+            assertEquals(foundSurvey.getPositiveResponses(), canceledSurvey.getPositiveResponses());
+            assertEquals(foundSurvey.getPositiveResponses(),
+                    surveyService.findSurvey(survey.getSurveyId()).getPositiveResponses());
+            assertThrows(SurveyCanceledException.class, () ->
+                    surveyService.respondToSurvey(survey.getSurveyId(), "late@techfic.com", true));
+
+            assertThrows(InputValidationException.class, () -> surveyService.setCounterShards(survey.getSurveyId(), 0));
+            assertThrows(InputValidationException.class, () ->
+                    surveyService.setCounterShards(survey.getSurveyId(), 257));
+            assertThrows(InstanceNotFoundException.class, () -> surveyService.setCounterShards(-1L, 4));
+
+        } finally {
+            executor.shutdownNow();
+            removeSurvey(survey.getSurveyId());
+        }
+    }
+
+    private static int countCounterShards(Long surveyId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     "SELECT COUNT(*) FROM SurveyCounterShard WHERE surveyId = ?")) {
+            preparedStatement.setLong(1, surveyId);
+            ResultSet resultSet = preparedStatement.executeQuery();
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    @Test
+    public void testRespondToSurveyBatch() throws InputValidationException, InstanceNotFoundException,
+            SurveyFinishedException, SurveyCanceledException {
+        Survey survey = surveyService.createSurvey("Encuesta con votos por lotes", LocalDateTime.now().plusDays(1));
+        Survey canceledSurvey = surveyService.createSurvey("Encuesta cancelada por lotes", LocalDateTime.now().plusDays(1));
+        cancelSurveyRaw(canceledSurvey.getSurveyId());
+        Survey pastSurvey = createPastSurveyRaw("Encuesta finalizada por lotes");
+
+        try {
+            // emp1 ya había votado positivo antes del lote
+            Response previous = surveyService.respondToSurvey(survey.getSurveyId(), "emp1@techfic.com", true);
+
+            List<VoteCommand> votes = List.of(
+                    new VoteCommand(survey.getSurveyId(), "emp1@techfic.com", false),
+                    new VoteCommand(survey.getSurveyId(), "emp2@techfic.com", true),
+                    new VoteCommand(survey.getSurveyId(), "emp3@techfic.com", true),
+                    new VoteCommand(survey.getSurveyId(), "emp3@techfic.com", false),
+                    new VoteCommand(survey.getSurveyId(), "invalid-email-format", true),
+                    new VoteCommand(-1L, "emp1@techfic.com", true),
+                    new VoteCommand(canceledSurvey.getSurveyId(), "emp1@techfic.com", true),
+                    new VoteCommand(pastSurvey.getSurveyId(), "emp1@techfic.com", true));
+
+            List<VoteResult> results = surveyService.respondToSurveyBatch(votes);
+
+            assertEquals(votes.size(), results.size());
+            assertEquals(VoteStatus.UPDATED, results.get(0).getStatus());
+            assertEquals(previous.getResponseId(), results.get(0).getResponse().getResponseId());
+            assertEquals(VoteStatus.ACCEPTED, results.get(1).getStatus());
+            assertNotNull(results.get(1).getResponse().getResponseId());
+            assertEquals(VoteStatus.ACCEPTED, results.get(2).getStatus());
+            assertEquals(VoteStatus.UPDATED, results.get(3).getStatus());
+            assertEquals(VoteStatus.REJECTED_INVALID, results.get(4).getStatus());
+            assertEquals(VoteStatus.REJECTED_NOT_FOUND, results.get(5).getStatus());
+            assertEquals(VoteStatus.REJECTED_CANCELED, results.get(6).getStatus());
+            assertEquals(VoteStatus.REJECTED_FINISHED, results.get(7).getStatus());
+
+            // emp1 y emp3 acaban en negativo, emp2 en positivo
+            Survey foundSurvey = surveyService.findSurvey(survey.getSurveyId());
+            assertEquals(1, foundSurvey.getPositiveResponses());
+            assertEquals(2, foundSurvey.getNegativeResponses());
+            assertEquals(3, surveyService.getResponses(survey.getSurveyId(), false).size());
+
+            // Los dos votos de emp3 cuentan como una única respuesta negativa
+            long negativeResponses = 0;
+            long positiveChanges = 0;
+            long negativeChanges = 0;
+            for (SurveyStatsBucket bucket : surveyService.getSurveyStats(survey.getSurveyId(), null, null)
+                    .getBuckets()) {
+                negativeResponses += bucket.getNegativeResponses();
+                positiveChanges += bucket.getPositiveChanges();
+                negativeChanges += bucket.getNegativeChanges();
+            }
+            assertEquals(1, negativeResponses);
+            assertEquals(0, positiveChanges);
+            assertEquals(1, negativeChanges);
+
+            Survey foundCanceledSurvey = surveyService.findSurvey(canceledSurvey.getSurveyId());
+            assertEquals(0, foundCanceledSurvey.getPositiveResponses());
+            assertTrue(surveyService.getResponses(canceledSurvey.getSurveyId(), false).isEmpty());
+
+        } finally {
+            removeSurvey(survey.getSurveyId());
+            removeSurvey(canceledSurvey.getSurveyId());
+            if (pastSurvey != null) removeSurvey(pastSurvey.getSurveyId());
+        }
+    }
+
+    @Test
+    public void testRepeatResponseToCanceledSurveyBatch() throws Exception {
+        Survey survey = surveyService.createSurvey("Encuesta cancelada desde otra instancia por lotes",
+                LocalDateTime.now().plusDays(1));
+
+        try {
+            Response response = surveyService.respondToSurvey(survey.getSurveyId(), "a@b.com", true);
+            cancelSurveyRaw(survey.getSurveyId()); // Esta instancia no sabe que se ha cancelado
+
+            // Las fechas se guardan con precisión de segundos
+            Thread.sleep(1000);
+
+            // Un grupo que sólo repite votos no cambia los contadores, pero también se rechaza
+            List<VoteResult> results = surveyService.respondToSurveyBatch(List.of(
+                    new VoteCommand(survey.getSurveyId(), "a@b.com", true)));
+            assertEquals(VoteStatus.REJECTED_CANCELED, results.get(0).getStatus());
+
+            // Y la fecha de la respuesta no cambia
+            try (Connection connection = dataSource.getConnection()) {
+                Response storedResponse = responseDao.findBySurveyAndEmployee(connection,
+                        survey.getSurveyId(), "a@b.com").orElseThrow();
+                assertEquals(response.getResponseDate(), storedResponse.getResponseDate());
+            }
+        } finally {
+            removeSurvey(survey.getSurveyId());
+        }
+    }
+
+    @Test
+    public void testGetSurveyStats() throws InputValidationException, InstanceNotFoundException,
+            SurveyFinishedException, SurveyCanceledException {
+        Survey survey = surveyService.createSurvey("Encuesta con estadísticas", LocalDateTime.now().plusDays(1));
+
+        try {
+            surveyService.respondToSurvey(survey.getSurveyId(), "emp1@techfic.com", true);
+            surveyService.respondToSurvey(survey.getSurveyId(), "emp2@techfic.com", false);
+            surveyService.respondToSurvey(survey.getSurveyId(), "emp1@techfic.com", false);
+            surveyService.respondToSurvey(survey.getSurveyId(), "emp1@techfic.com", false); // Sin cambios
+            surveyService.respondToSurveyBatch(List.of(
+                    new VoteCommand(survey.getSurveyId(), "emp3@techfic.com", true),
+                    new VoteCommand(survey.getSurveyId(), "emp2@techfic.com", true)));
+
+            SurveyStats stats = surveyService.getSurveyStats(survey.getSurveyId(), null, null);
+            assertEquals(survey.getSurveyId(), stats.getSurveyId());
+            assertEquals(2, stats.getPositiveResponses());
+            assertEquals(1, stats.getNegativeResponses());
+
+            // Las horas pueden ser una o dos si la prueba cruza un cambio de hora
+            long positiveResponses = 0;
+            long negativeResponses = 0;
+            long positiveChanges = 0;
+            long negativeChanges = 0;
+            for (SurveyStatsBucket bucket : stats.getBuckets()) {
+                assertEquals(SurveyStatsBucket.bucketStartOf(bucket.getBucketStart()), bucket.getBucketStart());
+                positiveResponses += bucket.getPositiveResponses();
+                negativeResponses += bucket.getNegativeResponses();
+                positiveChanges += bucket.getPositiveChanges();
+                negativeChanges += bucket.getNegativeChanges();
+            }
+            assertEquals(2, positiveResponses);
+            assertEquals(1, negativeResponses);
+            assertEquals(1, positiveChanges);
+            assertEquals(1, negativeChanges);
+            // La suma de los sucesos reproduce los contadores
+            assertEquals(stats.getPositiveResponses(), positiveResponses + positiveChanges - negativeChanges);
+
+            LocalDateTime nextHour = SurveyStatsBucket.bucketStartOf(LocalDateTime.now()).plusHours(1);
+            assertTrue(surveyService.getSurveyStats(survey.getSurveyId(), nextHour, null).getBuckets().isEmpty());
+
+            assertThrows(InputValidationException.class, () ->
+                    surveyService.getSurveyStats(survey.getSurveyId(), nextHour, nextHour.minusDays(1)));
+            assertThrows(InstanceNotFoundException.class, () -> surveyService.getSurveyStats(-1L, null, null));
+
+        } finally {
+            removeSurvey(survey.getSurveyId());
+        }
+    }
+
+    @Test
+    public void testSurveyCounterReconciler() throws InputValidationException, InstanceNotFoundException,
+            SurveyFinishedException, SurveyCanceledException, SQLException {
+        Survey driftedSurvey = surveyService.createSurvey("Encuesta con contadores desviados",
+                LocalDateTime.now().plusDays(1));
+        Survey correctSurvey = surveyService.createSurvey("Encuesta con contadores correctos",
+                LocalDateTime.now().plusDays(1));
+
+        try {
+            surveyService.respondToSurvey(driftedSurvey.getSurveyId(), "emp1@techfic.com", true);
+            surveyService.respondToSurvey(driftedSurvey.getSurveyId(), "emp2@techfic.com", false);
+            surveyService.respondToSurvey(correctSurvey.getSurveyId(), "emp1@techfic.com", true);
+
+            // Simular una escritura parcial que dejó los contadores desviados
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(
+                         "UPDATE Survey SET positiveResponses = 5, negativeResponses = 0 WHERE surveyId = ?")) {
+                connection.setAutoCommit(true);
+                preparedStatement.setLong(1, driftedSurvey.getSurveyId());
+                preparedStatement.executeUpdate();
+            }
+
+            // La corrección optimista no escribe si los contadores ya no son los leídos
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                assertFalse(surveyDao.repairCounters(connection, driftedSurvey.getSurveyId(), 1, 1, 1, 1));
+            }
+
+            TransactionTemplate template = new TransactionTemplate(dataSource, 3, 1, 5, 1000,
+                    MetricsRegistry.getInstance());
+            // Bloques de una encuesta, para recorrer varios
+            SurveyCounterReconciler reconciler = new SurveyCounterReconciler(template, surveyDao, responseDao,
+                    1, 0, MetricsRegistry.getInstance());
+
+            SurveyCounterReconciler.Report report = reconciler.reconcile();
+            assertTrue(report.getScannedSurveys() >= 2);
+            assertTrue(report.getScannedResponses() >= 3);
+            assertTrue(report.getRepairedSurveys() >= 1);
+            assertSame(report, reconciler.getLastReport());
+
+            Survey repairedSurvey = surveyService.findSurvey(driftedSurvey.getSurveyId());
+            assertEquals(1, repairedSurvey.getPositiveResponses());
+            assertEquals(1, repairedSurvey.getNegativeResponses());
+            assertEquals(1, surveyService.findSurvey(correctSurvey.getSurveyId()).getPositiveResponses());
+
+            // Una segunda pasada ya no encuentra nada que corregir
+            assertEquals(0, reconciler.reconcile().getRepairedSurveys());
+
+        } finally {
+            removeSurvey(driftedSurvey.getSurveyId());
+            removeSurvey(correctSurvey.getSurveyId());
+        }
+    }
+
+    @Test
+    public void testSurveyLifecycleScheduler() throws InputValidationException, InstanceNotFoundException,
+            SurveyFinishedException, SurveyCanceledException, SurveyAlreadyCanceledException {
+        Survey survey = surveyService.createSurvey("Encuesta que finaliza por el planificador",
+                LocalDateTime.now().plusHours(1));
+        Survey canceledSurvey = surveyService.createSurvey("Encuesta cancelada para el planificador",
+                LocalDateTime.now().plusHours(1));
+
+        try {
+            surveyService.respondToSurvey(survey.getSurveyId(), "emp1@techfic.com", true);
+            surveyService.cancelSurvey(canceledSurvey.getSurveyId());
+
+            // Planificador propio (como el de otra instancia), sin ticks programados
+            TransactionTemplate template = new TransactionTemplate(dataSource, 3, 1, 5, 1000,
+                    MetricsRegistry.getInstance());
+            SurveyLifecycleScheduler lifecycle = new SurveyLifecycleScheduler(template, surveyDao,
+                    new SurveyStateRegistry(1000, MetricsRegistry.getInstance()), 1000, 60000,
+                    MetricsRegistry.getInstance());
+
+            LocalDateTime now = LocalDateTime.now();
+            assertEquals(SurveyLifecycleScheduler.State.UNKNOWN, lifecycle.state(survey.getSurveyId(), now));
+            assertEquals(SurveyLifecycleScheduler.State.NOT_FOUND, lifecycle.state(-1L, now));
+            lifecycle.notFound(Long.MAX_VALUE);
+            assertEquals(SurveyLifecycleScheduler.State.NOT_FOUND, lifecycle.state(Long.MAX_VALUE, now));
+
+            lifecycle.load();
+            assertEquals(SurveyLifecycleScheduler.State.OPEN, lifecycle.state(survey.getSurveyId(), now));
+            assertEquals(SurveyLifecycleScheduler.State.CANCELED,
+                    lifecycle.state(canceledSurvey.getSurveyId(), now));
+            // En memoria finaliza en su endDate exacta, aunque la BD aún no lo refleje
+            assertEquals(SurveyLifecycleScheduler.State.FINISHED,
+                    lifecycle.state(survey.getSurveyId(), now.plusHours(2)));
+
+            // Al pasar su endDate se guardan como FINISHED, también la cancelada
+            assertTrue(lifecycle.tick(now.plusHours(2)) >= 2);
+            assertEquals(SurveyStatus.FINISHED, surveyService.findSurvey(survey.getSurveyId()).getStatus());
+            Survey foundCanceledSurvey = surveyService.findSurvey(canceledSurvey.getSurveyId());
+            assertEquals(SurveyStatus.FINISHED, foundCanceledSurvey.getStatus());
+            assertTrue(foundCanceledSurvey.isCanceled());
+            assertEquals(SurveyLifecycleScheduler.State.CANCELED,
+                    lifecycle.state(canceledSurvey.getSurveyId(), now));
+            assertFalse(surveyService.findSurveys("planificador", true).stream()
+                    .anyMatch(s -> s.getSurveyId().equals(survey.getSurveyId())));
+
+            // El servicio aún la tenía abierta en memoria: la BD rechaza el voto
+            // y el servicio aprende que ha finalizado
+            assertThrows(SurveyFinishedException.class, () ->
+                    surveyService.respondToSurvey(survey.getSurveyId(), "emp2@techfic.com", true));
+            assertThrows(SurveyFinishedException.class, () ->
+                    surveyService.respondToSurvey(survey.getSurveyId(), "emp1@techfic.com", true));
+            assertThrows(SurveyFinishedException.class, () ->
+                    surveyService.cancelSurvey(survey.getSurveyId()));
+            assertEquals(1, surveyService.findSurvey(survey.getSurveyId()).getPositiveResponses());
+
+        } finally {
+            removeSurvey(survey.getSurveyId());
+            removeSurvey(canceledSurvey.getSurveyId());
+        }
+    }
+
+    @Test
+    public void testRespondToSurveyAsync() throws InputValidationException, InstanceNotFoundException {
+        Survey survey = surveyService.createSurvey("Encuesta con votos asíncronos", LocalDateTime.now().plusDays(1));
+        try {
+            Response res = surveyService.respondToSurveyAsync(survey.getSurveyId(), "emp1@techfic.com", true).join();
+            assertNotNull(res.getResponseId());
+            assertEquals(1, surveyService.findSurvey(survey.getSurveyId()).getPositiveResponses());
+
+            CompletionException e = assertThrows(CompletionException.class, () ->
+                    surveyService.respondToSurveyAsync(-1L, "emp1@techfic.com", true).join());
+            assertInstanceOf(InstanceNotFoundException.class, e.getCause());
+
+            e = assertThrows(CompletionException.class, () ->
+                    surveyService.respondToSurveyAsync(survey.getSurveyId(), "invalid-email-format", true).join());
+            assertInstanceOf(InputValidationException.class, e.getCause());
+        } finally {
+            removeSurvey(survey.getSurveyId());
+        }
+    }
+
     @Test
     public void testRespondToNonExistentSurvey() {
         assertThrows(InstanceNotFoundException.class, () -> {
@@ -323,6 +978,34 @@ public class AppServiceTest {
         }
     }
 
+    @Test
+    public void testRepeatResponseToCanceledSurvey() throws Exception {
+        Survey survey = surveyService.createSurvey("Encuesta cancelada desde otra instancia",
+                LocalDateTime.now().plusDays(1));
+
+        try {
+            Response response = surveyService.respondToSurvey(survey.getSurveyId(), "a@b.com", true);
+            cancelSurveyRaw(survey.getSurveyId()); // Esta instancia no sabe que se ha cancelado
+
+            // Las fechas se guardan con precisión de segundos
+            Thread.sleep(1000);
+
+            // El mismo voto no cambia los contadores, pero también se rechaza
+            assertThrows(SurveyCanceledException.class, () -> {
+                surveyService.respondToSurvey(survey.getSurveyId(), "a@b.com", true);
+            });
+
+            // Y la fecha de la respuesta no cambia
+            try (Connection connection = dataSource.getConnection()) {
+                Response storedResponse = responseDao.findBySurveyAndEmployee(connection,
+                        survey.getSurveyId(), "a@b.com").orElseThrow();
+                assertEquals(response.getResponseDate(), storedResponse.getResponseDate());
+            }
+        } finally {
+            removeSurvey(survey.getSurveyId());
+        }
+    }
+
     @Test
     public void testRespondWithInvalidEmail() throws InputValidationException {
         Survey survey = surveyService.createSurvey("Encuesta valida", LocalDateTime.now().plusDays(1));
@@ -431,6 +1114,41 @@ public class AppServiceTest {
         }
     }
 
+    @Test
+    public void testGetResponsesPaginated() throws InputValidationException, InstanceNotFoundException,
+            SurveyFinishedException, SurveyCanceledException {
+        Survey survey = surveyService.createSurvey("Encuesta paginada", LocalDateTime.now().plusDays(5));
+        try {
+            for (int i = 0; i < 5; i++) {
+                surveyService.respondToSurvey(survey.getSurveyId(), "page" + i + "@techfic.com", i % 2 == 0);
+            }
+            List<Response> allResponses = surveyService.getResponses(survey.getSurveyId(), false);
+
+            // Recorrer las páginas devuelve las mismas respuestas, en el mismo orden
+            List<Response> pagedResponses = new ArrayList<>();
+            Page<Response> page = surveyService.getResponses(survey.getSurveyId(), false, null, 2);
+            pagedResponses.addAll(page.getItems());
+            while (page.hasNext()) {
+                assertEquals(2, page.getItems().size());
+                page = surveyService.getResponses(survey.getSurveyId(), false, page.getNextPageToken(), 2);
+                pagedResponses.addAll(page.getItems());
+            }
+            assertEquals(allResponses, pagedResponses);
+
+            List<Response> streamedResponses = new ArrayList<>();
+            surveyService.streamResponses(survey.getSurveyId(), true, streamedResponses::add);
+            assertEquals(3, streamedResponses.size());
+
+            assertThrows(InputValidationException.class,
+                    () -> surveyService.getResponses(survey.getSurveyId(), false, "no-es-un-token", 2));
+            assertThrows(InputValidationException.class,
+                    () -> surveyService.getResponses(survey.getSurveyId(), false, null, 0));
+
+        } finally {
+            removeSurvey(survey.getSurveyId());
+        }
+    }
+
     @Test
     public void testGetResponsesNonExistentSurvey() {
         assertThrows(InstanceNotFoundException.class, () -> {
@@ -448,4 +1166,66 @@ public class AppServiceTest {
             removeSurvey(survey.getSurveyId());
         }
     }
+
+    @Test
+    public void testExportResponses() throws InputValidationException, InstanceNotFoundException,
+            SurveyFinishedException, SurveyCanceledException, IOException {
+        Survey survey = surveyService.createSurvey("Encuesta para exportar", LocalDateTime.now().plusDays(5));
+        try {
+            for (int i = 0; i < 5; i++) {
+                surveyService.respondToSurvey(survey.getSurveyId(), "export" + i + "@techfic.com", i % 2 == 0);
+            }
+            List<Response> responses = surveyService.getResponses(survey.getSurveyId(), false);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(5, surveyService.exportResponses(survey.getSurveyId(), out));
+            assertEquals(fieldsOf(responses), fieldsOf(readExport(out.toByteArray())));
+
+            // Todas las encuestas: incluye las de esta
+            out.reset();
+            long exported = surveyService.exportResponses(null, out);
+            List<Response> allResponses = readExport(out.toByteArray());
+            assertEquals(exported, allResponses.size());
+            assertTrue(allResponses.containsAll(responses));
+
+            assertThrows(InstanceNotFoundException.class, () -> surveyService.exportResponses(-1L, out));
+        } finally {
+            removeSurvey(survey.getSurveyId());
+        }
+
+        // Varios bloques, con encuestas, emails y fechas repetidos o no
+        List<Response> responses = new ArrayList<>();
+        LocalDateTime date = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < 1000; i++) {
+            responses.add(new Response(1000L - i, i / 300 + 1L, "export" + i % 7 + "@techfic.com", i % 3 == 0,
+                    date.minusSeconds(i * 37L % 500)));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ResponseExportWriter writer = new ResponseExportWriter(out, 128)) {
+            responses.forEach(writer);
+        }
+        assertEquals(fieldsOf(responses), fieldsOf(readExport(out.toByteArray())));
+
+        // Un fichero incompleto no se lee como si estuviera entero
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 8);
+        assertThrows(IOException.class, () -> readExport(truncated));
+    }
+
+    // Response.equals sólo compara el identificador
+    private static List<String> fieldsOf(List<Response> responses) {
+        List<String> fields = new ArrayList<>();
+        for (Response response : responses) {
+            fields.add(response.getResponseId() + " " + response.getSurveyId() + " " + response.getEmployeeEmail()
+                    + " " + response.getResponse() + " " + response.getResponseDate());
+        }
+        return fields;
+    }
+
+    private static List<Response> readExport(byte[] export) throws IOException {
+        List<Response> responses = new ArrayList<>();
+        try (ResponseExportReader reader = new ResponseExportReader(new ByteArrayInputStream(export))) {
+            assertEquals(reader.read(responses::add), responses.size());
+        }
+        return responses;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package es.udc.ws.app.test.model.dao;
+
+import es.udc.ws.app.model.response.EmployeeDirectory;
+import es.udc.ws.app.model.util.TransactionTemplate;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import es.udc.ws.util.sql.SimpleDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Prueba EmployeeDirectory sobre la BD: la caché sólo guarda los empleados
+ * de transacciones confirmadas.
+ */
+public class EmployeeDirectoryTest {
+
+    private static DataSource dataSource = null;
+
+    @BeforeAll
+    public static void init() {
+        dataSource = new SimpleDataSource();
+    }
+
+    @Test
+    public void testEmployeeDirectory() throws SQLException {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        TransactionTemplate template = new TransactionTemplate(dataSource, 3, 1, 5, 1000, registry);
+        EmployeeDirectory directory = new EmployeeDirectory(1000, registry);
+        String email = "directory" + System.nanoTime() + "@techfic.com";
+
+        // Un empleado registrado en una transacción deshecha no queda en la caché
+        assertThrows(IllegalStateException.class, () -> template.execute(connection -> {
+            assertNotNull(directory.register(connection, email));
+            assertNotNull(directory.findId(connection, email));
+            throw new IllegalStateException("rollback");
+        }));
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            assertNull(directory.findId(connection, email));
+        }
+
+        // Al confirmar, sí; y registrarlo de nuevo devuelve el mismo identificador
+        long employeeId = template.execute(connection -> directory.register(connection, email));
+        long hits = registry.getCounters().getOrDefault("employee_cache_hits", 0L);
+        try (Connection connection = dataSource.getConnection()) {
+            assertEquals(employeeId, directory.findId(connection, email));
+            assertEquals(employeeId, directory.register(connection, email));
+            assertEquals(hits + 2, registry.getCounters().get("employee_cache_hits"));
+            // Los emails leídos de la BD se sustituyen por la cadena de la caché
+            assertSame(email, directory.intern(connection, employeeId, new String(email)));
+        }
+    }
+}
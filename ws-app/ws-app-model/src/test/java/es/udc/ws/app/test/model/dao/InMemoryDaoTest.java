@@ -0,0 +1,103 @@
+package es.udc.ws.app.test.model.dao;
+
+import es.udc.ws.app.model.response.InMemorySqlResponseDao;
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.response.ResponseUpsertResult;
+import es.udc.ws.app.model.survey.InMemorySqlSurveyDao;
+import es.udc.ws.app.model.survey.InMemorySurveyStore;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.util.TransactionTemplate;
+import es.udc.ws.app.model.util.memory.InMemoryDataSource;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba los DAO en memoria (InMemorySqlSurveyDao e InMemorySqlResponseDao)
+ * sobre su propio almacén, sin BD: transacciones, votos y volcado a disco.
+ */
+public class InMemoryDaoTest {
+
+    @Test
+    public void testInMemoryDaos() throws InstanceNotFoundException, IOException {
+        Path snapshotFile = Files.createTempFile("surveys", ".snapshot");
+        Files.delete(snapshotFile);
+
+        try {
+            InMemorySurveyStore store = new InMemorySurveyStore(snapshotFile, MetricsRegistry.getInstance());
+            InMemorySqlSurveyDao memorySurveyDao = new InMemorySqlSurveyDao(store);
+            InMemorySqlResponseDao memoryResponseDao = new InMemorySqlResponseDao(store);
+            TransactionTemplate template = new TransactionTemplate(new InMemoryDataSource(), 3, 1, 5, 1000,
+                    MetricsRegistry.getInstance());
+
+            LocalDateTime now = LocalDateTime.now().withNano(0);
+            Survey survey = new Survey("Encuesta en memoria", now.plusDays(1));
+            survey.setCreationDate(now);
+            Long surveyId = template.execute(connection -> memorySurveyDao.create(connection, survey)).getSurveyId();
+
+            // Un voto completo: respuesta y contadores en la misma transacción
+            assertEquals(ResponseUpsertResult.CREATED, template.execute(connection -> {
+                ResponseUpsertResult result = memoryResponseDao.upsert(connection,
+                        new Response(surveyId, "emp1@techfic.com", true, now));
+                memorySurveyDao.updateCounters(connection, surveyId, 0, 1, 0);
+                return result;
+            }));
+
+            // Si la transacción falla, se deshacen la respuesta y los contadores
+            assertThrows(IllegalStateException.class, () -> template.execute(connection -> {
+                memoryResponseDao.upsert(connection, new Response(surveyId, "emp2@techfic.com", false, now));
+                memorySurveyDao.updateCounters(connection, surveyId, 0, 0, 1);
+                throw new IllegalStateException();
+            }));
+            Survey foundSurvey = template.query(connection -> memorySurveyDao.find(connection, surveyId));
+            assertEquals(1, foundSurvey.getPositiveResponses());
+            assertEquals(0, foundSurvey.getNegativeResponses());
+            List<Response> responses = template.query(connection ->
+                    memoryResponseDao.findBySurveyId(connection, surveyId, false));
+            assertEquals(1, responses.size());
+
+            // Las encuestas canceladas no admiten votos
+            boolean canceled = template.execute(connection -> memorySurveyDao.cancel(connection, surveyId));
+            assertTrue(canceled);
+            int shard = template.execute(connection -> memorySurveyDao.updateCounters(connection, surveyId, 0, 1, 0));
+            assertEquals(-1, shard);
+
+            // El volcado conserva encuestas, respuestas e identificadores
+            store.saveSnapshot();
+            InMemorySurveyStore loadedStore = new InMemorySurveyStore(snapshotFile, MetricsRegistry.getInstance());
+            InMemorySqlSurveyDao loadedSurveyDao = new InMemorySqlSurveyDao(loadedStore);
+            InMemorySqlResponseDao loadedResponseDao = new InMemorySqlResponseDao(loadedStore);
+
+            Survey canceledSurvey = template.query(connection -> memorySurveyDao.find(connection, surveyId));
+            Survey loadedSurvey = template.query(connection -> loadedSurveyDao.find(connection, surveyId));
+            assertEquals(canceledSurvey, loadedSurvey);
+            assertTrue(loadedSurvey.isCanceled());
+            assertEquals(1, loadedSurvey.getPositiveResponses());
+            assertEquals(responses.get(0), template.query(connection ->
+                    loadedResponseDao.find(connection, responses.get(0).getResponseId())));
+            assertEquals(surveyId + 1, template.execute(connection ->
+                    loadedSurveyDao.create(connection, survey)).getSurveyId());
+
+            // Borrar la encuesta borra sus respuestas
+            template.<Void, InstanceNotFoundException, RuntimeException, RuntimeException>execute(connection -> {
+                loadedSurveyDao.remove(connection, surveyId);
+                return null;
+            });
+            assertThrows(InstanceNotFoundException.class, () -> template.query(connection ->
+                    loadedResponseDao.find(connection, responses.get(0).getResponseId())));
+
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+}
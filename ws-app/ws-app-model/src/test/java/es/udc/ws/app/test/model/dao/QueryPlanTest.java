@@ -0,0 +1,308 @@
+package es.udc.ws.app.test.model.dao;
+
+import es.udc.ws.app.model.response.Jdbc3SqlResponseDao;
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.response.SqlResponseDao;
+import es.udc.ws.app.model.survey.Jdbc3SqlSurveyDao;
+import es.udc.ws.app.model.survey.SqlSurveyDao;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.survey.SurveyStatus;
+import es.udc.ws.app.model.surveystats.Jdbc3SqlSurveyStatsDao;
+import es.udc.ws.app.model.surveystats.SqlSurveyStatsDao;
+import es.udc.ws.app.model.surveystats.SurveyStatsBucket;
+import es.udc.ws.app.model.util.KeysetCursor;
+import es.udc.ws.util.sql.SimpleDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ejecuta cada operación de los DAO Jdbc3Sql* registrando las sentencias que
+ * lanzan, y comprueba con EXPLAIN que ninguna recorre una tabla entera ni
+ * ordena en memoria (filesort), salvo las que lo hacen por naturaleza.
+ */
+public class QueryPlanTest {
+
+    // Con tablas casi vacías el optimizador prefiere recorrerlas enteras
+    private static final int SEED_SURVEYS = 2000;
+    private static final int SEED_RESPONSES = 2000;
+    private static final String SEED_QUESTION = "QueryPlanTest seed";
+    private static final int SEED_COUNTER_SHARDS = 4;
+
+    private static DataSource dataSource = null;
+    private static final SqlSurveyDao surveyDao = new Jdbc3SqlSurveyDao();
+    private static final SqlResponseDao responseDao = new Jdbc3SqlResponseDao();
+    private static final SqlSurveyStatsDao statsDao = new Jdbc3SqlSurveyStatsDao();
+
+    /**
+     * Sentencia ejecutada, con los parámetros que recibió.
+     */
+    private static class ExecutedStatement {
+
+        private final String sql;
+        private final Map<Integer, Object> parameters;
+
+        private ExecutedStatement(String sql, Map<Integer, Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+
+    @BeforeAll
+    public static void init() throws SQLException {
+
+        dataSource = new SimpleDataSource();
+
+        try (Connection connection = dataSource.getConnection()) {
+
+            connection.setAutoCommit(false);
+            LocalDateTime now = LocalDateTime.now().withNano(0);
+            Long lastSurveyId = null;
+
+            for (int i = 0; i < SEED_SURVEYS; i++) {
+                Survey survey = new Survey(null, SEED_QUESTION + " " + i, now.minusMinutes(i),
+                        now.plusDays(i % 2 == 0 ? 10 : -10), false, 0, 0);
+                survey.setCounterShards(SEED_COUNTER_SHARDS);
+                survey.setStatus(i % 2 == 0 ? SurveyStatus.OPEN : SurveyStatus.FINISHED);
+                lastSurveyId = surveyDao.create(connection, survey).getSurveyId();
+            }
+
+            List<Response> responses = new ArrayList<>();
+            for (int i = 0; i < SEED_RESPONSES; i++) {
+                responses.add(new Response(lastSurveyId, "seed" + i + "@techfic.com", i % 2 == 0,
+                        now.minusSeconds(i)));
+            }
+            responseDao.createBatch(connection, responses);
+
+            connection.commit();
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ANALYZE TABLE Survey, Response, SurveyCounterShard");
+            }
+        }
+    }
+
+    @AfterAll
+    public static void cleanUp() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     "DELETE FROM Survey WHERE question LIKE ?")) {
+            connection.setAutoCommit(true);
+            preparedStatement.setString(1, SEED_QUESTION + "%");
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    @Test
+    public void testDaoQueriesUseIndexes() throws Exception {
+
+        List<ExecutedStatement> statements = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection()) {
+
+            connection.setAutoCommit(false);
+            Connection recordingConnection = recordingConnection(connection, statements);
+
+            try {
+                runAllDaoOperations(recordingConnection);
+            } finally {
+                connection.rollback();
+            }
+
+            List<String> violations = new ArrayList<>();
+            for (ExecutedStatement statement : statements) {
+                if (!statement.sql.startsWith("INSERT") && allowedScanReason(statement.sql) == null) {
+                    violations.addAll(explain(connection, statement));
+                }
+            }
+
+            assertFalse(statements.isEmpty());
+            assertTrue(violations.isEmpty(), String.join("\n", violations));
+        }
+    }
+
+    /**
+     * Motivo por el que una consulta puede recorrer la tabla, o null si no puede.
+     */
+    private static String allowedScanReason(String sql) {
+
+        // Las subconsultas que suman las filas repartidas de cada encuesta no
+        // cuentan como filtro de la consulta principal
+        sql = sql.replaceAll("\\(SELECT .*?= Survey\\.surveyId\\)", "");
+
+        if (sql.contains("LIKE")) {
+            return "LIKE '%palabra%' no puede usar un índice B-tree (ver KeywordIndexSqlSurveyDao)";
+        }
+        if (sql.contains("FROM Survey") && !sql.contains("LIMIT")
+                && !sql.contains("surveyId =") && !sql.contains("surveyId IN")) {
+            return "Devuelve todas las encuestas (para eso están la versión paginada y la de streaming)";
+        }
+        if (sql.contains("FROM Response") && !sql.contains("WHERE")) {
+            return "Exporta todas las respuestas, en el orden de la tabla";
+        }
+        return null;
+    }
+
+    private static void runAllDaoOperations(Connection connection) throws Exception {
+
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        // SqlSurveyDao
+        Survey survey = surveyDao.create(connection,
+                new Survey(null, SEED_QUESTION + " plan", now, now.plusDays(1), false, 0, 0));
+        Long surveyId = survey.getSurveyId();
+        Survey batchSurvey = new Survey(null, SEED_QUESTION + " plan", now, now.plusDays(1), false, 0, 0);
+        batchSurvey.setCounterShards(SEED_COUNTER_SHARDS);
+        surveyDao.createBatch(connection, List.of(batchSurvey));
+        surveyDao.find(connection, surveyId);
+        surveyDao.update(connection, survey);
+        surveyDao.updateCounters(connection, surveyId, 0, 1, 0);
+        surveyDao.acceptsResponses(connection, surveyId);
+        surveyDao.updateCounterShards(connection, surveyId, SEED_COUNTER_SHARDS);
+        surveyDao.updateCounters(connection, surveyId, 1, 1, 0);
+        surveyDao.updateCounterShards(connection, surveyId, 1);
+        surveyDao.repairCounters(connection, surveyId, 1, 0, 0, 0);
+        surveyDao.findByKeyword(connection, "", false);
+        surveyDao.findByKeyword(connection, "", true);
+        surveyDao.findByKeyword(connection, "plan", true);
+        surveyDao.findByKeyword(connection, "", false, List.of(surveyId, surveyId - 1), null);
+        surveyDao.findByKeyword(connection, "plan", false, List.of(surveyId, surveyId - 1), now);
+        surveyDao.findByKeyword(connection, "", false, null, 10);
+        surveyDao.findByKeyword(connection, "", false, new KeysetCursor(now, surveyId), 10);
+        surveyDao.findByKeyword(connection, "", true, new KeysetCursor(now, surveyId), 10);
+        surveyDao.streamByKeyword(connection, "", false, s -> { });
+        surveyDao.findAfter(connection, 0L, 10);
+        surveyDao.findCreatedAfter(connection, null, 10);
+        surveyDao.findCreatedAfter(connection, new KeysetCursor(now, 0L), 10);
+        surveyDao.findOpen(connection, null, 10);
+        surveyDao.findOpen(connection, new KeysetCursor(now, surveyId), 10);
+        surveyDao.finish(connection, List.of(surveyId - 1, surveyId - 2));
+        surveyDao.cancel(connection, surveyId);
+
+        // SqlResponseDao
+        Response response = responseDao.create(connection,
+                new Response(surveyId, "plan1@techfic.com", true, now));
+        responseDao.createBatch(connection, List.of(new Response(surveyId, "plan2@techfic.com", false, now)));
+        responseDao.upsert(connection, new Response(surveyId, "plan3@techfic.com", true, now));
+        responseDao.find(connection, response.getResponseId());
+        responseDao.update(connection, response);
+        responseDao.updateBatch(connection, List.of(response));
+        responseDao.findBySurveyAndEmployee(connection, surveyId, "plan1@techfic.com");
+        responseDao.findBySurveyAndEmployees(connection, surveyId, List.of("plan1@techfic.com", "plan2@techfic.com"));
+        responseDao.findBySurveyId(connection, surveyId, false);
+        responseDao.findBySurveyId(connection, surveyId, true);
+        responseDao.findBySurveyId(connection, surveyId, false, new KeysetCursor(now, Long.MAX_VALUE), 10);
+        responseDao.findBySurveyId(connection, surveyId, true, new KeysetCursor(now, Long.MAX_VALUE), 10);
+        responseDao.streamBySurveyId(connection, surveyId, false, r -> { });
+        responseDao.streamAll(connection, r -> { });
+        responseDao.countBySurveyIdRange(connection, surveyId - 100, surveyId);
+        responseDao.remove(connection, response.getResponseId());
+
+        // SqlSurveyStatsDao
+        statsDao.increment(connection, surveyId, SurveyStatsBucket.bucketStartOf(now), 0, 1, 0, 0, 0);
+        statsDao.increment(connection, surveyId, SurveyStatsBucket.bucketStartOf(now), 1, 1, 0, 0, 0);
+        statsDao.findBySurveyId(connection, surveyId, null, null);
+        statsDao.findBySurveyId(connection, surveyId, now.minusDays(1), now.plusDays(1));
+
+        surveyDao.remove(connection, batchSurvey.getSurveyId());
+        surveyDao.remove(connection, surveyId);
+    }
+
+    /**
+     * Lanza EXPLAIN sobre la sentencia con sus mismos parámetros.
+     * @return las tablas que se recorren enteras o se ordenan en memoria.
+     */
+    private static List<String> explain(Connection connection, ExecutedStatement statement) throws SQLException {
+
+        List<String> violations = new ArrayList<>();
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement("EXPLAIN " + statement.sql)) {
+
+            for (Map.Entry<Integer, Object> parameter : statement.parameters.entrySet()) {
+                preparedStatement.setObject(parameter.getKey(), parameter.getValue());
+            }
+
+            ResultSet resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                String table = resultSet.getString("table");
+                String type = resultSet.getString("type");
+                String extra = resultSet.getString("Extra");
+
+                if (table == null) {
+                    continue;
+                }
+                if ("ALL".equals(type)) {
+                    violations.add("Full scan of " + table + ": " + statement.sql);
+                }
+                if (extra != null && extra.contains("Using filesort")) {
+                    violations.add("Filesort on " + table + ": " + statement.sql);
+                }
+            }
+        }
+
+        return violations;
+    }
+
+    /**
+     * Envuelve la conexión para registrar cada sentencia preparada que se
+     * ejecuta y los parámetros con que se ejecuta.
+     */
+    private static Connection recordingConnection(Connection connection, List<ExecutedStatement> statements) {
+
+        return (Connection) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+
+                    Object result = invoke(connection, method, args);
+
+                    if (method.getName().equals("prepareStatement") && args[0] instanceof String sql) {
+                        return recordingStatement((PreparedStatement) result, sql, statements);
+                    }
+                    return result;
+                });
+    }
+
+    private static PreparedStatement recordingStatement(PreparedStatement preparedStatement, String sql,
+            List<ExecutedStatement> statements) {
+
+        Map<Integer, Object> parameters = new TreeMap<>();
+
+        return (PreparedStatement) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+
+                    String name = method.getName();
+
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                        parameters.put(index, args[1]);
+                    } else if (name.equals("addBatch") || name.startsWith("execute")) {
+                        // En los lotes basta con uno de los conjuntos de parámetros
+                        if (statements.stream().noneMatch(s -> s.sql.equals(sql))) {
+                            statements.add(new ExecutedStatement(sql, new TreeMap<>(parameters)));
+                        }
+                    }
+
+                    return invoke(preparedStatement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package es.udc.ws.app.test.model.dao;
+
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.response.ResponseUpsertResult;
+import es.udc.ws.app.model.response.VoteLogSqlResponseDao;
+import es.udc.ws.app.model.response.VoteLogStore;
+import es.udc.ws.app.model.survey.InMemorySqlSurveyDao;
+import es.udc.ws.app.model.survey.InMemorySurveyStore;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.util.TransactionTemplate;
+import es.udc.ws.app.model.util.memory.InMemoryDataSource;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Prueba VoteLogSqlResponseDao sobre un registro en un directorio temporal:
+ * savepoints, compactación de segmentos y recuperación de una escritura
+ * interrumpida.
+ */
+public class VoteLogResponseDaoTest {
+
+    @Test
+    public void testVoteLogDao() throws InstanceNotFoundException, IOException, SQLException {
+        Path directory = Files.createTempDirectory("vote-log");
+
+        try {
+            InMemorySqlSurveyDao memorySurveyDao = new InMemorySqlSurveyDao(
+                    new InMemorySurveyStore(null, MetricsRegistry.getInstance()));
+            // Segmentos de 128 registros, para que se llenen y se compacten
+            VoteLogStore store = new VoteLogStore(directory, 4096, true, 0.5, 1000, MetricsRegistry.getInstance());
+            VoteLogSqlResponseDao logResponseDao = new VoteLogSqlResponseDao(store, memorySurveyDao);
+            TransactionTemplate template = new TransactionTemplate(new InMemoryDataSource(), 3, 1, 5, 1000,
+                    MetricsRegistry.getInstance());
+
+            LocalDateTime now = LocalDateTime.now().withNano(0);
+            Survey survey = new Survey("Encuesta en el registro de votos", now.plusDays(1));
+            survey.setCreationDate(now);
+            Long surveyId = template.execute(connection -> memorySurveyDao.create(connection, survey)).getSurveyId();
+
+            ResponseUpsertResult created = template.execute(connection -> logResponseDao.upsert(connection,
+                    new Response(surveyId, "emp1@techfic.com", true, now)));
+            assertEquals(ResponseUpsertResult.CREATED, created);
+            assertThrows(InstanceNotFoundException.class, () -> template.execute(connection ->
+                    logResponseDao.upsert(connection, new Response(-1L, "emp1@techfic.com", true, now))));
+
+            // Lo deshecho con un savepoint o un rollback no llega al registro
+            template.<Void, InstanceNotFoundException, SQLException, RuntimeException>execute(connection -> {
+                Savepoint savepoint = TransactionTemplate.setSavepoint(connection);
+                logResponseDao.upsert(connection, new Response(surveyId, "emp2@techfic.com", false, now));
+                assertEquals(2, logResponseDao.findBySurveyId(connection, surveyId, false).size());
+                TransactionTemplate.rollback(connection, savepoint);
+                return null;
+            });
+            assertThrows(IllegalStateException.class, () -> template.execute(connection -> {
+                logResponseDao.upsert(connection, new Response(surveyId, "emp3@techfic.com", false, now));
+                throw new IllegalStateException();
+            }));
+            List<Response> responses = template.query(connection ->
+                    logResponseDao.findBySurveyId(connection, surveyId, false));
+            assertEquals(1, responses.size());
+
+            // Muchos cambios de voto llenan segmentos que se compactan
+            for (int i = 0; i < 1000; i++) {
+                Response response = new Response(surveyId, "emp" + (i % 10) + "@techfic.com", i % 3 == 0, now);
+                template.execute(connection -> logResponseDao.upsert(connection, response));
+            }
+            store.compact();
+            try (Stream<Path> files = Files.list(directory)) {
+                // El diccionario de emails y el segmento activo
+                assertEquals(2, files.count());
+            }
+            List<Response> before = template.query(connection ->
+                    logResponseDao.findBySurveyId(connection, surveyId, false));
+            assertEquals(10, before.size());
+            store.close();
+
+            // Una escritura interrumpida al final del registro se descarta al reabrirlo
+            VoteLogStore reopenedStore = new VoteLogStore(directory, 4096, true, 0.5, 1000,
+                    MetricsRegistry.getInstance());
+            VoteLogSqlResponseDao reopenedResponseDao = new VoteLogSqlResponseDao(reopenedStore, memorySurveyDao);
+            Response lastVote = template.query(connection ->
+                    reopenedResponseDao.findBySurveyAndEmployee(connection, surveyId, "emp0@techfic.com")).orElseThrow();
+            lastVote.setResponse(!lastVote.getResponse());
+            template.execute(connection -> reopenedResponseDao.upsert(connection, lastVote));
+            reopenedStore.close();
+
+            Path segment;
+            try (Stream<Path> files = Files.list(directory)) {
+                segment = files.filter(file -> file.getFileName().toString().startsWith("votes-"))
+                        .max(Comparator.naturalOrder()).orElseThrow();
+            }
+            try (FileChannel channel = FileChannel.open(segment,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long lastRecord = 0;
+                ByteBuffer record = ByteBuffer.allocate(8);
+                for (long offset = 0; channel.read(record.clear(), offset) == 8 && record.getLong(0) != 0;
+                        offset += 32) {
+                    lastRecord = offset;
+                }
+                channel.write(ByteBuffer.wrap(new byte[]{1}), lastRecord + 30);
+            }
+
+            VoteLogStore recoveredStore = new VoteLogStore(directory, 4096, true, 0.5, 1000,
+                    MetricsRegistry.getInstance());
+            VoteLogSqlResponseDao recoveredResponseDao = new VoteLogSqlResponseDao(recoveredStore, memorySurveyDao);
+            List<Response> after = template.query(connection ->
+                    recoveredResponseDao.findBySurveyId(connection, surveyId, false));
+            assertEquals(before, after);
+            recoveredStore.close();
+
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package es.udc.ws.app.test.model.surveyservice;
+
+import es.udc.ws.app.model.surveyservice.SurveyStateRegistry;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba SurveyStateRegistry en memoria: codificación del estado y descarte
+ * de entradas cuando se llena.
+ */
+public class SurveyStateRegistryTest {
+
+    @Test
+    public void testSurveyStateRegistry() {
+        // El mínimo: una entrada por segmento
+        SurveyStateRegistry registry = new SurveyStateRegistry(64, MetricsRegistry.getInstance());
+
+        long endMillis = -86_400_000L;
+        long state = SurveyStateRegistry.open(endMillis, true);
+        assertTrue(registry.put(1, state));
+        assertEquals(state, registry.get(1));
+        assertEquals(endMillis, SurveyStateRegistry.millisOf(registry.get(1)));
+        assertTrue(SurveyStateRegistry.isCanceled(registry.get(1)));
+        assertFalse(SurveyStateRegistry.isFinished(registry.get(1)));
+        assertFalse(registry.putIfAbsent(1, SurveyStateRegistry.open(endMillis, false)));
+        registry.markFinished(1);
+        assertTrue(SurveyStateRegistry.isFinished(registry.get(1)));
+        assertEquals(SurveyStateRegistry.ABSENT, registry.get(2));
+
+        // Las entradas cerradas se descartan para hacer sitio
+        for (long surveyId = 1; surveyId <= 1000; surveyId++) {
+            assertTrue(registry.put(surveyId, SurveyStateRegistry.finished(endMillis, false)));
+        }
+        assertTrue(registry.size() <= 64);
+
+        // Las abiertas no: si no hay sitio, la nueva no se guarda
+        List<Long> storedSurveyIds = new ArrayList<>();
+        for (long surveyId = 1001; surveyId <= 2000; surveyId++) {
+            if (registry.put(surveyId, SurveyStateRegistry.open(endMillis, false))) {
+                storedSurveyIds.add(surveyId);
+            } else {
+                assertEquals(SurveyStateRegistry.ABSENT, registry.get(surveyId));
+            }
+        }
+        assertTrue(storedSurveyIds.size() < 1000);
+        assertTrue(registry.size() <= 64);
+        for (Long surveyId : storedSurveyIds) {
+            assertFalse(SurveyStateRegistry.isClosed(registry.get(surveyId)));
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package es.udc.ws.app.test.model.surveyservice;
+
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.surveyservice.VoteCommand;
+import es.udc.ws.app.model.surveyservice.VoteResult;
+import es.udc.ws.app.model.surveyservice.VoteStatus;
+import es.udc.ws.app.model.surveyservice.VoteWriteBehindQueue;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba VoteWriteBehindQueue con un escritor de lotes falso, sin BD: commit en
+ * grupo, bloqueo con la cola llena, vaciado al cerrar y orden de los votos.
+ */
+public class VoteWriteBehindQueueTest {
+
+    /**
+     * Escritor de lotes para las pruebas de la cola: guarda cada lote recibido
+     * y acepta todos sus votos. Si se le da un cerrojo, el primer lote espera a
+     * que se abra, para retener al hilo drenador.
+     */
+    private static class RecordingBatchWriter implements Function<List<VoteCommand>, List<VoteResult>> {
+
+        private final List<List<VoteCommand>> batches = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        private final CountDownLatch release;
+
+        private RecordingBatchWriter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public List<VoteResult> apply(List<VoteCommand> votes) {
+            batches.add(new ArrayList<>(votes));
+            if (firstBatchStarted.getCount() > 0) {
+                firstBatchStarted.countDown();
+                try {
+                    if (release != null) {
+                        release.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            List<VoteResult> results = new ArrayList<>(votes.size());
+            for (VoteCommand vote : votes) {
+                results.add(vote.getSurveyId() < 0
+                        ? new VoteResult(vote, VoteStatus.REJECTED_NOT_FOUND, null)
+                        : new VoteResult(vote, VoteStatus.ACCEPTED, new Response(vote.getSurveyId(),
+                        vote.getEmployeeEmail(), vote.getResponse(), LocalDateTime.now())));
+            }
+            return results;
+        }
+    }
+
+    private static VoteWriteBehindQueue newVoteQueue(int capacity, int maxBatchSize, long maxDelayMillis,
+            RecordingBatchWriter writer) {
+        return new VoteWriteBehindQueue(capacity, maxBatchSize, maxDelayMillis, writer,
+                result -> new InstanceNotFoundException(result.getVote().getSurveyId(), Survey.class.getName()));
+    }
+
+    @Test
+    public void testVoteWriteBehindQueueGroupCommit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingBatchWriter writer = new RecordingBatchWriter(release);
+        VoteWriteBehindQueue queue = newVoteQueue(100, 5, 50, writer);
+
+        try {
+            // El drenador queda retenido escribiendo el primer voto
+            CompletableFuture<Response> first = queue.submit(new VoteCommand(1L, "emp0@techfic.com", true));
+            assertTrue(writer.firstBatchStarted.await(5, TimeUnit.SECONDS));
+
+            // Los que llegan mientras tanto se escriben juntos, en grupos de maxBatchSize
+            List<CompletableFuture<Response>> futures = new ArrayList<>();
+            for (int i = 1; i <= 7; i++) {
+                futures.add(queue.submit(new VoteCommand(1L, "emp" + i + "@techfic.com", true)));
+            }
+            CompletableFuture<Response> rejected = queue.submit(new VoteCommand(-1L, "emp8@techfic.com", true));
+            release.countDown();
+
+            assertEquals("emp0@techfic.com", first.get(5, TimeUnit.SECONDS).getEmployeeEmail());
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals("emp" + (i + 1) + "@techfic.com", futures.get(i).get(5, TimeUnit.SECONDS)
+                        .getEmployeeEmail());
+            }
+            ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(InstanceNotFoundException.class, e.getCause());
+
+            assertEquals(List.of(1, 5, 3), writer.batches.stream().map(List::size).toList());
+        } finally {
+            release.countDown();
+            queue.close();
+        }
+    }
+
+    @Test
+    public void testVoteWriteBehindQueueBackpressure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingBatchWriter writer = new RecordingBatchWriter(release);
+        VoteWriteBehindQueue queue = newVoteQueue(2, 1, 10, writer);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            queue.submit(new VoteCommand(1L, "emp0@techfic.com", true));
+            assertTrue(writer.firstBatchStarted.await(5, TimeUnit.SECONDS));
+            queue.submit(new VoteCommand(1L, "emp1@techfic.com", true));
+            queue.submit(new VoteCommand(1L, "emp2@techfic.com", true));
+
+            // Con la cola llena, el siguiente voto bloquea al llamante
+            Future<CompletableFuture<Response>> blocked = executor.submit(() ->
+                    queue.submit(new VoteCommand(1L, "emp3@techfic.com", true)));
+            assertThrows(TimeoutException.class, () -> blocked.get(200, TimeUnit.MILLISECONDS));
+
+            // Al avanzar el drenador hay hueco y el voto se encola y se escribe
+            release.countDown();
+            Response response = blocked.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+            assertEquals("emp3@techfic.com", response.getEmployeeEmail());
+            assertEquals(4, writer.batches.size());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            queue.close();
+        }
+    }
+
+    @Test
+    public void testVoteWriteBehindQueueFlushOnClose() {
+        RecordingBatchWriter writer = new RecordingBatchWriter(null);
+        VoteWriteBehindQueue queue = newVoteQueue(100, 1000, 200, writer);
+
+        List<CompletableFuture<Response>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(queue.submit(new VoteCommand(1L, "emp" + i + "@techfic.com", true)));
+        }
+
+        // Al cerrar se escriben los votos que esperaban completar su grupo
+        queue.close();
+        for (CompletableFuture<Response> future : futures) {
+            assertTrue(future.isDone());
+            assertNotNull(future.join());
+        }
+        assertEquals(10, writer.batches.stream().mapToInt(List::size).sum());
+
+        // Y ya no se aceptan más
+        CompletionException e = assertThrows(CompletionException.class, () ->
+                queue.submit(new VoteCommand(1L, "late@techfic.com", true)).join());
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    public void testVoteWriteBehindQueueOrdering() throws Exception {
+        RecordingBatchWriter writer = new RecordingBatchWriter(null);
+        VoteWriteBehindQueue queue = newVoteQueue(8, 3, 1, writer);
+        int threads = 4;
+        int votesPerEmployee = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            // Cada hilo alterna los votos de su empleado, repartidos en muchos grupos
+            List<Future<CompletableFuture<Response>>> lastVotes = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String email = "emp" + t + "@techfic.com";
+                lastVotes.add(executor.submit(() -> {
+                    CompletableFuture<Response> last = null;
+                    for (int v = 0; v < votesPerEmployee; v++) {
+                        last = queue.submit(new VoteCommand(1L, email, v % 2 == 0));
+                    }
+                    return last;
+                }));
+            }
+            for (Future<CompletableFuture<Response>> lastVote : lastVotes) {
+                assertFalse(lastVote.get().get(5, TimeUnit.SECONDS).getResponse());
+            }
+
+            // Los votos de cada empleado se escriben en el orden en que se enviaron
+            List<VoteCommand> written = new ArrayList<>();
+            writer.batches.forEach(written::addAll);
+            assertEquals(threads * votesPerEmployee, written.size());
+            for (int t = 0; t < threads; t++) {
+                String email = "emp" + t + "@techfic.com";
+                List<Boolean> employeeVotes = written.stream().filter(vote -> vote.getEmployeeEmail().equals(email))
+                        .map(VoteCommand::getResponse).toList();
+                for (int v = 0; v < votesPerEmployee; v++) {
+                    assertEquals(v % 2 == 0, employeeVotes.get(v));
+                }
+            }
+            assertTrue(writer.batches.size() > 1);
+        } finally {
+            executor.shutdownNow();
+            queue.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package es.udc.ws.app.test.model.util;
+
+import es.udc.ws.app.model.util.TransactionTemplate;
+import es.udc.ws.app.model.util.memory.InMemoryDataSource;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Prueba los reintentos de TransactionTemplate sobre conexiones en memoria:
+ * qué errores se repiten y cuántas veces.
+ */
+public class TransactionTemplateTest {
+
+    @Test
+    public void testTransactionRetry() {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        TransactionTemplate template = new TransactionTemplate(new InMemoryDataSource(), 3, 1, 5, 1000, registry);
+        AtomicInteger attempts = new AtomicInteger();
+        long previousRetries = registry.getCounters().getOrDefault("transaction_retries", 0L);
+
+        // Dos interbloqueos seguidos: se repite la transacción hasta que termina
+        String result = template.execute(connection -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new SQLException("Deadlock found when trying to get lock", "40001", 1213);
+            }
+            return "ok";
+        });
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+        assertEquals(previousRetries + 2, registry.getCounters().get("transaction_retries"));
+
+        // Sin éxito al agotar los intentos
+        attempts.set(0);
+        RuntimeException exhausted = assertThrows(RuntimeException.class, () -> template.execute(connection -> {
+            attempts.incrementAndGet();
+            throw new SQLException("Lock wait timeout exceeded", "HY000", 1205);
+        }));
+        assertInstanceOf(SQLException.class, exhausted.getCause());
+        assertEquals(3, attempts.get());
+
+        // El resto de errores no se repiten
+        attempts.set(0);
+        assertThrows(RuntimeException.class, () -> template.execute(connection -> {
+            attempts.incrementAndGet();
+            throw new SQLException("Duplicate entry", "23000", 1062);
+        }));
+        assertEquals(1, attempts.get());
+    }
+}
@@ -1,4 +1,76 @@
 package es.udc.ws.app.restservice.json;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import es.udc.ws.app.model.surveyservice.exceptions.InputValidationException;
+import es.udc.ws.app.model.surveyservice.exceptions.SurveyAlreadyCanceledException;
+import es.udc.ws.app.model.surveyservice.exceptions.SurveyCanceledException;
+import es.udc.ws.app.model.surveyservice.exceptions.SurveyFinishedException;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Traduce las excepciones del modelo a códigos de estado HTTP y a un cuerpo
+ * JSON con la forma {"errorType": ..., "message": ...}.
+ */
 public class AppExceptionToJsonConversor {
+
+    private AppExceptionToJsonConversor() {
+    }
+
+    public static int toStatusCode(Exception e) {
+
+        if (e instanceof InputValidationException || e instanceof JsonProcessingException) {
+            return HttpServletResponse.SC_BAD_REQUEST;
+        }
+        if (e instanceof InstanceNotFoundException
+                || e instanceof es.udc.ws.app.model.surveyservice.exceptions.InstanceNotFoundException) {
+            return HttpServletResponse.SC_NOT_FOUND;
+        }
+        if (e instanceof SurveyFinishedException || e instanceof SurveyCanceledException) {
+            // La encuesta existió pero ya no admite la operación
+            return HttpServletResponse.SC_GONE;
+        }
+        if (e instanceof SurveyAlreadyCanceledException) {
+            return HttpServletResponse.SC_CONFLICT;
+        }
+        return HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+    }
+
+    public static void writeException(JsonGenerator generator, Exception e) throws IOException {
+
+        generator.writeStartObject();
+        generator.writeStringField("errorType", toErrorType(e));
+
+        if (e instanceof InstanceNotFoundException notFound) {
+            generator.writeStringField("instanceId", String.valueOf(notFound.getInstanceId()));
+            generator.writeStringField("instanceType", notFound.getInstanceType());
+        }
+        if (toStatusCode(e) != HttpServletResponse.SC_INTERNAL_SERVER_ERROR) {
+            // Los errores internos no se describen al cliente
+            generator.writeStringField("message", e.getMessage());
+        }
+
+        generator.writeEndObject();
+    }
+
+    public static void writeError(JsonGenerator generator, String errorType, String message) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("errorType", errorType);
+        generator.writeStringField("message", message);
+        generator.writeEndObject();
+    }
+
+    private static String toErrorType(Exception e) {
+
+        if (e instanceof JsonProcessingException) {
+            return "InputValidation";
+        }
+        return switch (toStatusCode(e)) {
+            case HttpServletResponse.SC_INTERNAL_SERVER_ERROR -> "InternalError";
+            default -> e.getClass().getSimpleName().replaceFirst("Exception$", "");
+        };
+    }
 }
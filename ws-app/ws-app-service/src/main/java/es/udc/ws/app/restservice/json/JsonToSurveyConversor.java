@@ -0,0 +1,159 @@
+package es.udc.ws.app.restservice.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.surveyservice.SurveyCommand;
+import es.udc.ws.app.model.surveyservice.VoteCommand;
+import es.udc.ws.app.model.surveyservice.exceptions.InputValidationException;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lee los cuerpos JSON de las peticiones con el parser en streaming.
+ */
+public class JsonToSurveyConversor {
+
+    private JsonToSurveyConversor() {
+    }
+
+    /**
+     * {"question": "...", "endDate": "2030-01-01T00:00:00"}
+     */
+    public static Survey toSurvey(JsonParser parser) throws IOException, InputValidationException {
+
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        SurveyCommand survey = readSurvey(parser);
+
+        return new Survey(survey.getQuestion(), survey.getEndDate());
+    }
+
+    /**
+     * [{"question": "...", "endDate": "2030-01-01T00:00:00"}, ...]
+     */
+    public static List<SurveyCommand> toSurveys(JsonParser parser, int maxSurveys)
+            throws IOException, InputValidationException {
+
+        List<SurveyCommand> surveys = new ArrayList<>();
+
+        expect(parser.nextToken(), JsonToken.START_ARRAY);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            if (surveys.size() == maxSurveys) {
+                throw new InputValidationException("At most " + maxSurveys + " surveys per request");
+            }
+            surveys.add(readSurvey(parser));
+        }
+
+        return surveys;
+    }
+
+    private static SurveyCommand readSurvey(JsonParser parser) throws IOException, InputValidationException {
+
+        String question = null;
+        LocalDateTime endDate = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "question" -> question = parser.getValueAsString();
+                case "endDate" -> endDate = toDate(parser.getValueAsString());
+                default -> parser.skipChildren();
+            }
+        }
+
+        return new SurveyCommand(question, endDate);
+    }
+
+    /**
+     * {"counterShards": 16}
+     */
+    public static int toCounterShards(JsonParser parser) throws IOException, InputValidationException {
+
+        Integer counterShards = null;
+
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("counterShards") && value == JsonToken.VALUE_NUMBER_INT) {
+                counterShards = parser.getIntValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (counterShards == null) {
+            throw new InputValidationException("counterShards must be an integer");
+        }
+        return counterShards;
+    }
+
+    /**
+     * {"employeeEmail": "...", "response": true}, para la encuesta de la URL.
+     */
+    public static VoteCommand toVote(JsonParser parser, Long surveyId) throws IOException, InputValidationException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        return readVote(parser, surveyId);
+    }
+
+    /**
+     * [{"surveyId": 1, "employeeEmail": "...", "response": true}, ...]
+     */
+    public static List<VoteCommand> toVotes(JsonParser parser, int maxVotes)
+            throws IOException, InputValidationException {
+
+        List<VoteCommand> votes = new ArrayList<>();
+
+        expect(parser.nextToken(), JsonToken.START_ARRAY);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            if (votes.size() == maxVotes) {
+                throw new InputValidationException("At most " + maxVotes + " votes per request");
+            }
+            votes.add(readVote(parser, null));
+        }
+
+        return votes;
+    }
+
+    private static VoteCommand readVote(JsonParser parser, Long surveyId) throws IOException, InputValidationException {
+
+        String employeeEmail = null;
+        Boolean response = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "surveyId" -> surveyId = surveyId != null ? surveyId : parser.getValueAsLong();
+                case "employeeEmail" -> employeeEmail = parser.getValueAsString();
+                case "response" -> response = value == JsonToken.VALUE_TRUE ? Boolean.TRUE
+                        : value == JsonToken.VALUE_FALSE ? Boolean.FALSE : null;
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (surveyId == null || response == null) {
+            throw new InputValidationException("A vote needs surveyId and a boolean response");
+        }
+        return new VoteCommand(surveyId, employeeEmail, response);
+    }
+
+    private static LocalDateTime toDate(String value) throws InputValidationException {
+        try {
+            return value == null ? null : LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InputValidationException("Invalid date: " + value);
+        }
+    }
+
+    private static void expect(JsonToken token, JsonToken expected) throws InputValidationException {
+        if (token != expected) {
+            throw new InputValidationException("Invalid JSON body: expected " + expected);
+        }
+    }
+}
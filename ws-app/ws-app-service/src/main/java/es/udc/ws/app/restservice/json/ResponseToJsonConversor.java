@@ -0,0 +1,38 @@
+package es.udc.ws.app.restservice.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.surveyservice.VoteResult;
+
+import java.io.IOException;
+
+/**
+ * Escribe respuestas y resultados de votos directamente en el generador JSON.
+ */
+public class ResponseToJsonConversor {
+
+    private ResponseToJsonConversor() {
+    }
+
+    public static void writeResponse(JsonGenerator generator, Response response) throws IOException {
+
+        generator.writeStartObject();
+        generator.writeNumberField("responseId", response.getResponseId());
+        generator.writeNumberField("surveyId", response.getSurveyId());
+        generator.writeStringField("employeeEmail", response.getEmployeeEmail());
+        generator.writeBooleanField("response", response.getResponse());
+        generator.writeStringField("responseDate", response.getResponseDate().toString());
+        generator.writeEndObject();
+    }
+
+    public static void writeVoteResult(JsonGenerator generator, VoteResult result) throws IOException {
+
+        generator.writeStartObject();
+        generator.writeStringField("status", result.getStatus().name());
+        if (result.getResponse() != null) {
+            generator.writeFieldName("savedResponse");
+            writeResponse(generator, result.getResponse());
+        }
+        generator.writeEndObject();
+    }
+}
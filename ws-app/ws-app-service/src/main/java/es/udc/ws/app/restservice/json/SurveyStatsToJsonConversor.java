@@ -0,0 +1,36 @@
+package es.udc.ws.app.restservice.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import es.udc.ws.app.model.surveystats.SurveyStats;
+import es.udc.ws.app.model.surveystats.SurveyStatsBucket;
+
+import java.io.IOException;
+
+/**
+ * Escribe las estadísticas de una encuesta directamente en el generador JSON.
+ */
+public class SurveyStatsToJsonConversor {
+
+    private SurveyStatsToJsonConversor() {
+    }
+
+    public static void writeSurveyStats(JsonGenerator generator, SurveyStats stats) throws IOException {
+
+        generator.writeStartObject();
+        generator.writeNumberField("surveyId", stats.getSurveyId());
+        generator.writeNumberField("positiveResponses", stats.getPositiveResponses());
+        generator.writeNumberField("negativeResponses", stats.getNegativeResponses());
+        generator.writeArrayFieldStart("buckets");
+        for (SurveyStatsBucket bucket : stats.getBuckets()) {
+            generator.writeStartObject();
+            generator.writeStringField("bucketStart", bucket.getBucketStart().toString());
+            generator.writeNumberField("positiveResponses", bucket.getPositiveResponses());
+            generator.writeNumberField("negativeResponses", bucket.getNegativeResponses());
+            generator.writeNumberField("positiveChanges", bucket.getPositiveChanges());
+            generator.writeNumberField("negativeChanges", bucket.getNegativeChanges());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,31 @@
+package es.udc.ws.app.restservice.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import es.udc.ws.app.model.survey.Survey;
+
+import java.io.IOException;
+
+/**
+ * Escribe encuestas directamente en el generador JSON, sin construir árboles
+ * intermedios.
+ */
+public class SurveyToJsonConversor {
+
+    private SurveyToJsonConversor() {
+    }
+
+    public static void writeSurvey(JsonGenerator generator, Survey survey) throws IOException {
+
+        generator.writeStartObject();
+        generator.writeNumberField("surveyId", survey.getSurveyId());
+        generator.writeStringField("question", survey.getQuestion());
+        generator.writeStringField("creationDate", survey.getCreationDate().toString());
+        generator.writeStringField("endDate", survey.getEndDate().toString());
+        generator.writeBooleanField("canceled", survey.isCanceled());
+        generator.writeStringField("status", survey.getStatus().name());
+        generator.writeNumberField("positiveResponses", survey.getPositiveResponses());
+        generator.writeNumberField("negativeResponses", survey.getNegativeResponses());
+        generator.writeNumberField("counterShards", survey.getCounterShards());
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,229 @@
+package es.udc.ws.app.restservice.servlets;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import es.udc.ws.app.model.surveyservice.exceptions.InputValidationException;
+import es.udc.ws.app.model.util.Page;
+import es.udc.ws.app.restservice.json.AppExceptionToJsonConversor;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Base de los servlets REST. Cada petición pasa a modo asíncrono y se atiende
+ * en un hilo virtual, así que ni las esperas a la BD ni los clientes lentos
+ * ocupan hilos del contenedor. Las respuestas se escriben con el generador
+ * JSON en streaming, sin construir árboles intermedios.
+ */
+public abstract class AsyncRestServlet extends HttpServlet {
+
+    private static final JsonFactory jsonFactory = JsonFactory.builder()
+            // Un listado cortado por un error no debe parecer un JSON completo
+            .disable(StreamWriteFeature.AUTO_CLOSE_CONTENT)
+            .build();
+
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Escribe el cuerpo de la respuesta. Puede seguir llamando al servicio
+     * mientras escribe (listados por páginas).
+     */
+    @FunctionalInterface
+    protected interface JsonWriter {
+        void write(JsonGenerator generator) throws Exception;
+    }
+
+    @FunctionalInterface
+    protected interface ItemWriter<T> {
+        void write(JsonGenerator generator, T item) throws IOException;
+    }
+
+    /**
+     * Deja de aceptar peticiones y espera a que terminen las que están en curso.
+     */
+    static void shutdownExecutor() {
+        executor.close();
+    }
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response) {
+
+        AsyncContext asyncContext = request.startAsync();
+        // Los listados se escriben por páginas mientras el cliente los lee, sin límite de tiempo
+        asyncContext.setTimeout(0);
+
+        try {
+            executor.execute(() -> {
+                try {
+                    switch (request.getMethod()) {
+                        case "GET" -> processGet(request, response);
+                        case "POST" -> processPost(request, response);
+                        default -> writeMethodNotAllowed(response);
+                    }
+                } catch (Exception e) {
+                    writeException(response, e);
+                } finally {
+                    asyncContext.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            asyncContext.complete();
+        }
+    }
+
+    protected void processGet(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        writeMethodNotAllowed(response);
+    }
+
+    protected void processPost(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        writeMethodNotAllowed(response);
+    }
+
+    /**
+     * El generador sólo se cierra (y vacía) si el cuerpo se escribe entero; si
+     * falla antes de enviarse nada, writeException puede sustituirlo por el error.
+     */
+    protected static void writeJson(HttpServletResponse response, int status, JsonWriter writer)
+            throws Exception {
+
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+
+        JsonGenerator generator = jsonFactory.createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+        writer.write(generator);
+        generator.close();
+    }
+
+    protected static JsonParser createParser(HttpServletRequest request) throws IOException {
+        return jsonFactory.createParser(request.getInputStream());
+    }
+
+    /**
+     * {"items": [...], "nextPageToken": "..."}
+     */
+    protected static <T> void writePage(JsonGenerator generator, Page<T> page, ItemWriter<T> itemWriter)
+            throws IOException {
+
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("items");
+        for (T item : page.getItems()) {
+            itemWriter.write(generator, item);
+        }
+        generator.writeEndArray();
+        generator.writeStringField("nextPageToken", page.getNextPageToken());
+        generator.writeEndObject();
+    }
+
+    protected static void writeNotFound(HttpServletRequest request, HttpServletResponse response)
+            throws Exception {
+        writeJson(response, HttpServletResponse.SC_NOT_FOUND, generator -> AppExceptionToJsonConversor
+                .writeError(generator, "NotFound", "Unknown resource: " + request.getRequestURI()));
+    }
+
+    private static void writeMethodNotAllowed(HttpServletResponse response) throws Exception {
+        writeJson(response, HttpServletResponse.SC_METHOD_NOT_ALLOWED, generator -> AppExceptionToJsonConversor
+                .writeError(generator, "MethodNotAllowed", "Method not allowed"));
+    }
+
+    private void writeException(HttpServletResponse response, Exception e) {
+
+        if (response.isCommitted()) {
+            // Ya se envió parte del cuerpo: sólo queda cortar la respuesta
+            log("Error while writing a response", e);
+            return;
+        }
+
+        int status = AppExceptionToJsonConversor.toStatusCode(e);
+        if (status == HttpServletResponse.SC_INTERNAL_SERVER_ERROR) {
+            log("Unexpected error", e);
+        }
+
+        try {
+            response.reset();
+            writeJson(response, status, generator -> AppExceptionToJsonConversor.writeException(generator, e));
+        } catch (Exception writeError) {
+            log("Error while writing an error response", writeError);
+        }
+    }
+
+    /**
+     * Segmentos de la ruta tras la del servlet: "/12/responses" -> ["12", "responses"].
+     */
+    protected static List<String> getPathSegments(HttpServletRequest request) {
+
+        List<String> segments = new ArrayList<>();
+        String pathInfo = request.getPathInfo();
+
+        if (pathInfo != null) {
+            for (String segment : pathInfo.split("/")) {
+                if (!segment.isEmpty()) {
+                    segments.add(segment);
+                }
+            }
+        }
+
+        return segments;
+    }
+
+    protected static Long toId(String segment) throws InputValidationException {
+        try {
+            return Long.valueOf(segment);
+        } catch (NumberFormatException e) {
+            throw new InputValidationException("Invalid identifier: " + segment);
+        }
+    }
+
+    protected static boolean getBooleanParameter(HttpServletRequest request, String name) {
+        return Boolean.parseBoolean(request.getParameter(name));
+    }
+
+    /**
+     * @return el valor del parámetro, o null si no viene en la petición.
+     */
+    protected static Integer getIntParameter(HttpServletRequest request, String name)
+            throws InputValidationException {
+
+        String value = request.getParameter(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InputValidationException("Invalid value for " + name + ": " + value);
+        }
+    }
+
+    /**
+     * @return el valor del parámetro (fecha y hora ISO-8601, p. ej.
+     * 2025-03-01T10:00), o null si no viene en la petición.
+     */
+    protected static LocalDateTime getDateTimeParameter(HttpServletRequest request, String name)
+            throws InputValidationException {
+
+        String value = request.getParameter(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InputValidationException("Invalid value for " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package es.udc.ws.app.restservice.servlets;
+
+import es.udc.ws.app.model.util.metrics.LatencyHistogram;
+import es.udc.ws.app.model.util.metrics.MethodMetrics;
+import es.udc.ws.app.model.util.metrics.MetricsRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * <pre>
+ * GET /metrics   métricas en el formato de texto de Prometheus
+ * </pre>
+ * Publica, por cada método instrumentado (ver los decoradores Metered*), el
+ * histograma de latencias, las excepciones por tipo y los fallos de
+ * serialización de la BD, y los contadores del registro (p. ej. los
+ * reintentos de transacciones). Si el pool de conexiones está registrado en JMX con
+ * el nombre del parámetro poolJmxName, añade también su ocupación.
+ */
+public class MetricsServlet extends HttpServlet {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private ObjectName poolName;
+    private ObjectName poolConnectionsName;
+
+    @Override
+    public void init() {
+        String poolJmxName = getInitParameter("poolJmxName");
+        if (poolJmxName != null) {
+            try {
+                poolName = new ObjectName(poolJmxName);
+                poolConnectionsName = new ObjectName(poolJmxName + ",connectionpool=connections");
+            } catch (JMException e) {
+                throw new IllegalArgumentException("Invalid poolJmxName: " + poolJmxName, e);
+            }
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(CONTENT_TYPE);
+        response.setHeader("Cache-Control", "no-store");
+
+        PrintWriter writer = response.getWriter();
+        writeMethodMetrics(writer);
+        writeCounters(writer);
+        writePoolMetrics(writer);
+        writer.flush();
+    }
+
+    private static void writeMethodMetrics(PrintWriter writer) {
+
+        Iterable<MethodMetrics> methods = MetricsRegistry.getInstance().getMethods();
+
+        writer.println("# HELP wsapp_method_duration_seconds Latency of instrumented methods.");
+        writer.println("# TYPE wsapp_method_duration_seconds histogram");
+        for (MethodMetrics method : methods) {
+            String labels = labels(method);
+            LatencyHistogram latency = method.getLatency();
+            long[] counts = latency.getBucketCounts();
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                long upperBound = LatencyHistogram.getUpperBoundMicros(i);
+                String le = upperBound == Long.MAX_VALUE ? "+Inf"
+                        : BigDecimal.valueOf(upperBound, 6).stripTrailingZeros().toPlainString();
+                writer.println("wsapp_method_duration_seconds_bucket{" + labels + ",le=\"" + le + "\"} "
+                        + cumulative);
+            }
+            writer.println("wsapp_method_duration_seconds_sum{" + labels + "} "
+                    + latency.getSumNanos() / 1e9);
+            writer.println("wsapp_method_duration_seconds_count{" + labels + "} " + cumulative);
+        }
+
+        writer.println("# HELP wsapp_method_exceptions_total Exceptions thrown by instrumented methods, by type.");
+        writer.println("# TYPE wsapp_method_exceptions_total counter");
+        for (MethodMetrics method : methods) {
+            for (Map.Entry<String, Long> entry : method.getErrorCounts().entrySet()) {
+                writer.println("wsapp_method_exceptions_total{" + labels(method) + ",exception=\""
+                        + entry.getKey() + "\"} " + entry.getValue());
+            }
+        }
+
+        writer.println("# HELP wsapp_method_serialization_failures_total Deadlocks, lock wait timeouts and "
+                + "serialization failures reported by the database.");
+        writer.println("# TYPE wsapp_method_serialization_failures_total counter");
+        for (MethodMetrics method : methods) {
+            writer.println("wsapp_method_serialization_failures_total{" + labels(method) + "} "
+                    + method.getSerializationFailures());
+        }
+    }
+
+    private static void writeCounters(PrintWriter writer) {
+        for (Map.Entry<String, Long> entry : MetricsRegistry.getInstance().getCounters().entrySet()) {
+            String metric = "wsapp_" + entry.getKey() + "_total";
+            writer.println("# TYPE " + metric + " counter");
+            writer.println(metric + " " + entry.getValue());
+        }
+    }
+
+    private void writePoolMetrics(PrintWriter writer) {
+
+        if (poolName == null) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (!server.isRegistered(poolName)) {
+            return;
+        }
+
+        writeGauge(writer, server, poolName, "NumActive", "wsapp_pool_active_connections",
+                "Connections currently borrowed from the pool.");
+        writeGauge(writer, server, poolName, "NumIdle", "wsapp_pool_idle_connections",
+                "Idle connections in the pool.");
+        writeGauge(writer, server, poolName, "MaxTotal", "wsapp_pool_max_connections",
+                "Maximum number of connections in the pool.");
+        if (server.isRegistered(poolConnectionsName)) {
+            writeGauge(writer, server, poolConnectionsName, "NumWaiters", "wsapp_pool_waiters",
+                    "Threads waiting for a connection.");
+            writeGauge(writer, server, poolConnectionsName, "MaxBorrowWaitTimeMillis",
+                    "wsapp_pool_max_borrow_wait_milliseconds", "Longest wait for a connection.");
+        }
+    }
+
+    private static void writeGauge(PrintWriter writer, MBeanServer server, ObjectName name, String attribute,
+            String metric, String help) {
+        try {
+            Object value = server.getAttribute(name, attribute);
+            writer.println("# HELP " + metric + " " + help);
+            writer.println("# TYPE " + metric + " gauge");
+            writer.println(metric + " " + value);
+        } catch (JMException e) {
+            // Atributo no disponible en esta versión del pool
+        }
+    }
+
+    private static String labels(MethodMetrics method) {
+        return "component=\"" + method.getComponent() + "\",method=\"" + method.getMethod() + "\"";
+    }
+}
@@ -0,0 +1,20 @@
+package es.udc.ws.app.restservice.servlets;
+
+import es.udc.ws.app.model.surveyservice.SurveyServiceFactory;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+/**
+ * Al parar la aplicación, termina las peticiones en curso y escribe los votos
+ * asíncronos pendientes antes de que se cierre el pool de conexiones.
+ */
+public class RestServiceContextListener implements ServletContextListener {
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+
+        AsyncRestServlet.shutdownExecutor();
+
+        SurveyServiceFactory.getService().shutdown();
+    }
+}
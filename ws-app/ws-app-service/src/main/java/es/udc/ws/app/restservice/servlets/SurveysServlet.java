@@ -0,0 +1,246 @@
+package es.udc.ws.app.restservice.servlets;
+
+import com.fasterxml.jackson.core.JsonParser;
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.surveyservice.SurveyService;
+import es.udc.ws.app.model.surveyservice.SurveyCommand;
+import es.udc.ws.app.model.surveyservice.SurveyServiceFactory;
+import es.udc.ws.app.model.surveyservice.VoteCommand;
+import es.udc.ws.app.model.surveystats.SurveyStats;
+import es.udc.ws.app.model.util.Page;
+import es.udc.ws.app.restservice.json.JsonToSurveyConversor;
+import es.udc.ws.app.restservice.json.ResponseToJsonConversor;
+import es.udc.ws.app.restservice.json.SurveyStatsToJsonConversor;
+import es.udc.ws.app.restservice.json.SurveyToJsonConversor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * <pre>
+ * POST /surveys                      [FUNC-1] crear encuesta
+ * POST /surveys/batch                [FUNC-1] crear un lote de encuestas (importaciones)
+ * GET  /surveys?keyword=&onlyFuture= [FUNC-2] buscar encuestas
+ * GET  /surveys/{id}                 [FUNC-3] ver encuesta
+ * POST /surveys/{id}/responses       [FUNC-4] responder
+ * POST /surveys/{id}/cancel          [FUNC-5] cancelar
+ * POST /surveys/{id}/counterShards   repartir los contadores en N filas ({"counterShards": N})
+ * GET  /surveys/{id}/responses       [FUNC-6] ver respuestas (?onlyPositive=)
+ * GET  /surveys/{id}/stats           votos por horas (?from=&to=, fechas ISO-8601)
+ * </pre>
+ * Los listados aceptan pageSize y pageToken para pedir una página; sin ellos se
+ * devuelve la lista completa, que se lee y escribe página a página.
+ */
+public class SurveysServlet extends AsyncRestServlet {
+
+    // Tamaño de las páginas con que se escriben los listados completos
+    private static final int LISTING_PAGE_SIZE = 1000;
+
+    private static final int MAX_SURVEYS_PER_REQUEST = 10000;
+
+    private SurveyService surveyService;
+
+    public SurveysServlet() {
+    }
+
+    /**
+     * Usa el servicio indicado en lugar del configurado (pruebas).
+     */
+    public SurveysServlet(SurveyService surveyService) {
+        this.surveyService = surveyService;
+    }
+
+    @Override
+    public void init() {
+        if (surveyService == null) {
+            surveyService = SurveyServiceFactory.getService();
+        }
+    }
+
+    @Override
+    protected void processGet(HttpServletRequest request, HttpServletResponse response) throws Exception {
+
+        List<String> path = getPathSegments(request);
+
+        if (path.isEmpty()) {
+            findSurveys(request, response);
+        } else if (path.size() == 1) {
+            Survey survey = surveyService.findSurvey(toId(path.get(0)));
+            writeJson(response, HttpServletResponse.SC_OK,
+                    generator -> SurveyToJsonConversor.writeSurvey(generator, survey));
+        } else if (path.size() == 2 && path.get(1).equals("responses")) {
+            getResponses(request, response, toId(path.get(0)));
+        } else if (path.size() == 2 && path.get(1).equals("stats")) {
+            SurveyStats stats = surveyService.getSurveyStats(toId(path.get(0)),
+                    getDateTimeParameter(request, "from"), getDateTimeParameter(request, "to"));
+            writeJson(response, HttpServletResponse.SC_OK,
+                    generator -> SurveyStatsToJsonConversor.writeSurveyStats(generator, stats));
+        } else {
+            writeNotFound(request, response);
+        }
+    }
+
+    @Override
+    protected void processPost(HttpServletRequest request, HttpServletResponse response) throws Exception {
+
+        List<String> path = getPathSegments(request);
+
+        if (path.isEmpty()) {
+            createSurvey(request, response);
+        } else if (path.size() == 1 && path.get(0).equals("batch")) {
+            createSurveys(request, response);
+        } else if (path.size() == 2 && path.get(1).equals("responses")) {
+            respondToSurvey(request, response, toId(path.get(0)));
+        } else if (path.size() == 2 && path.get(1).equals("cancel")) {
+            Survey survey = surveyService.cancelSurvey(toId(path.get(0)));
+            writeJson(response, HttpServletResponse.SC_OK,
+                    generator -> SurveyToJsonConversor.writeSurvey(generator, survey));
+        } else if (path.size() == 2 && path.get(1).equals("counterShards")) {
+            setCounterShards(request, response, toId(path.get(0)));
+        } else {
+            writeNotFound(request, response);
+        }
+    }
+
+    private void setCounterShards(HttpServletRequest request, HttpServletResponse response, Long surveyId)
+            throws Exception {
+
+        int counterShards;
+        try (JsonParser parser = createParser(request)) {
+            counterShards = JsonToSurveyConversor.toCounterShards(parser);
+        }
+
+        Survey survey = surveyService.setCounterShards(surveyId, counterShards);
+        writeJson(response, HttpServletResponse.SC_OK,
+                generator -> SurveyToJsonConversor.writeSurvey(generator, survey));
+    }
+
+    private void createSurvey(HttpServletRequest request, HttpServletResponse response) throws Exception {
+
+        Survey survey;
+        try (JsonParser parser = createParser(request)) {
+            survey = JsonToSurveyConversor.toSurvey(parser);
+        }
+
+        Survey createdSurvey = surveyService.createSurvey(survey.getQuestion(), survey.getEndDate());
+
+        response.setHeader("Location", request.getRequestURL() + "/" + createdSurvey.getSurveyId());
+        writeJson(response, HttpServletResponse.SC_CREATED,
+                generator -> SurveyToJsonConversor.writeSurvey(generator, createdSurvey));
+    }
+
+    /**
+     * Devuelve las encuestas creadas, en el mismo orden que el lote.
+     */
+    private void createSurveys(HttpServletRequest request, HttpServletResponse response) throws Exception {
+
+        List<SurveyCommand> surveys;
+        try (JsonParser parser = createParser(request)) {
+            surveys = JsonToSurveyConversor.toSurveys(parser, MAX_SURVEYS_PER_REQUEST);
+        }
+
+        List<Survey> createdSurveys = surveyService.createSurveys(surveys);
+
+        writeJson(response, HttpServletResponse.SC_CREATED, generator -> {
+            generator.writeStartArray();
+            for (Survey survey : createdSurveys) {
+                SurveyToJsonConversor.writeSurvey(generator, survey);
+            }
+            generator.writeEndArray();
+        });
+    }
+
+    private void findSurveys(HttpServletRequest request, HttpServletResponse response) throws Exception {
+
+        String keyword = request.getParameter("keyword");
+        boolean onlyFuture = getBooleanParameter(request, "onlyFuture");
+        Integer pageSize = getIntParameter(request, "pageSize");
+
+        if (pageSize != null) {
+            Page<Survey> page = surveyService.findSurveys(keyword, onlyFuture, request.getParameter("pageToken"),
+                    pageSize);
+            writeJson(response, HttpServletResponse.SC_OK,
+                    generator -> writePage(generator, page, SurveyToJsonConversor::writeSurvey));
+            return;
+        }
+
+        // Listado completo: cada página usa la conexión sólo mientras se lee, no
+        // mientras el cliente recibe los datos
+        Page<Survey> firstPage = surveyService.findSurveys(keyword, onlyFuture, null, LISTING_PAGE_SIZE);
+
+        writeJson(response, HttpServletResponse.SC_OK, generator -> {
+            generator.writeStartArray();
+            Page<Survey> page = firstPage;
+            while (true) {
+                for (Survey survey : page.getItems()) {
+                    SurveyToJsonConversor.writeSurvey(generator, survey);
+                }
+                if (!page.hasNext()) {
+                    break;
+                }
+                generator.flush();
+                page = surveyService.findSurveys(keyword, onlyFuture, page.getNextPageToken(), LISTING_PAGE_SIZE);
+            }
+            generator.writeEndArray();
+        });
+    }
+
+    private void respondToSurvey(HttpServletRequest request, HttpServletResponse response, Long surveyId)
+            throws Exception {
+
+        VoteCommand vote;
+        try (JsonParser parser = createParser(request)) {
+            vote = JsonToSurveyConversor.toVote(parser, surveyId);
+        }
+
+        // Con los votos asíncronos activados, el voto se agrupa con otros en un
+        // mismo commit; la espera sólo bloquea este hilo virtual
+        Response savedResponse;
+        try {
+            savedResponse = surveyService.respondToSurveyAsync(surveyId, vote.getEmployeeEmail(),
+                    vote.getResponse()).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+
+        writeJson(response, HttpServletResponse.SC_OK,
+                generator -> ResponseToJsonConversor.writeResponse(generator, savedResponse));
+    }
+
+    private void getResponses(HttpServletRequest request, HttpServletResponse response, Long surveyId)
+            throws Exception {
+
+        boolean onlyPositive = getBooleanParameter(request, "onlyPositive");
+        Integer pageSize = getIntParameter(request, "pageSize");
+
+        if (pageSize != null) {
+            Page<Response> page = surveyService.getResponses(surveyId, onlyPositive,
+                    request.getParameter("pageToken"), pageSize);
+            writeJson(response, HttpServletResponse.SC_OK,
+                    generator -> writePage(generator, page, ResponseToJsonConversor::writeResponse));
+            return;
+        }
+
+        Page<Response> firstPage = surveyService.getResponses(surveyId, onlyPositive, null, LISTING_PAGE_SIZE);
+
+        writeJson(response, HttpServletResponse.SC_OK, generator -> {
+            generator.writeStartArray();
+            Page<Response> page = firstPage;
+            while (true) {
+                for (Response item : page.getItems()) {
+                    ResponseToJsonConversor.writeResponse(generator, item);
+                }
+                if (!page.hasNext()) {
+                    break;
+                }
+                generator.flush();
+                page = surveyService.getResponses(surveyId, onlyPositive, page.getNextPageToken(),
+                        LISTING_PAGE_SIZE);
+            }
+            generator.writeEndArray();
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package es.udc.ws.app.restservice.servlets;
+
+import com.fasterxml.jackson.core.JsonParser;
+import es.udc.ws.app.model.surveyservice.SurveyService;
+import es.udc.ws.app.model.surveyservice.SurveyServiceFactory;
+import es.udc.ws.app.model.surveyservice.VoteCommand;
+import es.udc.ws.app.model.surveyservice.VoteResult;
+import es.udc.ws.app.restservice.json.JsonToSurveyConversor;
+import es.udc.ws.app.restservice.json.ResponseToJsonConversor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.List;
+
+/**
+ * <pre>
+ * POST /votes   [FUNC-4] registrar un lote de votos
+ * </pre>
+ * Devuelve el resultado de cada voto, en el mismo orden que el lote.
+ */
+public class VotesServlet extends AsyncRestServlet {
+
+    private static final int MAX_VOTES_PER_REQUEST = 10000;
+
+    private SurveyService surveyService;
+
+    public VotesServlet() {
+    }
+
+    /**
+     * Usa el servicio indicado en lugar del configurado (pruebas).
+     */
+    public VotesServlet(SurveyService surveyService) {
+        this.surveyService = surveyService;
+    }
+
+    @Override
+    public void init() {
+        if (surveyService == null) {
+            surveyService = SurveyServiceFactory.getService();
+        }
+    }
+
+    @Override
+    protected void processPost(HttpServletRequest request, HttpServletResponse response) throws Exception {
+
+        if (!getPathSegments(request).isEmpty()) {
+            writeNotFound(request, response);
+            return;
+        }
+
+        List<VoteCommand> votes;
+        try (JsonParser parser = createParser(request)) {
+            votes = JsonToSurveyConversor.toVotes(parser, MAX_VOTES_PER_REQUEST);
+        }
+
+        List<VoteResult> results = surveyService.respondToSurveyBatch(votes);
+
+        writeJson(response, HttpServletResponse.SC_OK, generator -> {
+            generator.writeStartArray();
+            for (VoteResult result : results) {
+                ResponseToJsonConversor.writeVoteResult(generator, result);
+            }
+            generator.writeEndArray();
+        });
+    }
+}
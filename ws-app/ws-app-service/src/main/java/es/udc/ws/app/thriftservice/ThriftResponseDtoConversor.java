@@ -0,0 +1,53 @@
+package es.udc.ws.app.thriftservice;
+
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.surveyservice.VoteCommand;
+import es.udc.ws.app.model.surveyservice.VoteResult;
+import es.udc.ws.app.thrift.ThriftResponseDto;
+import es.udc.ws.app.thrift.ThriftVoteDto;
+import es.udc.ws.app.thrift.ThriftVoteResultDto;
+import es.udc.ws.app.thrift.ThriftVoteStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ThriftResponseDtoConversor {
+
+    private ThriftResponseDtoConversor() {
+    }
+
+    public static ThriftResponseDto toThriftResponseDto(Response response) {
+        return new ThriftResponseDto(response.getResponseId(), response.getSurveyId(),
+                response.getEmployeeEmail(), response.getResponse(),
+                ThriftSurveyDtoConversor.toEpochMillis(response.getResponseDate()));
+    }
+
+    public static List<ThriftResponseDto> toThriftResponseDtos(List<Response> responses) {
+        List<ThriftResponseDto> dtos = new ArrayList<>(responses.size());
+        for (Response response : responses) {
+            dtos.add(toThriftResponseDto(response));
+        }
+        return dtos;
+    }
+
+    public static List<VoteCommand> toVoteCommands(List<ThriftVoteDto> votes) {
+        List<VoteCommand> commands = new ArrayList<>(votes.size());
+        for (ThriftVoteDto vote : votes) {
+            commands.add(new VoteCommand(vote.getSurveyId(), vote.getEmployeeEmail(), vote.isResponse()));
+        }
+        return commands;
+    }
+
+    public static List<ThriftVoteResultDto> toThriftVoteResultDtos(List<VoteResult> results) {
+        List<ThriftVoteResultDto> dtos = new ArrayList<>(results.size());
+        for (VoteResult result : results) {
+            ThriftVoteResultDto dto = new ThriftVoteResultDto();
+            dto.setStatus(ThriftVoteStatus.valueOf(result.getStatus().name()));
+            if (result.getResponse() != null) {
+                dto.setSavedResponse(toThriftResponseDto(result.getResponse()));
+            }
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,52 @@
+package es.udc.ws.app.thriftservice;
+
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.surveyservice.SurveyCommand;
+import es.udc.ws.app.thrift.ThriftSurveyDto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ThriftSurveyDtoConversor {
+
+    private ThriftSurveyDtoConversor() {
+    }
+
+    public static ThriftSurveyDto toThriftSurveyDto(Survey survey) {
+        return new ThriftSurveyDto(survey.getSurveyId(), survey.getQuestion(),
+                toEpochMillis(survey.getCreationDate()), toEpochMillis(survey.getEndDate()),
+                survey.isCanceled(), survey.getPositiveResponses(), survey.getNegativeResponses());
+    }
+
+    public static List<ThriftSurveyDto> toThriftSurveyDtos(List<Survey> surveys) {
+        List<ThriftSurveyDto> dtos = new ArrayList<>(surveys.size());
+        for (Survey survey : surveys) {
+            dtos.add(toThriftSurveyDto(survey));
+        }
+        return dtos;
+    }
+
+    public static List<SurveyCommand> toSurveyCommands(List<ThriftSurveyDto> surveys) {
+        List<SurveyCommand> commands = new ArrayList<>(surveys.size());
+        for (ThriftSurveyDto survey : surveys) {
+            commands.add(new SurveyCommand(survey.getQuestion(),
+                    survey.isSetEndDate() ? toLocalDateTime(survey.getEndDate()) : null));
+        }
+        return commands;
+    }
+
+    /**
+     * Las fechas se intercambian como milisegundos desde epoch, interpretando
+     * la fecha local en UTC (ver ThriftSurveyService.thrift).
+     */
+    static long toEpochMillis(LocalDateTime date) {
+        return date.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000),
+                Math.floorMod(epochMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+}
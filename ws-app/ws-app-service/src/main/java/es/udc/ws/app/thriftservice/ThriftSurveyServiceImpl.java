@@ -0,0 +1,162 @@
+package es.udc.ws.app.thriftservice;
+
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.surveyservice.SurveyService;
+import es.udc.ws.app.model.surveyservice.SurveyServiceFactory;
+import es.udc.ws.app.model.surveyservice.VoteResult;
+import es.udc.ws.app.model.surveyservice.exceptions.InputValidationException;
+import es.udc.ws.app.model.surveyservice.exceptions.SurveyAlreadyCanceledException;
+import es.udc.ws.app.model.surveyservice.exceptions.SurveyCanceledException;
+import es.udc.ws.app.model.surveyservice.exceptions.SurveyFinishedException;
+import es.udc.ws.app.thrift.ThriftInputValidationException;
+import es.udc.ws.app.thrift.ThriftInstanceNotFoundException;
+import es.udc.ws.app.thrift.ThriftResponseDto;
+import es.udc.ws.app.thrift.ThriftSurveyAlreadyCanceledException;
+import es.udc.ws.app.thrift.ThriftSurveyCanceledException;
+import es.udc.ws.app.thrift.ThriftSurveyDto;
+import es.udc.ws.app.thrift.ThriftSurveyFinishedException;
+import es.udc.ws.app.thrift.ThriftSurveyService;
+import es.udc.ws.app.thrift.ThriftVoteDto;
+import es.udc.ws.app.thrift.ThriftVoteResultDto;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+import org.apache.thrift.TException;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+public class ThriftSurveyServiceImpl implements ThriftSurveyService.Iface {
+
+    // Mismos límites que POST /votes y POST /surveys/batch en la API REST
+    private static final int MAX_VOTES_PER_REQUEST = 10000;
+    private static final int MAX_SURVEYS_PER_REQUEST = 10000;
+
+    private final SurveyService surveyService = SurveyServiceFactory.getService();
+
+    @Override
+    public ThriftSurveyDto createSurvey(String question, long endDate) throws ThriftInputValidationException {
+
+        try {
+            Survey survey = surveyService.createSurvey(question,
+                    ThriftSurveyDtoConversor.toLocalDateTime(endDate));
+            return ThriftSurveyDtoConversor.toThriftSurveyDto(survey);
+        } catch (InputValidationException e) {
+            throw new ThriftInputValidationException(e.getMessage());
+        }
+    }
+
+    @Override
+    public List<ThriftSurveyDto> createSurveys(List<ThriftSurveyDto> surveys)
+            throws ThriftInputValidationException {
+
+        if (surveys == null || surveys.isEmpty()) {
+            throw new ThriftInputValidationException("The batch must contain at least one survey");
+        }
+        if (surveys.size() > MAX_SURVEYS_PER_REQUEST) {
+            throw new ThriftInputValidationException(
+                    "A batch can contain at most " + MAX_SURVEYS_PER_REQUEST + " surveys");
+        }
+
+        try {
+            return ThriftSurveyDtoConversor.toThriftSurveyDtos(
+                    surveyService.createSurveys(ThriftSurveyDtoConversor.toSurveyCommands(surveys)));
+        } catch (InputValidationException e) {
+            throw new ThriftInputValidationException(e.getMessage());
+        }
+    }
+
+    @Override
+    public List<ThriftSurveyDto> findSurveys(String keyword, boolean onlyFuture) {
+        return ThriftSurveyDtoConversor.toThriftSurveyDtos(surveyService.findSurveys(keyword, onlyFuture));
+    }
+
+    @Override
+    public ThriftSurveyDto findSurvey(long surveyId) throws ThriftInstanceNotFoundException {
+
+        try {
+            return ThriftSurveyDtoConversor.toThriftSurveyDto(surveyService.findSurvey(surveyId));
+        } catch (InstanceNotFoundException e) {
+            throw toThriftInstanceNotFoundException(e);
+        }
+    }
+
+    @Override
+    public ThriftResponseDto respondToSurvey(long surveyId, String employeeEmail, boolean response)
+            throws ThriftInstanceNotFoundException, ThriftInputValidationException,
+            ThriftSurveyFinishedException, ThriftSurveyCanceledException, TException {
+
+        // Como en la API REST, se usa la versión asíncrona para que el voto pueda
+        // agruparse con otros en un mismo commit
+        try {
+            Response savedResponse = surveyService.respondToSurveyAsync(surveyId, employeeEmail, response).get();
+            return ThriftResponseDtoConversor.toThriftResponseDto(savedResponse);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InstanceNotFoundException notFound) {
+                throw toThriftInstanceNotFoundException(notFound);
+            } else if (cause instanceof InputValidationException) {
+                throw new ThriftInputValidationException(cause.getMessage());
+            } else if (cause instanceof SurveyFinishedException) {
+                throw new ThriftSurveyFinishedException(cause.getMessage());
+            } else if (cause instanceof SurveyCanceledException) {
+                throw new ThriftSurveyCanceledException(cause.getMessage());
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    @Override
+    public List<ThriftVoteResultDto> respondToSurveyBatch(List<ThriftVoteDto> votes)
+            throws ThriftInputValidationException {
+
+        if (votes == null || votes.isEmpty()) {
+            throw new ThriftInputValidationException("The batch must contain at least one vote");
+        }
+        if (votes.size() > MAX_VOTES_PER_REQUEST) {
+            throw new ThriftInputValidationException(
+                    "A batch can contain at most " + MAX_VOTES_PER_REQUEST + " votes");
+        }
+
+        List<VoteResult> results = surveyService.respondToSurveyBatch(
+                ThriftResponseDtoConversor.toVoteCommands(votes));
+        return ThriftResponseDtoConversor.toThriftVoteResultDtos(results);
+    }
+
+    @Override
+    public ThriftSurveyDto cancelSurvey(long surveyId) throws ThriftInstanceNotFoundException,
+            ThriftSurveyFinishedException, ThriftSurveyAlreadyCanceledException {
+
+        try {
+            return ThriftSurveyDtoConversor.toThriftSurveyDto(surveyService.cancelSurvey(surveyId));
+        } catch (InstanceNotFoundException e) {
+            throw toThriftInstanceNotFoundException(e);
+        } catch (SurveyFinishedException e) {
+            throw new ThriftSurveyFinishedException(e.getMessage());
+        } catch (SurveyAlreadyCanceledException e) {
+            throw new ThriftSurveyAlreadyCanceledException(e.getMessage());
+        }
+    }
+
+    @Override
+    public List<ThriftResponseDto> getResponses(long surveyId, boolean onlyPositive)
+            throws ThriftInstanceNotFoundException {
+
+        try {
+            return ThriftResponseDtoConversor.toThriftResponseDtos(
+                    surveyService.getResponses(surveyId, onlyPositive));
+        } catch (InstanceNotFoundException e) {
+            throw toThriftInstanceNotFoundException(e);
+        }
+    }
+
+    private static ThriftInstanceNotFoundException toThriftInstanceNotFoundException(
+            InstanceNotFoundException e) {
+        return new ThriftInstanceNotFoundException(String.valueOf(e.getInstanceId()),
+                e.getInstanceType().substring(e.getInstanceType().lastIndexOf('.') + 1));
+    }
+}
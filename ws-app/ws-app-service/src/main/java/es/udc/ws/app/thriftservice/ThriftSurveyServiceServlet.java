@@ -0,0 +1,28 @@
+package es.udc.ws.app.thriftservice;
+
+import es.udc.ws.app.thrift.ThriftSurveyService;
+import org.apache.thrift.TProcessor;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.server.TServlet;
+
+/**
+ * Sirve {@link ThriftSurveyService} sobre HTTP con el protocolo compacto, pensado
+ * para los clientes internos de gran volumen que no necesitan la API REST.
+ */
+public class ThriftSurveyServiceServlet extends TServlet {
+
+    public ThriftSurveyServiceServlet() {
+        super(createProcessor(), createProtocolFactory());
+    }
+
+    private static TProcessor createProcessor() {
+        return new ThriftSurveyService.Processor<ThriftSurveyService.Iface>(new ThriftSurveyServiceImpl());
+    }
+
+    private static TProtocolFactory createProtocolFactory() {
+        // Enteros en varint y cabeceras de campo de un byte: mensajes más
+        // pequeños que con el protocolo binario y el mismo coste de CPU
+        return new TCompactProtocol.Factory();
+    }
+}
@@ -0,0 +1,337 @@
+package es.udc.ws.app.test.restservice;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import es.udc.ws.app.model.response.Response;
+import es.udc.ws.app.model.survey.Survey;
+import es.udc.ws.app.model.surveyservice.SurveyService;
+import es.udc.ws.app.model.surveyservice.exceptions.InputValidationException;
+import es.udc.ws.app.model.surveyservice.exceptions.SurveyAlreadyCanceledException;
+import es.udc.ws.app.model.surveyservice.exceptions.SurveyCanceledException;
+import es.udc.ws.app.model.surveyservice.exceptions.SurveyFinishedException;
+import es.udc.ws.app.restservice.json.AppExceptionToJsonConversor;
+import es.udc.ws.app.restservice.servlets.SurveysServlet;
+import es.udc.ws.app.restservice.servlets.VotesServlet;
+import es.udc.ws.util.exceptions.InstanceNotFoundException;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba el código de estado y el cuerpo de error con que responden los
+ * servlets REST a cada excepción del modelo. Los servlets se ejecutan sin
+ * contenedor, sobre peticiones y respuestas simuladas, y con un SurveyService
+ * que devuelve o lanza lo que indica cada prueba.
+ */
+public class RestServiceTest {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Respuesta HTTP que escribió el servlet.
+     */
+    private static class HttpResult {
+
+        private final int status;
+        private final String body;
+        private final Map<String, String> headers;
+
+        private HttpResult(int status, String body, Map<String, String> headers) {
+            this.status = status;
+            this.body = body;
+            this.headers = headers;
+        }
+    }
+
+    @Test
+    public void testExceptionToStatusCode() {
+
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST,
+                AppExceptionToJsonConversor.toStatusCode(new InputValidationException("Invalid")));
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST,
+                AppExceptionToJsonConversor.toStatusCode(new JsonParseException((JsonParser) null, "Invalid")));
+        assertEquals(HttpServletResponse.SC_NOT_FOUND,
+                AppExceptionToJsonConversor.toStatusCode(new InstanceNotFoundException(1L, "Survey")));
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, AppExceptionToJsonConversor.toStatusCode(
+                new es.udc.ws.app.model.surveyservice.exceptions.InstanceNotFoundException("Not found")));
+        assertEquals(HttpServletResponse.SC_GONE,
+                AppExceptionToJsonConversor.toStatusCode(new SurveyFinishedException("Finished")));
+        assertEquals(HttpServletResponse.SC_GONE,
+                AppExceptionToJsonConversor.toStatusCode(new SurveyCanceledException("Canceled")));
+        assertEquals(HttpServletResponse.SC_CONFLICT,
+                AppExceptionToJsonConversor.toStatusCode(new SurveyAlreadyCanceledException("Canceled")));
+        assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                AppExceptionToJsonConversor.toStatusCode(new IllegalStateException("Bug")));
+    }
+
+    @Test
+    public void testWriteException() throws IOException {
+
+        String notFound = writeException(new InstanceNotFoundException(7L, "Survey"));
+        assertTrue(notFound.contains("\"errorType\":\"InstanceNotFound\""));
+        assertTrue(notFound.contains("\"instanceId\":\"7\""));
+        assertTrue(notFound.contains("\"instanceType\":\"Survey\""));
+
+        assertTrue(writeException(new SurveyCanceledException("Survey 7 is canceled"))
+                .contains("\"errorType\":\"SurveyCanceled\""));
+        assertTrue(writeException(new JsonParseException((JsonParser) null, "Unexpected end"))
+                .contains("\"errorType\":\"InputValidation\""));
+
+        // Los errores internos no se describen al cliente
+        String internal = writeException(new IllegalStateException("Connection refused: db01"));
+        assertTrue(internal.contains("\"errorType\":\"InternalError\""));
+        assertFalse(internal.contains("db01"));
+    }
+
+    @Test
+    public void testSurveysServletStatusCodes() throws Exception {
+
+        Survey survey = new Survey(1L, "Pregunta", LocalDateTime.now(), LocalDateTime.now().plusDays(1),
+                false, 0, 0);
+
+        // Correctas
+        assertEquals(HttpServletResponse.SC_OK,
+                execute(new SurveysServlet(service("findSurvey", survey)), "GET", "/1", null).status);
+        HttpResult created = execute(new SurveysServlet(service("createSurvey", survey)), "POST", null,
+                "{\"question\": \"Pregunta\", \"endDate\": \"2030-01-01T00:00:00\"}");
+        assertEquals(HttpServletResponse.SC_CREATED, created.status);
+        assertEquals("http://localhost/surveys/1", created.headers.get("Location"));
+
+        // Rutas y métodos desconocidos, identificadores y cuerpos no válidos
+        SurveysServlet unusedServlet = new SurveysServlet(service("none", null));
+        assertError(HttpServletResponse.SC_NOT_FOUND, "NotFound",
+                execute(unusedServlet, "GET", "/1/unknown", null));
+        assertError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "MethodNotAllowed",
+                execute(unusedServlet, "DELETE", "/1", null));
+        assertError(HttpServletResponse.SC_BAD_REQUEST, "InputValidation",
+                execute(unusedServlet, "GET", "/abc", null));
+        assertError(HttpServletResponse.SC_BAD_REQUEST, "InputValidation",
+                execute(unusedServlet, "POST", null, "{\"question\": "));
+        assertError(HttpServletResponse.SC_BAD_REQUEST, "InputValidation",
+                execute(unusedServlet, "POST", "/1/responses", "{\"employeeEmail\": \"a@udc.es\"}"));
+
+        // Excepciones del servicio
+        assertError(HttpServletResponse.SC_NOT_FOUND, "InstanceNotFound", execute(new SurveysServlet(
+                service("findSurvey", new InstanceNotFoundException(1L, "Survey"))), "GET", "/1", null));
+        assertError(HttpServletResponse.SC_BAD_REQUEST, "InputValidation", execute(new SurveysServlet(
+                service("createSurvey", new InputValidationException("Question is required"))), "POST", null,
+                "{\"endDate\": \"2030-01-01T00:00:00\"}"));
+        assertError(HttpServletResponse.SC_CONFLICT, "SurveyAlreadyCanceled", execute(new SurveysServlet(
+                service("cancelSurvey", new SurveyAlreadyCanceledException("Already canceled"))),
+                "POST", "/1/cancel", null));
+        assertError(HttpServletResponse.SC_GONE, "SurveyFinished", execute(new SurveysServlet(
+                service("cancelSurvey", new SurveyFinishedException("Finished"))), "POST", "/1/cancel", null));
+
+        // Los votos se resuelven de forma asíncrona: el error llega en el futuro
+        String vote = "{\"employeeEmail\": \"a@udc.es\", \"response\": true}";
+        assertError(HttpServletResponse.SC_GONE, "SurveyCanceled", execute(new SurveysServlet(
+                service("respondToSurveyAsync", CompletableFuture.failedFuture(
+                        new SurveyCanceledException("Canceled")))), "POST", "/1/responses", vote));
+        assertError(HttpServletResponse.SC_GONE, "SurveyFinished", execute(new SurveysServlet(
+                service("respondToSurveyAsync", CompletableFuture.failedFuture(
+                        new SurveyFinishedException("Finished")))), "POST", "/1/responses", vote));
+        assertEquals(HttpServletResponse.SC_OK, execute(new SurveysServlet(
+                service("respondToSurveyAsync", CompletableFuture.completedFuture(
+                        new Response(1L, 1L, "a@udc.es", true, LocalDateTime.now())))), "POST", "/1/responses", vote).status);
+
+        // Errores inesperados: 500 sin detalles
+        HttpResult internalError = execute(new SurveysServlet(
+                service("cancelSurvey", new IllegalStateException("Connection refused: db01"))),
+                "POST", "/1/cancel", null);
+        assertError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "InternalError", internalError);
+        assertFalse(internalError.body.contains("db01"));
+    }
+
+    @Test
+    public void testVotesServletStatusCodes() throws Exception {
+
+        VotesServlet unusedServlet = new VotesServlet(service("none", null));
+
+        assertError(HttpServletResponse.SC_NOT_FOUND, "NotFound", execute(unusedServlet, "POST", "/1", "[]"));
+        assertError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "MethodNotAllowed",
+                execute(unusedServlet, "GET", null, null));
+        assertError(HttpServletResponse.SC_BAD_REQUEST, "InputValidation",
+                execute(unusedServlet, "POST", null, "{}"));
+        assertError(HttpServletResponse.SC_BAD_REQUEST, "InputValidation",
+                execute(unusedServlet, "POST", null, "[{\"surveyId\": 1}]"));
+
+        assertEquals(HttpServletResponse.SC_OK, execute(new VotesServlet(
+                service("respondToSurveyBatch", List.of())), "POST", null, "[]").status);
+    }
+
+    private static void assertError(int expectedStatus, String expectedErrorType, HttpResult result) {
+        assertEquals(expectedStatus, result.status, result.body);
+        assertTrue(result.body.contains("\"errorType\":\"" + expectedErrorType + "\""), result.body);
+    }
+
+    private static String writeException(Exception e) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            AppExceptionToJsonConversor.writeException(generator, e);
+        }
+
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * SurveyService en el que el método indicado devuelve result, o lo lanza si
+     * es una excepción. El resto de métodos fallan.
+     */
+    private static SurveyService service(String methodName, Object result) {
+        return (SurveyService) Proxy.newProxyInstance(SurveyService.class.getClassLoader(),
+                new Class<?>[] {SurveyService.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals(methodName)) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    if (result instanceof Exception exception) {
+                        throw exception;
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Ejecuta la petición en el servlet y espera a que complete la respuesta
+     * asíncrona.
+     */
+    private static HttpResult execute(HttpServlet servlet, String method, String pathInfo, String body)
+            throws Exception {
+
+        byte[] requestBody = (body != null ? body : "").getBytes(StandardCharsets.UTF_8);
+        ByteArrayInputStream requestStream = new ByteArrayInputStream(requestBody);
+        ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+        Map<String, String> headers = new HashMap<>();
+        int[] status = {HttpServletResponse.SC_OK};
+        CountDownLatch completed = new CountDownLatch(1);
+
+        AsyncContext asyncContext = proxy(AsyncContext.class, (name, args) -> switch (name) {
+            case "setTimeout" -> null;
+            case "complete" -> {
+                completed.countDown();
+                yield null;
+            }
+            default -> throw new UnsupportedOperationException(name);
+        });
+
+        HttpServletRequest request = proxy(HttpServletRequest.class, (name, args) -> switch (name) {
+            case "getMethod" -> method;
+            case "getPathInfo" -> pathInfo;
+            case "getParameter", "getHeader" -> null;
+            case "getRequestURI" -> "/surveys" + (pathInfo != null ? pathInfo : "");
+            case "getRequestURL" -> new StringBuffer("http://localhost/surveys" + (pathInfo != null ? pathInfo : ""));
+            case "startAsync" -> asyncContext;
+            case "getInputStream" -> new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return requestStream.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return requestStream.read();
+                }
+            };
+            default -> throw new UnsupportedOperationException(name);
+        });
+
+        HttpServletResponse response = proxy(HttpServletResponse.class, (name, args) -> switch (name) {
+            case "setStatus" -> {
+                status[0] = (Integer) args[0];
+                yield null;
+            }
+            case "setHeader" -> {
+                headers.put((String) args[0], (String) args[1]);
+                yield null;
+            }
+            case "setContentType", "setCharacterEncoding" -> null;
+            case "isCommitted" -> false;
+            case "reset" -> {
+                status[0] = HttpServletResponse.SC_OK;
+                headers.clear();
+                responseBody.reset();
+                yield null;
+            }
+            case "getOutputStream" -> new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void write(int b) {
+                    responseBody.write(b);
+                }
+            };
+            default -> throw new UnsupportedOperationException(name);
+        });
+
+        // Los errores 500 se registran en el log del contexto
+        ServletContext context = proxy(ServletContext.class, (name, args) -> null);
+        servlet.init(proxy(ServletConfig.class, (name, args) -> switch (name) {
+            case "getServletContext" -> context;
+            case "getServletName" -> servlet.getClass().getSimpleName();
+            default -> null;
+        }));
+
+        servlet.service(request, response);
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+
+        return new HttpResult(status[0], responseBody.toString(StandardCharsets.UTF_8), headers);
+    }
+
+    @FunctionalInterface
+    private interface MethodHandler {
+        Object invoke(String methodName, Object[] args) throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, MethodHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> method.getDeclaringClass() == Object.class
+                        ? method.invoke(handler, args)
+                        : handler.invoke(method.getName(), args));
+    }
+}
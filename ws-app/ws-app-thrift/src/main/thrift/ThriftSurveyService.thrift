@@ -0,0 +1,96 @@
+namespace java es.udc.ws.app.thrift
+
+/*
+ * Las fechas viajan como milisegundos desde epoch, interpretando la fecha local
+ * en UTC: con el protocolo compacto un i64 ocupa unos pocos bytes y no hay que
+ * formatear ni analizar texto.
+ */
+
+struct ThriftSurveyDto {
+    1: i64 surveyId
+    2: string question
+    3: i64 creationDate
+    4: i64 endDate
+    5: bool canceled
+    6: i64 positiveResponses
+    7: i64 negativeResponses
+}
+
+struct ThriftResponseDto {
+    1: i64 responseId
+    2: i64 surveyId
+    3: string employeeEmail
+    4: bool response
+    5: i64 responseDate
+}
+
+struct ThriftVoteDto {
+    1: i64 surveyId
+    2: string employeeEmail
+    3: bool response
+}
+
+enum ThriftVoteStatus {
+    ACCEPTED,
+    UPDATED,
+    REJECTED_INVALID,
+    REJECTED_NOT_FOUND,
+    REJECTED_FINISHED,
+    REJECTED_CANCELED
+}
+
+struct ThriftVoteResultDto {
+    1: ThriftVoteStatus status
+    2: optional ThriftResponseDto savedResponse
+}
+
+exception ThriftInputValidationException {
+    1: string message
+}
+
+exception ThriftInstanceNotFoundException {
+    1: string instanceId
+    2: string instanceType
+}
+
+exception ThriftSurveyFinishedException {
+    1: string message
+}
+
+exception ThriftSurveyCanceledException {
+    1: string message
+}
+
+exception ThriftSurveyAlreadyCanceledException {
+    1: string message
+}
+
+service ThriftSurveyService {
+
+    ThriftSurveyDto createSurvey(1: string question, 2: i64 endDate)
+        throws (1: ThriftInputValidationException e)
+
+    /* Sólo se leen question y endDate de cada encuesta */
+    list<ThriftSurveyDto> createSurveys(1: list<ThriftSurveyDto> surveys)
+        throws (1: ThriftInputValidationException e)
+
+    list<ThriftSurveyDto> findSurveys(1: string keyword, 2: bool onlyFuture)
+
+    ThriftSurveyDto findSurvey(1: i64 surveyId)
+        throws (1: ThriftInstanceNotFoundException e)
+
+    ThriftResponseDto respondToSurvey(1: i64 surveyId, 2: string employeeEmail, 3: bool response)
+        throws (1: ThriftInstanceNotFoundException e1, 2: ThriftInputValidationException e2,
+                3: ThriftSurveyFinishedException e3, 4: ThriftSurveyCanceledException e4)
+
+    list<ThriftVoteResultDto> respondToSurveyBatch(1: list<ThriftVoteDto> votes)
+        throws (1: ThriftInputValidationException e)
+
+    ThriftSurveyDto cancelSurvey(1: i64 surveyId)
+        throws (1: ThriftInstanceNotFoundException e1, 2: ThriftSurveyFinishedException e2,
+                3: ThriftSurveyAlreadyCanceledException e3)
+
+    list<ThriftResponseDto> getResponses(1: i64 surveyId, 2: bool onlyPositive)
+        throws (1: ThriftInstanceNotFoundException e)
+
+}